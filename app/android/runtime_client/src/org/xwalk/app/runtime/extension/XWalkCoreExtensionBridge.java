@@ -7,6 +7,8 @@ package org.xwalk.app.runtime.extension;
 import android.content.Context;
 import android.content.Intent;
 
+import java.nio.ByteBuffer;
+
 import org.xwalk.core.XWalkExtension;
 
 /**
@@ -27,10 +29,19 @@ class XWalkCoreExtensionBridge extends XWalkExtension implements XWalkRuntimeExt
         mExtension.onMessage(instanceID, message);
     }
 
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        mExtension.onBinaryMessage(instanceID, message);
+    }
+
     public String onSyncMessage(int instanceID, String message) {
         return mExtension.onSyncMessage(instanceID, message);
     }
 
+    @Override
+    public String onSyncMessageTimeout(int instanceID, String message) {
+        return mExtension.onSyncMessageTimeout(instanceID, message);
+    }
+
     public void onDestroy() {
         mExtension.onDestroy();
     }
@@ -63,9 +74,34 @@ class XWalkCoreExtensionBridge extends XWalkExtension implements XWalkRuntimeExt
         super.postMessage(instanceId, message);
     }
 
+    @Override
+    public void postBinaryMessage(int instanceId, ByteBuffer message) {
+        super.postBinaryMessage(instanceId, message);
+    }
+
     @Override
     public void broadcastMessage(String message) {
         super.broadcastMessage(message);
     }
 
+    @Override
+    public void setSyncMessageTimeout(int timeoutMs) {
+        super.setSyncMessageTimeout(timeoutMs);
+    }
+
+    @Override
+    public void setCachedSyncReply(String message, String reply) {
+        super.setCachedSyncReply(message, reply);
+    }
+
+    @Override
+    public String getMessagingMetrics() {
+        return super.getMessagingMetrics();
+    }
+
+    @Override
+    public void resetMessagingMetrics() {
+        super.resetMessagingMetrics();
+    }
+
 }
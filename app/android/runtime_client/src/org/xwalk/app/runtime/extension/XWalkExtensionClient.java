@@ -6,6 +6,8 @@ package org.xwalk.app.runtime.extension;
 
 import android.content.Intent;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class is to encapsulate the reflection detail of
  * invoking XWalkExtension class in the shared library APK.
@@ -102,6 +104,16 @@ public class XWalkExtensionClient {
     public void onMessage(int extensionInstanceID, String message) {
     }
 
+    /**
+     * JavaScript posts an ArrayBuffer or a typed array into Java code.
+     * The buffer wraps native memory and is only valid during this call,
+     * so the inherited classes have to copy out the data they want to keep.
+     * @param extensionInstanceID the ID of extension instance where the message came from.
+     * @param message the binary message from JavaScript code.
+     */
+    public void onBinaryMessage(int extensionInstanceID, ByteBuffer message) {
+    }
+
     /**
      * Synchronized JavaScript calls into Java code. Similar to
      * onMessage. The only difference is it's a synchronized
@@ -113,6 +125,38 @@ public class XWalkExtensionClient {
         return "";
     }
 
+    /**
+     * Called instead of waiting for onSyncMessage when it misses the deadline
+     * set with setSyncMessageTimeout. The returned value is what JavaScript
+     * gets, the result of the late onSyncMessage is dropped.
+     * @param extensionInstanceID the ID of extension instance where the message came from.
+     * @param message the message from JavaScript code.
+     */
+    public String onSyncMessageTimeout(int extensionInstanceID, String message) {
+        return "";
+    }
+
+    /**
+     * Give onSyncMessage a deadline so that a slow handler can't hang the
+     * page. Once set, onSyncMessage is called on a worker thread instead of
+     * the extension thread, and onSyncMessageTimeout provides the reply if it
+     * doesn't return in time.
+     * @param timeoutMs the deadline in milliseconds, none if <= 0.
+     */
+    public final void setSyncMessageTimeout(int timeoutMs) {
+        mExtensionContext.setSyncMessageTimeout(this, timeoutMs);
+    }
+
+    /**
+     * Set a precomputed reply for a sync message. JavaScript gets it right
+     * away whenever it sends exactly this message, onSyncMessage isn't called.
+     * @param message the sync message from JavaScript code.
+     * @param reply the reply, or null to remove it.
+     */
+    public final void setCachedSyncReply(String message, String reply) {
+        mExtensionContext.setCachedSyncReply(this, message, reply);
+    }
+
 
     /**
      * Post messages to JavaScript via extension's context.
@@ -125,6 +169,17 @@ public class XWalkExtensionClient {
         mExtensionContext.postMessage(this, instanceID, message);
     }
 
+    /**
+     * Post binary messages to JavaScript via extension's context.
+     * The bytes between position and limit of the buffer arrive on
+     * JavaScript side as an ArrayBuffer without any string conversion.
+     * @param instanceID the ID of target extension instance.
+     * @param message the direct ByteBuffer to be passed to Javascript.
+     */
+    public final void postBinaryMessage(int instanceID, ByteBuffer message) {
+        mExtensionContext.postBinaryMessage(this, instanceID, message);
+    }
+
     /**
      * Broadcast messages to JavaScript via extension's context.
      * It's used by child classes to broadcast message from Java side
@@ -7,6 +7,8 @@ package org.xwalk.app.runtime.extension;
 import android.app.Activity;
 import android.content.Context;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for extension context
  *
@@ -34,6 +36,17 @@ public interface XWalkExtensionContextClient {
      */
     public void postMessage(XWalkExtensionClient extension, int instanceId, String message);
 
+    /**
+     * Post a binary message to the given extension instance.
+     *
+     * @param extension The xwalk extension
+     * @param instanceId The unique id to identify the extension instance as the
+     *                   message destination.
+     * @param message The direct buffer holding the message content.
+     */
+    public void postBinaryMessage(XWalkExtensionClient extension, int instanceId,
+            ByteBuffer message);
+
     /**
      * Broadcast a message to all extension instances.
      *
@@ -42,6 +55,25 @@ public interface XWalkExtensionContextClient {
      */
     public void broadcastMessage(XWalkExtensionClient extension, String message);
 
+    /**
+     * Give the sync message handler of the given extension a deadline.
+     *
+     * @param extension The xwalk extension
+     * @param timeoutMs The deadline in milliseconds, none if <= 0.
+     */
+    public void setSyncMessageTimeout(XWalkExtensionClient extension, int timeoutMs);
+
+    /**
+     * Set the reply sent to the sync messages equal to the given one without
+     * calling the extension.
+     *
+     * @param extension The xwalk extension
+     * @param message The sync message content.
+     * @param reply The reply, or null to remove it.
+     */
+    public void setCachedSyncReply(XWalkExtensionClient extension, String message,
+            String reply);
+
     /**
      * Get current Android Context.
      * @return the current Android Context.
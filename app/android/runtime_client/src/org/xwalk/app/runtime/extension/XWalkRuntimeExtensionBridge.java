@@ -6,6 +6,8 @@ package org.xwalk.app.runtime.extension;
 
 import android.content.Intent;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for bridging XWalkExtension functionalities to its backend implementation.
  */
@@ -25,6 +27,15 @@ interface XWalkRuntimeExtensionBridge {
      */
     public void postMessage(int instanceId, String message);
 
+    /**
+     * Post a binary message from native to a specific receiver on JavaScript side.
+     *
+     * @param instanceId The internal unique id on native side to identify the message
+     *                   receiver.
+     * @param message The direct buffer holding the message content.
+     */
+    public void postBinaryMessage(int instanceId, ByteBuffer message);
+
     /**
      * Broadcast a message frome native side to all receivers on JavaScript side.
      *
@@ -40,6 +51,14 @@ interface XWalkRuntimeExtensionBridge {
      */
     public void onMessage(int instanceId, String message);
 
+    /**
+     * Handle the binary message from JavaScript side to native side.
+     *
+     * @param instanceId The extension instance id.
+     * @param message The message content, only valid during the call.
+     */
+    public void onBinaryMessage(int instanceId, ByteBuffer message);
+
     /**
      * Handle the message from JavaScript side to native side in a synchronous way.
      *
@@ -53,6 +72,46 @@ interface XWalkRuntimeExtensionBridge {
      */
     public String onSyncMessage(int instanceId, String message);
 
+    /**
+     * Give onSyncMessage a deadline. When set, onSyncMessage is called on a
+     * worker thread and JavaScript gets the result of onSyncMessageTimeout if
+     * it doesn't return in time.
+     *
+     * @param timeoutMs The deadline in milliseconds, none if <= 0.
+     */
+    public void setSyncMessageTimeout(int timeoutMs);
+
+    /**
+     * Reply to the sync messages equal to the given one without calling
+     * onSyncMessage.
+     *
+     * @param message The sync message content.
+     * @param reply The reply, or null to remove it.
+     */
+    public void setCachedSyncReply(String message, String reply);
+
+    /**
+     * Return the reply of a sync message which missed its deadline.
+     *
+     * @param instanceId The extension instance id.
+     * @param message The message content received on native side.
+     *
+     * @return The result to be posted to JavaScript side
+     */
+    public String onSyncMessageTimeout(int instanceId, String message);
+
+    /**
+     * Get the messaging counters of the extension.
+     *
+     * @return The counters as a JSON object string.
+     */
+    public String getMessagingMetrics();
+
+    /**
+     * Reset the messaging counters of the extension.
+     */
+    public void resetMessagingMetrics();
+
     /**
      * Called when the extension is required to be started.
      */
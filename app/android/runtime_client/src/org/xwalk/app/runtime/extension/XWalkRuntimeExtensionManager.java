@@ -10,19 +10,35 @@ import android.content.Intent;
 import android.content.res.AssetManager;
 import android.content.res.Resources;
 import android.content.res.Resources.NotFoundException;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.Class;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.xwalk.extensions.common.XWalkExtensionJsApiCache;
 
 /**
  * This internal class acts a manager to manage extensions.
@@ -30,6 +46,40 @@ import org.json.JSONObject;
 public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient {
     private final static String TAG = "XWalkExtensionManager";
     private final static String EXTENSION_CONFIG_FILE = "extensions-config.json";
+    private final static String JS_API_CACHE_NAME = "xwalk_extensions_jsapi.cache";
+    private final static int MAX_LOADER_THREADS = 4;
+
+    // The constructors of the external extension classes, resolved once per
+    // process since activities get re-created.
+    private final static ConcurrentHashMap<String, Constructor<?>> sConstructors =
+            new ConcurrentHashMap<String, Constructor<?>>();
+
+    // Shared by all the loads of the process, its threads go away when idle.
+    private final static ThreadPoolExecutor sLoader = new ThreadPoolExecutor(
+            MAX_LOADER_THREADS, MAX_LOADER_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "XWalkExtensionLoader");
+                }
+            });
+
+    static {
+        sLoader.allowCoreThreadTimeOut(true);
+    }
+
+    // An external extension ready to be created.
+    private static class ExternalExtension {
+        final String mName;
+        final String mJsApi;
+        final Constructor<?> mConstructor;
+
+        ExternalExtension(String name, String jsApi, Constructor<?> constructor) {
+            mName = name;
+            mJsApi = jsApi;
+            mConstructor = constructor;
+        }
+    }
 
     private final Context mContext;
     private final Activity mActivity;
@@ -38,6 +88,12 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
     // This variable is to set whether to load external extensions. The default is true.
     private boolean mLoadExternalExtensions;
 
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Only set while loading, also read by the loader threads.
+    private volatile XWalkExtensionJsApiCache mJsApiCache;
+    private Runnable mMetricsDumpRunnable;
+    private ExecutorService mMetricsWriter;
+
     public XWalkRuntimeExtensionManager(Context context, Activity activity) {
         mContext = context;
         mActivity = activity;
@@ -80,11 +136,31 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
         if (bridge != null) bridge.postMessage(instanceID, message);
     }
 
+    @Override
+    public void postBinaryMessage(XWalkExtensionClient extension, int instanceID,
+            ByteBuffer message) {
+        XWalkRuntimeExtensionBridge bridge = mExtensions.get(extension.getExtensionName());
+        if (bridge != null) bridge.postBinaryMessage(instanceID, message);
+    }
+
     public void broadcastMessage(XWalkExtensionClient extension, String message) {
         XWalkRuntimeExtensionBridge bridge = mExtensions.get(extension.getExtensionName());
         if (bridge != null) bridge.broadcastMessage(message);
     }
 
+    @Override
+    public void setSyncMessageTimeout(XWalkExtensionClient extension, int timeoutMs) {
+        XWalkRuntimeExtensionBridge bridge = mExtensions.get(extension.getExtensionName());
+        if (bridge != null) bridge.setSyncMessageTimeout(timeoutMs);
+    }
+
+    @Override
+    public void setCachedSyncReply(XWalkExtensionClient extension, String message,
+            String reply) {
+        XWalkRuntimeExtensionBridge bridge = mExtensions.get(extension.getExtensionName());
+        if (bridge != null) bridge.setCachedSyncReply(message, reply);
+    }
+
     public void onStart() {
         for(XWalkRuntimeExtensionBridge extension: mExtensions.values()) {
             extension.onStart();
@@ -110,6 +186,7 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
     }
 
     public void onDestroy() {
+        stopMetricsDump();
         for(XWalkRuntimeExtensionBridge extension: mExtensions.values()) {
             extension.onDestroy();
         }
@@ -122,6 +199,105 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
         }
     }
 
+    /**
+     * Get the messaging counters of all the registered extensions, keyed by
+     * extension name. See XWalkExtension.getMessagingMetrics().
+     */
+    public JSONObject getExtensionMetrics() {
+        JSONObject metrics = new JSONObject();
+        for (XWalkRuntimeExtensionBridge extension : mExtensions.values()) {
+            try {
+                JSONObject extensionMetrics = new JSONObject(extension.getMessagingMetrics());
+                metrics.put(extensionMetrics.getString("name"), extensionMetrics);
+            } catch (JSONException e) {
+                Log.e(TAG, "Invalid extension metrics: " + e.toString());
+            }
+        }
+        return metrics;
+    }
+
+    public void resetExtensionMetrics() {
+        for (XWalkRuntimeExtensionBridge extension : mExtensions.values()) {
+            extension.resetMessagingMetrics();
+        }
+    }
+
+    /**
+     * Periodically dump the messaging counters of all the extensions, to
+     * logcat if file is null, or appended to the given file one JSON object
+     * per line otherwise. Must be called on the UI thread.
+     *
+     * @param intervalMs The dump period in milliseconds.
+     * @param file The file to append to, or null for logcat.
+     */
+    public void startMetricsDump(final long intervalMs, final File file) {
+        stopMetricsDump();
+        if (intervalMs <= 0) {
+            Log.w(TAG, "Invalid metrics dump interval: " + intervalMs);
+            return;
+        }
+
+        if (file != null) mMetricsWriter = Executors.newSingleThreadExecutor();
+        mMetricsDumpRunnable = new Runnable() {
+            @Override
+            public void run() {
+                dumpMetrics(file);
+                mHandler.postDelayed(this, intervalMs);
+            }
+        };
+        mHandler.postDelayed(mMetricsDumpRunnable, intervalMs);
+    }
+
+    public void stopMetricsDump() {
+        if (mMetricsDumpRunnable == null) return;
+        mHandler.removeCallbacks(mMetricsDumpRunnable);
+        mMetricsDumpRunnable = null;
+        if (mMetricsWriter != null) {
+            // Lets the pending writes finish.
+            mMetricsWriter.shutdown();
+            mMetricsWriter = null;
+        }
+    }
+
+    private void dumpMetrics(final File file) {
+        final JSONObject dump = new JSONObject();
+        try {
+            dump.put("time", System.currentTimeMillis());
+            dump.put("extensions", getExtensionMetrics());
+        } catch (JSONException e) {
+            Log.e(TAG, e.toString());
+            return;
+        }
+
+        if (file == null) {
+            Log.i(TAG, "Extension metrics: " + dump.toString());
+            return;
+        }
+
+        // Keep the file I/O off the UI thread.
+        mMetricsWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                FileWriter writer = null;
+                try {
+                    writer = new FileWriter(file, true);
+                    writer.write(dump.toString());
+                    writer.write('\n');
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to write extension metrics to " + file);
+                } finally {
+                    if (writer != null) {
+                        try {
+                            writer.close();
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to close " + file);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
     public void loadExtensions() {
         loadExternalExtensions();
     }
@@ -133,6 +309,17 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
     private void loadExternalExtensions() {
         if (!mLoadExternalExtensions) return;
 
+        mJsApiCache = new XWalkExtensionJsApiCache(mActivity, JS_API_CACHE_NAME);
+        try {
+            loadExternalExtensionsFromConfig();
+        } finally {
+            mJsApiCache.save();
+            // The JS API files are only needed while loading.
+            mJsApiCache = null;
+        }
+    }
+
+    private void loadExternalExtensionsFromConfig() {
         // Read extensions-config.json and create external extensions.
         String configFileContent;
         try {
@@ -142,36 +329,110 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
             return;
         }
 
+        JSONArray jsonFeatures;
         try {
-            JSONArray jsonFeatures = new JSONArray(configFileContent);
-            int extensionCount = jsonFeatures.length();
-            for (int i = 0; i < extensionCount; i++) {
-                JSONObject jsonObject = jsonFeatures.getJSONObject(i);
-                String name = jsonObject.getString("name");
-                String className =  jsonObject.getString("class");
-                String jsApiFile = jsonObject.getString("jsapi");
-
-                // Load the content of the JavaScript file.
-                String jsApi;
-                try {
-                    jsApi = getExtensionJSFileContent(mActivity, jsApiFile, false);
-                } catch (IOException e) {
-                    Log.w(TAG, "Failed to read the file " + jsApiFile);
-                    return;
-                }
+            jsonFeatures = new JSONArray(configFileContent);
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to parse extensions-config.json");
+            return;
+        }
 
-                if (name != null && className != null && jsApi != null) {
-                    createExternalExtension(name, className, jsApi, this);
+        int extensionCount = jsonFeatures.length();
+        if (extensionCount == 0) return;
+
+        // The JavaScript files are read and the classes are resolved in
+        // parallel, only the extension objects are created on this thread.
+        ArrayList<Future<ExternalExtension>> loads =
+                new ArrayList<Future<ExternalExtension>>(extensionCount);
+        for (int i = 0; i < extensionCount; i++) {
+            final JSONObject jsonObject = jsonFeatures.optJSONObject(i);
+            if (jsonObject == null) {
+                Log.w(TAG, "Invalid entry in extensions-config.json: " + jsonFeatures.opt(i));
+                continue;
+            }
+            loads.add(sLoader.submit(new Callable<ExternalExtension>() {
+                @Override
+                public ExternalExtension call() {
+                    return loadExternalExtension(jsonObject);
                 }
+            }));
+        }
+
+        // The extensions have to be registered before the first renderer
+        // process starts, so wait for all of them. They are created in the
+        // order of the config file, each one as soon as it and the ones
+        // before it are ready.
+        for (Future<ExternalExtension> load : loads) {
+            ExternalExtension extension;
+            try {
+                extension = load.get();
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Interrupted while loading external extensions");
+                for (Future<ExternalExtension> pending : loads) pending.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                handleException(e);
+                continue;
             }
+            if (extension != null) createExternalExtension(extension);
+        }
+    }
+
+    // Called on a loader thread. Returns null if the extension can't be
+    // loaded, without affecting the other extensions.
+    private ExternalExtension loadExternalExtension(JSONObject jsonObject) {
+        String name;
+        String className;
+        String jsApiFile;
+        try {
+            name = jsonObject.getString("name");
+            className = jsonObject.getString("class");
+            jsApiFile = jsonObject.getString("jsapi");
         } catch (JSONException e) {
-            Log.w(TAG, "Failed to parse extensions-config.json");
+            Log.w(TAG, "Invalid entry in extensions-config.json: " + jsonObject);
+            return null;
+        }
+
+        // Load the content of the JavaScript file.
+        String jsApi;
+        try {
+            jsApi = getExtensionJSFileContent(mActivity, jsApiFile, false);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the file " + jsApiFile);
+            return null;
         }
+
+        try {
+            return new ExternalExtension(name, jsApi, getExtensionConstructor(className));
+        } catch (ClassNotFoundException e) {
+            handleException(e);
+        } catch (NoSuchMethodException e) {
+            handleException(e);
+        }
+        return null;
+    }
+
+    private Constructor<?> getExtensionConstructor(String className)
+            throws ClassNotFoundException, NoSuchMethodException {
+        Constructor<?> constructor = sConstructors.get(className);
+        if (constructor != null) return constructor;
+
+        Class<?> clazz = mActivity.getClassLoader().loadClass(className);
+        constructor = clazz.getConstructor(String.class,
+                String.class, XWalkExtensionContextClient.class);
+        sConstructors.put(className, constructor);
+        return constructor;
     }
 
     private String getExtensionJSFileContent(Context context, String fileName, boolean fromRaw)
             throws IOException {
-        String result = "";
+        // Loads still running after an interrupted loadExtensions() may find
+        // the cache gone.
+        XWalkExtensionJsApiCache cache = mJsApiCache;
+        String result = cache != null ? cache.get(fileName) : null;
+        if (result != null) return result;
+
         InputStream inputStream = null;
         try {
             if (fromRaw) {
@@ -193,36 +454,25 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
                 AssetManager assetManager = context.getAssets();
                 inputStream = assetManager.open(fileName);
             }
-            int size = inputStream.available();
-            byte[] buffer = new byte[size];
-            inputStream.read(buffer);
-            result = new String(buffer);
+            result = XWalkExtensionJsApiCache.readStream(inputStream);
         } finally {
             if (inputStream != null) {
                 inputStream.close();
             }
         }
+        if (cache != null) cache.put(fileName, result);
         return result;
     }
 
-    private void createExternalExtension(String name, String className, String jsApi,
-            XWalkExtensionContextClient extensionContext) {
-        Activity activity = extensionContext.getActivity();
+    private void createExternalExtension(ExternalExtension extension) {
         try {
-            Class<?> clazz = activity.getClassLoader().loadClass(className);
-            Constructor<?> constructor = clazz.getConstructor(String.class,
-                    String.class, XWalkExtensionContextClient.class);
-            constructor.newInstance(name, jsApi, this);
-        } catch (ClassNotFoundException e) {
-            handleException(e);
+            extension.mConstructor.newInstance(extension.mName, extension.mJsApi, this);
         } catch (IllegalAccessException e) {
             handleException(e);
         } catch (InstantiationException e) {
             handleException(e);
         } catch (InvocationTargetException e) {
             handleException(e);
-        } catch (NoSuchMethodException e) {
-            handleException(e);
         }
     }
 
@@ -0,0 +1,73 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2014 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Packs the web application assets into a single archive read by
+AndroidAssetArchive.java at runtime. All integers are big endian:
+
+  header: 'XWAR', version (uint32), entry count (uint32)
+  entries, sorted by name: name offset, name length, data offset,
+                           data length (uint32 each)
+  names, UTF-8 encoded paths relative to the assets directory
+  data
+
+Offsets are from the start of the archive.
+"""
+
+import os
+import struct
+import sys
+
+ARCHIVE_FILE_NAME = 'www.archive'
+MAGIC = b'XWAR'
+VERSION = 1
+HEADER_FORMAT = '>4sII'
+ENTRY_FORMAT = '>IIII'
+
+
+def ListFiles(assets_dir, www_dir):
+  """Returns the sorted list of (UTF-8 asset path, file path) under
+  www_dir."""
+  files = []
+  for root, _, names in os.walk(www_dir):
+    for name in names:
+      full_path = os.path.join(root, name)
+      asset_path = os.path.relpath(full_path, assets_dir).replace(os.sep, '/')
+      if not isinstance(asset_path, bytes):
+        asset_path = asset_path.encode('utf-8')
+      files.append((asset_path, full_path))
+  # Byte order, the runtime compares the UTF-8 bytes.
+  files.sort()
+  return files
+
+
+def CreateArchive(assets_dir, www_dir):
+  """Pack the files under www_dir into assets_dir/ARCHIVE_FILE_NAME."""
+  files = ListFiles(assets_dir, www_dir)
+  names_offset = (struct.calcsize(HEADER_FORMAT) +
+                  len(files) * struct.calcsize(ENTRY_FORMAT))
+  data_offset = names_offset + sum(len(name) for name, _ in files)
+
+  entries = []
+  for name, full_path in files:
+    size = os.path.getsize(full_path)
+    if data_offset + size > 0xffffffff:
+      print('Error: The web app is too big to be archived.')
+      sys.exit(1)
+    entries.append(struct.pack(ENTRY_FORMAT, names_offset, len(name),
+                               data_offset, size))
+    names_offset += len(name)
+    data_offset += size
+
+  archive_path = os.path.join(assets_dir, ARCHIVE_FILE_NAME)
+  with open(archive_path, 'wb') as archive:
+    archive.write(struct.pack(HEADER_FORMAT, MAGIC, VERSION, len(files)))
+    for entry in entries:
+      archive.write(entry)
+    for name, _ in files:
+      archive.write(name)
+    for _, full_path in files:
+      with open(full_path, 'rb') as f:
+        archive.write(f.read())
@@ -0,0 +1,85 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2014 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Writes the index of the web application assets read by
+AndroidAssetIndex.java at runtime, one line per file:
+
+  <path>\t<size>\t<mime type>\t<sha1>\t<1 if compressed in the APK, else 0>
+
+The path is relative to the assets directory, the mime type is empty if it
+is unknown.
+"""
+
+import hashlib
+import mimetypes
+import os
+
+INDEX_FILE_NAME = 'xwalk-asset-index'
+INDEX_VERSION = '1'
+
+# Extensions aapt stores without compression by default, see
+# frameworks/base/tools/aapt/Package.cpp.
+NO_COMPRESS_EXTENSIONS = [
+    '.jpg', '.jpeg', '.png', '.gif', '.wav', '.mp2', '.mp3', '.ogg', '.aac',
+    '.mpg', '.mpeg', '.mid', '.midi', '.smf', '.jet', '.rtttl', '.imy',
+    '.xmf', '.mp4', '.m4a', '.m4v', '.3gp', '.3gpp', '.3g2', '.3gpp2',
+    '.amr', '.awb', '.wma', '.wmv', '.webm',
+    # Not in the list, but aapt stores files deflate doesn't shrink.
+    '.gz'
+]
+
+# Types the mimetypes module may not know about or gets wrong on some hosts.
+EXTRA_MIME_TYPES = {
+    '.js': 'application/javascript',
+    '.json': 'application/json',
+    '.svg': 'image/svg+xml',
+    '.webm': 'video/webm',
+    '.webp': 'image/webp',
+    '.woff': 'application/font-woff',
+}
+
+
+def GetMimeType(path):
+  ext = os.path.splitext(path)[1].lower()
+  if ext in EXTRA_MIME_TYPES:
+    return EXTRA_MIME_TYPES[ext]
+  return mimetypes.guess_type(path)[0] or ''
+
+
+def GetSha1(path):
+  sha1 = hashlib.sha1()
+  with open(path, 'rb') as f:
+    while True:
+      data = f.read(65536)
+      if not data:
+        break
+      sha1.update(data)
+  return sha1.hexdigest()
+
+
+def IsCompressed(path, size):
+  ext = os.path.splitext(path)[1].lower()
+  return size > 0 and ext not in NO_COMPRESS_EXTENSIONS
+
+
+def GenerateAssetIndex(assets_dir, www_dir):
+  """Index the files under www_dir into assets_dir/INDEX_FILE_NAME."""
+  lines = [INDEX_VERSION]
+  for root, dirs, files in os.walk(www_dir):
+    dirs.sort()
+    for name in sorted(files):
+      full_path = os.path.join(root, name)
+      asset_path = os.path.relpath(full_path, assets_dir).replace(os.sep, '/')
+      if '\t' in asset_path or '\n' in asset_path:
+        print('Warning: %s is not indexed, its name contains a tab or a '
+              'line break.' % asset_path)
+        continue
+      size = os.path.getsize(full_path)
+      lines.append('\t'.join([asset_path, str(size), GetMimeType(name),
+                              GetSha1(full_path),
+                              '1' if IsCompressed(name, size) else '0']))
+  with open(os.path.join(assets_dir, INDEX_FILE_NAME), 'w') as index_file:
+    index_file.write('\n'.join(lines) + '\n')
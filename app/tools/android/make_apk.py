@@ -12,6 +12,7 @@ import re
 import shutil
 import subprocess
 import sys
+import zipfile
 
 # get xwalk absolute path so we can run this script from any location
 xwalk_dir = os.path.dirname(os.path.abspath(__file__))
@@ -29,6 +30,9 @@ from manifest_json_parser import ManifestJsonParser
 
 NATIVE_LIBRARY = 'libxwalkcore.so'
 
+# Web assets bigger than that are worth storing uncompressed in the APK.
+COMPRESSED_ASSET_WARNING_SIZE = 100 * 1024
+
 
 def ConvertArchNameToArchFolder(arch):
   arch_dict = {
@@ -229,7 +233,8 @@ def Customize(options, app_info, manifest):
   CustomizeAll(app_info, options.description, options.icon_dict,
                options.permissions, options.app_url, options.app_local_path,
                options.keep_screen_on, options.extensions, manifest,
-               options.xwalk_command_line, options.compressor)
+               options.xwalk_command_line, options.compressor,
+               options.precompress, options.app_archive)
 
 
 def Execution(options, name):
@@ -286,6 +291,9 @@ def Execution(options, name):
                 '--path', os.path.join(xwalk_dir, name, 'xwalk_core_library'),
                 '--target', target_string])
     update_project_cmd.extend(['-l', 'xwalk_core_library'])
+    # xwalk_core_library already holds the shared extension helpers.
+    os.remove(os.path.join(xwalk_dir, name, 'libs',
+                           'xwalk_extensions_common_java.jar'))
   else:
     # Shared mode doesn't need xwalk_runtime_java.jar.
     os.remove(os.path.join(xwalk_dir, name, 'libs', 'xwalk_runtime_java.jar'))
@@ -349,6 +357,21 @@ def Execution(options, name):
     dst_file = os.path.join(options.target_dir,
                             '%s_%s.apk' % (package_name, options.arch))
   shutil.copyfile(src_file, dst_file)
+  CheckCompressedAssets(dst_file)
+
+
+def CheckCompressedAssets(apk_path):
+  # Crosswalk reads the assets stored uncompressed straight from the APK file,
+  # the compressed ones are inflated through Java on every load.
+  apk = zipfile.ZipFile(apk_path)
+  for info in apk.infolist():
+    if (info.filename.startswith('assets/') and
+        info.compress_type != zipfile.ZIP_STORED and
+        info.file_size >= COMPRESSED_ASSET_WARNING_SIZE):
+      print('Warning: %s (%d KB) is compressed in the APK, it would load '
+            'faster if stored uncompressed.'
+            % (info.filename, info.file_size / 1024))
+  apk.close()
 
 
 def PrintPackageInfo(options, name, packaged_archs):
@@ -557,6 +580,15 @@ def main(argv):
   group.add_option('--compressor', dest='compressor', action='callback',
                    callback=ParseParameterForCompressor, type='string',
                    nargs=0, help=info)
+  info = ('Package a gzip compressed variant of each text file of the web '
+          'app, which is read and decoded instead of the file. It makes the '
+          'APK bigger.')
+  group.add_option('--precompress', action='store_true', default=False,
+                   help=info)
+  info = ('Pack the web app into a single archive instead of one asset per '
+          'file.')
+  group.add_option('--app-archive', action='store_true', default=False,
+                   help=info)
   parser.add_option_group(group)
   options, _ = parser.parse_args()
   if len(argv) == 1:
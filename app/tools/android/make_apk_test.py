@@ -1021,6 +1021,67 @@ class TestMakeApk(unittest.TestCase):
 
     Clean(name, '1.0.0')
 
+  def testAssetIndex(self):
+    app_root = os.path.join('test_data', 'compressor')
+    name = 'Example'
+    cmd = ['python', 'customize.py',
+           '--name=%s' % name,
+           '--package=org.xwalk.example',
+           '--app-root=%s' % app_root]
+    RunCommand(cmd)
+    index_path = os.path.join(name, 'assets', 'xwalk-asset-index')
+    self.assertTrue(os.path.exists(index_path))
+    with open(index_path, 'r') as index_file:
+      lines = index_file.read().splitlines()
+    self.assertEqual(lines[0], '1')
+    entries = dict((line.split('\t')[0], line.split('\t')[1:])
+                   for line in lines[1:])
+    css_entry = entries['www/css/test.css']
+    self.assertEqual(int(css_entry[0]),
+                     GetFileSize(os.path.join(app_root, 'css', 'test.css')))
+    self.assertEqual(css_entry[1], 'text/css')
+    self.assertEqual(css_entry[3], '1')
+    self.assertEqual(entries['www/js/test.js'][1], 'application/javascript')
+    Clean(name, '1.0.0')
+
+  def testPrecompress(self):
+    app_root = os.path.join('test_data', 'compressor')
+    name = 'Example'
+    cmd = ['python', 'customize.py',
+           '--name=%s' % name,
+           '--package=org.xwalk.example',
+           '--precompress',
+           '--app-root=%s' % app_root]
+    RunCommand(cmd)
+    js_file = os.path.join(name, 'assets', 'www', 'js', 'test.js')
+    self.assertTrue(os.path.exists(js_file))
+    self.assertTrue(os.path.exists(js_file + '.gz'))
+    self.assertTrue(GetFileSize(js_file + '.gz') < GetFileSize(js_file))
+    index_path = os.path.join(name, 'assets', 'xwalk-asset-index')
+    with open(index_path, 'r') as index_file:
+      self.assertIn('www/js/test.js.gz\t', index_file.read())
+    Clean(name, '1.0.0')
+
+  def testAppArchive(self):
+    app_root = os.path.join('test_data', 'compressor')
+    name = 'Example'
+    cmd = ['python', 'customize.py',
+           '--name=%s' % name,
+           '--package=org.xwalk.example',
+           '--app-archive',
+           '--app-root=%s' % app_root]
+    RunCommand(cmd)
+    assets_dir = os.path.join(name, 'assets')
+    self.assertFalse(os.path.exists(os.path.join(assets_dir, 'www')))
+    archive_path = os.path.join(assets_dir, 'www.archive')
+    self.assertTrue(os.path.exists(archive_path))
+    with open(archive_path, 'rb') as archive:
+      self.assertEqual(archive.read(4), b'XWAR')
+    self.assertTrue(GetFileSize(archive_path) >
+                    GetFileSize(os.path.join(app_root, 'js', 'test.js')) +
+                    GetFileSize(os.path.join(app_root, 'css', 'test.css')))
+    Clean(name, '1.0.0')
+
 
   def VerifyResultInXMLFile(self, xml_path, piece_content):
     self.assertTrue(os.path.exists(xml_path))
@@ -53,6 +53,10 @@ def PrepareFromXwalk(src_dir, target_dir):
     # Embedded mode needs both.
     (os.path.join(jar_src_dir, 'xwalk_app_runtime_java.jar'), jar_target_dir),
     (os.path.join(jar_src_dir, 'xwalk_runtime_java.jar'), jar_target_dir),
+    # Helpers shared with the runtime, only used in shared mode since
+    # xwalk_core_library already holds them in embedded mode.
+    (os.path.join(jar_src_dir, 'xwalk_extensions_common_java.jar'),
+     jar_target_dir),
 
     # XWalk Core Library
     (xwalk_core_library_dir, os.path.join(target_dir, 'xwalk_core_library')),
@@ -60,6 +64,8 @@ def PrepareFromXwalk(src_dir, target_dir):
     # Build and python tools.
     (os.path.join(tools_src_dir, 'ant', 'xwalk-debug.keystore'), target_dir),
     (os.path.join(tools_src_dir, 'app_info.py'), target_dir),
+    (os.path.join(tools_src_dir, 'asset_archive.py'), target_dir),
+    (os.path.join(tools_src_dir, 'asset_index.py'), target_dir),
     (os.path.join(tools_src_dir, 'compress_js_and_css.py'), target_dir),
     (os.path.join(tools_src_dir, 'customize.py'), target_dir),
     (os.path.join(tools_src_dir, 'customize_launch_screen.py'), target_dir),
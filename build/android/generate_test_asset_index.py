@@ -0,0 +1,46 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2014 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Writes the gzip compressed variants of the given assets of a test shell
+and the index of its www/ assets, as make_apk --precompress does for the
+applications.
+"""
+
+import gzip
+import optparse
+import os
+import shutil
+import sys
+
+sys.path.append(os.path.join(os.path.dirname(os.path.abspath(__file__)),
+                             os.pardir, os.pardir, 'app', 'tools', 'android'))
+import asset_index
+
+
+def main():
+  parser = optparse.OptionParser()
+  parser.add_option('--assets-dir', help='The assets directory of the shell.')
+  parser.add_option('--precompress', action='append', default=[],
+                    help='An asset to write the .gz variant of, relative to '
+                         'the assets directory. Can be repeated.')
+  options, _ = parser.parse_args()
+  if not options.assets_dir:
+    parser.error('--assets-dir is required.')
+
+  for path in options.precompress:
+    full_name = os.path.join(options.assets_dir, path)
+    with open(full_name, 'rb') as src:
+      # A fixed mtime keeps the output the same across builds.
+      with gzip.GzipFile(full_name + '.gz', 'wb', 9, mtime=0) as dst:
+        shutil.copyfileobj(src, dst)
+
+  asset_index.GenerateAssetIndex(options.assets_dir,
+                                 os.path.join(options.assets_dir, 'www'))
+  return 0
+
+
+if __name__ == '__main__':
+  sys.exit(main())
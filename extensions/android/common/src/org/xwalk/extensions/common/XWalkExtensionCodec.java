@@ -0,0 +1,508 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.extensions.common;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Encodes the messages an extension sends to JavaScript.
+ *
+ * Values are org.json values: JSONObject, JSONArray, String, Number, Boolean
+ * and JSONObject.NULL. The codecs are:
+ * - JSON: the value as a JSON string, which is what extensions post today.
+ * - BINARY: the value in CBOR (RFC 7049), delivered as an ArrayBuffer. It is
+ *   written straight to a direct buffer without building a String, and
+ *   numbers and short strings take fewer bytes.
+ * - withSchema(): CBOR where the objects described by the schema are written
+ *   as arrays of their field values, leaving the field names out. An array
+ *   found where the schema expects an object is tagged as self-described
+ *   CBOR and decoded without schema.
+ *
+ * Binary messages start with their message type as a CBOR text string, so
+ * that the JavaScript decoder knows which schema applies. See
+ * XWalkExtensionCodecs for choosing a codec per message type.
+ *
+ * The binary codecs encode into a buffer reused by each thread, the buffer
+ * of a binary message is only valid until the next encode() on the same
+ * thread. Posting the message copies it.
+ */
+public abstract class XWalkExtensionCodec {
+    public static final XWalkExtensionCodec JSON = new JsonCodec();
+    public static final XWalkExtensionCodec BINARY = new BinaryCodec(null, null);
+
+    /**
+     * Return a binary codec leaving out the field names described by the
+     * schema. A schema is a JSON value: an object lists the fields of an
+     * object in the order they are written, a one element array describes
+     * the elements of an array, anything else stands for any value. Fields
+     * missing from a value are skipped, fields unknown to the schema are
+     * still sent with their names.
+     * E.g. {"id": "", "emails": [{"type": "", "value": ""}]}.
+     */
+    public static XWalkExtensionCodec withSchema(String schema) throws JSONException {
+        return new BinaryCodec(Schema.parse(new JSONTokener(schema).nextValue()), schema);
+    }
+
+    /**
+     * An encoded message, either a string or a binary buffer.
+     */
+    public static final class Message {
+        private final String mText;
+        private final ByteBuffer mBinary;
+
+        Message(String text) {
+            mText = text;
+            mBinary = null;
+        }
+
+        Message(ByteBuffer binary) {
+            mText = null;
+            mBinary = binary;
+        }
+
+        public boolean isBinary() {
+            return mBinary != null;
+        }
+
+        public String getText() {
+            return mText;
+        }
+
+        /**
+         * Return the encoded bytes in a direct buffer, between its position
+         * and its limit.
+         */
+        public ByteBuffer getBinary() {
+            return mBinary;
+        }
+
+        /**
+         * Return the payload size, in bytes for binary messages and in
+         * characters for strings.
+         */
+        public int getSize() {
+            return mBinary != null ? mBinary.remaining() : mText.length();
+        }
+    }
+
+    public abstract Message encode(String type, Object value) throws JSONException;
+
+    /**
+     * Decode a message produced by encode(). Meant for tests and benchmarks,
+     * messages are decoded by JavaScript.
+     */
+    public abstract Object decode(Message message) throws JSONException;
+
+    /**
+     * Return the schema given to withSchema(), or null.
+     */
+    String getSchema() {
+        return null;
+    }
+
+    private static class JsonCodec extends XWalkExtensionCodec {
+        @Override
+        public Message encode(String type, Object value) throws JSONException {
+            if (value instanceof JSONObject || value instanceof JSONArray) {
+                return new Message(value.toString());
+            }
+            JSONArray wrapper = new JSONArray();
+            wrapper.put(value == null ? JSONObject.NULL : value);
+            String text = wrapper.toString();
+            return new Message(text.substring(1, text.length() - 1));
+        }
+
+        @Override
+        public Object decode(Message message) throws JSONException {
+            return new JSONTokener(message.getText()).nextValue();
+        }
+    }
+
+    private static class BinaryCodec extends XWalkExtensionCodec {
+        private final Schema mSchema;
+        private final String mSchemaSpec;
+
+        BinaryCodec(Schema schema, String schemaSpec) {
+            mSchema = schema;
+            mSchemaSpec = schemaSpec;
+        }
+
+        @Override
+        String getSchema() {
+            return mSchemaSpec;
+        }
+
+        @Override
+        public Message encode(String type, Object value) throws JSONException {
+            CborWriter writer = sWriter.get();
+            writer.reset();
+            writer.writeString(type == null ? "" : type);
+            writer.writeValue(value, mSchema);
+            return new Message(writer.finish());
+        }
+
+        @Override
+        public Object decode(Message message) throws JSONException {
+            CborReader reader = new CborReader(message.getBinary().duplicate());
+            reader.read(null);
+            return reader.read(mSchema);
+        }
+    }
+
+    // A parsed schema: the fields of an object, the elements of an array, or
+    // null for any value.
+    private static class Schema {
+        final String[] mFields;
+        final Schema[] mFieldSchemas;
+        final Schema mElement;
+
+        private Schema(String[] fields, Schema[] fieldSchemas, Schema element) {
+            mFields = fields;
+            mFieldSchemas = fieldSchemas;
+            mElement = element;
+        }
+
+        static Schema parse(Object spec) throws JSONException {
+            if (spec instanceof JSONObject) {
+                JSONObject object = (JSONObject) spec;
+                ArrayList<String> fields = new ArrayList<String>();
+                ArrayList<Schema> fieldSchemas = new ArrayList<Schema>();
+                // Android's JSONObject keeps the declaration order.
+                for (Iterator<String> it = object.keys(); it.hasNext();) {
+                    String field = it.next();
+                    fields.add(field);
+                    fieldSchemas.add(parse(object.get(field)));
+                }
+                return new Schema(fields.toArray(new String[fields.size()]),
+                        fieldSchemas.toArray(new Schema[fieldSchemas.size()]), null);
+            }
+            if (spec instanceof JSONArray) {
+                JSONArray array = (JSONArray) spec;
+                if (array.length() != 1) {
+                    throw new JSONException("An array schema has exactly one element");
+                }
+                Schema element = parse(array.get(0));
+                return element == null ? null : new Schema(null, null, element);
+            }
+            return null;
+        }
+
+        int indexOf(String field) {
+            for (int i = 0; i < mFields.length; i++) {
+                if (mFields[i].equals(field)) return i;
+            }
+            return -1;
+        }
+    }
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final byte FALSE = (byte) 0xf4;
+    private static final byte TRUE = (byte) 0xf5;
+    private static final byte NULL = (byte) 0xf6;
+    // Marks an object field missing from the value.
+    private static final byte UNDEFINED = (byte) 0xf7;
+    private static final byte FLOAT64 = (byte) 0xfb;
+    private static final Object UNDEFINED_VALUE = new Object();
+    // Self-described CBOR, marks a value written without its schema.
+    private static final long TAG_NO_SCHEMA = 55799;
+
+    private static final ThreadLocal<CborWriter> sWriter = new ThreadLocal<CborWriter>() {
+        @Override
+        protected CborWriter initialValue() {
+            return new CborWriter();
+        }
+    };
+
+    private static class CborWriter {
+        private static final int INITIAL_CAPACITY = 1024;
+        // Larger buffers are dropped after use rather than kept per thread.
+        private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+        private ByteBuffer mBuffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+
+        void reset() {
+            if (mBuffer.capacity() > MAX_RETAINED_CAPACITY) {
+                mBuffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+            } else {
+                mBuffer.clear();
+            }
+        }
+
+        ByteBuffer finish() {
+            mBuffer.flip();
+            return mBuffer;
+        }
+
+        void writeValue(Object value, Schema schema) throws JSONException {
+            if (value == null || value == JSONObject.NULL) {
+                writeByte(NULL);
+            } else if (schema != null && schema.mFields != null && value instanceof JSONObject) {
+                writeObject((JSONObject) value, schema);
+            } else if (value instanceof JSONObject) {
+                JSONObject object = (JSONObject) value;
+                writeHead(MAJOR_MAP, object.length());
+                for (Iterator<String> it = object.keys(); it.hasNext();) {
+                    String key = it.next();
+                    writeString(key);
+                    writeValue(object.get(key), null);
+                }
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                // Readers would take an untagged array for the object.
+                if (schema != null && schema.mFields != null) {
+                    writeHead(MAJOR_TAG, TAG_NO_SCHEMA);
+                    schema = null;
+                }
+                Schema element = schema != null ? schema.mElement : null;
+                writeHead(MAJOR_ARRAY, array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    writeValue(array.get(i), element);
+                }
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Boolean) {
+                writeByte((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Integer || value instanceof Long ||
+                    value instanceof Short || value instanceof Byte) {
+                writeLong(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                if (number == (long) number && (number != 0 || 1 / number > 0)) {
+                    writeLong((long) number);
+                } else {
+                    ensureCapacity(9);
+                    mBuffer.put(FLOAT64);
+                    mBuffer.putDouble(number);
+                }
+            } else {
+                // Same as org.json, which stringifies unknown values.
+                writeString(value.toString());
+            }
+        }
+
+        // Writes the schema fields in order as an array, followed by a map
+        // of the fields unknown to the schema if there are any.
+        private void writeObject(JSONObject object, Schema schema) throws JSONException {
+            int unknownFields = 0;
+            for (Iterator<String> it = object.keys(); it.hasNext();) {
+                if (schema.indexOf(it.next()) < 0) unknownFields++;
+            }
+
+            writeHead(MAJOR_ARRAY, schema.mFields.length + (unknownFields > 0 ? 1 : 0));
+            for (int i = 0; i < schema.mFields.length; i++) {
+                Object field = object.opt(schema.mFields[i]);
+                if (field == null) {
+                    writeByte(UNDEFINED);
+                } else {
+                    writeValue(field, schema.mFieldSchemas[i]);
+                }
+            }
+            if (unknownFields == 0) return;
+
+            writeHead(MAJOR_MAP, unknownFields);
+            for (Iterator<String> it = object.keys(); it.hasNext();) {
+                String key = it.next();
+                if (schema.indexOf(key) >= 0) continue;
+                writeString(key);
+                writeValue(object.get(key), null);
+            }
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            int size = 0;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    size += 1;
+                } else if (c < 0x800) {
+                    size += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                        Character.isLowSurrogate(value.charAt(i + 1))) {
+                    size += 4;
+                    i++;
+                } else {
+                    size += 3;
+                }
+            }
+
+            writeHead(MAJOR_TEXT, size);
+            ensureCapacity(size);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    mBuffer.put((byte) c);
+                } else if (c < 0x800) {
+                    mBuffer.put((byte) (0xc0 | (c >> 6)));
+                    mBuffer.put((byte) (0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                        Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    mBuffer.put((byte) (0xf0 | (codePoint >> 18)));
+                    mBuffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                    mBuffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                    mBuffer.put((byte) (0x80 | (codePoint & 0x3f)));
+                } else {
+                    // Lone surrogates are written as three bytes, matching
+                    // the size computed above.
+                    mBuffer.put((byte) (0xe0 | (c >> 12)));
+                    mBuffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                    mBuffer.put((byte) (0x80 | (c & 0x3f)));
+                }
+            }
+        }
+
+        private void writeLong(long value) {
+            if (value >= 0) {
+                writeHead(MAJOR_UNSIGNED, value);
+            } else {
+                writeHead(MAJOR_NEGATIVE, -1 - value);
+            }
+        }
+
+        private void writeHead(int major, long argument) {
+            ensureCapacity(9);
+            int type = major << 5;
+            if (argument < 24) {
+                mBuffer.put((byte) (type | argument));
+            } else if (argument < 0x100) {
+                mBuffer.put((byte) (type | 24));
+                mBuffer.put((byte) argument);
+            } else if (argument < 0x10000) {
+                mBuffer.put((byte) (type | 25));
+                mBuffer.putShort((short) argument);
+            } else if (argument < 0x100000000L) {
+                mBuffer.put((byte) (type | 26));
+                mBuffer.putInt((int) argument);
+            } else {
+                mBuffer.put((byte) (type | 27));
+                mBuffer.putLong(argument);
+            }
+        }
+
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            mBuffer.put(value);
+        }
+
+        private void ensureCapacity(int size) {
+            if (mBuffer.remaining() >= size) return;
+
+            int capacity = mBuffer.capacity();
+            while (capacity - mBuffer.position() < size) capacity *= 2;
+            ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+            mBuffer.flip();
+            buffer.put(mBuffer);
+            mBuffer = buffer;
+        }
+    }
+
+    private static class CborReader {
+        private final ByteBuffer mBuffer;
+
+        CborReader(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        Object read(Schema schema) throws JSONException {
+            int initial = mBuffer.get() & 0xff;
+            int major = initial >>> 5;
+            int info = initial & 0x1f;
+            if (major == MAJOR_SIMPLE) {
+                switch (info) {
+                    case 20: return Boolean.FALSE;
+                    case 21: return Boolean.TRUE;
+                    case 22: return JSONObject.NULL;
+                    case 23: return UNDEFINED_VALUE;
+                    case 26: return (double) mBuffer.getFloat();
+                    case 27: return mBuffer.getDouble();
+                    default: throw new JSONException("Unsupported simple value " + info);
+                }
+            }
+
+            long argument = readArgument(info);
+            switch (major) {
+                case MAJOR_UNSIGNED:
+                    return toNumber(argument);
+                case MAJOR_NEGATIVE:
+                    return toNumber(-1 - argument);
+                case MAJOR_TEXT:
+                    byte[] bytes = new byte[(int) argument];
+                    mBuffer.get(bytes);
+                    try {
+                        return new String(bytes, "UTF-8");
+                    } catch (UnsupportedEncodingException e) {
+                        throw new JSONException(e.toString());
+                    }
+                case MAJOR_ARRAY:
+                    if (schema != null && schema.mFields != null) {
+                        return readObject((int) argument, schema);
+                    }
+                    JSONArray array = new JSONArray();
+                    Schema element = schema != null ? schema.mElement : null;
+                    for (int i = 0; i < argument; i++) array.put(read(element));
+                    return array;
+                case MAJOR_TAG:
+                    return read(null);
+                case MAJOR_MAP:
+                    JSONObject object = new JSONObject();
+                    for (int i = 0; i < argument; i++) {
+                        String key = (String) read(null);
+                        object.put(key, read(null));
+                    }
+                    return object;
+                default:
+                    throw new JSONException("Unsupported major type " + major);
+            }
+        }
+
+        private JSONObject readObject(int length, Schema schema) throws JSONException {
+            JSONObject object = new JSONObject();
+            for (int i = 0; i < length; i++) {
+                if (i < schema.mFields.length) {
+                    Object field = read(schema.mFieldSchemas[i]);
+                    if (field != UNDEFINED_VALUE) object.put(schema.mFields[i], field);
+                    continue;
+                }
+                JSONObject unknownFields = (JSONObject) read(null);
+                for (Iterator<String> it = unknownFields.keys(); it.hasNext();) {
+                    String key = it.next();
+                    object.put(key, unknownFields.get(key));
+                }
+            }
+            return object;
+        }
+
+        private long readArgument(int info) throws JSONException {
+            if (info < 24) return info;
+            switch (info) {
+                case 24: return mBuffer.get() & 0xffL;
+                case 25: return mBuffer.getShort() & 0xffffL;
+                case 26: return mBuffer.getInt() & 0xffffffffL;
+                case 27: return mBuffer.getLong();
+                default: throw new JSONException("Unsupported argument size " + info);
+            }
+        }
+
+        private static Object toNumber(long value) {
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return (int) value;
+            return value;
+        }
+    }
+}
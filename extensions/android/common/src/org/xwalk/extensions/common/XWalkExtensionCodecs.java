@@ -0,0 +1,201 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.extensions.common;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import org.xwalk.extensions.common.XWalkExtensionCodec.Message;
+
+/**
+ * Chooses the codec of the messages an extension posts, per message type.
+ * Types without a codec use the default one, JSON unless told otherwise.
+ *
+ * The JavaScript side decodes the messages with the function returned by
+ * getJavaScript(), to be appended to the JS API of the extension:
+ *
+ *   extension.setMessageListener(function(message) {
+ *     var msg = _xwalkDecodeMessage(message);
+ *     ...
+ *   });
+ *
+ * It parses strings as JSON and binary messages as CBOR, applying the schema
+ * registered for their type. All the codecs must be registered before
+ * getJavaScript() is called.
+ */
+public class XWalkExtensionCodecs {
+    /**
+     * Where post() sends the encoded messages, usually the extension itself.
+     */
+    public interface MessageSink {
+        void postMessage(int instanceID, String message);
+        void postBinaryMessage(int instanceID, ByteBuffer message);
+    }
+
+    // Decodes the subset of CBOR written by XWalkExtensionCodec. Schema
+    // objects are arrays of field values, undefined standing for a missing
+    // field, possibly followed by a map of the fields unknown to the schema.
+    // A tagged item is decoded without schema.
+    private static final String DECODER =
+            "function _xwalkDecodeMessage(message) {\n" +
+            "  if (typeof message === 'string') return JSON.parse(message);\n" +
+            "  var bytes = new Uint8Array(message);\n" +
+            "  var view = new DataView(message);\n" +
+            "  var pos = 0;\n" +
+            "  function readArgument(info) {\n" +
+            "    if (info < 24) return info;\n" +
+            "    pos += 1 << (info - 24);\n" +
+            "    if (info === 24) return bytes[pos - 1];\n" +
+            "    if (info === 25) return view.getUint16(pos - 2);\n" +
+            "    if (info === 26) return view.getUint32(pos - 4);\n" +
+            "    return view.getUint32(pos - 8) * 4294967296 + view.getUint32(pos - 4);\n" +
+            "  }\n" +
+            "  function readString(end) {\n" +
+            "    var codes = [], result = '';\n" +
+            "    while (pos < end) {\n" +
+            "      var c = bytes[pos++];\n" +
+            "      if (c >= 0xf0) {\n" +
+            "        c = ((c & 0x07) << 18 | (bytes[pos++] & 0x3f) << 12 |\n" +
+            "             (bytes[pos++] & 0x3f) << 6 | bytes[pos++] & 0x3f) - 0x10000;\n" +
+            "        codes.push(0xd800 | c >> 10);\n" +
+            "        c = 0xdc00 | c & 0x3ff;\n" +
+            "      } else if (c >= 0xe0) {\n" +
+            "        c = (c & 0x0f) << 12 | (bytes[pos++] & 0x3f) << 6 | bytes[pos++] & 0x3f;\n" +
+            "      } else if (c >= 0xc0) {\n" +
+            "        c = (c & 0x1f) << 6 | bytes[pos++] & 0x3f;\n" +
+            "      }\n" +
+            "      codes.push(c);\n" +
+            "      if (codes.length >= 4096) {\n" +
+            "        result += String.fromCharCode.apply(null, codes);\n" +
+            "        codes = [];\n" +
+            "      }\n" +
+            "    }\n" +
+            "    return result + String.fromCharCode.apply(null, codes);\n" +
+            "  }\n" +
+            "  function readItem(schema) {\n" +
+            "    var initial = bytes[pos++], major = initial >> 5, info = initial & 0x1f;\n" +
+            "    var result, i, value, key;\n" +
+            "    if (major === 7) {\n" +
+            "      if (info === 20) return false;\n" +
+            "      if (info === 21) return true;\n" +
+            "      if (info === 22) return null;\n" +
+            "      if (info === 23) return undefined;\n" +
+            "      pos += 1 << (info - 24);\n" +
+            "      if (info === 26) return view.getFloat32(pos - 4);\n" +
+            "      if (info === 27) return view.getFloat64(pos - 8);\n" +
+            "      throw new Error('Unsupported CBOR simple value ' + info);\n" +
+            "    }\n" +
+            "    var length = readArgument(info);\n" +
+            "    if (major === 6) return readItem(null);\n" +
+            "    if (major === 0) return length;\n" +
+            "    if (major === 1) return -1 - length;\n" +
+            "    if (major === 3) return readString(pos + length);\n" +
+            "    if (major === 4 && schema && schema.fields) {\n" +
+            "      result = {};\n" +
+            "      for (i = 0; i < length; ++i) {\n" +
+            "        if (i < schema.fields.length) {\n" +
+            "          value = readItem(schema.types[i]);\n" +
+            "          if (value !== undefined) result[schema.fields[i]] = value;\n" +
+            "        } else {\n" +
+            "          value = readItem(null);\n" +
+            "          for (key in value) result[key] = value[key];\n" +
+            "        }\n" +
+            "      }\n" +
+            "      return result;\n" +
+            "    }\n" +
+            "    if (major === 4) {\n" +
+            "      result = new Array(length);\n" +
+            "      for (i = 0; i < length; ++i) result[i] = readItem(schema && schema.element);\n" +
+            "      return result;\n" +
+            "    }\n" +
+            "    if (major === 5) {\n" +
+            "      result = {};\n" +
+            "      for (i = 0; i < length; ++i) {\n" +
+            "        key = readItem(null);\n" +
+            "        result[key] = readItem(null);\n" +
+            "      }\n" +
+            "      return result;\n" +
+            "    }\n" +
+            "    throw new Error('Unsupported CBOR major type ' + major);\n" +
+            "  }\n" +
+            "  var type = readItem(null);\n" +
+            "  return readItem(_xwalkCodecSchemas[type]);\n" +
+            "}\n" +
+            "function _xwalkCompileSchema(spec) {\n" +
+            "  if (Array.isArray(spec)) {\n" +
+            "    var element = _xwalkCompileSchema(spec[0]);\n" +
+            "    return element && { element: element };\n" +
+            "  }\n" +
+            "  if (spec === null || typeof spec !== 'object') return null;\n" +
+            "  var schema = { fields: [], types: [] };\n" +
+            "  for (var field in spec) {\n" +
+            "    schema.fields.push(field);\n" +
+            "    schema.types.push(_xwalkCompileSchema(spec[field]));\n" +
+            "  }\n" +
+            "  return schema;\n" +
+            "}\n";
+
+    private final Map<String, XWalkExtensionCodec> mCodecs =
+            new HashMap<String, XWalkExtensionCodec>();
+    private final XWalkExtensionCodec mDefaultCodec;
+
+    public XWalkExtensionCodecs() {
+        this(XWalkExtensionCodec.JSON);
+    }
+
+    public XWalkExtensionCodecs(XWalkExtensionCodec defaultCodec) {
+        mDefaultCodec = defaultCodec;
+    }
+
+    public synchronized XWalkExtensionCodecs register(String type, XWalkExtensionCodec codec) {
+        mCodecs.put(type, codec);
+        return this;
+    }
+
+    public synchronized XWalkExtensionCodec get(String type) {
+        XWalkExtensionCodec codec = mCodecs.get(type);
+        return codec != null ? codec : mDefaultCodec;
+    }
+
+    public Message encode(String type, Object value) throws JSONException {
+        return get(type).encode(type, value);
+    }
+
+    /**
+     * Encode a value with the codec of its type and post it to an instance.
+     */
+    public void post(MessageSink sink, int instanceID, String type,
+            Object value) throws JSONException {
+        Message message = encode(type, value);
+        if (message.isBinary()) {
+            sink.postBinaryMessage(instanceID, message.getBinary());
+        } else {
+            sink.postMessage(instanceID, message.getText());
+        }
+    }
+
+    /**
+     * Return the JavaScript decoding the messages, with the schemas
+     * registered so far. It only adds lines, so that appending it to a JS
+     * API keeps the line numbers of the API in error messages.
+     */
+    public synchronized String getJavaScript() {
+        StringBuilder script = new StringBuilder("\n");
+        script.append(DECODER);
+        script.append("var _xwalkCodecSchemas = {};\n");
+        for (Map.Entry<String, XWalkExtensionCodec> entry : mCodecs.entrySet()) {
+            String schema = entry.getValue().getSchema();
+            if (schema == null) continue;
+            script.append("_xwalkCodecSchemas[").append(JSONObject.quote(entry.getKey()))
+                    .append("] = _xwalkCompileSchema(").append(schema.replace('\n', ' '))
+                    .append(");\n");
+        }
+        return script.toString();
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.extensions.common;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the decoded JavaScript API files of extensions in a single file in
+ * the app-private cache directory, so that later launches read one file
+ * instead of looking up and decoding each resource.
+ *
+ * The cache is keyed by the version and the update time of the package
+ * holding the files and is dropped as a whole when either changes. It is
+ * shared by the built-in extensions of the runtime and the external
+ * extensions loaded by the app.
+ */
+public class XWalkExtensionJsApiCache {
+    private static final String TAG = "XWalkExtensionJsApiCache";
+    private static final int FORMAT_VERSION = 1;
+    private static final String CHARSET = "UTF-8";
+
+    private final File mFile;
+    private final String mKey;
+    private final HashMap<String, String> mEntries = new HashMap<String, String>();
+    private boolean mDirty;
+
+    /**
+     * The cache file is kept in the cache directory of the application, which
+     * is the only one writable when the context belongs to the shared runtime
+     * package. The key is taken from the package of the given context, the
+     * one holding the files.
+     */
+    public XWalkExtensionJsApiCache(Context context, String cacheName) {
+        File cacheDir = context.getApplicationContext().getCacheDir();
+        mFile = cacheDir == null ? null : new File(cacheDir, cacheName);
+        if (mFile == null) {
+            Log.w(TAG, "No cache directory, not caching JS API files");
+            mKey = null;
+        } else {
+            mKey = getPackageKey(context);
+        }
+        if (mKey != null) load();
+    }
+
+    public synchronized String get(String fileName) {
+        return mEntries.get(fileName);
+    }
+
+    public synchronized void put(String fileName, String content) {
+        mEntries.put(fileName, content);
+        mDirty = true;
+    }
+
+    /**
+     * Write the cache back if entries were added since it was loaded.
+     */
+    public synchronized void save() {
+        if (!mDirty || mKey == null) return;
+
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(mKey);
+            output.writeInt(mEntries.size());
+            for (Map.Entry<String, String> entry : mEntries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                // writeUTF() is limited to 64KB, which JS API files can exceed.
+                byte[] content = entry.getValue().getBytes(CHARSET);
+                output.writeInt(content.length);
+                output.write(content);
+            }
+            output.close();
+            output = null;
+            if (!tmpFile.renameTo(mFile)) throw new IOException("Failed to rename " + tmpFile);
+            mDirty = false;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + mFile + ": " + e);
+            tmpFile.delete();
+        } catch (SecurityException e) {
+            Log.e(TAG, "Failed to write " + mFile + ": " + e);
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    /**
+     * Read the whole stream and decode it as UTF-8.
+     */
+    public static String readStream(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return output.toString(CHARSET);
+    }
+
+    private void load() {
+        if (!mFile.exists()) return;
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (input.readInt() != FORMAT_VERSION || !mKey.equals(input.readUTF())) {
+                mFile.delete();
+                return;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String fileName = input.readUTF();
+                byte[] content = new byte[input.readInt()];
+                input.readFully(content);
+                mEntries.put(fileName, new String(content, CHARSET));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping corrupted " + mFile + ": " + e);
+            mEntries.clear();
+            mFile.delete();
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private static String getPackageKey(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(
+                    context.getPackageName(), 0);
+            return info.packageName + ":" + info.versionCode + ":" + info.lastUpdateTime;
+        } catch (NameNotFoundException e) {
+            Log.w(TAG, "Failed to get the package info, not caching JS API files");
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable stream) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing left to do.
+        }
+    }
+}
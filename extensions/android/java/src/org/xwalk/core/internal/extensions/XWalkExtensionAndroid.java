@@ -4,9 +4,24 @@
 
 package org.xwalk.core.internal.extensions;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.util.SparseArray;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
@@ -14,18 +29,125 @@ import org.chromium.base.JNINamespace;
 /**
  * This class is the implementation class for XWalkExtension by calling internal
  * XWalkExtension class.
+ *
+ * Messages can be posted from any thread. Native handles them on the
+ * extension thread, those posted from other threads are forwarded there in
+ * posting order.
  */
 @JNINamespace("xwalk::extensions")
 public abstract class XWalkExtensionAndroid {
     private final static String TAG = "XWalkExtensionAndroid";
+    // Destination of a batched message meant for every instance, must match
+    // kBroadcastInstanceID on native side.
+    private final static int BROADCAST_INSTANCE_ID = 0;
+    // Sync messages taking longer than this are logged.
+    private final static long SLOW_SYNC_MESSAGE_MS = 100;
+    private final static int DEFAULT_COALESCING_INTERVAL_MS = 50;
+    // Bounds the number of sync handlers still running after their deadline.
+    private final static int MAX_SYNC_THREADS = 4;
+    // Roughly one frame at 60fps.
+    private final static int STREAM_NOTIFICATION_INTERVAL_MS = 16;
+
+    private final static ThreadPoolExecutor sSyncExecutor = new ThreadPoolExecutor(
+            0, MAX_SYNC_THREADS, 30, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "XWalkExtensionSyncMessage");
+                }
+            });
+
+    // Fires the sync message deadlines, independently of the UI and
+    // extension threads.
+    private final static ScheduledThreadPoolExecutor sSyncTimer =
+            new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "XWalkExtensionSyncTimeout");
+                }
+            });
+
+    static {
+        sSyncTimer.setKeepAliveTime(30, TimeUnit.SECONDS);
+        sSyncTimer.allowCoreThreadTimeOut(true);
+    }
+
+    private final static Handler sHandler = new Handler(Looper.getMainLooper());
+
+    // The message whose onMessage() runs on the current thread, whatever the
+    // extension. See deferMessageTiming().
+    private static class HandlingState {
+        XWalkExtensionMetrics.TimedCounter mCounter;
+        int mSize;
+        long mStart;
+        boolean mDeferred;
+    }
+
+    private final static ThreadLocal<HandlingState> sHandlingState =
+            new ThreadLocal<HandlingState>() {
+                @Override
+                protected HandlingState initialValue() {
+                    return new HandlingState();
+                }
+            };
+
+    // A message handed to another thread by onMessage(). It runs the handler
+    // and records its time, then goes back to sDeferredMessages so that
+    // deferring a message doesn't allocate.
+    private static class DeferredMessage implements Runnable {
+        Runnable mTask;
+        XWalkExtensionMetrics.TimedCounter mCounter;
+        int mSize;
+        long mStart;
+
+        @Override
+        public void run() {
+            try {
+                mTask.run();
+            } finally {
+                mCounter.record(mSize, System.nanoTime() - mStart);
+                mTask = null;
+                mCounter = null;
+                recycleDeferredMessage(this);
+            }
+        }
+    }
+
+    // Enough for the messages in flight on the dispatcher pool, slots are
+    // taken and returned with atomic swaps.
+    private final static int DEFERRED_MESSAGE_POOL_SIZE = 16;
+    private final static AtomicReferenceArray<DeferredMessage> sDeferredMessages =
+            new AtomicReferenceArray<DeferredMessage>(DEFERRED_MESSAGE_POOL_SIZE);
+
     private long mXWalkExtension;
+    private volatile XWalkExtensionMessageBatcher mBatcher;
+    private final XWalkExtensionMetrics mMetrics;
+    private final ConcurrentHashMap<String, String> mCachedSyncReplies =
+            new ConcurrentHashMap<String, String>();
+    private volatile int mSyncMessageTimeoutMs;
+    // Pending coalesced broadcasts by topic, in order of first arrival.
+    private final LinkedHashMap<String, String> mCoalescedBroadcasts =
+            new LinkedHashMap<String, String>();
+    private volatile int mCoalescingIntervalMs = DEFAULT_COALESCING_INTERVAL_MS;
+    private final Runnable mCoalescedBroadcastsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushCoalescedBroadcasts();
+        }
+    };
+
+    private final SparseArray<XWalkExtensionStream> mStreams =
+            new SparseArray<XWalkExtensionStream>();
+    private int mNextStreamID = 1;
 
     public XWalkExtensionAndroid(String name, String jsApi) {
         mXWalkExtension = nativeGetOrCreateExtension(name, jsApi, null);
+        mMetrics = new XWalkExtensionMetrics(name);
     }
 
     public XWalkExtensionAndroid(String name, String jsApi, String[] entryPoints) {
         mXWalkExtension = nativeGetOrCreateExtension(name, jsApi, entryPoints);
+        mMetrics = new XWalkExtensionMetrics(name);
     }
 
     protected void destroyExtension() {
@@ -34,6 +156,12 @@ public abstract class XWalkExtensionAndroid {
             return;
         }
 
+        disableMessageBatching();
+        closeStreams();
+        synchronized (mCoalescedBroadcasts) {
+            sHandler.removeCallbacks(mCoalescedBroadcastsRunnable);
+            mCoalescedBroadcasts.clear();
+        }
         nativeDestroyExtension(mXWalkExtension);
         mXWalkExtension = 0;
     }
@@ -44,6 +172,14 @@ public abstract class XWalkExtensionAndroid {
             return;
         }
 
+        mMetrics.recordPosted(message);
+        XWalkExtensionMessageBatcher batcher = mBatcher;
+        if (batcher != null) {
+            mMetrics.onQueued(1);
+            batcher.add(instanceID, message);
+            return;
+        }
+
         nativePostMessage(mXWalkExtension, instanceID, message);
     }
 
@@ -53,17 +189,504 @@ public abstract class XWalkExtensionAndroid {
             return;
         }
 
+        mMetrics.recordBroadcasted(message);
+        XWalkExtensionMessageBatcher batcher = mBatcher;
+        if (batcher != null) {
+            mMetrics.onQueued(1);
+            batcher.add(BROADCAST_INSTANCE_ID, message);
+            return;
+        }
+
         nativeBroadcastMessage(mXWalkExtension, message);
     }
 
+    /**
+     * Broadcast a message describing the latest state of a topic, e.g. an
+     * event source. Instead of being sent right away, the message replaces
+     * the pending message of the same topic, and the pending messages of all
+     * the topics are broadcasted once per coalescing interval. Each topic is
+     * delivered at most once per interval, in the order the topics were
+     * first seen, whatever the number of messages broadcasted meanwhile.
+     * See onCoalesceMessages() to merge the messages instead of keeping the
+     * latest one. Coalesced messages may arrive after messages posted later
+     * through the other methods.
+     */
+    public void broadcastCoalescedMessage(String topic, String message) {
+        synchronized (mCoalescedBroadcasts) {
+            String pending = mCoalescedBroadcasts.get(topic);
+            if (pending == null) {
+                if (mCoalescedBroadcasts.isEmpty()) {
+                    sHandler.postDelayed(mCoalescedBroadcastsRunnable, mCoalescingIntervalMs);
+                }
+                mCoalescedBroadcasts.put(topic, message);
+                return;
+            }
+
+            String merged = onCoalesceMessages(topic, pending, message);
+            mCoalescedBroadcasts.put(topic, merged != null ? merged : message);
+        }
+    }
+
+    /**
+     * Set how long coalesced broadcasts are held, 50ms by default.
+     */
+    public void setCoalescingInterval(int intervalMs) {
+        mCoalescingIntervalMs = Math.max(0, intervalMs);
+    }
+
+    /**
+     * Called when a coalesced broadcast is made while a message of the same
+     * topic is pending, to combine them. Called with an internal lock held,
+     * so it must not broadcast itself. The default implementation keeps the
+     * latest message.
+     * @return the message replacing the pending one.
+     */
+    public String onCoalesceMessages(String topic, String pendingMessage, String message) {
+        return message;
+    }
+
+    private void flushCoalescedBroadcasts() {
+        String[] messages;
+        synchronized (mCoalescedBroadcasts) {
+            messages = mCoalescedBroadcasts.values().toArray(
+                    new String[mCoalescedBroadcasts.size()]);
+            mCoalescedBroadcasts.clear();
+        }
+        for (String message : messages) {
+            broadcastMessage(message);
+        }
+    }
+
+    /**
+     * Start accumulating posted and broadcasted messages instead of sending
+     * each of them separately. The pending messages are sent in one native
+     * call on the next frame, or as soon as maxMessages messages or maxBytes
+     * characters are pending. A value <= 0 disables the respective limit.
+     * Pending messages are always flushed before a sync message is handled.
+     */
+    public synchronized void enableMessageBatching(int maxMessages, int maxBytes) {
+        if (mBatcher != null) mBatcher.flush();
+        mBatcher = new XWalkExtensionMessageBatcher(
+                new XWalkExtensionMessageBatcher.Sink() {
+                    @Override
+                    public void postMessages(int[] instanceIDs, String[] messages) {
+                        mMetrics.onDequeued(messages.length);
+                        if (mXWalkExtension == 0) return;
+                        nativePostMessages(mXWalkExtension, instanceIDs, messages);
+                    }
+                }, maxMessages, maxBytes);
+    }
+
+    /**
+     * Flush the pending messages and go back to sending each message as it
+     * is posted.
+     */
+    public synchronized void disableMessageBatching() {
+        if (mBatcher == null) return;
+        mBatcher.flush();
+        mBatcher = null;
+    }
+
+    /**
+     * Send the pending batched messages right away.
+     */
+    public void flushMessages() {
+        XWalkExtensionMessageBatcher batcher = mBatcher;
+        if (batcher != null) batcher.flush();
+    }
+
+    /**
+     * Post a binary message to the given instance. The bytes between the
+     * buffer's position and limit are handed to native without any String
+     * conversion and arrive on JavaScript side as an ArrayBuffer. Only direct
+     * buffers are accepted since native reads their memory in place.
+     */
+    public void postBinaryMessage(int instanceID, ByteBuffer message) {
+        if (mXWalkExtension == 0) {
+            Log.e(TAG, "Can not post a binary message to an invalid extension!");
+            return;
+        }
+
+        if (message == null || !message.isDirect()) {
+            Log.e(TAG, "Binary messages must be carried by a direct ByteBuffer!");
+            return;
+        }
+
+        mMetrics.recordBinaryPosted(message.remaining());
+        flushMessages();
+        nativePostBinaryMessage(mXWalkExtension, instanceID, message,
+                message.position(), message.remaining());
+    }
+
+    /**
+     * Open a stream to the given instance: a ring buffer of capacity records
+     * of recordSize bytes in memory shared with its JavaScript side, which
+     * gets the memory as an ArrayBuffer through the listener registered with
+     * extension.setStreamListener(). Records are written in place with
+     * beginStreamRecord() and commitStreamRecord(), without allocating nor
+     * sending a message per record, and JavaScript is told about new records
+     * at most once per frame. The capacity is rounded up to a power of two,
+     * see XWalkExtensionStream for the memory layout.
+     * @return the stream id, or -1 if the stream can't be opened.
+     */
+    public int openStream(int instanceID, int recordSize, int capacity) {
+        if (recordSize <= 0 || capacity <= 0 ||
+                (long) recordSize * capacity > Integer.MAX_VALUE / 2) {
+            Log.e(TAG, "Invalid stream of " + capacity + " records of " + recordSize + " bytes");
+            return -1;
+        }
+
+        int slots = XWalkExtensionStream.roundCapacity(capacity);
+        int size = XWalkExtensionStream.getSize(recordSize, slots);
+        int streamID;
+        synchronized (mStreams) {
+            streamID = mNextStreamID++;
+        }
+
+        if (mXWalkExtension == 0) return -1;
+        ByteBuffer buffer = nativeOpenStream(mXWalkExtension, instanceID, streamID, size);
+        if (buffer == null) {
+            Log.e(TAG, "Failed to open a stream to instance " + instanceID);
+            return -1;
+        }
+
+        final XWalkExtensionStream stream =
+                new XWalkExtensionStream(streamID, instanceID, buffer, recordSize, slots);
+        stream.mNotification = new Runnable() {
+            @Override
+            public void run() {
+                notifyStream(stream);
+            }
+        };
+        synchronized (mStreams) {
+            mStreams.put(streamID, stream);
+        }
+        return streamID;
+    }
+
+    /**
+     * Return the buffer of the next record of the stream, cleared, to be
+     * filled with absolute or relative puts in native byte order. The buffer
+     * is reused and must not be kept after commitStreamRecord(). Records of
+     * a stream must all be written by the same thread.
+     * @return null if the stream isn't open.
+     */
+    public ByteBuffer beginStreamRecord(int streamID) {
+        XWalkExtensionStream stream;
+        synchronized (mStreams) {
+            stream = mStreams.get(streamID);
+        }
+        return stream == null ? null : stream.beginRecord();
+    }
+
+    /**
+     * Make the record returned by beginStreamRecord() visible to JavaScript.
+     */
+    public void commitStreamRecord(int streamID) {
+        XWalkExtensionStream stream;
+        synchronized (mStreams) {
+            stream = mStreams.get(streamID);
+        }
+        if (stream == null) return;
+
+        if (stream.commitRecord()) {
+            sHandler.postDelayed(stream.mNotification, STREAM_NOTIFICATION_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Tell JavaScript about the last records and close the stream. The
+     * buffers of the stream must not be used anymore.
+     */
+    public void closeStream(int streamID) {
+        XWalkExtensionStream stream;
+        synchronized (mStreams) {
+            stream = mStreams.get(streamID);
+            mStreams.remove(streamID);
+        }
+        if (stream == null) return;
+
+        // A notification already running can only reach native after the
+        // close, which makes native drop it.
+        sHandler.removeCallbacks(stream.mNotification);
+        notifyStream(stream);
+        stream.close();
+        if (mXWalkExtension == 0) return;
+        nativeCloseStream(mXWalkExtension, stream.getID());
+    }
+
+    private void closeStreams() {
+        int[] streamIDs;
+        synchronized (mStreams) {
+            streamIDs = new int[mStreams.size()];
+            for (int i = 0; i < streamIDs.length; i++) streamIDs[i] = mStreams.keyAt(i);
+        }
+        for (int streamID : streamIDs) closeStream(streamID);
+    }
+
+    private void notifyStream(XWalkExtensionStream stream) {
+        if (stream.isClosed() || mXWalkExtension == 0) return;
+        long writeCount = stream.takeNotification();
+        if (writeCount < 0) return;
+        nativeNotifyStream(mXWalkExtension, stream.getID(), (int) writeCount);
+    }
+
+    /**
+     * Return a JSON snapshot of the messaging counters of this extension:
+     * - "received", "syncReceived": per command, the message count, the size
+     *   in characters, the total and max handler time in microseconds and a
+     *   latency histogram whose entry i counts the calls which took less than
+     *   2^i microseconds (and at least 2^(i-1)).
+     *   For messages handed to another thread, see deferMessageTiming(), the
+     *   handler time runs until that thread is done with the message.
+     * - "binaryReceived": the same for binary messages.
+     * - "posted", "broadcasted", "binaryPosted": message count and size.
+     * - "queueDepth", "maxQueueDepth": batched messages waiting to be sent to
+     *   native.
+     * The command of a message is the value of its top-level "cmd" field.
+     */
+    public String getMessagingMetrics() {
+        return mMetrics.toJSON().toString();
+    }
+
+    /**
+     * Reset the messaging counters of this extension.
+     */
+    public void resetMessagingMetrics() {
+        mMetrics.reset();
+    }
+
     @CalledByNative
     public abstract void onMessage(int instanceID, String message);
 
+    @CalledByNative
+    private void handleMessage(int instanceID, String message) {
+        HandlingState state = sHandlingState.get();
+        state.mCounter = mMetrics.getReceivedCounter(message);
+        state.mSize = message.length();
+        state.mStart = System.nanoTime();
+        state.mDeferred = false;
+        try {
+            onMessage(instanceID, message);
+        } finally {
+            if (!state.mDeferred) {
+                state.mCounter.record(state.mSize, System.nanoTime() - state.mStart);
+            }
+            state.mCounter = null;
+        }
+    }
+
+    /**
+     * Called from onMessage() when the message is handed to another thread,
+     * so that its handler time is recorded once that thread is done with it
+     * rather than when onMessage() returns.
+     * @param task the handler of the message on the other thread.
+     * @return a Runnable which runs task then records the handler time, to
+     *         be run exactly once in place of task. task itself when not
+     *         called from onMessage() or when already deferred.
+     */
+    public static Runnable deferMessageTiming(Runnable task) {
+        HandlingState state = sHandlingState.get();
+        if (state.mCounter == null || state.mDeferred) return task;
+
+        state.mDeferred = true;
+        DeferredMessage message = null;
+        for (int i = 0; message == null && i < DEFERRED_MESSAGE_POOL_SIZE; i++) {
+            message = sDeferredMessages.getAndSet(i, null);
+        }
+        if (message == null) message = new DeferredMessage();
+        message.mTask = task;
+        message.mCounter = state.mCounter;
+        message.mSize = state.mSize;
+        message.mStart = state.mStart;
+        return message;
+    }
+
+    private static void recycleDeferredMessage(DeferredMessage message) {
+        for (int i = 0; i < DEFERRED_MESSAGE_POOL_SIZE; i++) {
+            if (sDeferredMessages.compareAndSet(i, null, message)) return;
+        }
+    }
+
+    /**
+     * Called when JavaScript posts an ArrayBuffer or typed array. The buffer
+     * wraps native memory directly and is only valid until this method
+     * returns, so implementations have to copy out anything they keep.
+     * The default implementation drops the message.
+     */
+    @CalledByNative
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+    }
+
+    @CalledByNative
+    private void handleBinaryMessage(int instanceID, ByteBuffer message) {
+        int size = message.remaining();
+        long start = System.nanoTime();
+        onBinaryMessage(instanceID, message);
+        mMetrics.getBinaryReceivedCounter().record(size, System.nanoTime() - start);
+    }
+
     @CalledByNative
     public abstract String onSyncMessage(int instanceID, String message);
 
+    /**
+     * Reply to the sync messages equal to the given one with the given reply,
+     * without calling onSyncMessage(). Meant for values which can be computed
+     * ahead of time. A null reply removes the cached reply.
+     * Messages are compared as strings, so the given message must be the
+     * exact text sent by JavaScript, e.g. with the same key order and
+     * whitespace as its JSON.stringify() output.
+     */
+    public void setCachedSyncReply(String message, String reply) {
+        if (reply == null) {
+            mCachedSyncReplies.remove(message);
+        } else {
+            mCachedSyncReplies.put(message, reply);
+        }
+    }
+
+    /**
+     * Give onSyncMessage() a deadline. When timeoutMs > 0, onSyncMessage() is
+     * called on a worker thread instead of the extension thread and, if it
+     * doesn't return in time, JavaScript gets the reply of
+     * onSyncMessageTimeout() instead of staying blocked. The late result is
+     * dropped. Messages posted by onSyncMessage() still reach JavaScript
+     * before the reply. A value <= 0 restores the default of calling
+     * onSyncMessage() on the extension thread without deadline.
+     */
+    public void setSyncMessageTimeout(int timeoutMs) {
+        mSyncMessageTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * Return the reply sent to JavaScript when a sync message misses its
+     * deadline, see setSyncMessageTimeout(). Called on a timer thread, or on
+     * the extension thread when no worker is available to run
+     * onSyncMessage(). The default implementation returns an empty string.
+     */
+    public String onSyncMessageTimeout(int instanceID, String message) {
+        return "";
+    }
+
+    // The reply to a sync message handled on a worker thread, sent by
+    // whichever of the handler and the deadline comes first. Both send it
+    // from their own thread, native forwards it to the extension thread
+    // behind the messages posted before.
+    private class SyncReply implements Runnable {
+        private final int mInstanceID;
+        private final String mMessage;
+        private final XWalkExtensionMetrics.TimedCounter mCounter;
+        private final long mStart;
+        private final AtomicBoolean mReplied = new AtomicBoolean();
+        volatile ScheduledFuture<?> mTimeoutFuture;
+        final Runnable mTimeout = new Runnable() {
+            @Override
+            public void run() {
+                String reply = timeOut();
+                if (reply != null) sendSyncReply(mInstanceID, reply, mMessage, mCounter, mStart);
+            }
+        };
+
+        SyncReply(int instanceID, String message, XWalkExtensionMetrics.TimedCounter counter,
+                long start) {
+            mInstanceID = instanceID;
+            mMessage = message;
+            mCounter = counter;
+            mStart = start;
+        }
+
+        // Return the timeout reply, or null if the message was already replied.
+        String timeOut() {
+            if (!mReplied.compareAndSet(false, true)) return null;
+            mMetrics.recordSyncTimeout();
+            Log.w(TAG, "Sync message of " + mMetrics.getName() + " timed out: " + mMessage);
+            String reply = onSyncMessageTimeout(mInstanceID, mMessage);
+            return reply == null ? "" : reply;
+        }
+
+        @Override
+        public void run() {
+            String result = onSyncMessage(mInstanceID, mMessage);
+            if (!mReplied.compareAndSet(false, true)) return;
+
+            ScheduledFuture<?> timeout = mTimeoutFuture;
+            if (timeout != null) timeout.cancel(false);
+            sendSyncReply(mInstanceID, result, mMessage, mCounter, mStart);
+        }
+    }
+
+    // The JavaScript side is blocked until the sync reply arrives, so any
+    // message posted earlier must reach it first. Messages posted while
+    // handling the sync message are flushed before the reply as well.
+    // Returns null when the reply will be sent later through
+    // nativeSendSyncReply().
+    @CalledByNative
+    private String handleSyncMessage(int instanceID, String message) {
+        XWalkExtensionMetrics.TimedCounter counter = mMetrics.getSyncReceivedCounter(message);
+        long start = System.nanoTime();
+        flushMessages();
+
+        String cached = mCachedSyncReplies.get(message);
+        if (cached != null) {
+            recordSyncMessage(message, counter, start);
+            return cached;
+        }
+
+        int timeoutMs = mSyncMessageTimeoutMs;
+        if (timeoutMs <= 0) {
+            String result = onSyncMessage(instanceID, message);
+            flushMessages();
+            recordSyncMessage(message, counter, start);
+            return result == null ? "" : result;
+        }
+
+        SyncReply reply = new SyncReply(instanceID, message, counter, start);
+        try {
+            sSyncExecutor.execute(reply);
+        } catch (RejectedExecutionException e) {
+            // All the workers are stuck in handlers, fail right away.
+            String result = reply.timeOut();
+            recordSyncMessage(message, counter, start);
+            return result;
+        }
+        reply.mTimeoutFuture =
+                sSyncTimer.schedule(reply.mTimeout, timeoutMs, TimeUnit.MILLISECONDS);
+        return null;
+    }
+
+    private void sendSyncReply(int instanceID, String result, String message,
+            XWalkExtensionMetrics.TimedCounter counter, long start) {
+        flushMessages();
+        recordSyncMessage(message, counter, start);
+        if (mXWalkExtension == 0) return;
+        nativeSendSyncReply(mXWalkExtension, instanceID, result == null ? "" : result);
+    }
+
+    // This is the time JavaScript was blocked waiting for the reply, minus the
+    // IPC round trip.
+    private void recordSyncMessage(String message, XWalkExtensionMetrics.TimedCounter counter,
+            long start) {
+        long nanos = System.nanoTime() - start;
+        counter.record(message.length(), nanos);
+        if (nanos > SLOW_SYNC_MESSAGE_MS * 1000000) {
+            Log.w(TAG, "Sync message of " + mMetrics.getName() + " took " + nanos / 1000000 +
+                    "ms: " + message);
+        }
+    }
+
     private native long nativeGetOrCreateExtension(String name, String jsApi, String[] entryPoints);
     private native void nativePostMessage(long nativeXWalkExtensionAndroid, int instanceID, String message);
+    private native void nativePostBinaryMessage(long nativeXWalkExtensionAndroid, int instanceID,
+            ByteBuffer message, int offset, int length);
     private native void nativeBroadcastMessage(long nativeXWalkExtensionAndroid, String message);
+    private native void nativePostMessages(long nativeXWalkExtensionAndroid, int[] instanceIDs,
+            String[] messages);
+    private native void nativeSendSyncReply(long nativeXWalkExtensionAndroid, int instanceID,
+            String reply);
+    private native ByteBuffer nativeOpenStream(long nativeXWalkExtensionAndroid, int instanceID,
+            int streamID, int size);
+    private native void nativeNotifyStream(long nativeXWalkExtensionAndroid, int streamID,
+            int writeCount);
+    private native void nativeCloseStream(long nativeXWalkExtensionAndroid, int streamID);
     private native void nativeDestroyExtension(long nativeXWalkExtensionAndroid);
 }
@@ -0,0 +1,104 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extensions;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+/**
+ * Accumulates the messages posted by an extension and hands them to native
+ * in a single call, either once per frame or as soon as the configured message
+ * count or byte size is reached.
+ *
+ * Messages are kept in posting order together with their destination
+ * instance, broadcasts included, so that native can rebuild the exact per
+ * instance ordering. Batches are handed to the sink by the flushing thread,
+ * one at a time.
+ */
+class XWalkExtensionMessageBatcher {
+    // Roughly one frame at 60fps.
+    private final static long FLUSH_INTERVAL_MS = 16;
+
+    interface Sink {
+        void postMessages(int[] instanceIDs, String[] messages);
+    }
+
+    private final Sink mSink;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final int mMaxMessages;
+    private final int mMaxBytes;
+
+    // Held while a batch is handed to the sink so that batches taken by
+    // different threads can't overtake each other.
+    private final Object mFlushLock = new Object();
+    private final ArrayList<String> mMessages = new ArrayList<String>();
+    private int[] mInstanceIDs;
+    private int mPendingBytes;
+    private boolean mFlushScheduled;
+
+    XWalkExtensionMessageBatcher(Sink sink, int maxMessages, int maxBytes) {
+        mSink = sink;
+        mMaxMessages = maxMessages > 0 ? maxMessages : Integer.MAX_VALUE;
+        mMaxBytes = maxBytes > 0 ? maxBytes : Integer.MAX_VALUE;
+        mInstanceIDs = new int[Math.min(mMaxMessages, 64)];
+    }
+
+    void add(int instanceID, String message) {
+        boolean flushNow;
+        synchronized (this) {
+            int count = mMessages.size();
+            if (count == mInstanceIDs.length) {
+                int[] ids = new int[count * 2];
+                System.arraycopy(mInstanceIDs, 0, ids, 0, count);
+                mInstanceIDs = ids;
+            }
+            mInstanceIDs[count] = instanceID;
+            mMessages.add(message);
+            // Messages cross JNI as modified UTF-8, the char count is a close
+            // enough estimation of the payload size.
+            mPendingBytes += message.length();
+
+            flushNow = mMessages.size() >= mMaxMessages || mPendingBytes >= mMaxBytes;
+            if (!flushNow && !mFlushScheduled) {
+                mFlushScheduled = true;
+                mHandler.postDelayed(mFlushRunnable, FLUSH_INTERVAL_MS);
+            }
+        }
+
+        if (flushNow) flush();
+    }
+
+    void flush() {
+        synchronized (mFlushLock) {
+            int[] instanceIDs;
+            String[] messages;
+            synchronized (this) {
+                if (mFlushScheduled) {
+                    mHandler.removeCallbacks(mFlushRunnable);
+                    mFlushScheduled = false;
+                }
+                if (mMessages.isEmpty()) return;
+
+                int count = mMessages.size();
+                instanceIDs = new int[count];
+                System.arraycopy(mInstanceIDs, 0, instanceIDs, 0, count);
+                messages = mMessages.toArray(new String[count]);
+                mMessages.clear();
+                mPendingBytes = 0;
+            }
+
+            mSink.postMessages(instanceIDs, messages);
+        }
+    }
+}
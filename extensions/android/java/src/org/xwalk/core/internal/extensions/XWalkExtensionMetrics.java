@@ -0,0 +1,285 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extensions;
+
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Messaging counters of one extension: message counts and sizes, handler
+ * latencies per command, time spent answering sync messages, missed sync
+ * deadlines and the depth of the queue of messages waiting to be sent to
+ * JavaScript.
+ *
+ * Recording only touches atomic counters and doesn't allocate once a command
+ * has been seen or the command table is full, so it is always on. The command of a message is the string
+ * value of its top-level "cmd" field, messages without one are recorded
+ * under an empty command.
+ */
+class XWalkExtensionMetrics {
+    private final static String TAG = "XWalkExtensionMetrics";
+    private final static String COMMAND_KEY = "\"cmd\"";
+    private final static String OTHER_COMMANDS = "(other)";
+    // Bounds the memory used by extensions with free-form command values.
+    private final static int MAX_COMMANDS = 32;
+    // Bucket i counts latencies in [2^(i-1), 2^i) microseconds, the last one
+    // everything above.
+    private final static int HISTOGRAM_BUCKETS = 22;
+
+    static class Counter {
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mBytes = new AtomicLong();
+
+        void record(int bytes) {
+            mCount.incrementAndGet();
+            mBytes.addAndGet(bytes);
+        }
+
+        void reset() {
+            mCount.set(0);
+            mBytes.set(0);
+        }
+
+        void toJSON(JSONObject json) throws JSONException {
+            json.put("count", mCount.get());
+            json.put("bytes", mBytes.get());
+        }
+    }
+
+    static class TimedCounter extends Counter {
+        private final String mName;
+        private final AtomicLong mTotalNanos = new AtomicLong();
+        private final AtomicLong mMaxNanos = new AtomicLong();
+        private final AtomicLongArray mHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        TimedCounter(String name) {
+            mName = name;
+        }
+
+        void record(int bytes, long nanos) {
+            record(bytes);
+            mTotalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = mMaxNanos.get();
+            } while (nanos > max && !mMaxNanos.compareAndSet(max, nanos));
+
+            long micros = nanos / 1000;
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            mHistogram.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            mTotalNanos.set(0);
+            mMaxNanos.set(0);
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) mHistogram.set(i, 0);
+        }
+
+        @Override
+        void toJSON(JSONObject json) throws JSONException {
+            super.toJSON(json);
+            json.put("totalUs", mTotalNanos.get() / 1000);
+            json.put("maxUs", mMaxNanos.get() / 1000);
+            // Trailing empty buckets are omitted.
+            JSONArray histogram = new JSONArray();
+            int last = HISTOGRAM_BUCKETS - 1;
+            while (last >= 0 && mHistogram.get(last) == 0) last--;
+            for (int i = 0; i <= last; i++) histogram.put(mHistogram.get(i));
+            json.put("histogram", histogram);
+        }
+    }
+
+    // A set of per-command counters. Lookups walk an immutable array and
+    // new commands replace it, so recording never takes a lock.
+    static class CommandTable {
+        private volatile TimedCounter[] mCommands = new TimedCounter[0];
+        private final TimedCounter mOther = new TimedCounter(OTHER_COMMANDS);
+
+        TimedCounter get(String message) {
+            int start = -1;
+            int end = -1;
+            int key = message.indexOf(COMMAND_KEY);
+            if (key >= 0) {
+                int i = skipWhitespace(message, key + COMMAND_KEY.length());
+                if (i < message.length() && message.charAt(i) == ':') {
+                    i = skipWhitespace(message, i + 1);
+                    if (i < message.length() && message.charAt(i) == '"') {
+                        start = i + 1;
+                        end = message.indexOf('"', start);
+                    }
+                }
+            }
+            if (end < 0) start = end = 0;
+
+            int length = end - start;
+            TimedCounter[] commands = mCommands;
+            for (TimedCounter counter : commands) {
+                if (counter.mName.length() == length &&
+                        message.regionMatches(start, counter.mName, 0, length)) {
+                    return counter;
+                }
+            }
+            // The table only grows, once full an unknown command neither
+            // allocates its name nor takes the lock.
+            if (commands.length == MAX_COMMANDS) return mOther;
+            return add(message.substring(start, end));
+        }
+
+        private synchronized TimedCounter add(String name) {
+            TimedCounter[] commands = mCommands;
+            for (TimedCounter counter : commands) {
+                if (counter.mName.equals(name)) return counter;
+            }
+            if (commands.length == MAX_COMMANDS) return mOther;
+
+            TimedCounter[] newCommands = new TimedCounter[commands.length + 1];
+            System.arraycopy(commands, 0, newCommands, 0, commands.length);
+            TimedCounter counter = new TimedCounter(name);
+            newCommands[commands.length] = counter;
+            mCommands = newCommands;
+            return counter;
+        }
+
+        void reset() {
+            for (TimedCounter counter : mCommands) counter.reset();
+            mOther.reset();
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+            for (TimedCounter counter : mCommands) {
+                JSONObject command = new JSONObject();
+                counter.toJSON(command);
+                json.put(counter.mName, command);
+            }
+            if (mOther.mCount.get() > 0) {
+                JSONObject command = new JSONObject();
+                mOther.toJSON(command);
+                json.put(OTHER_COMMANDS, command);
+            }
+            return json;
+        }
+
+        private static int skipWhitespace(String s, int i) {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            return i;
+        }
+    }
+
+    private final String mName;
+    private final CommandTable mReceived = new CommandTable();
+    private final CommandTable mSyncReceived = new CommandTable();
+    private final TimedCounter mBinaryReceived = new TimedCounter("binary");
+    private final Counter mPosted = new Counter();
+    private final Counter mBroadcasted = new Counter();
+    private final Counter mBinaryPosted = new Counter();
+    private final AtomicLong mSyncTimeouts = new AtomicLong();
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+    XWalkExtensionMetrics(String name) {
+        mName = name;
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    TimedCounter getReceivedCounter(String message) {
+        return mReceived.get(message);
+    }
+
+    TimedCounter getSyncReceivedCounter(String message) {
+        return mSyncReceived.get(message);
+    }
+
+    TimedCounter getBinaryReceivedCounter() {
+        return mBinaryReceived;
+    }
+
+    void recordPosted(String message) {
+        mPosted.record(message.length());
+    }
+
+    void recordBroadcasted(String message) {
+        mBroadcasted.record(message.length());
+    }
+
+    void recordBinaryPosted(int bytes) {
+        mBinaryPosted.record(bytes);
+    }
+
+    void recordSyncTimeout() {
+        mSyncTimeouts.incrementAndGet();
+    }
+
+    void onQueued(int count) {
+        int depth = mQueueDepth.addAndGet(count);
+        int max;
+        do {
+            max = mMaxQueueDepth.get();
+        } while (depth > max && !mMaxQueueDepth.compareAndSet(max, depth));
+    }
+
+    void onDequeued(int count) {
+        mQueueDepth.addAndGet(-count);
+    }
+
+    void reset() {
+        mReceived.reset();
+        mSyncReceived.reset();
+        mBinaryReceived.reset();
+        mPosted.reset();
+        mBroadcasted.reset();
+        mBinaryPosted.reset();
+        mSyncTimeouts.set(0);
+        mMaxQueueDepth.set(mQueueDepth.get());
+    }
+
+    /**
+     * Take a snapshot of the counters. Each counter is read atomically, but
+     * the snapshot as a whole isn't.
+     */
+    JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("name", mName);
+            json.put("received", mReceived.toJSON());
+            json.put("syncReceived", mSyncReceived.toJSON());
+            json.put("syncTimeouts", mSyncTimeouts.get());
+
+            JSONObject binaryReceived = new JSONObject();
+            mBinaryReceived.toJSON(binaryReceived);
+            json.put("binaryReceived", binaryReceived);
+
+            JSONObject posted = new JSONObject();
+            mPosted.toJSON(posted);
+            json.put("posted", posted);
+
+            JSONObject broadcasted = new JSONObject();
+            mBroadcasted.toJSON(broadcasted);
+            json.put("broadcasted", broadcasted);
+
+            JSONObject binaryPosted = new JSONObject();
+            mBinaryPosted.toJSON(binaryPosted);
+            json.put("binaryPosted", binaryPosted);
+
+            json.put("queueDepth", mQueueDepth.get());
+            json.put("maxQueueDepth", mMaxQueueDepth.get());
+        } catch (JSONException e) {
+            Log.e(TAG, e.toString());
+        }
+        return json;
+    }
+}
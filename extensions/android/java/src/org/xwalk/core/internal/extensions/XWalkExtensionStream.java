@@ -0,0 +1,138 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extensions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A ring buffer of fixed-size records in memory shared with the JavaScript
+ * side of one extension instance.
+ *
+ * The memory starts with a 16 bytes header of native-endian 32-bit words:
+ * the write count, the record size, the capacity in records and a reserved
+ * word. Record n lives at HEADER_SIZE + (n & (capacity - 1)) * recordSize.
+ * The header is only valid once the first record is notified.
+ *
+ * The write count is only bumped once a record is fully written. Readers
+ * take the records between their last count and the current one and drop
+ * those which may have been overwritten meanwhile, i.e. the ones more than
+ * capacity behind the count read after copying them.
+ *
+ * Records are written by a single thread, which can be any thread.
+ */
+class XWalkExtensionStream {
+    static final int HEADER_SIZE = 16;
+    private static final int WRITE_COUNT_OFFSET = 0;
+    private static final int RECORD_SIZE_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+
+    // Posted to the main looper to tell JavaScript about new records, at most
+    // once per frame. Native forwards the notification to the extension
+    // thread.
+    Runnable mNotification;
+
+    private final int mID;
+    private final int mInstanceID;
+    private final ByteBuffer mBuffer;
+    // One view per slot, so that writing a record doesn't allocate.
+    private final ByteBuffer[] mSlots;
+    private int mWriteCount;
+    // Written after each record, see commitRecord().
+    private volatile int mPublishedCount;
+    private int mNotifiedCount;
+    private boolean mNotificationScheduled;
+    private volatile boolean mClosed;
+
+    XWalkExtensionStream(int id, int instanceID, ByteBuffer buffer, int recordSize,
+            int capacity) {
+        mID = id;
+        mInstanceID = instanceID;
+        mBuffer = buffer.order(ByteOrder.nativeOrder());
+        mBuffer.putInt(RECORD_SIZE_OFFSET, recordSize);
+        mBuffer.putInt(CAPACITY_OFFSET, capacity);
+
+        mSlots = new ByteBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ByteBuffer slot = mBuffer.duplicate();
+            int offset = HEADER_SIZE + i * recordSize;
+            slot.position(offset);
+            slot.limit(offset + recordSize);
+            mSlots[i] = slot.slice().order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Return the memory size needed by the given stream geometry.
+     */
+    static int getSize(int recordSize, int capacity) {
+        return HEADER_SIZE + recordSize * capacity;
+    }
+
+    /**
+     * Round the capacity up to a power of two, so that the slot of a record
+     * stays right when the 32-bit write count wraps around.
+     */
+    static int roundCapacity(int capacity) {
+        if (capacity <= 1) return 1;
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    int getID() {
+        return mID;
+    }
+
+    int getInstanceID() {
+        return mInstanceID;
+    }
+
+    boolean isClosed() {
+        return mClosed;
+    }
+
+    /**
+     * Return the buffer of the next record, cleared.
+     */
+    ByteBuffer beginRecord() {
+        ByteBuffer slot = mSlots[mWriteCount & (mSlots.length - 1)];
+        slot.clear();
+        return slot;
+    }
+
+    /**
+     * Publish the record returned by beginRecord().
+     * @return true if a notification has to be scheduled.
+     */
+    boolean commitRecord() {
+        mWriteCount++;
+        // The buffer stores aren't ordered by themselves. The volatile write
+        // keeps the record stores before it, and storing the count read back
+        // from it keeps the header store after it, so a reader never sees
+        // the new count before the record.
+        mPublishedCount = mWriteCount;
+        mBuffer.putInt(WRITE_COUNT_OFFSET, mPublishedCount);
+        synchronized (this) {
+            if (mNotificationScheduled) return false;
+            mNotificationScheduled = true;
+            return true;
+        }
+    }
+
+    /**
+     * Return the write count to send to JavaScript, or -1 if it was already
+     * sent. Clears the scheduled notification.
+     */
+    synchronized long takeNotification() {
+        mNotificationScheduled = false;
+        int count = mPublishedCount;
+        if (count == mNotifiedCount) return -1;
+        mNotifiedCount = count;
+        return count & 0xffffffffL;
+    }
+
+    void close() {
+        mClosed = true;
+    }
+}
@@ -10,6 +10,8 @@
 #include "base/android/jni_array.h"
 #include "base/bind.h"
 #include "base/logging.h"
+#include "base/message_loop/message_loop_proxy.h"
+#include "base/stl_util.h"
 #include "jni/XWalkExtensionAndroid_jni.h"
 #include "xwalk/extensions/common/xwalk_extension.h"
 #include "xwalk/runtime/browser/xwalk_browser_main_parts_android.h"
@@ -18,12 +20,21 @@
 namespace xwalk {
 namespace extensions {
 
+namespace {
+
+// Must match BROADCAST_INSTANCE_ID in XWalkExtensionAndroid.java. Valid
+// instance ids start from 1.
+const int kBroadcastInstanceID = 0;
+
+}  // namespace
+
 XWalkExtensionAndroid::XWalkExtensionAndroid(JNIEnv* env, jobject obj,
                                              jstring name, jstring js_api,
                                              jobjectArray js_entry_points)
     : XWalkExtension(),
       java_ref_(env, obj),
-      next_instance_id_(1) {
+      next_instance_id_(1),
+      pending_tasks_(0) {
   const char *str = env->GetStringUTFChars(name, 0);
   set_name(str);
   env->ReleaseStringUTFChars(name, str);
@@ -47,6 +58,10 @@ XWalkExtensionAndroid::~XWalkExtensionAndroid() {
   // extension, but it doesn't own the object. The instance deletion is
   // transferred to XWalkExtensionServer.
   instances_.clear();
+
+  for (StreamMap::iterator it = streams_.begin(); it != streams_.end(); ++it)
+    delete it->second.memory;
+  streams_.clear();
 }
 
 bool XWalkExtensionAndroid::is_valid() {
@@ -57,8 +72,45 @@ bool XWalkExtensionAndroid::is_valid() {
   return true;
 }
 
+scoped_refptr<base::SingleThreadTaskRunner>
+XWalkExtensionAndroid::GetTaskRunner() {
+  base::AutoLock lock(task_runner_lock_);
+  return task_runner_;
+}
+
+void XWalkExtensionAndroid::PostToExtensionThread(
+    const scoped_refptr<base::SingleThreadTaskRunner>& task_runner,
+    const base::Closure& task) {
+  base::subtle::Barrier_AtomicIncrement(&pending_tasks_, 1);
+  task_runner->PostTask(FROM_HERE,
+                        base::Bind(&XWalkExtensionAndroid::RunPostedTask,
+                                   base::Unretained(this), task));
+}
+
+void XWalkExtensionAndroid::RunPostedTask(const base::Closure& task) {
+  task.Run();
+  base::subtle::Barrier_AtomicIncrement(&pending_tasks_, -1);
+}
+
 void XWalkExtensionAndroid::PostMessage(JNIEnv* env, jobject obj,
                                        jint instance, jstring msg) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  const char* str = env->GetStringUTFChars(msg, 0);
+  if (task_runner->BelongsToCurrentThread()) {
+    PostMessageToInstance(instance, str);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::PostMessageOnExtensionThread,
+        base::Unretained(this), instance, std::string(str)));
+  }
+  env->ReleaseStringUTFChars(msg, str);
+}
+
+void XWalkExtensionAndroid::PostMessageToInstance(int instance,
+                                                  const char* msg) {
   if (!is_valid()) return;
 
   InstanceMap::iterator it = instances_.find(instance);
@@ -67,21 +119,298 @@ void XWalkExtensionAndroid::PostMessage(JNIEnv* env, jobject obj,
     return;
   }
 
-  const char* str = env->GetStringUTFChars(msg, 0);
-  it->second->PostMessageWrapper(str);
-  env->ReleaseStringUTFChars(msg, str);
+  it->second->PostMessageWrapper(msg);
+}
+
+void XWalkExtensionAndroid::PostMessageOnExtensionThread(
+    int instance, const std::string& msg) {
+  PostMessageToInstance(instance, msg.c_str());
+}
+
+void XWalkExtensionAndroid::PostBinaryMessage(JNIEnv* env, jobject obj,
+                                              jint instance, jobject buffer,
+                                              jint offset, jint length) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  char* data = static_cast<char*>(env->GetDirectBufferAddress(buffer));
+  jlong capacity = env->GetDirectBufferCapacity(buffer);
+  if (!data || offset < 0 || length < 0 || offset + length > capacity) {
+    LOG(ERROR) << "Invalid direct buffer for binary message";
+    return;
+  }
+
+  scoped_ptr<base::Value> msg(
+      base::BinaryValue::CreateWithCopiedBuffer(data + offset, length));
+  if (task_runner->BelongsToCurrentThread()) {
+    PostValueOnExtensionThread(instance, msg.Pass());
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::PostValueOnExtensionThread,
+        base::Unretained(this), instance, base::Passed(&msg)));
+  }
+}
+
+void XWalkExtensionAndroid::PostValueOnExtensionThread(
+    int instance, scoped_ptr<base::Value> msg) {
+  if (!is_valid()) return;
+
+  InstanceMap::iterator it = instances_.find(instance);
+  if (it == instances_.end()) {
+    LOG(WARNING) << "Instance(" << instance << ") not found ";
+    return;
+  }
+
+  it->second->PostValueWrapper(msg.Pass());
 }
 
 void XWalkExtensionAndroid::BroadcastMessage(JNIEnv* env, jobject obj,
                                              jstring msg) {
-  if (!is_valid()) return;
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
 
   const char* str = env->GetStringUTFChars(msg, 0);
+  if (task_runner->BelongsToCurrentThread()) {
+    BroadcastMessageToInstances(str);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::BroadcastMessageOnExtensionThread,
+        base::Unretained(this), std::string(str)));
+  }
+  env->ReleaseStringUTFChars(msg, str);
+}
+
+void XWalkExtensionAndroid::BroadcastMessageToInstances(const char* msg) {
+  if (!is_valid()) return;
+
   for (InstanceMap::iterator it = instances_.begin();
        it != instances_.end(); ++it) {
-    it->second->PostMessageWrapper(str);
+    it->second->PostMessageWrapper(msg);
   }
-  env->ReleaseStringUTFChars(msg, str);
+}
+
+void XWalkExtensionAndroid::BroadcastMessageOnExtensionThread(
+    const std::string& msg) {
+  BroadcastMessageToInstances(msg.c_str());
+}
+
+void XWalkExtensionAndroid::PostMessages(JNIEnv* env, jobject obj,
+                                         jintArray instances,
+                                         jobjectArray msgs) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  std::vector<int> ids;
+  base::android::JavaIntArrayToIntVector(env, instances, &ids);
+  std::vector<std::string> messages;
+  base::android::AppendJavaStringArrayToStringVector(env, msgs, &messages);
+  if (ids.size() != messages.size()) {
+    LOG(ERROR) << "Malformed message batch";
+    return;
+  }
+
+  if (task_runner->BelongsToCurrentThread()) {
+    PostMessagesOnExtensionThread(ids, messages);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::PostMessagesOnExtensionThread,
+        base::Unretained(this), ids, messages));
+  }
+}
+
+void XWalkExtensionAndroid::PostMessagesOnExtensionThread(
+    const std::vector<int>& ids, const std::vector<std::string>& messages) {
+  if (!is_valid()) return;
+
+  typedef std::map<int, base::ListValue*> BatchMap;
+  BatchMap batches;
+  for (size_t i = 0; i < ids.size(); ++i) {
+    if (ids[i] == kBroadcastInstanceID) {
+      for (InstanceMap::iterator it = instances_.begin();
+           it != instances_.end(); ++it) {
+        base::ListValue*& batch = batches[it->first];
+        if (!batch)
+          batch = new base::ListValue;
+        batch->AppendString(messages[i]);
+      }
+      continue;
+    }
+
+    if (instances_.find(ids[i]) == instances_.end()) {
+      LOG(WARNING) << "Instance(" << ids[i] << ") not found ";
+      continue;
+    }
+    base::ListValue*& batch = batches[ids[i]];
+    if (!batch)
+      batch = new base::ListValue;
+    batch->AppendString(messages[i]);
+  }
+
+  for (BatchMap::iterator it = batches.begin(); it != batches.end(); ++it) {
+    instances_[it->first]->PostMessagesWrapper(
+        scoped_ptr<base::ListValue>(it->second));
+    it->second = NULL;
+  }
+}
+
+void XWalkExtensionAndroid::ReplyToSyncMessage(int instance,
+                                               const std::string& reply) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  DCHECK(task_runner->BelongsToCurrentThread());
+  if (base::subtle::Acquire_Load(&pending_tasks_) > 0) {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::SendSyncReplyOnExtensionThread,
+        base::Unretained(this), instance, reply));
+    return;
+  }
+  SendSyncReplyOnExtensionThread(instance, reply);
+}
+
+void XWalkExtensionAndroid::SendSyncReplyOnExtensionThread(
+    int instance, const std::string& reply) {
+  InstanceMap::iterator it = instances_.find(instance);
+  if (it == instances_.end()) {
+    LOG(WARNING) << "Instance(" << instance << ") not found ";
+    return;
+  }
+
+  it->second->SendSyncReplyWrapper(reply.c_str());
+}
+
+// Deferred sync replies come from the worker running the handler or from
+// the deadline timer. They are queued behind the messages posted before them.
+void XWalkExtensionAndroid::SendSyncReply(JNIEnv* env, jobject obj,
+                                          jint instance, jstring reply) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  const char* str = env->GetStringUTFChars(reply, 0);
+  if (task_runner->BelongsToCurrentThread()) {
+    ReplyToSyncMessage(instance, str);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::SendSyncReplyOnExtensionThread,
+        base::Unretained(this), instance, std::string(str)));
+  }
+  env->ReleaseStringUTFChars(reply, str);
+}
+
+ScopedJavaLocalRef<jobject> XWalkExtensionAndroid::OpenStream(
+    JNIEnv* env, jobject obj, jint instance, jint stream, jint size) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner) {
+    LOG(WARNING) << "Instance(" << instance << ") not found ";
+    return ScopedJavaLocalRef<jobject>();
+  }
+
+  if (size <= 0) {
+    LOG(ERROR) << "Invalid stream(" << stream << ") of size " << size;
+    return ScopedJavaLocalRef<jobject>();
+  }
+
+  // The renderer maps the memory writable as well, since a read only
+  // ArrayBuffer doesn't exist and writing to a read only mapping would crash
+  // it. Native never reads the memory back, so the renderer can't affect
+  // anything but its own view of the stream.
+  scoped_ptr<base::SharedMemory> memory(new base::SharedMemory);
+  if (!memory->CreateAndMapAnonymous(size)) {
+    LOG(WARNING) << "Can't create shared memory for stream(" << stream << ")";
+    return ScopedJavaLocalRef<jobject>();
+  }
+
+  // The mapping stays valid until Java closes the stream, wherever the
+  // memory is owned meanwhile.
+  void* address = memory->memory();
+  if (task_runner->BelongsToCurrentThread()) {
+    OpenStreamOnExtensionThread(instance, stream, memory.Pass());
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::OpenStreamOnExtensionThread,
+        base::Unretained(this), instance, stream, base::Passed(&memory)));
+  }
+  return ScopedJavaLocalRef<jobject>(
+      env, env->NewDirectByteBuffer(address, size));
+}
+
+void XWalkExtensionAndroid::OpenStreamOnExtensionThread(
+    int instance, int stream, scoped_ptr<base::SharedMemory> memory) {
+  // Java never reuses a stream id.
+  DCHECK(!ContainsKey(streams_, stream));
+
+  Stream& entry = streams_[stream];
+  entry.instance = instance;
+  entry.open = false;
+  entry.memory = memory.release();
+
+  InstanceMap::iterator it = instances_.find(instance);
+  if (it == instances_.end()) {
+    LOG(WARNING) << "Instance(" << instance << ") not found ";
+    return;
+  }
+  entry.open = it->second->OpenStreamWrapper(stream, entry.memory);
+}
+
+void XWalkExtensionAndroid::NotifyStream(JNIEnv* env, jobject obj,
+                                         jint stream, jint write_count) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  uint32_t count = static_cast<uint32_t>(write_count);
+  if (task_runner->BelongsToCurrentThread()) {
+    NotifyStreamOnExtensionThread(stream, count);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::NotifyStreamOnExtensionThread,
+        base::Unretained(this), static_cast<int>(stream), count));
+  }
+}
+
+void XWalkExtensionAndroid::NotifyStreamOnExtensionThread(
+    int stream, uint32_t write_count) {
+  StreamMap::iterator it = streams_.find(stream);
+  if (it == streams_.end() || !it->second.open)
+    return;
+
+  InstanceMap::iterator instance = instances_.find(it->second.instance);
+  if (instance == instances_.end())
+    return;
+
+  instance->second->NotifyStreamWrapper(stream, write_count);
+}
+
+void XWalkExtensionAndroid::CloseStream(JNIEnv* env, jobject obj,
+                                        jint stream) {
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner = GetTaskRunner();
+  if (!task_runner)
+    return;
+
+  if (task_runner->BelongsToCurrentThread()) {
+    CloseStreamOnExtensionThread(stream);
+  } else {
+    PostToExtensionThread(task_runner, base::Bind(
+        &XWalkExtensionAndroid::CloseStreamOnExtensionThread,
+        base::Unretained(this), static_cast<int>(stream)));
+  }
+}
+
+void XWalkExtensionAndroid::CloseStreamOnExtensionThread(int stream) {
+  StreamMap::iterator it = streams_.find(stream);
+  if (it == streams_.end())
+    return;
+
+  if (it->second.open) {
+    InstanceMap::iterator instance = instances_.find(it->second.instance);
+    if (instance != instances_.end())
+      instance->second->CloseStreamWrapper(stream);
+  }
+
+  delete it->second.memory;
+  streams_.erase(it);
 }
 
 void XWalkExtensionAndroid::DestroyExtension(JNIEnv* env, jobject obj) {
@@ -100,6 +429,13 @@ XWalkExtensionInstance* XWalkExtensionAndroid::CreateInstance() {
     return NULL;
   }
 
+  {
+    // Instances are created on the extension thread.
+    base::AutoLock lock(task_runner_lock_);
+    if (!task_runner_)
+      task_runner_ = base::MessageLoopProxy::current();
+  }
+
   XWalkExtensionAndroidInstance* instance =
       new XWalkExtensionAndroidInstance(this, java_ref_, next_instance_id_);
   instances_[next_instance_id_] = instance;
@@ -149,6 +485,11 @@ XWalkExtensionAndroidInstance::~XWalkExtensionAndroidInstance() {
 
 void XWalkExtensionAndroidInstance::HandleMessage(
     scoped_ptr<base::Value> msg) {
+  if (msg->IsType(base::Value::TYPE_BINARY)) {
+    HandleBinaryMessage(*static_cast<base::BinaryValue*>(msg.get()));
+    return;
+  }
+
   std::string value;
 
   if (!msg->GetAsString(&value)) {
@@ -163,7 +504,24 @@ void XWalkExtensionAndroidInstance::HandleMessage(
     return;
   }
 
-  Java_XWalkExtensionAndroid_onMessage(
+  Java_XWalkExtensionAndroid_handleMessage(
+      env, obj.obj(), getID(), buffer.obj());
+}
+
+void XWalkExtensionAndroidInstance::HandleBinaryMessage(
+    const base::BinaryValue& msg) {
+  JNIEnv* env = base::android::AttachCurrentThread();
+  ScopedJavaLocalRef<jobject> obj = java_ref_.get(env);
+  if (obj.is_null()) {
+    LOG(ERROR) << "No valid Java object is referenced for message routing";
+    return;
+  }
+
+  // Wrap the message memory directly instead of copying it into a Java array,
+  // the Java side is told that the buffer is only valid during the call.
+  ScopedJavaLocalRef<jobject> buffer(env, env->NewDirectByteBuffer(
+      const_cast<char*>(msg.GetBuffer()), msg.GetSize()));
+  Java_XWalkExtensionAndroid_handleBinaryMessage(
       env, obj.obj(), getID(), buffer.obj());
 }
 
@@ -187,14 +545,18 @@ void XWalkExtensionAndroidInstance::HandleSyncMessage(
 
   ScopedJavaLocalRef<jstring> buffer(env, env->NewStringUTF(value.c_str()));
   ScopedJavaLocalRef<jstring> ret =
-      Java_XWalkExtensionAndroid_onSyncMessage(
+      Java_XWalkExtensionAndroid_handleSyncMessage(
               env, obj.obj(), getID(), buffer.obj());
 
+  // A null result means that the Java side replies later through
+  // XWalkExtensionAndroid::SendSyncReply().
+  delete ret_val;
+  if (ret.is_null())
+    return;
+
   const char *str = env->GetStringUTFChars(ret.obj(), 0);
-  ret_val = new base::StringValue(str);
+  extension_->ReplyToSyncMessage(getID(), str);
   env->ReleaseStringUTFChars(ret.obj(), str);
-
-  SendSyncReplyToJS(scoped_ptr<base::Value>(ret_val));
 }
 
 static jlong GetOrCreateExtension(JNIEnv* env, jobject obj, jstring name,
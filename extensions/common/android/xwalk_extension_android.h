@@ -8,11 +8,17 @@
 #include <map>
 #include <string>
 
+#include <vector>
+
 #include "base/android/jni_weak_ref.h"
 #include "base/android/scoped_java_ref.h"
+#include "base/atomicops.h"
 #include "base/callback.h"
 #include "base/logging.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
+#include "base/single_thread_task_runner.h"
+#include "base/synchronization/lock.h"
 #include "xwalk/extensions/browser/xwalk_extension_service.h"
 #include "xwalk/extensions/common/xwalk_extension.h"
 
@@ -44,6 +50,10 @@ class XWalkExtensionAndroidInstance;
 // during the whole process lifecycle. For each native part, its referenced
 // Java-side object needs to be re-assigned once a new Java extension object is
 // created for the same extension identified the extension name.
+//
+// The instances live on the extension thread, where XWalkExtensionServer
+// calls them. Java may call in from any thread though, so the calls made from
+// other threads are posted to the extension thread, in order.
 class XWalkExtensionAndroid : public XWalkExtension {
  public:
   XWalkExtensionAndroid(JNIEnv* env, jobject obj, jstring name,
@@ -52,7 +62,28 @@ class XWalkExtensionAndroid : public XWalkExtension {
 
   // JNI interface to post message from Java to JS
   void PostMessage(JNIEnv* env, jobject obj, jint instance, jstring msg);
+  void PostBinaryMessage(JNIEnv* env, jobject obj, jint instance,
+                         jobject buffer, jint offset, jint length);
   void BroadcastMessage(JNIEnv* env, jobject obj, jstring msg);
+  // Posts a batch of messages collected on Java side. |instances| holds the
+  // destination of each message, kBroadcastInstanceID meaning all instances.
+  // Messages are grouped per instance, so that each instance receives its
+  // messages in order through a single IPC message.
+  void PostMessages(JNIEnv* env, jobject obj, jintArray instances,
+                    jobjectArray msgs);
+
+  // Sends the reply to a sync message which Java deferred by returning null
+  // from handleSyncMessage().
+  void SendSyncReply(JNIEnv* env, jobject obj, jint instance, jstring reply);
+
+  // Streams are owned by the extension rather than by the instance, so that
+  // the memory wrapped by the Java buffer stays valid until Java closes the
+  // stream, even if the instance goes away first. The memory is created on
+  // the calling thread, the stream is opened on the extension thread.
+  base::android::ScopedJavaLocalRef<jobject> OpenStream(
+      JNIEnv* env, jobject obj, jint instance, jint stream, jint size);
+  void NotifyStream(JNIEnv* env, jobject obj, jint stream, jint write_count);
+  void CloseStream(JNIEnv* env, jobject obj, jint stream);
 
   void DestroyExtension(JNIEnv* env, jobject obj);
 
@@ -60,6 +91,11 @@ class XWalkExtensionAndroid : public XWalkExtension {
 
   void RemoveInstance(int instance);
 
+  // Sends the reply to a sync message of |instance| on the extension thread.
+  // It's posted behind the calls from other threads still pending, so that
+  // the messages Java posted before reach JavaScript first.
+  void ReplyToSyncMessage(int instance, const std::string& reply);
+
   // Each Extension object created on Java side is backed by this native object,
   // and the native object also has a reference to Java-side object for message
   // routing from native side to Java side. However, the Java extension object
@@ -70,12 +106,51 @@ class XWalkExtensionAndroid : public XWalkExtension {
  private:
   bool is_valid();
 
+  // Returns the task runner of the extension thread, NULL until the first
+  // instance is created since nothing can be delivered before.
+  scoped_refptr<base::SingleThreadTaskRunner> GetTaskRunner();
+  void PostToExtensionThread(
+      const scoped_refptr<base::SingleThreadTaskRunner>& task_runner,
+      const base::Closure& task);
+  void RunPostedTask(const base::Closure& task);
+
+  // These run on the extension thread, the *OnExtensionThread() variants are
+  // the ones posted there from other threads.
+  void PostMessageToInstance(int instance, const char* msg);
+  void PostMessageOnExtensionThread(int instance, const std::string& msg);
+  void PostValueOnExtensionThread(int instance, scoped_ptr<base::Value> msg);
+  void BroadcastMessageToInstances(const char* msg);
+  void BroadcastMessageOnExtensionThread(const std::string& msg);
+  void PostMessagesOnExtensionThread(const std::vector<int>& ids,
+                                     const std::vector<std::string>& messages);
+  void SendSyncReplyOnExtensionThread(int instance, const std::string& reply);
+  void OpenStreamOnExtensionThread(int instance, int stream,
+                                   scoped_ptr<base::SharedMemory> memory);
+  void NotifyStreamOnExtensionThread(int stream, uint32_t write_count);
+  void CloseStreamOnExtensionThread(int stream);
+
   typedef std::map<int, XWalkExtensionAndroidInstance*> InstanceMap;
   InstanceMap instances_;
+
+  // Only touched on the extension thread. A stream whose instance is gone
+  // is kept anyway, closed, since Java writes to its memory until it closes
+  // the stream.
+  struct Stream {
+    int instance;
+    bool open;
+    base::SharedMemory* memory;
+  };
+  typedef std::map<int, Stream> StreamMap;
+  StreamMap streams_;
   // Hold a reference to Java-side extension object for message routing.
   JavaObjectWeakGlobalRef java_ref_;
   int next_instance_id_;
 
+  base::Lock task_runner_lock_;
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner_;
+  // The number of calls posted to the extension thread and not run yet.
+  base::subtle::Atomic32 pending_tasks_;
+
   DISALLOW_COPY_AND_ASSIGN(XWalkExtensionAndroid);
 };
 
@@ -91,12 +166,44 @@ class XWalkExtensionAndroidInstance : public XWalkExtensionInstance {
     PostMessageToJS(scoped_ptr<base::Value>(new base::StringValue(msg)));
   }
 
+  void PostValueWrapper(scoped_ptr<base::Value> msg) {
+    PostMessageToJS(msg.Pass());
+  }
+
+  void PostMessagesWrapper(scoped_ptr<base::ListValue> msgs) {
+    PostMessagesToJS(msgs.Pass());
+  }
+
+  // The binary payload is copied once into a base::BinaryValue which is then
+  // converted to an ArrayBuffer on the renderer side.
+  void PostBinaryMessageWrapper(const char* data, size_t size) {
+    PostMessageToJS(scoped_ptr<base::Value>(
+        base::BinaryValue::CreateWithCopiedBuffer(data, size)));
+  }
+
+  void SendSyncReplyWrapper(const char* reply) {
+    SendSyncReplyToJS(scoped_ptr<base::Value>(new base::StringValue(reply)));
+  }
+
+  bool OpenStreamWrapper(int stream, base::SharedMemory* memory) {
+    return OpenStreamToJS(stream, memory);
+  }
+
+  void NotifyStreamWrapper(int stream, uint32_t write_count) {
+    NotifyStreamToJS(stream, write_count);
+  }
+
+  void CloseStreamWrapper(int stream) {
+    CloseStreamToJS(stream);
+  }
+
   int getID() {
       return id_;
   }
 
  private:
   virtual void HandleMessage(scoped_ptr<base::Value> msg) OVERRIDE;
+  void HandleBinaryMessage(const base::BinaryValue& msg);
   virtual void HandleSyncMessage(scoped_ptr<base::Value> msg) OVERRIDE;
 
   XWalkExtensionAndroid* extension_;
@@ -52,11 +52,58 @@ void XWalkExtensionInstance::SetPostMessageCallback(
   post_message_ = callback;
 }
 
+void XWalkExtensionInstance::SetPostMessagesCallback(
+    const PostMessagesCallback& callback) {
+  post_messages_ = callback;
+}
+
+void XWalkExtensionInstance::PostMessagesToJS(
+    scoped_ptr<base::ListValue> msgs) {
+  if (!post_messages_.is_null()) {
+    post_messages_.Run(msgs.Pass());
+    return;
+  }
+
+  // Fall back to one message per element if the embedder can't batch.
+  while (!msgs->empty()) {
+    scoped_ptr<base::Value> msg;
+    msgs->Remove(0, &msg);
+    PostMessageToJS(msg.Pass());
+  }
+}
+
 void XWalkExtensionInstance::SetSendSyncReplyCallback(
     const SendSyncReplyCallback& callback) {
   send_sync_reply_ = callback;
 }
 
+void XWalkExtensionInstance::SetStreamCallbacks(
+    const OpenStreamCallback& open,
+    const NotifyStreamCallback& notify,
+    const CloseStreamCallback& close) {
+  open_stream_ = open;
+  notify_stream_ = notify;
+  close_stream_ = close;
+}
+
+bool XWalkExtensionInstance::OpenStreamToJS(int stream_id,
+                                            base::SharedMemory* memory) {
+  if (open_stream_.is_null())
+    return false;
+  return open_stream_.Run(stream_id, memory);
+}
+
+void XWalkExtensionInstance::NotifyStreamToJS(int stream_id,
+                                              uint32_t write_count) {
+  if (!notify_stream_.is_null())
+    notify_stream_.Run(stream_id, write_count);
+}
+
+void XWalkExtensionInstance::CloseStreamToJS(int stream_id) {
+  if (!close_stream_.is_null())
+    close_stream_.Run(stream_id);
+}
+
 void XWalkExtensionInstance::HandleSyncMessage(
     scoped_ptr<base::Value> msg) {
   LOG(FATAL) << "Sending sync message to extension which doesn't support it!";
@@ -8,6 +8,7 @@
 #include <string>
 #include <vector>
 #include "base/callback.h"
+#include "base/memory/shared_memory.h"
 #include "base/values.h"
 
 namespace xwalk {
@@ -117,9 +118,20 @@ class XWalkExtensionInstance {
   typedef base::Callback<void(scoped_ptr<base::Value> msg)> PostMessageCallback;
   typedef base::Callback<void(scoped_ptr<base::Value> msg)>
       SendSyncReplyCallback;
+  typedef base::Callback<void(scoped_ptr<base::ListValue> msgs)>
+      PostMessagesCallback;
+  typedef base::Callback<bool(int stream_id, base::SharedMemory* memory)>
+      OpenStreamCallback;
+  typedef base::Callback<void(int stream_id, uint32_t write_count)>
+      NotifyStreamCallback;
+  typedef base::Callback<void(int stream_id)> CloseStreamCallback;
 
   void SetPostMessageCallback(const PostMessageCallback& callback);
+  void SetPostMessagesCallback(const PostMessagesCallback& callback);
   void SetSendSyncReplyCallback(const SendSyncReplyCallback& callback);
+  void SetStreamCallbacks(const OpenStreamCallback& open,
+                          const NotifyStreamCallback& notify,
+                          const CloseStreamCallback& close);
 
   // Function to be used by extensions Instances to post messages back to
   // JavaScript in the renderer process. This function will take the ownership
@@ -128,6 +140,11 @@ class XWalkExtensionInstance {
     post_message_.Run(msg.Pass());
   }
 
+  // Post a batch of messages at once. Each element of |msgs| is delivered to
+  // the JavaScript message listener in order, but the whole batch crosses the
+  // process boundary as a single IPC message.
+  void PostMessagesToJS(scoped_ptr<base::ListValue> msgs);
+
  protected:
   XWalkExtensionInstance();
 
@@ -136,9 +153,22 @@ class XWalkExtensionInstance {
     send_sync_reply_.Run(reply.Pass());
   }
 
+  // Shares |memory|, which must be created and mapped, with the JavaScript
+  // side of the instance as the stream |stream_id|. The instance keeps owning
+  // the memory and writes to it, JavaScript is told about new data by
+  // NotifyStreamToJS(). Returns false if the embedder doesn't support streams
+  // or the memory can't be shared.
+  bool OpenStreamToJS(int stream_id, base::SharedMemory* memory);
+  void NotifyStreamToJS(int stream_id, uint32_t write_count);
+  void CloseStreamToJS(int stream_id);
+
  private:
   PostMessageCallback post_message_;
+  PostMessagesCallback post_messages_;
   SendSyncReplyCallback send_sync_reply_;
+  OpenStreamCallback open_stream_;
+  NotifyStreamCallback notify_stream_;
+  CloseStreamCallback close_stream_;
 
   DISALLOW_COPY_AND_ASSIGN(XWalkExtensionInstance);
 };
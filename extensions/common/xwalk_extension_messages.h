@@ -80,6 +80,24 @@ IPC_MESSAGE_CONTROL2(XWalkExtensionClientMsg_PostOutOfLineMessageToJS,  // NOLIN
                      base::SharedMemoryHandle /* message buffer */,
                      size_t /* buffer size */)
 
+// Streams are ring buffers in shared memory written by the native side of an
+// instance and read in place by JavaScript. The renderer maps |buffer| when
+// the stream is opened and is then only told the new write count.
+IPC_MESSAGE_CONTROL4(XWalkExtensionClientMsg_OpenStream,  // NOLINT(*)
+                     int64_t /* instance id */,
+                     int /* stream id */,
+                     base::SharedMemoryHandle /* buffer */,
+                     size_t /* buffer size */)
+
+IPC_MESSAGE_CONTROL3(XWalkExtensionClientMsg_NotifyStream,  // NOLINT(*)
+                     int64_t /* instance id */,
+                     int /* stream id */,
+                     uint32_t /* write count */)
+
+IPC_MESSAGE_CONTROL2(XWalkExtensionClientMsg_CloseStream,  // NOLINT(*)
+                     int64_t /* instance id */,
+                     int /* stream id */)
+
 IPC_SYNC_MESSAGE_CONTROL2_1(XWalkExtensionServerMsg_SendSyncMessageToNative,  // NOLINT(*)
                             int64_t /* instance id */,
                             base::ListValue /* input contents */,
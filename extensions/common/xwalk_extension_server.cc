@@ -78,9 +78,20 @@ void XWalkExtensionServer::OnCreateInstance(int64_t instance_id,
       base::Bind(&XWalkExtensionServer::PostMessageToJSCallback,
                  base::Unretained(this), instance_id));
 
+  instance->SetPostMessagesCallback(
+      base::Bind(&XWalkExtensionServer::PostMessagesToJSCallback,
+                 base::Unretained(this), instance_id));
+
   instance->SetSendSyncReplyCallback(
       base::Bind(&XWalkExtensionServer::SendSyncReplyToJSCallback,
                  base::Unretained(this), instance_id));
+  instance->SetStreamCallbacks(
+      base::Bind(&XWalkExtensionServer::OpenStreamCallback,
+                 base::Unretained(this), instance_id),
+      base::Bind(&XWalkExtensionServer::NotifyStreamCallback,
+                 base::Unretained(this), instance_id),
+      base::Bind(&XWalkExtensionServer::CloseStreamCallback,
+                 base::Unretained(this), instance_id));
 
   InstanceExecutionData data;
   data.instance = instance;
@@ -201,9 +212,20 @@ void XWalkExtensionServer::PostMessageToJSCallback(
     int64_t instance_id, scoped_ptr<base::Value> msg) {
   base::ListValue wrapped_msg;
   wrapped_msg.Append(msg.release());
+  SendMessagesToJS(instance_id, wrapped_msg);
+}
 
+void XWalkExtensionServer::PostMessagesToJSCallback(
+    int64_t instance_id, scoped_ptr<base::ListValue> msgs) {
+  if (msgs->empty())
+    return;
+  SendMessagesToJS(instance_id, *msgs);
+}
+
+void XWalkExtensionServer::SendMessagesToJS(
+    int64_t instance_id, const base::ListValue& wrapped_msgs) {
   scoped_ptr<IPC::Message> message(
-      new XWalkExtensionClientMsg_PostMessageToJS(instance_id, wrapped_msg));
+      new XWalkExtensionClientMsg_PostMessageToJS(instance_id, wrapped_msgs));
   if (message->size() <= kInlineMessageMaxSize) {
     Send(message.release());
     return;
@@ -259,6 +281,31 @@ void XWalkExtensionServer::SendSyncReplyToJSCallback(
   data.pending_reply = NULL;
 }
 
+bool XWalkExtensionServer::OpenStreamCallback(
+    int64_t instance_id, int stream_id, base::SharedMemory* memory) {
+  // The instance keeps its mapping, the renderer gets a duplicate of the
+  // handle.
+  base::SharedMemoryHandle handle;
+  if (!memory->ShareToProcess(renderer_process_handle_, &handle)) {
+    LOG(WARNING) << "Can't share stream memory with the renderer";
+    return false;
+  }
+
+  return Send(new XWalkExtensionClientMsg_OpenStream(
+      instance_id, stream_id, handle, memory->requested_size()));
+}
+
+void XWalkExtensionServer::NotifyStreamCallback(
+    int64_t instance_id, int stream_id, uint32_t write_count) {
+  Send(new XWalkExtensionClientMsg_NotifyStream(
+      instance_id, stream_id, write_count));
+}
+
+void XWalkExtensionServer::CloseStreamCallback(
+    int64_t instance_id, int stream_id) {
+  Send(new XWalkExtensionClientMsg_CloseStream(instance_id, stream_id));
+}
+
 void XWalkExtensionServer::DeleteInstanceMap() {
   InstanceMap::iterator it = instances_.begin();
   int pending_replies_left = 0;
@@ -96,9 +96,23 @@ class XWalkExtensionServer : public IPC::Listener,
   void PostMessageToJSCallback(int64_t instance_id,
                                scoped_ptr<base::Value> msg);
 
+  void PostMessagesToJSCallback(int64_t instance_id,
+                                scoped_ptr<base::ListValue> msgs);
+
+  // Sends |wrapped_msgs| to the renderer, each element being one message for
+  // the instance. Large messages are sent through shared memory.
+  void SendMessagesToJS(int64_t instance_id,
+                        const base::ListValue& wrapped_msgs);
+
   void SendSyncReplyToJSCallback(int64_t instance_id,
                                  scoped_ptr<base::Value> reply);
 
+  bool OpenStreamCallback(int64_t instance_id, int stream_id,
+                          base::SharedMemory* memory);
+  void NotifyStreamCallback(int64_t instance_id, int stream_id,
+                            uint32_t write_count);
+  void CloseStreamCallback(int64_t instance_id, int stream_id);
+
   void DeleteInstanceMap();
 
   bool ValidateExtensionEntryPoints(const base::ListValue& entry_points);
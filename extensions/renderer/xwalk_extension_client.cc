@@ -46,6 +46,12 @@ bool XWalkExtensionClient::OnMessageReceived(const IPC::Message& message) {
         OnPostMessageToJS)
     IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_PostOutOfLineMessageToJS,
         OnPostOutOfLineMessageToJS)
+    IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_OpenStream,
+        OnOpenStream)
+    IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_NotifyStream,
+        OnNotifyStream)
+    IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_CloseStream,
+        OnCloseStream)
     IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_InstanceDestroyed,
         OnInstanceDestroyed)
     IPC_MESSAGE_UNHANDLED(handled = false)
@@ -69,13 +75,19 @@ void XWalkExtensionClient::OnPostMessageToJS(int64_t instance_id,
     return;
   }
 
-  // See comment in DestroyInstance() about two step destruction.
-  if (!it->second)
-    return;
-
-  const base::Value* value;
-  msg.Get(0, &value);
-  it->second->HandleMessageFromNative(*value);
+  // The list usually holds a single message, but the server may batch
+  // several messages for the same instance and they are dispatched in order.
+  for (size_t i = 0; i < msg.GetSize(); ++i) {
+    // See comment in DestroyInstance() about two step destruction. The
+    // lookup is repeated since a listener may destroy the instance.
+    it = handlers_.find(instance_id);
+    if (it == handlers_.end() || !it->second)
+      return;
+
+    const base::Value* value;
+    msg.Get(i, &value);
+    it->second->HandleMessageFromNative(*value);
+  }
 }
 
 void XWalkExtensionClient::OnPostOutOfLineMessageToJS(
@@ -89,6 +101,47 @@ void XWalkExtensionClient::OnPostOutOfLineMessageToJS(
   OnMessageReceived(message);
 }
 
+XWalkExtensionClient::InstanceHandler* XWalkExtensionClient::GetHandler(
+    int64_t instance_id) {
+  // See comment in DestroyInstance() about two step destruction.
+  HandlerMap::const_iterator it = handlers_.find(instance_id);
+  if (it == handlers_.end())
+    return NULL;
+  return it->second;
+}
+
+void XWalkExtensionClient::OnOpenStream(int64_t instance_id, int stream_id,
+                                        base::SharedMemoryHandle handle,
+                                        size_t size) {
+  CHECK(base::SharedMemory::IsHandleValid(handle));
+
+  // Closes the handle if the instance is gone.
+  scoped_ptr<base::SharedMemory> memory(new base::SharedMemory(handle, false));
+  InstanceHandler* handler = GetHandler(instance_id);
+  if (!handler)
+    return;
+
+  if (!memory->Map(size)) {
+    LOG(WARNING) << "Can't map stream " << stream_id << " of instance id: "
+                 << instance_id;
+    return;
+  }
+  handler->HandleStreamOpened(stream_id, memory.Pass());
+}
+
+void XWalkExtensionClient::OnNotifyStream(int64_t instance_id, int stream_id,
+                                          uint32_t write_count) {
+  InstanceHandler* handler = GetHandler(instance_id);
+  if (handler)
+    handler->HandleStreamNotification(stream_id, write_count);
+}
+
+void XWalkExtensionClient::OnCloseStream(int64_t instance_id, int stream_id) {
+  InstanceHandler* handler = GetHandler(instance_id);
+  if (handler)
+    handler->HandleStreamClosed(stream_id);
+}
+
 void XWalkExtensionClient::DestroyInstance(int64_t instance_id) {
   HandlerMap::iterator it = handlers_.find(instance_id);
   if (it == handlers_.end() || !it->second) {
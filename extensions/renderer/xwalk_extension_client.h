@@ -37,6 +37,15 @@ class XWalkExtensionClient : public IPC::Listener {
  public:
   struct InstanceHandler {
     virtual void HandleMessageFromNative(const base::Value& msg) = 0;
+
+    // Streams opened by the native side of the instance. The handler owns
+    // the mapped |memory| until the stream is closed, handlers not
+    // supporting streams just drop it.
+    virtual void HandleStreamOpened(int stream_id,
+                                    scoped_ptr<base::SharedMemory> memory) {}
+    virtual void HandleStreamNotification(int stream_id,
+                                          uint32_t write_count) {}
+    virtual void HandleStreamClosed(int stream_id) {}
    protected:
     ~InstanceHandler() {}
   };
@@ -76,6 +85,13 @@ class XWalkExtensionClient : public IPC::Listener {
   void OnPostMessageToJS(int64_t instance_id, const base::ListValue& msg);
   void OnPostOutOfLineMessageToJS(base::SharedMemoryHandle handle,
                                   size_t size);
+  void OnOpenStream(int64_t instance_id, int stream_id,
+                    base::SharedMemoryHandle handle, size_t size);
+  void OnNotifyStream(int64_t instance_id, int stream_id,
+                      uint32_t write_count);
+  void OnCloseStream(int64_t instance_id, int stream_id);
+
+  InstanceHandler* GetHandler(int64_t instance_id);
 
   IPC::Sender* sender_;
   ExtensionAPIMap extension_apis_;
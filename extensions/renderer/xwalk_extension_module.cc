@@ -6,6 +6,7 @@
 #include "xwalk/extensions/renderer/xwalk_extension_module.h"
 
 #include "base/logging.h"
+#include "base/stl_util.h"
 #include "base/strings/stringprintf.h"
 #include "base/values.h"
 #include "content/public/renderer/v8_value_converter.h"
@@ -56,6 +57,10 @@ XWalkExtensionModule::XWalkExtensionModule(XWalkExtensionClient* client,
       v8::String::NewFromUtf8(isolate, "setMessageListener"),
       v8::FunctionTemplate::New(
           isolate, SetMessageListenerCallback, function_data));
+  object_template->Set(
+      v8::String::NewFromUtf8(isolate, "setStreamListener"),
+      v8::FunctionTemplate::New(
+          isolate, SetStreamListenerCallback, function_data));
 
   function_data_.Reset(isolate, function_data);
   object_template_.Reset(isolate, object_template);
@@ -77,6 +82,10 @@ XWalkExtensionModule::~XWalkExtensionModule() {
   object_template_.Reset();
   function_data_.Reset();
   message_listener_.Reset();
+  stream_listener_.Reset();
+
+  while (!streams_.empty())
+    ReleaseStream(streams_.begin()->first);
 
   if (instance_id_)
     client_->DestroyInstance(instance_id_);
@@ -204,6 +213,99 @@ void XWalkExtensionModule::HandleMessageFromNative(const base::Value& msg) {
         << ExceptionToString(try_catch);
 }
 
+void XWalkExtensionModule::HandleStreamOpened(
+    int stream_id, scoped_ptr<base::SharedMemory> memory) {
+  v8::Isolate* isolate = v8::Isolate::GetCurrent();
+  v8::HandleScope handle_scope(isolate);
+  v8::Handle<v8::Context> context = module_system_->GetV8Context();
+  v8::Context::Scope context_scope(context);
+
+  ReleaseStream(stream_id);
+
+  // The buffer is external, V8 never frees the memory, it is released with
+  // the stream.
+  v8::Handle<v8::ArrayBuffer> buffer = v8::ArrayBuffer::New(
+      isolate, memory->memory(), memory->mapped_size());
+  Stream* stream = new Stream;
+  stream->memory = memory.Pass();
+  stream->buffer.Reset(isolate, buffer);
+  streams_[stream_id] = stream;
+
+  v8::Handle<v8::Value> argv[] = {
+    v8::String::NewFromUtf8(isolate, "open"),
+    v8::Integer::New(isolate, stream_id),
+    buffer
+  };
+  CallStreamListener(arraysize(argv), argv);
+}
+
+void XWalkExtensionModule::HandleStreamNotification(int stream_id,
+                                                    uint32_t write_count) {
+  if (!ContainsKey(streams_, stream_id))
+    return;
+
+  v8::Isolate* isolate = v8::Isolate::GetCurrent();
+  v8::HandleScope handle_scope(isolate);
+  v8::Handle<v8::Context> context = module_system_->GetV8Context();
+  v8::Context::Scope context_scope(context);
+
+  v8::Handle<v8::Value> argv[] = {
+    v8::String::NewFromUtf8(isolate, "data"),
+    v8::Integer::New(isolate, stream_id),
+    v8::Integer::NewFromUnsigned(isolate, write_count)
+  };
+  CallStreamListener(arraysize(argv), argv);
+}
+
+void XWalkExtensionModule::HandleStreamClosed(int stream_id) {
+  if (!ContainsKey(streams_, stream_id))
+    return;
+
+  v8::Isolate* isolate = v8::Isolate::GetCurrent();
+  v8::HandleScope handle_scope(isolate);
+  v8::Handle<v8::Context> context = module_system_->GetV8Context();
+  v8::Context::Scope context_scope(context);
+
+  ReleaseStream(stream_id);
+
+  v8::Handle<v8::Value> argv[] = {
+    v8::String::NewFromUtf8(isolate, "close"),
+    v8::Integer::New(isolate, stream_id)
+  };
+  CallStreamListener(arraysize(argv), argv);
+}
+
+void XWalkExtensionModule::CallStreamListener(int argc,
+                                              v8::Handle<v8::Value> argv[]) {
+  if (stream_listener_.IsEmpty())
+    return;
+
+  v8::Isolate* isolate = v8::Isolate::GetCurrent();
+  v8::Handle<v8::Function> stream_listener =
+      v8::Local<v8::Function>::New(isolate, stream_listener_);
+
+  blink::WebScopedMicrotaskSuppression suppression;
+  v8::TryCatch try_catch;
+  stream_listener->Call(module_system_->GetV8Context()->Global(), argc, argv);
+  if (try_catch.HasCaught())
+    LOG(WARNING) << "Exception when running stream listener: "
+        << ExceptionToString(try_catch);
+}
+
+void XWalkExtensionModule::ReleaseStream(int stream_id) {
+  StreamMap::iterator it = streams_.find(stream_id);
+  if (it == streams_.end())
+    return;
+
+  v8::Isolate* isolate = v8::Isolate::GetCurrent();
+  v8::HandleScope handle_scope(isolate);
+  Stream* stream = it->second;
+  v8::Local<v8::ArrayBuffer>::New(isolate, stream->buffer)->Neuter();
+  stream->buffer.Reset();
+  delete stream;
+  streams_.erase(it);
+}
+
 // static
 void XWalkExtensionModule::PostMessageCallback(
     const v8::FunctionCallbackInfo<v8::Value>& info) {
@@ -273,6 +375,31 @@ void XWalkExtensionModule::SetMessageListenerCallback(
   result.Set(true);
 }
 
+// static
+void XWalkExtensionModule::SetStreamListenerCallback(
+    const v8::FunctionCallbackInfo<v8::Value>& info) {
+  v8::ReturnValue<v8::Value> result(info.GetReturnValue());
+  XWalkExtensionModule* module = GetExtensionModule(info);
+  if (!module || info.Length() != 1) {
+    result.Set(false);
+    return;
+  }
+
+  if (!info[0]->IsFunction() && !info[0]->IsUndefined()) {
+    LOG(WARNING) << "Trying to set stream listener with invalid value.";
+    result.Set(false);
+    return;
+  }
+
+  v8::Isolate* isolate = info.GetIsolate();
+  if (info[0]->IsUndefined())
+    module->stream_listener_.Reset();
+  else
+    module->stream_listener_.Reset(isolate, info[0].As<v8::Function>());
+
+  result.Set(true);
+}
+
 // static
 XWalkExtensionModule* XWalkExtensionModule::GetExtensionModule(
     const v8::FunctionCallbackInfo<v8::Value>& info) {
@@ -5,6 +5,7 @@
 #ifndef XWALK_EXTENSIONS_RENDERER_XWALK_EXTENSION_MODULE_H_
 #define XWALK_EXTENSIONS_RENDERER_XWALK_EXTENSION_MODULE_H_
 
+#include <map>
 #include <string>
 #include "xwalk/extensions/renderer/xwalk_extension_client.h"
 #include "xwalk/extensions/renderer/xwalk_module_system.h"
@@ -47,6 +48,14 @@ class XWalkExtensionModule : public XWalkExtensionClient::InstanceHandler {
  private:
   // XWalkExtensionClient::InstanceHandler implementation.
   virtual void HandleMessageFromNative(const base::Value& msg) OVERRIDE;
+  virtual void HandleStreamOpened(
+      int stream_id, scoped_ptr<base::SharedMemory> memory) OVERRIDE;
+  virtual void HandleStreamNotification(int stream_id,
+                                        uint32_t write_count) OVERRIDE;
+  virtual void HandleStreamClosed(int stream_id) OVERRIDE;
+
+  void CallStreamListener(int argc, v8::Handle<v8::Value> argv[]);
+  void ReleaseStream(int stream_id);
 
   // Callbacks for JS functions available in 'extension' object.
   static void PostMessageCallback(
@@ -55,6 +64,8 @@ class XWalkExtensionModule : public XWalkExtensionClient::InstanceHandler {
       const v8::FunctionCallbackInfo<v8::Value>& info);
   static void SetMessageListenerCallback(
       const v8::FunctionCallbackInfo<v8::Value>& info);
+  static void SetStreamListenerCallback(
+      const v8::FunctionCallbackInfo<v8::Value>& info);
 
   static XWalkExtensionModule* GetExtensionModule(
       const v8::FunctionCallbackInfo<v8::Value>& info);
@@ -70,6 +81,20 @@ class XWalkExtensionModule : public XWalkExtensionClient::InstanceHandler {
   // This value is registered by using 'extension.setMessageListener()'.
   v8::Persistent<v8::Function> message_listener_;
 
+  // Function to be called when the extension opens, writes to or closes a
+  // stream. This value is registered by using 'extension.setStreamListener()'.
+  v8::Persistent<v8::Function> stream_listener_;
+
+  // The memory of a stream and the ArrayBuffer exposing it to the JS code.
+  // The buffer is neutered when the stream goes away since JS references may
+  // outlive the memory.
+  struct Stream {
+    scoped_ptr<base::SharedMemory> memory;
+    v8::Persistent<v8::ArrayBuffer> buffer;
+  };
+  typedef std::map<int, Stream*> StreamMap;
+  StreamMap streams_;
+
   std::string extension_name_;
   std::string extension_code_;
 
@@ -11,6 +11,9 @@ import android.content.res.Resources;
 /**
  * XWalkApplication is to support cross package resource loading.
  * It provides method to allow overriding getResources() behavior.
+ * In embedded mode, it also starts loading the core library classes in
+ * background when the application is created. Applications not extending
+ * XWalkApplication, and shared mode, load them on the first use of XWalkView.
  */
 public class XWalkApplication extends Application {
     private static XWalkApplication gApp = null;
@@ -20,6 +23,7 @@ public class XWalkApplication extends Application {
     public void onCreate(){
         super.onCreate();
         gApp = this;
+        ReflectionHelper.warmUp(this);
     }
 
     @Override
@@ -0,0 +1,295 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The web application packed by make_apk --app-archive into a single
+ * archive, instead of one asset per file. See app/tools/android/
+ * asset_archive.py for the format.
+ *
+ * The archive is memory mapped, looking up a file is a binary search in its
+ * sorted index. Files are stored uncompressed, AndroidProtocolHandler reads
+ * them from their slice of the archive file.
+ *
+ * An archive put in the files directory of the application replaces the
+ * one in the APK, so that the web application can be updated without
+ * updating the APK. The archive is mapped once per process, a new one is
+ * only picked up after a restart. The mapped file must never be rewritten in
+ * place, reading a truncated mapping raises SIGBUS. Instead the application
+ * writes the new archive to www.archive.new, which is checked and renamed
+ * over www.archive the next time the archive is loaded. Renaming replaces
+ * the file atomically, a mapping of the previous one stays valid.
+ */
+class AndroidAssetArchive {
+    private static final String TAG = "AndroidAssetArchive";
+
+    // Keep in sync with app/tools/android/asset_archive.py.
+    static final String ARCHIVE_FILE = "www.archive";
+    static final String STAGED_ARCHIVE_FILE = ARCHIVE_FILE + ".new";
+    private static final int MAGIC = 0x58574152;  // "XWAR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private static AndroidAssetArchive sInstance;
+
+    // Null if the application has no archive.
+    private final ParcelFileDescriptor mFd;
+    // The offset of the archive in mFd.
+    private final long mStartOffset;
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+
+    static synchronized AndroidAssetArchive getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = load(context);
+            if (sInstance == null) sInstance = new AndroidAssetArchive(null, 0, null, 0);
+        }
+        return sInstance;
+    }
+
+    private AndroidAssetArchive(ParcelFileDescriptor fd, long startOffset, ByteBuffer buffer,
+            int count) {
+        mFd = fd;
+        mStartOffset = startOffset;
+        mBuffer = buffer;
+        mCount = count;
+    }
+
+    private static AndroidAssetArchive load(Context context) {
+        ParcelFileDescriptor fd = null;
+        long startOffset = 0;
+        long length;
+        File updated = new File(context.getFilesDir(), ARCHIVE_FILE);
+        installStaged(new File(context.getFilesDir(), STAGED_ARCHIVE_FILE), updated);
+        boolean isUpdated = updated.isFile();
+        try {
+            if (isUpdated) {
+                fd = ParcelFileDescriptor.open(updated, ParcelFileDescriptor.MODE_READ_ONLY);
+                length = -1;
+            } else {
+                AssetFileDescriptor afd;
+                try {
+                    afd = context.getAssets().openFd(ARCHIVE_FILE);
+                } catch (FileNotFoundException e) {
+                    // No archive, or a compressed one which can't be mapped.
+                    return null;
+                }
+                fd = afd.getParcelFileDescriptor();
+                startOffset = afd.getStartOffset();
+                length = afd.getLength();
+            }
+
+            FileChannel channel = new FileInputStream(fd.getFileDescriptor()).getChannel();
+            // The size of the file opened, which may have been renamed over
+            // since it was checked.
+            if (length < 0) length = channel.size();
+            // Mapping a file shorter than its index says would only fail
+            // when reading past its end, check it before.
+            int count = verify(channel, startOffset, length);
+            if (count < 0) {
+                Log.w(TAG, "Ignoring malformed archive");
+                fd.close();
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, startOffset, length);
+            Log.i(TAG, "Mapped " + count + " files from " +
+                    (isUpdated ? updated.getPath() : "the APK"));
+            return new AndroidAssetArchive(fd, startOffset, buffer, count);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to map archive", e);
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (IOException closeException) {
+                    // Nothing to do.
+                }
+            }
+            return null;
+        }
+    }
+
+    // Rename a staged archive over the current one if it's complete. A staged
+    // archive still being written fails the check and is left for the next
+    // start.
+    private static void installStaged(File staged, File target) {
+        if (!staged.isFile()) return;
+        boolean valid = false;
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(staged);
+            FileChannel channel = stream.getChannel();
+            valid = verify(channel, 0, channel.size()) >= 0;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read the staged archive", e);
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // Nothing to do.
+                }
+            }
+        }
+        if (!valid) {
+            Log.w(TAG, "Ignoring incomplete or malformed staged archive");
+        } else if (!staged.renameTo(target)) {
+            Log.w(TAG, "Unable to install the staged archive");
+        }
+    }
+
+    // Read size bytes at position of the file, without moving the channel.
+    // Return null if the file ends before.
+    private static ByteBuffer read(FileChannel channel, long position, int size)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) return null;
+        }
+        return buffer;
+    }
+
+    // Check the header and that every entry of the archive of length bytes at
+    // start in the file is within it, return the number of entries or -1 if
+    // the archive is malformed. The header and index are read, not mapped.
+    private static int verify(FileChannel channel, long start, long length)
+            throws IOException {
+        // A ByteBuffer can't map more than 2GB.
+        if (length < HEADER_SIZE || length > Integer.MAX_VALUE) return -1;
+        ByteBuffer header = read(channel, start, HEADER_SIZE);
+        if (header == null || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return -1;
+        }
+        long count = header.getInt(8) & 0xffffffffL;
+        if (HEADER_SIZE + count * ENTRY_SIZE > length) return -1;
+        ByteBuffer index = read(channel, start + HEADER_SIZE, (int) count * ENTRY_SIZE);
+        if (index == null) return -1;
+        for (int i = 0; i < count; i++) {
+            int entry = i * ENTRY_SIZE;
+            for (int field = 0; field < ENTRY_SIZE; field += 8) {
+                long offset = index.getInt(entry + field) & 0xffffffffL;
+                long size = index.getInt(entry + field + 4) & 0xffffffffL;
+                if (offset + size > length) return -1;
+            }
+        }
+        return (int) count;
+    }
+
+    // Return the offset of the index entry of path, or -1 if it isn't in the
+    // archive.
+    private int find(String path) {
+        if (mBuffer == null) return -1;
+        byte[] key;
+        try {
+            key = path.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return -1;
+        }
+        int low = 0;
+        int high = mCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = HEADER_SIZE + middle * ENTRY_SIZE;
+            int result = compareName(entry, key);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    // Compare the name of an entry with key, byte by byte as the archive is
+    // sorted.
+    private int compareName(int entry, byte[] key) {
+        int offset = mBuffer.getInt(entry);
+        int length = mBuffer.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int result = (mBuffer.get(offset + i) & 0xff) - (key[i] & 0xff);
+            if (result != 0) return result;
+        }
+        return length - key.length;
+    }
+
+    /**
+     * @param assetPath the normalized path of an asset, e.g. "www/index.html".
+     * @return a stream of the file content, or null if it isn't in the
+     *         archive.
+     */
+    InputStream open(String assetPath) {
+        int entry = find(assetPath);
+        if (entry < 0) return null;
+        ByteBuffer slice = mBuffer.duplicate();
+        int offset = mBuffer.getInt(entry + 8);
+        slice.limit(offset + mBuffer.getInt(entry + 12));
+        slice.position(offset);
+        return new ByteBufferInputStream(slice.slice());
+    }
+
+    /**
+     * @param assetPath the normalized path of an asset, e.g. "www/index.html".
+     * @return a descriptor of the slice of the archive holding the file, or
+     *         null if it isn't in the archive. The caller closes it.
+     */
+    AssetFileDescriptor openFd(String assetPath) throws IOException {
+        int entry = find(assetPath);
+        if (entry < 0) return null;
+        long offset = mBuffer.getInt(entry + 8) & 0xffffffffL;
+        long length = mBuffer.getInt(entry + 12) & 0xffffffffL;
+        return new AssetFileDescriptor(mFd.dup(), mStartOffset + offset, length);
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            if (!mBuffer.hasRemaining()) return -1;
+            length = Math.min(length, mBuffer.remaining());
+            mBuffer.get(buffer, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(Math.max(n, 0), mBuffer.remaining());
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of the assets opened by AndroidProtocolHandler for
+ * app:// and file:///android_asset/ URLs, keyed by asset path. Pages request
+ * the same scripts, styles and fonts again on every navigation, a hit skips
+ * opening and reading the asset.
+ *
+ * The cache holds at most XWalkPreferences.ASSET_CACHE_SIZE bytes, assets
+ * bigger than an eighth of it are streamed from the APK as before. It is
+ * emptied when the APK is updated and trimmed when the system is low on
+ * memory.
+ */
+class AndroidAssetCache implements ComponentCallbacks2,
+        XWalkPreferencesInternal.KeyValueChangeListener {
+    private static final String TAG = "AndroidAssetCache";
+
+    static final int DEFAULT_SIZE = 4 * 1024 * 1024;
+
+    // Don't look for an updated APK more often than that.
+    private static final long VALIDATE_INTERVAL_MS = 5000;
+
+    private static AndroidAssetCache sInstance;
+
+    private final LinkedHashMap<String, byte[]> mEntries =
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private final File mApk;
+    private long mApkLastModified;
+    private long mLastValidated;
+    private int mMaxSize = DEFAULT_SIZE;
+    private int mSize;
+    private int mHitCount;
+    private int mMissCount;
+
+    static synchronized AndroidAssetCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new AndroidAssetCache(appContext != null ? appContext : context);
+        }
+        return sInstance;
+    }
+
+    private AndroidAssetCache(Context context) {
+        String sourceDir = context.getApplicationInfo().sourceDir;
+        mApk = sourceDir != null ? new File(sourceDir) : null;
+        mApkLastModified = mApk != null ? mApk.lastModified() : 0;
+        mLastValidated = SystemClock.uptimeMillis();
+        context.registerComponentCallbacks(this);
+        XWalkPreferencesInternal.load(this);
+    }
+
+    /**
+     * Get the cached content of an asset.
+     * @param path the path of the asset, relative to the assets directory.
+     * @return a stream of the content, or null if it's not cached.
+     */
+    synchronized InputStream get(String path) {
+        validate();
+        byte[] data = mEntries.get(path);
+        if (data == null) return null;
+        mHitCount++;
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * Cache the content of an asset just opened, if it fits.
+     * @param path the path of the asset, relative to the assets directory.
+     * @param stream the stream opened for the asset, at its beginning.
+     * @return a stream of the same content to be used instead of stream.
+     */
+    InputStream put(String path, InputStream stream) throws IOException {
+        if (stream == null) return null;
+        int maxSize;
+        synchronized (this) {
+            mMissCount++;
+            maxSize = mMaxSize;
+        }
+        // Asset streams know the length of the asset.
+        int length = stream.available();
+        if (length <= 0 || length > maxSize / 8) return stream;
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length);
+        byte[] buffer = new byte[8192];
+        int read;
+        try {
+            while ((read = stream.read(buffer)) != -1) output.write(buffer, 0, read);
+        } finally {
+            stream.close();
+        }
+        byte[] data = output.toByteArray();
+        if (data.length > maxSize / 8) return new ByteArrayInputStream(data);
+
+        synchronized (this) {
+            byte[] previous = mEntries.put(path, data);
+            if (previous != null) mSize -= previous.length;
+            mSize += data.length;
+            trimToSize(mMaxSize);
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Get the hit and miss counts of the cache, if it was created.
+     * @return the hit and miss counts, in that order.
+     */
+    static synchronized int[] getCounts() {
+        if (sInstance == null) return new int[] { 0, 0 };
+        return new int[] { sInstance.getHitCount(), sInstance.getMissCount() };
+    }
+
+    synchronized int getSize() {
+        return mSize;
+    }
+
+    // Drop everything if the APK was updated in place, the cached content may
+    // be out of date.
+    private void validate() {
+        if (mApk == null) return;
+        long now = SystemClock.uptimeMillis();
+        if (now - mLastValidated < VALIDATE_INTERVAL_MS) return;
+        mLastValidated = now;
+        long lastModified = mApk.lastModified();
+        if (lastModified == mApkLastModified) return;
+        Log.i(TAG, "APK updated, clearing " + mEntries.size() + " cached assets");
+        mApkLastModified = lastModified;
+        trimToSize(0);
+    }
+
+    private void trimToSize(int maxSize) {
+        Iterator<Map.Entry<String, byte[]>> iterator = mEntries.entrySet().iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void onKeyValueChanged(String key,
+            XWalkPreferencesInternal.PreferenceValue value) {
+        if (!key.equals(XWalkPreferencesInternal.ASSET_CACHE_SIZE)) return;
+        mMaxSize = Math.max(value.getIntegerValue(), 0);
+        trimToSize(mMaxSize);
+    }
+
+    @Override
+    public synchronized void onTrimMemory(int level) {
+        int size = mSize;
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(0);
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(mMaxSize / 2);
+        } else {
+            return;
+        }
+        Log.d(TAG, "Trimmed from " + size + " to " + mSize + " bytes, " + mHitCount +
+                " hits, " + mMissCount + " misses");
+    }
+
+    @Override
+    public synchronized void onLowMemory() {
+        trimToSize(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
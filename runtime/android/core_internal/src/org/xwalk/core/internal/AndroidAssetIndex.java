@@ -0,0 +1,119 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+
+/**
+ * Index of the web application assets under www/, written by make_apk into
+ * the assets of the APK. With it AndroidProtocolHandler answers requests for
+ * missing assets without opening them and knows the mime type of the others
+ * without sniffing their content.
+ *
+ * Applications not packaged by make_apk have no index, every asset is then
+ * looked up in the APK as before.
+ */
+class AndroidAssetIndex {
+    private static final String TAG = "AndroidAssetIndex";
+
+    // Keep in sync with app/tools/android/asset_index.py.
+    static final String INDEX_FILE = "xwalk-asset-index";
+    private static final String VERSION = "1";
+    private static final String INDEXED_DIR = "www/";
+
+    static class Entry {
+        final long size;
+        // Null if unknown.
+        final String mimeType;
+        final String sha1;
+        final boolean compressed;
+
+        Entry(long size, String mimeType, String sha1, boolean compressed) {
+            this.size = size;
+            this.mimeType = mimeType;
+            this.sha1 = sha1;
+            this.compressed = compressed;
+        }
+    }
+
+    private static AndroidAssetIndex sInstance;
+
+    // Null if the application has no index.
+    private final HashMap<String, Entry> mEntries;
+
+    static synchronized AndroidAssetIndex getInstance(Context context) {
+        if (sInstance == null) sInstance = new AndroidAssetIndex(load(context));
+        return sInstance;
+    }
+
+    private AndroidAssetIndex(HashMap<String, Entry> entries) {
+        mEntries = entries;
+    }
+
+    private static HashMap<String, Entry> load(Context context) {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    context.getAssets().open(INDEX_FILE), "UTF-8"));
+            if (!VERSION.equals(reader.readLine())) {
+                Log.w(TAG, "Ignoring asset index of unknown version");
+                return null;
+            }
+            HashMap<String, Entry> entries = new HashMap<String, Entry>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 5) {
+                    Log.w(TAG, "Ignoring malformed asset index");
+                    return null;
+                }
+                entries.put(fields[0], new Entry(Long.parseLong(fields[1]),
+                        fields[2].isEmpty() ? null : fields[2], fields[3],
+                        fields[4].equals("1")));
+            }
+            return entries;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read asset index", e);
+            return null;
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring malformed asset index", e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // Nothing to do.
+                }
+            }
+        }
+    }
+
+    /**
+     * @param assetPath the normalized path of an asset, e.g. "www/index.html".
+     * @return the entry of the asset, or null if it's not indexed.
+     */
+    Entry get(String assetPath) {
+        return mEntries != null ? mEntries.get(assetPath) : null;
+    }
+
+    /**
+     * @param assetPath the normalized path of an asset, e.g. "www/index.html".
+     * @return whether the index tells the asset doesn't exist.
+     */
+    boolean isMissing(String assetPath) {
+        return mEntries != null && assetPath.startsWith(INDEXED_DIR) &&
+                !mEntries.containsKey(assetPath);
+    }
+}
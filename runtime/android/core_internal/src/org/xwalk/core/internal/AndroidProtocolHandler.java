@@ -5,11 +5,13 @@
 package org.xwalk.core.internal;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.net.Uri;
 import android.util.Log;
 import android.util.TypedValue;
 
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.net.URI;
@@ -35,6 +37,7 @@ class AndroidProtocolHandler {
     public static final String APP_SCHEME = "app";
     private static final String APP_SRC = "www";
     private static final String SCHEME_SEPARATOR = "//";
+    private static final String GZIP_SUFFIX = ".gz";
 
     /**
      * Open an InputStream for an Android resource.
@@ -59,14 +62,10 @@ class AndroidProtocolHandler {
             } else if (uri.getScheme().equals(CONTENT_SCHEME)) {
                 return openContent(context, uri);
             } else if (uri.getScheme().equals(APP_SCHEME)) {
-                // The host should be the same as the lower case of the package
-                // name, otherwise the resource request should be rejected.
-                if (!uri.getHost().equals(context.getPackageName().toLowerCase())) return null;
+                Uri assetUri = appUriToAssetUri(context, uri);
+                if (assetUri == null) return null;
 
-                // path == "/" or path == ""
-                if (path.length() <= 1) return null;
-
-                return openAsset(context, appUriToFileUri(uri));
+                return openAsset(context, assetUri);
             }
         } catch (Exception ex) {
             Log.e(TAG, "Error opening inputstream: " + url);
@@ -75,6 +74,131 @@ class AndroidProtocolHandler {
         return null;
     }
 
+    /**
+     * Open an asset stored uncompressed in the APK as a file descriptor, so
+     * that native reads it directly instead of through an InputStream.
+     * @param context The context manager.
+     * @param url The url to load.
+     * @return The AssetFileDescriptor of the asset, or null if the url is not
+     *         an asset or the asset is compressed.
+     */
+    @CalledByNative
+    public static AssetFileDescriptor openAssetFd(Context context, String url) {
+        Uri uri = verifyUrl(url);
+        if (uri == null) {
+            return null;
+        }
+        try {
+            if (uri.getScheme().equals(APP_SCHEME)) {
+                uri = appUriToAssetUri(context, uri);
+                if (uri == null) return null;
+            } else if (!uri.getScheme().equals(FILE_SCHEME) ||
+                    !uri.getPath().startsWith(nativeGetAndroidAssetPath())) {
+                return null;
+            }
+            String path = getAssetPath(uri);
+            AssetFileDescriptor archived = AndroidAssetArchive.getInstance(context).openFd(path);
+            if (archived != null) return archived;
+            AndroidAssetIndex index = AndroidAssetIndex.getInstance(context);
+            AndroidAssetIndex.Entry entry = index.get(path);
+            if (index.isMissing(path) || entry != null && entry.compressed) return null;
+            return context.getAssets().openFd(path);
+        } catch (FileNotFoundException e) {
+            // Compressed or missing, open() handles both.
+            return null;
+        } catch (Exception ex) {
+            Log.e(TAG, "Error opening asset file descriptor: " + url);
+            return null;
+        }
+    }
+
+    /**
+     * Get the gzip compressed variant of an asset, packaged next to it by
+     * make_apk --precompress.
+     * @param context The context manager.
+     * @param url The app:// or file:///android_asset/ url of the asset.
+     * @return The file:///android_asset/ url of the variant, or null if there
+     *         is none. Only variants listed in the asset index are used, so
+     *         that looking for one costs nothing when there is none.
+     */
+    @CalledByNative
+    public static String getGzipVariantUrl(Context context, String url) {
+        Uri uri = verifyUrl(url);
+        if (uri == null) {
+            return null;
+        }
+        try {
+            if (uri.getScheme().equals(APP_SCHEME)) {
+                uri = appUriToAssetUri(context, uri);
+                if (uri == null) return null;
+            } else if (!uri.getScheme().equals(FILE_SCHEME) ||
+                    !uri.getPath().startsWith(nativeGetAndroidAssetPath())) {
+                return null;
+            }
+            String path = getAssetPath(uri) + GZIP_SUFFIX;
+            if (AndroidAssetIndex.getInstance(context).get(path) == null) return null;
+            return new Uri.Builder().scheme(FILE_SCHEME).authority("")
+                    .path(nativeGetAndroidAssetPath() + path).build().toString();
+        } catch (Exception ex) {
+            Log.e(TAG, "Error looking for gzip variant: " + url);
+            return null;
+        }
+    }
+
+    @CalledByNative
+    private static long getAssetFdStartOffset(AssetFileDescriptor afd) {
+        return afd.getStartOffset();
+    }
+
+    @CalledByNative
+    private static long getAssetFdLength(AssetFileDescriptor afd) {
+        return afd.getLength();
+    }
+
+    /**
+     * Close an AssetFileDescriptor returned by openAssetFd(), keeping a
+     * duplicate of its file descriptor for native to own.
+     * @return The duplicated file descriptor, or -1 on failure.
+     */
+    @CalledByNative
+    private static int detachAssetFd(AssetFileDescriptor afd) {
+        try {
+            return afd.getParcelFileDescriptor().dup().detachFd();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to duplicate asset file descriptor", e);
+            return -1;
+        } finally {
+            try {
+                afd.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to close asset file descriptor", e);
+            }
+        }
+    }
+
+    // Convert an app uri of the application to the file uri of its asset, or
+    // null if the request should be rejected.
+    private static Uri appUriToAssetUri(Context context, Uri uri) {
+        // The host should be the same as the lower case of the package
+        // name, otherwise the resource request should be rejected.
+        if (!uri.getHost().equals(context.getPackageName().toLowerCase())) return null;
+
+        // path == "/" or path == ""
+        if (uri.getPath().length() <= 1) return null;
+
+        return appUriToFileUri(uri);
+    }
+
+    // Get the index entry of an app:// or file:///android_asset/ uri, null if
+    // it's not indexed.
+    private static AndroidAssetIndex.Entry getIndexEntry(Context context, Uri uri) {
+        if (uri.getScheme().equals(APP_SCHEME)) {
+            uri = appUriToAssetUri(context, uri);
+            if (uri == null) return null;
+        }
+        return AndroidAssetIndex.getInstance(context).get(getAssetPath(uri));
+    }
+
     // Get the asset path of file:///android_asset/* url.
     public static String getAssetPath(Uri uri) {
         assert(uri.getScheme().equals(FILE_SCHEME));
@@ -188,9 +312,19 @@ class AndroidProtocolHandler {
         assert uri.getScheme().equals(FILE_SCHEME);
         assert uri.getPath() != null;
         assert uri.getPath().startsWith(nativeGetAndroidAssetPath());
+        String path = getAssetPath(uri);
+        // Keyed by asset path, so that the app:// and file:///android_asset/
+        // URLs of an asset and those differing in their query share the entry.
+        AndroidAssetCache cache = AndroidAssetCache.getInstance(context);
+        InputStream cached = cache.get(path);
+        if (cached != null) return cached;
         try {
+            InputStream archived = AndroidAssetArchive.getInstance(context).open(path);
+            if (archived != null) return cache.put(path, archived);
+            // A miss known from the index doesn't need to go through the APK.
+            if (AndroidAssetIndex.getInstance(context).isMissing(path)) return null;
             AssetManager assets = context.getAssets();
-            return assets.open(getAssetPath(uri), AssetManager.ACCESS_STREAMING);
+            return cache.put(path, assets.open(path, AssetManager.ACCESS_STREAMING));
         } catch (IOException e) {
             Log.e(TAG, "Unable to open asset URL: " + uri);
             return null;
@@ -214,7 +348,8 @@ class AndroidProtocolHandler {
     /**
      * Determine the mime type for an Android resource.
      * @param context The context manager.
-     * @param stream The opened input stream which to examine.
+     * @param stream The opened input stream which to examine, null if the
+     *               url was opened by openAssetFd().
      * @param url The url from which the stream was opened.
      * @return The mime type or null if the type is unknown.
      */
@@ -233,8 +368,12 @@ class AndroidProtocolHandler {
             } else if (uri.getScheme().equals(APP_SCHEME) ||
                        uri.getScheme().equals(FILE_SCHEME) &&
                        path.startsWith(nativeGetAndroidAssetPath())) {
+                AndroidAssetIndex.Entry entry = getIndexEntry(context, uri);
+                if (entry != null && entry.mimeType != null) return entry.mimeType;
                 String mimeType = URLConnection.guessContentTypeFromName(path);
-                if (mimeType != null) {
+                // Indexed assets of unknown type aren't sniffed either, the
+                // index was built with a larger list of types.
+                if (mimeType != null || entry != null) {
                     return mimeType;
                 }
             }
@@ -243,6 +382,7 @@ class AndroidProtocolHandler {
             return null;
         }
         // Fall back to sniffing the type from the stream.
+        if (stream == null) return null;
         try {
             return URLConnection.guessContentTypeFromStream(stream);
         } catch (IOException e) {
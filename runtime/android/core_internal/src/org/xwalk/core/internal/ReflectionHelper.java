@@ -5,13 +5,17 @@
 package org.xwalk.core.internal;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
 
 /**
  * This class is used to encapsulate the reflection invoking for bridge and wrapper.
@@ -61,18 +65,69 @@ public class ReflectionHelper {
         }
     }
 
-    private static Map<Class<?>, Method> sBridgeWrapperMap = new HashMap<Class<?>, Method>();
-    private static Map<String, Constructor<?>> sConstructorMap = new HashMap<String, Constructor<?>>();
+    /**
+     * This class identifies a method loaded by loadMethod() with the
+     * parameter types as given, class objects or class names, so that a
+     * cached method is found without loading the parameter classes again.
+     */
+    static class MethodKey {
+        private final Class<?> clazz;
+        private final String name;
+        private final Object[] paramTypes;
+        private final int hash;
+
+        MethodKey(Class<?> clazz, String name, Object[] paramTypes) {
+            this.clazz = clazz;
+            this.name = name;
+            this.paramTypes = paramTypes;
+            this.hash = (clazz == null ? 0 : clazz.hashCode()) * 31 * 31 +
+                    name.hashCode() * 31 + Arrays.hashCode(paramTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MethodKey)) return false;
+            MethodKey other = (MethodKey) o;
+            return clazz == other.clazz && name.equals(other.name) &&
+                    Arrays.equals(paramTypes, other.paramTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Wrappers and bridges are created and called from any thread, e.g. the
+    // IO thread for resource requests, and each wrapper or bridge instance
+    // loads all the methods of its class, so lookups are cached in
+    // concurrent maps.
+    private static Map<Class<?>, Method> sBridgeWrapperMap =
+            new ConcurrentHashMap<Class<?>, Method>();
+    private static Map<String, Constructor<?>> sConstructorMap =
+            new ConcurrentHashMap<String, Constructor<?>>();
     private static Map<String, ConstructorHelper> sConstructorHelperMap =
-            new HashMap<String, ConstructorHelper>();
+            new ConcurrentHashMap<String, ConstructorHelper>();
+    private static Map<MethodKey, Method> sMethodMap = new ConcurrentHashMap<MethodKey, Method>();
+    private static Map<String, Class<?>> sClassMap = new ConcurrentHashMap<String, Class<?>>();
+    private final static Object[] NO_PARAMETERS = new Object[0];
     private static ClassLoader sBridgeOrWrapperLoader = null;
     private static Context sBridgeContext = null;
     private static boolean sIsWrapper;
     private final static String INTERNAL_PACKAGE = "org.xwalk.core.internal";
     private final static String LIBRARY_APK_PACKAGE = "org.xwalk.core";
     /* Wrapper Only
+    private final static String TAG = "ReflectionHelper";
     private static boolean sAllowCrossPackage = false;
     private static SharedXWalkExceptionHandler sExceptionHandler = null;
+    private static volatile Thread sWarmUpThread = null;
+    // The wrappers and bridges registering constructors in their static
+    // initializers, listed by the reflection generator when it copies this
+    // class. The warm-up runs those before init() resolves the registered
+    // constructors, otherwise there would be none to resolve yet.
+    private final static String[] WARM_UP_CLASSES = {
+        // Filled in by reflection_generator.py.
+    };
 
     static void setExceptionHandler(SharedXWalkExceptionHandler handler) {
         sExceptionHandler = handler;
@@ -101,6 +156,78 @@ public class ReflectionHelper {
     public static void allowCrossPackage() {
         sAllowCrossPackage = true;
     }
+
+    // Initialize the wrapper and bridge classes, the class loaders and the
+    // registered constructors and reset the internal resource ids on a
+    // background thread, so that the first XWalkView created on the UI thread
+    // doesn't wait for it.
+    //
+    // Only started by XWalkApplication.onCreate() and only in embedded mode.
+    // Shared mode needs SharedXWalkView to allow the cross package loading and
+    // to set the exception handler first, and applications not extending
+    // XWalkApplication do all of this on the first use as before.
+    static synchronized void warmUp(final Context context) {
+        if (sWarmUpThread != null || sBridgeOrWrapperLoader != null) return;
+        if (shouldUseLibrary()) return;
+        sWarmUpThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.uptimeMillis();
+                // In embedded mode both layers share the class loader of this
+                // class.
+                ClassLoader loader = ReflectionHelper.class.getClassLoader();
+                for (String name : WARM_UP_CLASSES) {
+                    try {
+                        Class.forName(name, true, loader);
+                    } catch (ClassNotFoundException e) {
+                        Log.w(TAG, "Failed to initialize " + name, e);
+                    }
+                }
+                try {
+                    init();
+                } catch (RuntimeException e) {
+                    // Leave it to the first use, which reports the failure as without
+                    // warm-up.
+                    Log.w(TAG, "Failed to initialize the class loaders", e);
+                    sBridgeOrWrapperLoader = null;
+                    return;
+                }
+                long initialized = SystemClock.uptimeMillis();
+                try {
+                    Method resetIds = loadClass(INTERNAL_PACKAGE + "." + "XWalkInternalResources")
+                            .getDeclaredMethod("resetIds", Context.class);
+                    resetIds.setAccessible(true);
+                    resetIds.invoke(null, context);
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to reset the internal resource ids", e);
+                }
+                Log.d(TAG, "Warm-up: classes, class loaders and constructors " +
+                        (initialized - start) + "ms, resource ids " +
+                        (SystemClock.uptimeMillis() - initialized) + "ms");
+            }
+        }, "XWalkWarmUp");
+        sWarmUpThread.start();
+    }
+
+    // The barrier before the first use, wait for the warm-up started by
+    // warmUp() to be done.
+    private static void joinWarmUp() {
+        Thread thread = sWarmUpThread;
+        if (thread == null || thread == Thread.currentThread()) return;
+        long start = SystemClock.uptimeMillis();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        sWarmUpThread = null;
+        Log.d(TAG, "Warm-up: " + Thread.currentThread().getName() + " waited " +
+                (SystemClock.uptimeMillis() - start) + "ms");
+    }
     Wrapper Only */
 
     public static void init() {
@@ -138,10 +265,14 @@ public class ReflectionHelper {
         sBridgeContext = bridgeContext;
         sBridgeWrapperMap.clear();
         sConstructorMap.clear();
+        sMethodMap.clear();
+        sClassMap.clear();
         try {
             for (String name : sConstructorHelperMap.keySet()) {
                 ConstructorHelper helper = sConstructorHelperMap.get(name);
-                if (helper != null) sConstructorMap.put(name, helper.loadConstructor());
+                if (helper == null) continue;
+                Constructor<?> constructor = helper.loadConstructor();
+                if (constructor != null) sConstructorMap.put(name, constructor);
             }
             if (sIsWrapper) {
                 // Load the helper in bridge side and invoke the initClassLoader method of it
@@ -173,20 +304,31 @@ public class ReflectionHelper {
     }
 
     public static Class<?> loadClass(String clazz) {
+        /* Wrapper Only
+        joinWarmUp();
+        Wrapper Only */
         // Any embedder using Embedding API should only use the exposed APIs which are
         // in wrapper, so the initialization process is always starting from wrapper.
         if (sBridgeOrWrapperLoader == null) init();
         if (sBridgeOrWrapperLoader == null) return null;
+        Class<?> ret = sClassMap.get(clazz);
+        if (ret != null) return ret;
         try {
-            return sBridgeOrWrapperLoader.loadClass(clazz);
+            ret = sBridgeOrWrapperLoader.loadClass(clazz);
         } catch (ClassNotFoundException e) {
             handleException(e);
             return null;
         }
+        sClassMap.put(clazz, ret);
+        return ret;
     }
 
     public static Method loadMethod(Class<?> clazz, String name, Object... paramTypes) {
         if (sBridgeOrWrapperLoader == null) return null;
+        MethodKey key = new MethodKey(clazz, name, paramTypes);
+        Method method = sMethodMap.get(key);
+        if (method != null) return method;
+
         Class<?>[] params = new Class<?>[paramTypes.length];
         for (int i = 0; i < paramTypes.length; i++) {
             Object type = paramTypes[i];
@@ -197,11 +339,15 @@ public class ReflectionHelper {
             }
         }
         try {
-            return clazz.getMethod(name, params);
+            method = clazz.getMethod(name, params);
         } catch (NoSuchMethodException e) {
             handleException(e);
             return null;
         }
+        // Skip the access checks Method.invoke() would do on every call.
+        method.setAccessible(true);
+        sMethodMap.put(key, method);
+        return method;
     }
 
     public static void handleException(Exception e) {
@@ -219,13 +365,16 @@ public class ReflectionHelper {
     }
 
     public static Object createInstance(String name, Object... parameters) {
+        /* Wrapper Only
+        joinWarmUp();
+        Wrapper Only */
         Object ret = null;
         Constructor<?> creator = sConstructorMap.get(name);
         if (creator == null) {
             ConstructorHelper helper = sConstructorHelperMap.get(name);
             if (helper != null) {
                 creator = helper.loadConstructor();
-                sConstructorMap.put(name, creator);
+                if (creator != null) sConstructorMap.put(name, creator);
             }
         }
         if (creator != null) {
@@ -244,6 +393,12 @@ public class ReflectionHelper {
         return ret;
     }
 
+    // Most bridge and wrapper methods take no parameter, avoid allocating an
+    // empty varargs array for each of their calls.
+    public static Object invokeMethod(Method m, Object instance) {
+        return invokeMethod(m, instance, NO_PARAMETERS);
+    }
+
     public static Object invokeMethod(Method m, Object instance, Object... parameters) {
         if (sBridgeOrWrapperLoader == null) return null;
         Object ret = null;
@@ -279,11 +434,33 @@ public class ReflectionHelper {
             } catch (NoSuchMethodException e) {
                 handleException(e);
             }
-            if (method != null) sBridgeWrapperMap.put(clazz, method);
+            if (method != null) {
+                method.setAccessible(true);
+                sBridgeWrapperMap.put(clazz, method);
+            }
         }
         return invokeMethod(method, instance);
     }
 
+    // Return the wrapper class a bridge class is generated for, e.g.
+    // org.xwalk.core.XWalkView for XWalkViewBridge, or null if clazz isn't a
+    // bridge.
+    public static Class<?> getWrapperClass(Class<?> clazz) {
+        Field field;
+        try {
+            field = clazz.getDeclaredField("WRAPPER_CLASS");
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            return loadClass((String) field.get(null));
+        } catch (IllegalAccessException e) {
+            handleException(e);
+            return null;
+        }
+    }
+
     private static boolean isWrapper() {
         return !ReflectionHelper.class.getPackage().getName().equals(INTERNAL_PACKAGE);
     }
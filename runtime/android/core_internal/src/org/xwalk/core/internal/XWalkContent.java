@@ -243,6 +243,31 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
 
     public void setResourceClient(XWalkResourceClientInternal client) {
         mContentsClientBridge.setResourceClient(client);
+        updateInterceptLoadRequestListeners();
+    }
+
+    // shouldInterceptRequest() is only called from the IO thread for the
+    // client callbacks below, native skips it if none is overridden.
+    private void updateInterceptLoadRequestListeners() {
+        if (mXWalkContent == 0) return;
+        nativeSetInterceptLoadRequestListeners(mXWalkContent,
+                mContentsClientBridge.hasShouldInterceptLoadRequest(),
+                mContentsClientBridge.hasOnLoadStarted() ||
+                mContentsClientBridge.hasOnLoadResource());
+    }
+
+    public void setInterceptLoadRequestPatterns(String[] patterns) {
+        if (mXWalkContent == 0) return;
+        nativeSetInterceptLoadRequestPatterns(mXWalkContent, patterns);
+    }
+
+    public long[] getInterceptLoadRequestCounts() {
+        if (mXWalkContent == 0) return null;
+        return nativeGetInterceptLoadRequestCounts(mXWalkContent);
+    }
+
+    public void setCoalesceResourceLoadNotifications(boolean coalesce) {
+        mContentsClientBridge.getCallbackHelper().setCoalesceResourceLoads(coalesce);
     }
 
     public void setXWalkWebChromeClient(XWalkWebChromeClient client) {
@@ -255,6 +280,7 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
 
     public void setXWalkClient(XWalkClient client) {
         mContentsClientBridge.setXWalkClient(client);
+        updateInterceptLoadRequestListeners();
     }
 
     public void setDownloadListener(DownloadListener listener) {
@@ -524,17 +550,24 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
 
         @Override
         public InterceptedRequestData shouldInterceptRequest(final String url,
-                boolean isMainFrame) {
+                boolean isMainFrame, boolean intercept) {
 
             // Notify a resource load is started. This is not the best place to start the callback
             // but it's a workable way.
-            mContentsClientBridge.getCallbackHelper().postOnResourceLoadStarted(url);
+            if (mContentsClientBridge.hasOnLoadStarted()) {
+                mContentsClientBridge.getCallbackHelper().postOnResourceLoadStarted(url);
+            }
 
-            WebResourceResponse webResourceResponse = mContentsClientBridge.shouldInterceptRequest(url);
+            // Not intercepted if the URL doesn't match the patterns set by
+            // setInterceptLoadRequestPatterns().
+            WebResourceResponse webResourceResponse =
+                    intercept ? mContentsClientBridge.shouldInterceptRequest(url) : null;
             InterceptedRequestData interceptedRequestData = null;
 
             if (webResourceResponse == null) {
-                mContentsClientBridge.getCallbackHelper().postOnLoadResource(url);
+                if (mContentsClientBridge.hasOnLoadResource()) {
+                    mContentsClientBridge.getCallbackHelper().postOnLoadResource(url);
+                }
             } else {
                 if (isMainFrame && webResourceResponse.getData() == null) {
                     mContentsClientBridge.getCallbackHelper().postOnReceivedError(
@@ -696,4 +729,9 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
             long nativeXWalkContent, boolean value, String requestingFrame);
     private native byte[] nativeGetState(long nativeXWalkContent);
     private native boolean nativeSetState(long nativeXWalkContent, byte[] state);
+    private native void nativeSetInterceptLoadRequestPatterns(long nativeXWalkContent,
+            String[] patterns);
+    private native void nativeSetInterceptLoadRequestListeners(long nativeXWalkContent,
+            boolean intercept, boolean notify);
+    private native long[] nativeGetInterceptLoadRequestCounts(long nativeXWalkContent);
 }
@@ -127,6 +127,8 @@ abstract class XWalkContentsClient extends ContentViewClient {
 
     public abstract void onResourceLoadStarted(String url);
 
+    public abstract void onResourceLoadsStarted(String[] urls);
+
     public abstract void onResourceLoadFinished(String url);
 
     public abstract void onLoadResource(String url);
@@ -23,6 +23,8 @@ import android.webkit.ConsoleMessage;
 import android.webkit.ValueCallback;
 import android.webkit.WebResourceResponse;
 
+import java.lang.reflect.Method;
+
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
 import org.chromium.base.ThreadUtils;
@@ -64,6 +66,16 @@ class XWalkContentsClientBridge extends XWalkContentsClient
 
     private float mPageScaleFactor;
 
+    // Which of the no-op client callbacks the clients override. Checked when
+    // the clients are set, events no client listens to aren't dispatched.
+    // Volatile as the IO thread reads them too.
+    private volatile boolean mHasOnProgressChanged = false;
+    private volatile boolean mHasShouldInterceptLoadRequest = false;
+    private volatile boolean mHasOnLoadStarted = false;
+    private volatile boolean mHasOnLoadFinished = false;
+    private volatile boolean mHasOnLoadResource = false;
+    private volatile boolean mHasOnScaleChanged = false;
+
     private class InterceptNavigationDelegateImpl implements InterceptNavigationDelegate {
         private XWalkContentsClient mContentsClient;
 
@@ -96,18 +108,71 @@ class XWalkContentsClientBridge extends XWalkContentsClient
         // If it's null, use Crosswalk implementation.
         if (client != null) {
             mXWalkUIClient = client;
-            return;
+        } else {
+            mXWalkUIClient = new XWalkUIClientInternal(mXWalkView);
         }
-        mXWalkUIClient = new XWalkUIClientInternal(mXWalkView);
+        mHasOnScaleChanged = isOverridden(mXWalkUIClient, XWalkUIClientInternal.class,
+                "onScaleChanged");
     }
 
     public void setResourceClient(XWalkResourceClientInternal client) {
         // If it's null, use Crosswalk implementation.
         if (client != null) {
             mXWalkResourceClient = client;
-            return;
+        } else {
+            mXWalkResourceClient = new XWalkResourceClientInternal(mXWalkView);
+        }
+        Class<?> base = XWalkResourceClientInternal.class;
+        mHasOnProgressChanged = isOverridden(mXWalkResourceClient, base, "onProgressChanged");
+        mHasShouldInterceptLoadRequest = isOverridden(mXWalkResourceClient, base,
+                "shouldInterceptLoadRequest");
+        mHasOnLoadStarted = isOverridden(mXWalkResourceClient, base,
+                "onLoadStarted", "onLoadsStarted");
+        mHasOnLoadFinished = isOverridden(mXWalkResourceClient, base, "onLoadFinished");
+    }
+
+    // Whether client, an instance of base, overrides one of the given methods.
+    // Clients created by the embedder are bridges of the reflection layer
+    // which override every method to forward it to their wrapper, the wrapper
+    // is checked against the wrapper class of the bridge then.
+    private static boolean isOverridden(Object client, Class<?> base, String... methodNames) {
+        Class<?> clazz = client.getClass();
+        Class<?> wrapperBase = ReflectionHelper.getWrapperClass(clazz);
+        if (wrapperBase != null) {
+            try {
+                Object wrapper = clazz.getMethod("getWrapper").invoke(client);
+                if (wrapper != null) {
+                    clazz = wrapper.getClass();
+                    base = wrapperBase;
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Unable to get the wrapper of " + clazz.getName(), e);
+                return true;
+            }
         }
-        mXWalkResourceClient = new XWalkResourceClientInternal(mXWalkView);
+
+        for (; clazz != null; clazz = clazz.getSuperclass()) {
+            if (clazz == base) return false;
+            for (Method method : clazz.getDeclaredMethods()) {
+                for (String name : methodNames) {
+                    if (method.getName().equals(name)) return true;
+                }
+            }
+        }
+        // Not an instance of base, dispatch everything.
+        return true;
+    }
+
+    boolean hasShouldInterceptLoadRequest() {
+        return mHasShouldInterceptLoadRequest;
+    }
+
+    boolean hasOnLoadStarted() {
+        return mHasOnLoadStarted;
+    }
+
+    boolean hasOnLoadResource() {
+        return mXWalkClient != null && mHasOnLoadResource;
     }
 
 
@@ -124,6 +189,8 @@ class XWalkContentsClientBridge extends XWalkContentsClient
 
     public void setXWalkClient(XWalkClient client) {
         mXWalkClient = client;
+        mHasOnLoadResource = client != null &&
+                isOverridden(client, XWalkClient.class, "onLoadResource");
     }
 
     public void setNavigationHandler(XWalkNavigationHandler handler) {
@@ -193,14 +260,14 @@ class XWalkContentsClientBridge extends XWalkContentsClient
 
     @Override
     public void onProgressChanged(int progress) {
-        if (isOwnerActivityRunning()) {
+        if (mHasOnProgressChanged && isOwnerActivityRunning()) {
             mXWalkResourceClient.onProgressChanged(mXWalkView, progress);
         }
     }
 
     @Override
     public WebResourceResponse shouldInterceptRequest(String url) {
-        if (isOwnerActivityRunning()) {
+        if (mHasShouldInterceptLoadRequest && isOwnerActivityRunning()) {
             return mXWalkResourceClient.shouldInterceptLoadRequest(mXWalkView, url);
         }
         return null;
@@ -208,21 +275,28 @@ class XWalkContentsClientBridge extends XWalkContentsClient
 
     @Override
     public void onResourceLoadStarted(String url) {
-        if (isOwnerActivityRunning()) {
+        if (mHasOnLoadStarted && isOwnerActivityRunning()) {
             mXWalkResourceClient.onLoadStarted(mXWalkView, url);
         }
     }
 
+    @Override
+    public void onResourceLoadsStarted(String[] urls) {
+        if (mHasOnLoadStarted && isOwnerActivityRunning()) {
+            mXWalkResourceClient.onLoadsStarted(mXWalkView, urls);
+        }
+    }
+
     @Override
     public void onResourceLoadFinished(String url) {
-        if (isOwnerActivityRunning()) {
+        if (mHasOnLoadFinished && isOwnerActivityRunning()) {
             mXWalkResourceClient.onLoadFinished(mXWalkView, url);
         }
     }
 
     @Override
     public void onLoadResource(String url) {
-        if (mXWalkClient != null && isOwnerActivityRunning()) {
+        if (hasOnLoadResource() && isOwnerActivityRunning()) {
             mXWalkClient.onLoadResource(mXWalkView, url);
         }
     }
@@ -387,7 +461,7 @@ class XWalkContentsClientBridge extends XWalkContentsClient
 
     @Override
     public void onScaleChangedScaled(float oldScale, float newScale) {
-        if (isOwnerActivityRunning()) {
+        if (mHasOnScaleChanged && isOwnerActivityRunning()) {
             mXWalkUIClient.onScaleChanged(mXWalkView, oldScale, newScale);
         }
     }
@@ -9,6 +9,10 @@ import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.chromium.content.browser.ContentViewCore;
 
 /**
@@ -66,15 +70,36 @@ class XWalkContentsClientCallbackHelper {
         }
     }
 
+    private static class ResourceLoadInfo {
+        final boolean mStarted;
+        final String mUrl;
+
+        ResourceLoadInfo(boolean started, String url) {
+            mStarted = started;
+            mUrl = url;
+        }
+    }
+
     private final static int MSG_ON_LOAD_RESOURCE = 1;
     private final static int MSG_ON_PAGE_STARTED = 2;
     private final static int MSG_ON_DOWNLOAD_START = 3;
     private final static int MSG_ON_RECEIVED_LOGIN_REQUEST = 4;
     private final static int MSG_ON_RECEIVED_ERROR = 5;
     private final static int MSG_ON_RESOURCE_LOAD_STARTED = 6;
+    private final static int MSG_FLUSH_RESOURCE_LOADS = 7;
+
+    // Coalesced notifications are delivered at most once per frame.
+    private final static long FLUSH_RESOURCE_LOADS_DELAY_MS = 16;
 
     private final XWalkContentsClient mContentsClient;
 
+    // In coalescing mode, resource load notifications are queued from the IO
+    // thread and delivered together by a single message.
+    private volatile boolean mCoalesceResourceLoads = false;
+    private final ConcurrentLinkedQueue<ResourceLoadInfo> mPendingResourceLoads =
+            new ConcurrentLinkedQueue<ResourceLoadInfo>();
+    private final AtomicBoolean mFlushResourceLoadsPosted = new AtomicBoolean(false);
+
     private final Handler mHandler = new Handler(Looper.getMainLooper()) {
         @Override
         public void handleMessage(Message msg) {
@@ -111,6 +136,10 @@ class XWalkContentsClientCallbackHelper {
                     mContentsClient.onResourceLoadStarted(url);
                     break;
                 }
+                case MSG_FLUSH_RESOURCE_LOADS: {
+                    flushResourceLoads();
+                    break;
+                }
                 default:
                     throw new IllegalStateException(
                             "XWalkContentsClientCallbackHelper: unhandled message " + msg.what);
@@ -122,7 +151,50 @@ class XWalkContentsClientCallbackHelper {
         mContentsClient = contentsClient;
     }
 
+    /**
+     * In coalescing mode onResourceLoadStarted() and onLoadResource() are no
+     * longer posted one message per URL, they are queued and delivered once
+     * per frame, the started loads through onResourceLoadsStarted().
+     */
+    public void setCoalesceResourceLoads(boolean coalesce) {
+        mCoalesceResourceLoads = coalesce;
+    }
+
+    private void queueResourceLoad(boolean started, String url) {
+        mPendingResourceLoads.add(new ResourceLoadInfo(started, url));
+        if (mFlushResourceLoadsPosted.compareAndSet(false, true)) {
+            mHandler.sendEmptyMessageDelayed(MSG_FLUSH_RESOURCE_LOADS,
+                    FLUSH_RESOURCE_LOADS_DELAY_MS);
+        }
+    }
+
+    private void flushResourceLoads() {
+        // Reset first, so that a notification queued while flushing posts a
+        // new message instead of being left behind.
+        mFlushResourceLoadsPosted.set(false);
+        ArrayList<String> started = new ArrayList<String>();
+        ArrayList<String> loaded = new ArrayList<String>();
+        ResourceLoadInfo info;
+        while ((info = mPendingResourceLoads.poll()) != null) {
+            if (info.mStarted) {
+                started.add(info.mUrl);
+            } else {
+                loaded.add(info.mUrl);
+            }
+        }
+        if (!started.isEmpty()) {
+            mContentsClient.onResourceLoadsStarted(started.toArray(new String[started.size()]));
+        }
+        for (String url : loaded) {
+            mContentsClient.onLoadResource(url);
+        }
+    }
+
     public void postOnLoadResource(String url) {
+        if (mCoalesceResourceLoads) {
+            queueResourceLoad(false, url);
+            return;
+        }
         mHandler.sendMessage(mHandler.obtainMessage(MSG_ON_LOAD_RESOURCE, url));
     }
 
@@ -148,6 +220,10 @@ class XWalkContentsClientCallbackHelper {
     }
 
     public void postOnResourceLoadStarted(String url) {
+        if (mCoalesceResourceLoads) {
+            queueResourceLoad(true, url);
+            return;
+        }
         mHandler.sendMessage(mHandler.obtainMessage(MSG_ON_RESOURCE_LOAD_STARTED, url));
     }
 }
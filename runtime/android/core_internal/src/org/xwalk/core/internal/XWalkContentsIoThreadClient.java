@@ -16,7 +16,8 @@ interface XWalkContentsIoThreadClient {
     public int getCacheMode();
 
     @CalledByNative
-    public InterceptedRequestData shouldInterceptRequest(String url, boolean isMainFrame);
+    public InterceptedRequestData shouldInterceptRequest(String url, boolean isMainFrame,
+            boolean intercept);
 
     @CalledByNative
     public boolean shouldBlockContentUrls();
@@ -4,6 +4,8 @@
 
 package org.xwalk.core.internal;
 
+import java.nio.ByteBuffer;
+
 import org.xwalk.core.internal.extensions.XWalkExtensionAndroid;
 
 /**
@@ -54,6 +56,19 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
         super.postMessage(instanceID, message);
     }
 
+    /**
+     * Send binary message to an instance without converting it to a string.
+     * The bytes between the position and the limit of the buffer are
+     * delivered to JavaScript as an ArrayBuffer.
+     * @param instanceID the id of instance.
+     * @param message the message, must be a direct ByteBuffer.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void postBinaryMessage(int instanceID, ByteBuffer message) {
+        super.postBinaryMessage(instanceID, message);
+    }
+
     /**
      * Broadcast message to all extension instances.
      * @param message the message.
@@ -64,6 +79,164 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
         super.broadcastMessage(message);
     }
 
+    /**
+     * Broadcast the latest state of a topic to all extension instances.
+     * Messages of the same topic broadcasted within the coalescing interval
+     * are combined with onCoalesceMessages(), by default only the latest one
+     * is delivered. Meant for high frequency event sources.
+     * @param topic the topic, e.g. the event name.
+     * @param message the message.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void broadcastCoalescedMessage(String topic, String message) {
+        super.broadcastCoalescedMessage(topic, message);
+    }
+
+    /**
+     * Set how long coalesced broadcasts are held before being delivered.
+     * @param intervalMs the interval in milliseconds, 50 by default.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void setCoalescingInterval(int intervalMs) {
+        super.setCoalescingInterval(intervalMs);
+    }
+
+    /**
+     * Start batching the messages posted or broadcasted by this extension.
+     * Pending messages are delivered together once per frame, or as soon as
+     * the given count or size limit is reached, and JavaScript still receives
+     * them one by one in posting order. Pending messages are always delivered
+     * before a sync message is handled.
+     * @param maxMessages the number of pending messages triggering a flush,
+     *                    no limit if <= 0.
+     * @param maxBytes the size of pending messages in characters triggering a
+     *                 flush, no limit if <= 0.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void enableMessageBatching(int maxMessages, int maxBytes) {
+        super.enableMessageBatching(maxMessages, maxBytes);
+    }
+
+    /**
+     * Deliver the pending messages and stop batching.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void disableMessageBatching() {
+        super.disableMessageBatching();
+    }
+
+    /**
+     * Deliver the pending batched messages immediately.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void flushMessages() {
+        super.flushMessages();
+    }
+
+    /**
+     * Reply to the sync messages equal to the given one without calling
+     * onSyncMessage(). Meant for values which can be computed ahead of time.
+     * The message must be the exact text sent by JavaScript, key order and
+     * whitespace included.
+     * @param message the sync message.
+     * @param reply the reply, null to remove a previously set reply.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void setCachedSyncReply(String message, String reply) {
+        super.setCachedSyncReply(message, reply);
+    }
+
+    /**
+     * Give onSyncMessage() a deadline. Once set, onSyncMessage() is called on
+     * a worker thread and, if it doesn't return in time, JavaScript gets the
+     * result of onSyncMessageTimeout() instead of staying blocked.
+     * @param timeoutMs the deadline in milliseconds, no deadline if <= 0.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void setSyncMessageTimeout(int timeoutMs) {
+        super.setSyncMessageTimeout(timeoutMs);
+    }
+
+    /**
+     * Open a stream to an instance: a ring buffer of fixed-size records in
+     * memory shared with its JavaScript side, which receives it as an
+     * ArrayBuffer through extension.setStreamListener(). Meant for high rate
+     * data, records are written in place and JavaScript is notified of new
+     * ones at most once per frame.
+     * @param instanceID the id of instance.
+     * @param recordSize the size of a record in bytes.
+     * @param capacity the number of records kept, rounded up to a power of two.
+     * @return the id of the stream, or -1 on failure.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public int openStream(int instanceID, int recordSize, int capacity) {
+        return super.openStream(instanceID, recordSize, capacity);
+    }
+
+    /**
+     * Get the buffer of the next record of a stream. It must be filled in
+     * native byte order from a single thread and not be kept after
+     * commitStreamRecord().
+     * @param streamID the id of stream.
+     * @return the record buffer, or null if the stream isn't open.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public ByteBuffer beginStreamRecord(int streamID) {
+        return super.beginStreamRecord(streamID);
+    }
+
+    /**
+     * Make the record returned by beginStreamRecord() visible to JavaScript.
+     * @param streamID the id of stream.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void commitStreamRecord(int streamID) {
+        super.commitStreamRecord(streamID);
+    }
+
+    /**
+     * Deliver the last records of a stream and close it.
+     * @param streamID the id of stream.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void closeStream(int streamID) {
+        super.closeStream(streamID);
+    }
+
+    /**
+     * Get the messaging counters of this extension as a JSON string: per
+     * command message counts, sizes and handler latencies for async and sync
+     * messages, posted message counts and sizes, and the number of messages
+     * waiting to be delivered. Commands are taken from the "cmd" field of
+     * the messages.
+     * @return the counters as a JSON object string.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public String getMessagingMetrics() {
+        return super.getMessagingMetrics();
+    }
+
+    /**
+     * Reset the messaging counters of this extension.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void resetMessagingMetrics() {
+        super.resetMessagingMetrics();
+    }
+
     /**
      * Notify the extension that the async message is received.
      * @param instanceID the id of instance.
@@ -73,6 +246,18 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
     @XWalkAPI
     public abstract void onMessage(int instanceID, String message);
 
+    /**
+     * Notify the extension that a binary message (an ArrayBuffer or a typed
+     * array posted from JavaScript) is received. The buffer is only valid
+     * during this call. The default implementation ignores the message.
+     * @param instanceID the id of instance.
+     * @param message the received message.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+    }
+
     /**
      * Notify the extension that the sync message is received.
      * @param instanceID the id of instance.
@@ -81,4 +266,32 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
      */
     @XWalkAPI
     public abstract String onSyncMessage(int instanceID, String message);
+
+    /**
+     * Combine a coalesced broadcast with the pending one of the same topic.
+     * Must not broadcast. The default implementation keeps the latest message.
+     * @param topic the topic.
+     * @param pendingMessage the message waiting to be delivered.
+     * @param message the message just broadcasted.
+     * @return the message to deliver instead of both.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public String onCoalesceMessages(String topic, String pendingMessage, String message) {
+        return super.onCoalesceMessages(topic, pendingMessage, message);
+    }
+
+    /**
+     * Notify the extension that a sync message missed the deadline set with
+     * setSyncMessageTimeout(). The default implementation returns an empty
+     * string.
+     * @param instanceID the id of instance.
+     * @param message the received message.
+     * @return the reply sent to JavaScript instead.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public String onSyncMessageTimeout(int instanceID, String message) {
+        return super.onSyncMessageTimeout(instanceID, message);
+    }
 }
@@ -64,7 +64,9 @@ class XWalkInternalResources {
         }
     }
 
-    static void resetIds(Context context) {
+    // Synchronized as ReflectionHelper may reset the ids on its warm-up thread
+    // while the first XWalkView is created.
+    static synchronized void resetIds(Context context) {
         if (!loaded) {
             doResetIds(context);
             loaded = true;
@@ -138,6 +138,15 @@ public class XWalkPreferencesInternal {
     @XWalkAPI
     public static final String PROFILE_NAME = "profile-name";
 
+    /**
+     * The key string to set the size in bytes of the in-memory cache of the
+     * resources loaded from app:// and file:///android_asset/ URLs.
+     * Default value is 4MB, 0 disables the cache.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public static final String ASSET_CACHE_SIZE = "asset-cache-size";
+
     /**
      * The key string to enable/disable javascript.
      * TODO(wang16): Remove this after cordova removes its dependency.
@@ -160,6 +169,7 @@ public class XWalkPreferencesInternal {
         sPrefMap.put(SUPPORT_MULTIPLE_WINDOWS, new PreferenceValue(true));
         sPrefMap.put(ENABLE_EXTENSIONS, new PreferenceValue(true));
         sPrefMap.put(PROFILE_NAME, new PreferenceValue("Default"));
+        sPrefMap.put(ASSET_CACHE_SIZE, new PreferenceValue(AndroidAssetCache.DEFAULT_SIZE));
     }
 
     /**
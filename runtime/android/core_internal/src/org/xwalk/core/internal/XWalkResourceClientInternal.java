@@ -133,6 +133,24 @@ public class XWalkResourceClientInternal {
     public void onLoadStarted(XWalkViewInternal view, String url) {
     }
 
+    /**
+     * Notify the client that the XWalkViewInternal will load the resources
+     * specified by the given urls. It's only called when resource load
+     * notifications are coalesced by
+     * XWalkViewInternal.setCoalesceResourceLoadNotifications(), once per frame
+     * for the resources started since the previous call. The default
+     * implementation calls onLoadStarted() for each url.
+     * @param view the owner XWalkViewInternal instance.
+     * @param urls the urls for the resources to be loaded, in request order.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void onLoadsStarted(XWalkViewInternal view, String[] urls) {
+        for (String url : urls) {
+            onLoadStarted(view, url);
+        }
+    }
+
     /**
      * Notify the client that the XWalkViewInternal completes to load the resource
      * specified by the given url.
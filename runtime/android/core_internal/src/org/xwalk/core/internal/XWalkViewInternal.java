@@ -739,6 +739,72 @@ public class XWalkViewInternal extends android.widget.FrameLayout {
         mContent.setResourceClient(client);
     }
 
+    /**
+     * Limit XWalkResourceClientInternal.shouldInterceptLoadRequest() to the
+     * URLs matching one of the given patterns. Other URLs are loaded without
+     * asking the application, which saves a round trip per resource when
+     * only a few URLs are intercepted. onLoadStarted() is still called for
+     * every URL.
+     *
+     * Patterns are matched against the whole URL, '*' matches any sequence
+     * of characters and '?' any single character, for example
+     * "https://api.example.com/*" or "*.json".
+     * @param patterns the URL patterns, null or empty to intercept every URL,
+     *        which is the default.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void setInterceptLoadRequestPatterns(String[] patterns) {
+        if (mContent == null) return;
+        checkThreadSafety();
+        mContent.setInterceptLoadRequestPatterns(patterns);
+    }
+
+    /**
+     * Coalesce the notifications of resource loads. Instead of one
+     * XWalkResourceClientInternal.onLoadStarted() call per resource, the
+     * resources started during a frame are reported together by a single
+     * XWalkResourceClientInternal.onLoadsStarted() call, which leaves the UI
+     * thread to input and rendering on pages loading many resources. The
+     * notifications are delivered up to a frame later than otherwise.
+     * @param coalesce true to coalesce the notifications, false to deliver
+     *        them one by one, which is the default.
+     * @since 4.0
+     */
+    @XWalkAPI
+    public void setCoalesceResourceLoadNotifications(boolean coalesce) {
+        if (mContent == null) return;
+        checkThreadSafety();
+        mContent.setCoalesceResourceLoadNotifications(coalesce);
+    }
+
+    /**
+     * Get how many requests were passed to and skipped from
+     * shouldInterceptLoadRequest() because of the patterns set by
+     * setInterceptLoadRequestPatterns().
+     * @return the number of delivered and skipped requests, in that order.
+     *
+     * @hide
+     */
+    public long[] getInterceptLoadRequestCounts() {
+        if (mContent == null) return null;
+        checkThreadSafety();
+        return mContent.getInterceptLoadRequestCounts();
+    }
+
+    /**
+     * Get how many app:// and file:///android_asset/ loads were answered from
+     * and missed the in-memory asset cache, shared by all the views.
+     * @return the number of hits and misses, in that order.
+     *
+     * @hide
+     */
+    public int[] getAssetCacheCounts() {
+        if (mContent == null) return null;
+        checkThreadSafety();
+        return AndroidAssetCache.getCounts();
+    }
+
     // TODO(yongsheng): this is not public.
     /**
      * @hide
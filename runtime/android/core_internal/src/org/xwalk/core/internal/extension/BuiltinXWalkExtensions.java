@@ -15,6 +15,7 @@ import org.xwalk.core.internal.extension.api.device_capabilities.DeviceCapabilit
 import org.xwalk.core.internal.extension.api.launchscreen.LaunchScreenExtension;
 import org.xwalk.core.internal.extension.api.messaging.Messaging;
 import org.xwalk.core.internal.extension.api.presentation.PresentationExtension;
+import org.xwalk.extensions.common.XWalkExtensionJsApiCache;
 
 import android.app.Activity;
 import android.content.Context;
@@ -25,11 +26,22 @@ import android.util.Log;
 
 public class BuiltinXWalkExtensions {
     private static final String TAG = "BuiltinXWalkExtension";
+    private static final String JS_API_CACHE_NAME = "xwalk_builtin_jsapi.cache";
     private static HashMap<String, XWalkExtensionInternal> sBuiltinExtensions =
             new HashMap<String, XWalkExtensionInternal>();
+    private static XWalkExtensionJsApiCache sJsApiCache;
 
     public static void load(Context context, Activity activity) {
-        // Create all built-in extension instances here.
+        if (sJsApiCache == null) {
+            sJsApiCache = new XWalkExtensionJsApiCache(context, JS_API_CACHE_NAME);
+        }
+
+        // Create all built-in extension instances here. Presentation and
+        // LaunchScreen are created right away since they push events or are
+        // used during startup. Messaging is too, since its SMS event listeners
+        // are registered on JavaScript side without sending any message. The
+        // others are created on first use so that their receivers and
+        // observers aren't set up for pages not using them.
         {
             String jsApiContent = "";
             try {
@@ -58,9 +70,16 @@ public class BuiltinXWalkExtensions {
             String jsApiContent = "";
             try {
                 jsApiContent = getExtensionJSFileContent(
-                        context, Contacts.JS_API_PATH, true);
+                        context, Contacts.JS_API_PATH, true) + Contacts.CODECS.getJavaScript();
                 sBuiltinExtensions.put(Contacts.JS_API_PATH,
-                        new Contacts(jsApiContent, activity));
+                        new LazyXWalkExtension(Contacts.NAME, jsApiContent, activity,
+                                new LazyXWalkExtension.Factory() {
+                                    @Override
+                                    public XWalkExtensionInternal create(
+                                            String jsApi, Activity activity) {
+                                        return new Contacts(jsApi, activity);
+                                    }
+                                }));
             } catch(IOException e) {
                 Log.w(TAG, "Failed to read JS API file: " + Contacts.JS_API_PATH);
             }
@@ -72,7 +91,14 @@ public class BuiltinXWalkExtensions {
                 jsApiContent = getExtensionJSFileContent(
                         context, DeviceCapabilities.JS_API_PATH, true);
                 sBuiltinExtensions.put(DeviceCapabilities.JS_API_PATH,
-                        new DeviceCapabilities(jsApiContent, activity));
+                        new LazyXWalkExtension(DeviceCapabilities.NAME, jsApiContent, activity,
+                                new LazyXWalkExtension.Factory() {
+                                    @Override
+                                    public XWalkExtensionInternal create(
+                                            String jsApi, Activity activity) {
+                                        return new DeviceCapabilities(jsApi, activity);
+                                    }
+                                }));
             } catch(IOException e) {
                 Log.w(TAG, "Failed to read JS API file: " + DeviceCapabilities.JS_API_PATH);
             }
@@ -89,12 +115,18 @@ public class BuiltinXWalkExtensions {
                 Log.w(TAG, "Failed to read JS API file: " + Messaging.JS_API_PATH);
             }
         }
+
+        // Only writes on the first launch after the package got installed or
+        // updated.
+        sJsApiCache.save();
     }
 
 
     private static String getExtensionJSFileContent(Context context, String fileName, boolean fromRaw)
             throws IOException {
-        String result = "";
+        String result = sJsApiCache.get(fileName);
+        if (result != null) return result;
+
         InputStream inputStream = null;
         try {
             if (fromRaw) {
@@ -116,15 +148,13 @@ public class BuiltinXWalkExtensions {
                 AssetManager assetManager = context.getAssets();
                 inputStream = assetManager.open(fileName);
             }
-            int size = inputStream.available();
-            byte[] buffer = new byte[size];
-            inputStream.read(buffer);
-            result = new String(buffer);
+            result = XWalkExtensionJsApiCache.readStream(inputStream);
         } finally {
             if (inputStream != null) {
                 inputStream.close();
             }
         }
+        sJsApiCache.put(fileName, result);
         return result;
     }
 }
@@ -0,0 +1,91 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+
+import org.chromium.base.ActivityState;
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.ThreadUtils;
+import org.xwalk.core.internal.XWalkExtensionInternal;
+
+import android.app.Activity;
+
+/**
+ * Registers an extension by name and JavaScript API only, and creates the
+ * real extension object the first time JavaScript sends it a message.
+ * Only extensions which do nothing until JavaScript sends them a message can
+ * be created lazily.
+ *
+ * Creating the real extension binds the native extension to it, so that
+ * instances created afterwards talk to it directly. Instances created before
+ * keep routing through this object, hence every message is forwarded.
+ */
+class LazyXWalkExtension extends XWalkExtensionInternal {
+    interface Factory {
+        XWalkExtensionInternal create(String jsApi, Activity activity);
+    }
+
+    private final String mJsApi;
+    private final WeakReference<Activity> mActivity;
+    private final Factory mFactory;
+    // Written on the UI thread while getExtension() holds the lock.
+    private XWalkExtensionInternal mExtension;
+
+    LazyXWalkExtension(String name, String jsApi, Activity activity, Factory factory) {
+        super(name, jsApi);
+        mJsApi = jsApi;
+        mActivity = new WeakReference<Activity>(activity);
+        mFactory = factory;
+    }
+
+    private synchronized XWalkExtensionInternal getExtension() {
+        if (mExtension != null) return mExtension;
+
+        final Activity activity = mActivity.get();
+        if (activity == null) return null;
+
+        // Messages arrive on the extension thread, which has no Looper.
+        // Extensions create Handlers and register listeners bound to the
+        // Looper of the creating thread, so create them on the UI thread as
+        // the eagerly created ones are.
+        ThreadUtils.runOnUiThreadBlocking(new Runnable() {
+            @Override
+            public void run() {
+                mExtension = mFactory.create(mJsApi, activity);
+                // The activity state listener is registered after the activity
+                // got resumed, replay it so that resume-time registrations
+                // still happen.
+                if (mExtension instanceof XWalkExtensionWithActivityStateListener &&
+                        ApplicationStatus.getStateForActivity(activity) ==
+                                ActivityState.RESUMED) {
+                    ((XWalkExtensionWithActivityStateListener) mExtension)
+                            .onActivityStateChange(activity, ActivityState.RESUMED);
+                }
+            }
+        });
+        return mExtension;
+    }
+
+    @Override
+    public void onMessage(int instanceID, String message) {
+        XWalkExtensionInternal extension = getExtension();
+        if (extension != null) extension.onMessage(instanceID, message);
+    }
+
+    @Override
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        XWalkExtensionInternal extension = getExtension();
+        if (extension != null) extension.onBinaryMessage(instanceID, message);
+    }
+
+    @Override
+    public String onSyncMessage(int instanceID, String message) {
+        XWalkExtensionInternal extension = getExtension();
+        if (extension == null) return null;
+        return extension.onSyncMessage(instanceID, message);
+    }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Sends a large result to JavaScript in bounded chunks instead of a single
+ * message, so that neither side holds the whole result as one string and the
+ * renderer parses it a piece at a time.
+ *
+ * Items are added as they are produced and sent every chunkSize items.
+ * Subclasses build the reply of each chunk, usually the regular reply of the
+ * command with a flag telling JavaScript more chunks follow. A reply is
+ * always sent by finish(), even if no item was added. If the command fails
+ * before that, abort() sends an error instead, so that JavaScript settles the
+ * call rather than waiting for more chunks. Calling abort() in a finally
+ * block after finish() covers both cases.
+ *
+ * Not thread safe, a reply is meant to be filled by the thread running the
+ * command.
+ */
+public abstract class XWalkExtensionChunkedReply {
+    private static final String TAG = "XWalkExtensionChunkedReply";
+
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    private final int mChunkSize;
+    private JSONArray mItems = new JSONArray();
+    private boolean mFinished;
+
+    public XWalkExtensionChunkedReply() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public XWalkExtensionChunkedReply(int chunkSize) {
+        mChunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Send the items of one chunk.
+     * @param items the items, at most chunkSize of them.
+     * @param last whether this is the last chunk of the result.
+     */
+    protected abstract void send(JSONArray items, boolean last) throws JSONException;
+
+    /**
+     * Send the error ending a result cut short. Chunks sent before stay
+     * delivered.
+     */
+    protected abstract void sendError(String error) throws JSONException;
+
+    public void add(Object item) throws JSONException {
+        if (mFinished) throw new IllegalStateException("The reply is already finished");
+        mItems.put(item);
+        if (mItems.length() < mChunkSize) return;
+
+        JSONArray items = mItems;
+        mItems = new JSONArray();
+        send(items, false);
+    }
+
+    /**
+     * Send the remaining items as the last chunk.
+     */
+    public void finish() throws JSONException {
+        if (mFinished) return;
+        send(mItems, true);
+        mFinished = true;
+        mItems = null;
+    }
+
+    /**
+     * End the result with an error, unless it is already finished.
+     */
+    public void abort(String error) {
+        if (mFinished) return;
+        mFinished = true;
+        mItems = null;
+        try {
+            sendError(error);
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to send the error: " + e.toString());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Routes the JSON messages of an extension to per-command handlers.
+ *
+ * A message is a JSON object with a command field, e.g.
+ * {"cmd": "find", "asyncCallId": 3, "options": {...}}. Only its top level is
+ * read: primitives are kept as plain values and nested objects and arrays as
+ * their JSON text, parsed into org.json trees only when a handler asks for
+ * one. Handlers passing them on as strings never build a tree. A JSONObject
+ * view of the whole message is built on demand for handlers still working on
+ * one.
+ */
+public class XWalkExtensionCommandRouter {
+    private static final String TAG = "XWalkExtensionCommandRouter";
+    private static final String DEFAULT_COMMAND_KEY = "cmd";
+
+    /**
+     * Handles one command, called on the thread routing the message. A
+     * JSONException thrown for missing or mistyped arguments is logged, as is
+     * any other exception, so that a failing handler doesn't take down the
+     * thread delivering the messages.
+     */
+    public interface CommandHandler {
+        void handle(int instanceID, Arguments args) throws JSONException;
+    }
+
+    // A nested object or array not parsed yet.
+    private static class RawValue {
+        final String mText;
+
+        RawValue(String text) {
+            mText = text;
+        }
+
+        @Override
+        public String toString() {
+            return mText;
+        }
+    }
+
+    /**
+     * The fields of a parsed message.
+     */
+    public static class Arguments {
+        private final String mCommand;
+        private final HashMap<String, Object> mValues;
+        private JSONObject mJSONObject;
+
+        private Arguments(String command, HashMap<String, Object> values) {
+            mCommand = command;
+            mValues = values;
+        }
+
+        public String getCommand() {
+            return mCommand;
+        }
+
+        public boolean has(String name) {
+            return mValues.containsKey(name);
+        }
+
+        /**
+         * Return the field as a string. Numbers and booleans are converted,
+         * nested objects and arrays are returned as their JSON text.
+         */
+        public String getString(String name) throws JSONException {
+            Object value = get(name);
+            return value instanceof String ? (String) value : value.toString();
+        }
+
+        /**
+         * Same as getString(), but return null if the field is missing.
+         */
+        public String optString(String name) {
+            Object value = mValues.get(name);
+            if (value == null) return null;
+            return value instanceof String ? (String) value : value.toString();
+        }
+
+        public int getInt(String name) throws JSONException {
+            Object value = get(name);
+            if (value instanceof Number) return ((Number) value).intValue();
+            try {
+                return Integer.parseInt((String) value);
+            } catch (RuntimeException e) {
+                throw new JSONException(name + " is not an int");
+            }
+        }
+
+        public JSONObject getJSONObject(String name) throws JSONException {
+            Object value = resolve(name, get(name));
+            if (value instanceof JSONObject) return (JSONObject) value;
+            throw new JSONException(name + " is not a JSONObject");
+        }
+
+        public JSONObject optJSONObject(String name) {
+            Object value = mValues.get(name);
+            if (value == null) return null;
+            try {
+                value = resolve(name, value);
+            } catch (JSONException e) {
+                return null;
+            }
+            return value instanceof JSONObject ? (JSONObject) value : null;
+        }
+
+        public JSONArray getJSONArray(String name) throws JSONException {
+            Object value = resolve(name, get(name));
+            if (value instanceof JSONArray) return (JSONArray) value;
+            throw new JSONException(name + " is not a JSONArray");
+        }
+
+        /**
+         * Return the whole message as a JSONObject. The nested values are
+         * shared, not copied.
+         */
+        public JSONObject toJSONObject() {
+            if (mJSONObject != null) return mJSONObject;
+
+            mJSONObject = new JSONObject();
+            for (Map.Entry<String, Object> entry : mValues.entrySet()) {
+                try {
+                    mJSONObject.put(entry.getKey(), resolve(entry.getKey(), entry.getValue()));
+                } catch (JSONException e) {
+                    Log.e(TAG, "Malformed value for " + entry.getKey() + ": " + e);
+                }
+            }
+            return mJSONObject;
+        }
+
+        // Parse a nested object or array on first use and keep the tree.
+        private Object resolve(String name, Object value) throws JSONException {
+            if (!(value instanceof RawValue)) return value;
+            Object parsed = new JSONTokener(((RawValue) value).mText).nextValue();
+            mValues.put(name, parsed);
+            return parsed;
+        }
+
+        private Object get(String name) throws JSONException {
+            Object value = mValues.get(name);
+            if (value == null) throw new JSONException("No value for " + name);
+            return value;
+        }
+    }
+
+    private final String mCommandKey;
+    private final HashMap<String, CommandHandler> mHandlers =
+            new HashMap<String, CommandHandler>();
+
+    public XWalkExtensionCommandRouter() {
+        this(DEFAULT_COMMAND_KEY);
+    }
+
+    public XWalkExtensionCommandRouter(String commandKey) {
+        mCommandKey = commandKey;
+    }
+
+    public XWalkExtensionCommandRouter register(String command, CommandHandler handler) {
+        mHandlers.put(command, handler);
+        return this;
+    }
+
+    public boolean hasHandler(String command) {
+        return command != null && mHandlers.containsKey(command);
+    }
+
+    /**
+     * Parse the message and run the handler registered for its command.
+     * @return false if the message is malformed or the command is unknown.
+     */
+    public boolean route(int instanceID, String message) {
+        Arguments args = parse(message);
+        if (args == null) return false;
+
+        CommandHandler handler =
+                args.getCommand() == null ? null : mHandlers.get(args.getCommand());
+        if (handler == null) {
+            Log.w(TAG, "Unexpected command: " + args.getCommand());
+            return false;
+        }
+
+        try {
+            handler.handle(instanceID, args);
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid arguments for " + args.getCommand() + ": " + e);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to handle " + args.getCommand(), e);
+        }
+        return true;
+    }
+
+    /**
+     * Parse the message without routing it.
+     * @return the arguments, or null if the message isn't a JSON object.
+     */
+    public Arguments parse(String message) {
+        if (message == null || message.isEmpty()) return null;
+
+        JSONTokener tokener = new JSONTokener(message);
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        String command = null;
+        try {
+            if (tokener.nextClean() != '{') throw tokener.syntaxError("Expected an object");
+            char c = tokener.nextClean();
+            if (c != '}') {
+                tokener.back();
+                do {
+                    Object name = tokener.nextValue();
+                    if (!(name instanceof String)) {
+                        throw tokener.syntaxError("Expected a name but was " + name);
+                    }
+                    if (tokener.nextClean() != ':') throw tokener.syntaxError("Expected ':'");
+                    Object value = readValue(tokener);
+                    if (name.equals(mCommandKey) && value instanceof String) {
+                        command = (String) value;
+                    }
+                    values.put((String) name, value);
+                    c = tokener.nextClean();
+                } while (c == ',');
+                if (c != '}') throw tokener.syntaxError("Unterminated object");
+            }
+            if (tokener.nextClean() != 0) {
+                throw tokener.syntaxError("Unexpected data after the object");
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Malformed message: " + e);
+            return null;
+        }
+        return new Arguments(command, values);
+    }
+
+    private static Object readValue(JSONTokener tokener) throws JSONException {
+        char c = tokener.nextClean();
+        if (c == '"' || c == '\'') return tokener.nextString(c);
+        if (c != '{' && c != '[') {
+            tokener.back();
+            return tokener.nextValue();
+        }
+
+        // Only find the end of the nested value, its content is checked when
+        // it gets parsed.
+        StringBuilder text = new StringBuilder();
+        text.append(c);
+        int depth = 1;
+        while (depth > 0) {
+            c = tokener.next();
+            if (c == 0) throw tokener.syntaxError("Unterminated nested value");
+            text.append(c);
+            if (c == '"' || c == '\'') {
+                char quote = c;
+                do {
+                    c = tokener.next();
+                    if (c == 0) throw tokener.syntaxError("Unterminated string");
+                    text.append(c);
+                    if (c == '\\') {
+                        text.append(tokener.next());
+                        c = 0;
+                    }
+                } while (c != quote);
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        }
+        return new RawValue(text.toString());
+    }
+}
@@ -0,0 +1,168 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension;
+
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.xwalk.core.internal.extensions.XWalkExtensionAndroid;
+
+/**
+ * Runs extension message handlers on a bounded thread pool shared by all
+ * extensions, so that a slow handler doesn't stall the other extensions.
+ *
+ * Messages for the same extension instance are always handled in the order
+ * they were received. An extension declares how much concurrency it can take:
+ * - THREAD_SAFE: different instances are handled concurrently.
+ * - SINGLE_THREADED: all instances are handled one message at a time, but
+ *   still off the thread delivering the messages.
+ *
+ * Handlers run on a worker thread, results can be posted from there. Tasks
+ * dispatched from onMessage() count as part of the message handling in the
+ * extension messaging metrics.
+ */
+public class XWalkExtensionMessageDispatcher {
+    private static final String TAG = "XWalkExtensionMessageDispatcher";
+
+    public static final int THREAD_SAFE = 0;
+    public static final int SINGLE_THREADED = 1;
+
+    private static final int DEFAULT_POOL_SIZE =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadFactory sThreadFactory = new ThreadFactory() {
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "XWalkExtension #" + mCount.getAndIncrement());
+        }
+    };
+
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), sThreadFactory);
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Set the number of worker threads shared by all extensions.
+     */
+    public static void setPoolSize(int size) {
+        if (size < 1) {
+            Log.w(TAG, "Invalid pool size: " + size);
+            return;
+        }
+        synchronized (sExecutor) {
+            if (size > sExecutor.getMaximumPoolSize()) {
+                sExecutor.setMaximumPoolSize(size);
+                sExecutor.setCorePoolSize(size);
+            } else {
+                sExecutor.setCorePoolSize(size);
+                sExecutor.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    // Runs the tasks of one instance (or of the whole extension when it is
+    // single threaded) one after the other on the shared pool.
+    private class SerialQueue implements Runnable {
+        private final int mInstanceID;
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<Runnable>();
+        private boolean mScheduled;
+
+        SerialQueue(int instanceID) {
+            mInstanceID = instanceID;
+        }
+
+        synchronized void enqueue(Runnable task) {
+            mTasks.offer(task);
+            if (!mScheduled) {
+                mScheduled = true;
+                sExecutor.execute(this);
+            }
+        }
+
+        synchronized boolean isIdle() {
+            return !mScheduled;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = mTasks.poll();
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Uncaught exception in extension message handler", e);
+            }
+
+            synchronized (this) {
+                // Reschedule instead of looping so that busy instances don't
+                // starve the others.
+                if (!mTasks.isEmpty()) {
+                    sExecutor.execute(this);
+                    return;
+                }
+                mScheduled = false;
+            }
+            onQueueDrained(this);
+        }
+    }
+
+    private final int mThreadingModel;
+    private final SerialQueue mExtensionQueue = new SerialQueue(-1);
+    private final SparseArray<SerialQueue> mInstanceQueues = new SparseArray<SerialQueue>();
+
+    public XWalkExtensionMessageDispatcher(int threadingModel) {
+        mThreadingModel = threadingModel;
+    }
+
+    /**
+     * Run the task for the given instance on the shared pool, after all the
+     * tasks previously dispatched for the same instance.
+     */
+    public void dispatch(int instanceID, Runnable task) {
+        task = XWalkExtensionAndroid.deferMessageTiming(task);
+
+        if (mThreadingModel == SINGLE_THREADED) {
+            mExtensionQueue.enqueue(task);
+            return;
+        }
+
+        synchronized (mInstanceQueues) {
+            SerialQueue queue = mInstanceQueues.get(instanceID);
+            if (queue == null) {
+                queue = new SerialQueue(instanceID);
+                mInstanceQueues.put(instanceID, queue);
+            }
+            queue.enqueue(task);
+        }
+    }
+
+    // Drop the queues of idle instances so that finished instances don't pile up.
+    private void onQueueDrained(SerialQueue queue) {
+        if (queue == mExtensionQueue) return;
+
+        synchronized (mInstanceQueues) {
+            if (queue.isIdle() && mInstanceQueues.get(queue.mInstanceID) == queue) {
+                mInstanceQueues.remove(queue.mInstanceID);
+            }
+        }
+    }
+}
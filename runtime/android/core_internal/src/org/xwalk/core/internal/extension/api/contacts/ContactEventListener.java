@@ -25,6 +25,8 @@ import org.json.JSONObject;
  */
 public class ContactEventListener extends ContentObserver {
     private static final String TAG = "ContactsEventListener";
+    // Topic of the coalesced change events.
+    static final String CHANGE_TOPIC = "contactschange";
 
     private final Contacts mContacts;
     private final ContentResolver mResolver;
@@ -97,9 +99,11 @@ public class ContactEventListener extends ContentObserver {
         if (outObject == null || outObject.length() == 0) return;
         try {
             JSONObject jsonOutput = new JSONObject();
-            jsonOutput.put("reply", "contactschange");
+            jsonOutput.put("reply", CHANGE_TOPIC);
             jsonOutput.put("data", outObject);
-            mContacts.broadcastMessage(jsonOutput.toString());
+            // A contact sync fires bursts of changes, merge them into a single
+            // event per interval, see mergeChanges().
+            mContacts.broadcastCoalescedMessage(CHANGE_TOPIC, jsonOutput.toString());
         } catch (JSONException e) {
             Log.e(TAG, "notifyContactChanged: " + e.toString());
         }
@@ -201,4 +205,61 @@ public class ContactEventListener extends ContentObserver {
 
         return contactIDs;
     }
+
+    /**
+     * Merge two pending change events into one. A contact added then removed
+     * is only reported as removed, and conversely.
+     */
+    static String mergeChanges(String pendingMessage, String message) {
+        try {
+            JSONObject pending = new JSONObject(pendingMessage).getJSONObject("data");
+            JSONObject latest = new JSONObject(message).getJSONObject("data");
+
+            HashSet<String> added = getIDs(pending, "added");
+            HashSet<String> removed = getIDs(pending, "removed");
+            HashSet<String> modified = getIDs(pending, "modified");
+            HashSet<String> latestAdded = getIDs(latest, "added");
+            HashSet<String> latestRemoved = getIDs(latest, "removed");
+
+            added.removeAll(latestRemoved);
+            added.addAll(latestAdded);
+            removed.removeAll(latestAdded);
+            removed.addAll(latestRemoved);
+            modified.addAll(getIDs(latest, "modified"));
+            modified.removeAll(removed);
+
+            JSONObject data = new JSONObject();
+            putIDs(data, "added", added);
+            putIDs(data, "removed", removed);
+            putIDs(data, "modified", modified);
+
+            JSONObject jsonOutput = new JSONObject();
+            jsonOutput.put("reply", CHANGE_TOPIC);
+            jsonOutput.put("data", data);
+            return jsonOutput.toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "mergeChanges: " + e.toString());
+            return message;
+        }
+    }
+
+    private static HashSet<String> getIDs(JSONObject data, String name) throws JSONException {
+        HashSet<String> ids = new HashSet<String>();
+        JSONArray array = data.optJSONArray(name);
+        if (array == null) return ids;
+        for (int i = 0; i < array.length(); i++) {
+            ids.add(array.getString(i));
+        }
+        return ids;
+    }
+
+    private static void putIDs(JSONObject data, String name, HashSet<String> ids)
+            throws JSONException {
+        if (ids.isEmpty()) return;
+        JSONArray array = new JSONArray();
+        for (String id : ids) {
+            array.put(id);
+        }
+        data.put(name, array);
+    }
 }
@@ -26,6 +26,7 @@ import android.util.Pair;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,8 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import org.xwalk.core.internal.extension.XWalkExtensionChunkedReply;
+
 /**
  * This class searches contacts by given options.
  */
@@ -222,8 +225,8 @@ public class ContactFinder {
     }
 
     //TODO(hdq): Currently this function doesn't support multi-column sorting.
-    private JSONArray getContacts(
-            Set<String> contactIds, String sortOrder, String sortByMimeType, Long resultsLimit) {
+    private void getContacts(Set<String> contactIds, String sortOrder, String sortByMimeType,
+            Long resultsLimit, XWalkExtensionChunkedReply reply) throws JSONException {
         // Get all records of given contactIds.
         // For example, sort by ascending:
         // -----------------------------
@@ -324,7 +327,7 @@ public class ContactFinder {
         } catch (Exception e) {
             if (e instanceof NumberFormatException || e instanceof SecurityException) {
                 Log.e(TAG, "getContacts: " + e.toString());
-                return new JSONArray();
+                return;
             } else {
                 throw new RuntimeException(e);
             }
@@ -332,14 +335,16 @@ public class ContactFinder {
             if (c != null) c.close();
         }
 
+        // Contacts are only turned into JSON as they are sent, and dropped
+        // once added to the reply.
         int i = 0;
-        JSONArray returnArray = new JSONArray();
-        for (Map.Entry<Long, ContactData> entry : dataMap.entrySet()) {
+        for (Iterator<Map.Entry<Long, ContactData>> it = dataMap.entrySet().iterator();
+                it.hasNext();) {
             if (resultsLimit != null && ++i > resultsLimit) break;
-            JSONObject o = entry.getValue().ensurePut(entry.getKey());
-            returnArray.put(o);
+            Map.Entry<Long, ContactData> entry = it.next();
+            reply.add(entry.getValue().ensurePut(entry.getKey()));
+            it.remove();
         }
-        return returnArray;
     }
 
     private FindOption createFindIDOption(String findString) {
@@ -382,9 +387,13 @@ public class ContactFinder {
         }
     }
 
-    public JSONArray find(String findString) {
+    /**
+     * Add the contacts matching the given options to the reply, which is left
+     * to the caller to finish.
+     */
+    public void find(String findString, XWalkExtensionChunkedReply reply) throws JSONException {
         Set<String> ids = getContactIds(createFindIDOption(findString));
-        if (ids == null) return new JSONArray();
+        if (ids == null) return;
         ContactJson findJson = new ContactJson(findString);
         List<String> sortBy = findJson.getStringArray("sortBy");
         String order = getSortOrder(sortBy, findJson.getString("sortOrder"));
@@ -392,6 +401,6 @@ public class ContactFinder {
                 ContactConstants.contactDataMap.get(sortBy.get(0)).second;
         String resultsLimit = findJson.getString("resultsLimit");
         Long resultsLimitLong = (resultsLimit == null) ? null : Long.valueOf(resultsLimit);
-        return getContacts(ids, order, orderMimeType, resultsLimitLong);
+        getContacts(ids, order, orderMimeType, resultsLimitLong, reply);
     }
 }
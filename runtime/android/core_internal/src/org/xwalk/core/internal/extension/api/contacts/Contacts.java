@@ -17,23 +17,105 @@ import android.provider.ContactsContract;
 import android.provider.ContactsContract.RawContacts;
 import android.util.Log;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import org.chromium.base.ActivityState;
+import org.chromium.base.ThreadUtils;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import org.xwalk.core.internal.extension.XWalkExtensionChunkedReply;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.CommandHandler;
+import org.xwalk.core.internal.extension.XWalkExtensionMessageDispatcher;
 import org.xwalk.core.internal.extension.XWalkExtensionWithActivityStateListener;
+import org.xwalk.extensions.common.XWalkExtensionCodec;
+import org.xwalk.extensions.common.XWalkExtensionCodecs;
 
 public class Contacts extends XWalkExtensionWithActivityStateListener {
     public static final String JS_API_PATH = "jsapi/contacts_api.js";
 
     private static final String TAG = "Contacts";
-    private static final String NAME = "xwalk.experimental.contacts";
+    public static final String NAME = "xwalk.experimental.contacts";
+
+    // The find results, as built by ContactFinder. Typed values are the
+    // emails, urls, addresses, phone numbers and impp entries.
+    public static final String FIND_RESULT_SCHEMA;
+    static {
+        String typedValues = "[{\"preferred\": \"\", \"types\": [\"\"], \"value\": \"\"}]";
+        FIND_RESULT_SCHEMA = "{\"asyncCallId\": \"\", \"data\": [{" +
+                "\"id\": \"\", " +
+                "\"name\": {\"displayName\": \"\", \"honorificPrefixes\": \"\", " +
+                "\"givenNames\": \"\", \"additionalNames\": \"\", " +
+                "\"familyNames\": \"\", \"honorificSuffixes\": \"\", " +
+                "\"nicknames\": \"\"}, " +
+                "\"lastUpdated\": \"\", \"emails\": " + typedValues + ", " +
+                "\"photos\": \"\", \"urls\": " + typedValues + ", " +
+                "\"categories\": \"\", \"addresses\": " + typedValues + ", " +
+                "\"phoneNumbers\": " + typedValues + ", \"organizations\": \"\", " +
+                "\"jobTitles\": \"\", \"birthday\": \"\", \"notes\": \"\", " +
+                "\"impp\": " + typedValues + ", \"anniversary\": \"\", " +
+                "\"gender\": \"\"}], \"chunk\": \"\", \"more\": \"\"}";
+    }
+
+    // Find results are sent in binary without their field names, the other
+    // replies are small and stay JSON.
+    public static final XWalkExtensionCodecs CODECS = createCodecs();
+
+    private final XWalkExtensionCodecs.MessageSink mSink = new XWalkExtensionCodecs.MessageSink() {
+        @Override
+        public void postMessage(int instanceID, String message) {
+            Contacts.this.postMessage(instanceID, message);
+        }
+
+        @Override
+        public void postBinaryMessage(int instanceID, ByteBuffer message) {
+            Contacts.this.postBinaryMessage(instanceID, message);
+        }
+    };
 
     private final ContactEventListener mObserver;
     private final ContentResolver mResolver;
+    // Contacts queries can be slow, run them on the dispatcher rather than on
+    // the extension thread delivering the messages. Each command works on its
+    // own objects, so instances can be served concurrently.
+    private final XWalkExtensionMessageDispatcher mDispatcher =
+            new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+    private final XWalkExtensionCommandRouter mRouter = createRouter();
+
+    // Find results are sent as several replies of the same call, flagged with
+    // "chunk" and all but the last one with "more". A failed find ends with a
+    // plain error reply.
+    private class FindReply extends XWalkExtensionChunkedReply {
+        private final int mInstanceID;
+        private final String mAsyncCallId;
+
+        FindReply(int instanceID, Arguments args) throws JSONException {
+            mInstanceID = instanceID;
+            mAsyncCallId = args.getString("asyncCallId");
+        }
+
+        @Override
+        protected void send(JSONArray items, boolean last) throws JSONException {
+            JSONObject jsonOutput = new JSONObject();
+            jsonOutput.put("asyncCallId", mAsyncCallId);
+            jsonOutput.put("data", items);
+            jsonOutput.put("chunk", true);
+            if (!last) jsonOutput.put("more", true);
+            CODECS.post(mSink, mInstanceID, "find", jsonOutput);
+        }
+
+        @Override
+        protected void sendError(String error) throws JSONException {
+            JSONObject jsonOutput = new JSONObject();
+            jsonOutput.put("asyncCallId", mAsyncCallId);
+            jsonOutput.put("data", new JSONObject().put("error", error));
+            mSink.postMessage(mInstanceID, jsonOutput.toString());
+        }
+    }
 
     public Contacts(String jsApiContent, Activity activity) {
         super(NAME, jsApiContent, activity);
@@ -49,30 +131,66 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
     }
 
     @Override
-    public void onMessage(int instanceID, String message) {
+    public String onCoalesceMessages(String topic, String pendingMessage, String message) {
+        if (ContactEventListener.CHANGE_TOPIC.equals(topic)) {
+            return ContactEventListener.mergeChanges(pendingMessage, message);
+        }
+        return message;
+    }
+
+    @Override
+    public void onMessage(final int instanceID, final String message) {
         if (message.isEmpty()) return;
-        try {
-            JSONObject jsonInput = new JSONObject(message);
-            String cmd = jsonInput.getString("cmd");
-            if (cmd.equals("addEventListener")) {
-                mObserver.startListening();
-                return;
+        mDispatcher.dispatch(instanceID, new Runnable() {
+            @Override
+            public void run() {
+                mRouter.route(instanceID, message);
             }
-            JSONObject jsonOutput = new JSONObject();
-            jsonOutput.put("asyncCallId", jsonInput.getString("asyncCallId"));
-            if (cmd.equals("save")) {
+        });
+    }
+
+    private XWalkExtensionCommandRouter createRouter() {
+        XWalkExtensionCommandRouter router = new XWalkExtensionCommandRouter();
+        router.register("addEventListener", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) {
+                // The observer state is owned by the UI thread, where its
+                // change notifications are delivered.
+                ThreadUtils.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        mObserver.startListening();
+                    }
+                });
+            }
+        });
+        router.register("save", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
                 ContactSaver saver = new ContactSaver(mResolver);
-                jsonOutput.put("data", saver.save(jsonInput.getString("contact")));
-            } else if (cmd.equals("find")) {
+                postResult(instanceID, args, saver.save(args.getString("contact")));
+            }
+        });
+        router.register("find", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
                 ContactFinder finder = new ContactFinder(mResolver);
-                String options = jsonInput.has("options") ? jsonInput.getString("options") : null;
-                JSONArray results = finder.find(options);
-                jsonOutput.put("data", results);
-            } else if (cmd.equals("remove")) {
+                FindReply reply = new FindReply(instanceID, args);
+                try {
+                    finder.find(args.optString("options"), reply);
+                    reply.finish();
+                } finally {
+                    reply.abort("Failed to find contacts");
+                }
+            }
+        });
+        router.register("remove", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
                 ArrayList<ContentProviderOperation> ops = new ArrayList<ContentProviderOperation>();
-                String[] args = new String[] { jsonInput.getString("contactId") };
+                String[] selection = new String[] { args.getString("contactId") };
                 ops.add(ContentProviderOperation.newDelete(RawContacts.CONTENT_URI)
-                        .withSelection(RawContacts.CONTACT_ID + "=?", args).build());
+                        .withSelection(RawContacts.CONTACT_ID + "=?", selection).build());
                 try {
                     mResolver.applyBatch(ContactsContract.AUTHORITY, ops);
                 } catch (Exception e) {
@@ -85,16 +203,34 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
                         throw new RuntimeException(e);
                     }
                 }
-            } else if (cmd.equals("clear")) {
+                postResult(instanceID, args, null);
+            }
+        });
+        router.register("clear", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
                 handleClear();
-            } else {
-                Log.e(TAG, "Unexpected message received: " + message);
-                return;
+                postResult(instanceID, args, null);
             }
-            this.postMessage(instanceID, jsonOutput.toString());
+        });
+        return router;
+    }
+
+    private static XWalkExtensionCodecs createCodecs() {
+        XWalkExtensionCodecs codecs = new XWalkExtensionCodecs();
+        try {
+            codecs.register("find", XWalkExtensionCodec.withSchema(FIND_RESULT_SCHEMA));
         } catch (JSONException e) {
-            Log.e(TAG, e.toString());
+            Log.e(TAG, "Invalid find result schema: " + e.toString());
         }
+        return codecs;
+    }
+
+    private void postResult(int instanceID, Arguments args, Object data) throws JSONException {
+        JSONObject jsonOutput = new JSONObject();
+        jsonOutput.put("asyncCallId", args.getString("asyncCallId"));
+        if (data != null) jsonOutput.put("data", data);
+        CODECS.post(mSink, instanceID, args.getCommand(), jsonOutput);
     }
 
     // Remove all contacts.
@@ -17,14 +17,16 @@ var g_listeners = [];
 g_listeners[0] = null;
 var g_next_listener_id = 1;
 
-function AsyncCall(resolve, reject) {
+function AsyncCall(resolve, reject, onchunk) {
   this.resolve = resolve;
   this.reject = reject;
+  this.onchunk = onchunk;
+  this.items = [];
 }
 
-function createPromise(msg) {
+function createPromise(msg, onchunk) {
   var promise = new Promise(function(resolve, reject) {
-    g_async_calls[g_next_async_call_id] = new AsyncCall(resolve, reject);
+    g_async_calls[g_next_async_call_id] = new AsyncCall(resolve, reject, onchunk);
   });
   msg.asyncCallId = g_next_async_call_id;
   extension.postMessage(JSON.stringify(msg));
@@ -48,8 +50,9 @@ function _createConstClone(obj) {
   return const_obj;
 }
 
-extension.setMessageListener(function(json) {
-  var msg = JSON.parse(json);
+// Find results arrive in binary, see Contacts.CODECS.
+extension.setMessageListener(function(message) {
+  var msg = _xwalkDecodeMessage(message);
 
   if (msg.reply == 'contactschange') {
     for (var id in g_listeners) {
@@ -60,6 +63,24 @@ extension.setMessageListener(function(json) {
     return;
   }
 
+  // Find results come in chunks flagged with "chunk", all but the last one
+  // also with "more". They are either handed to the chunk callback as they
+  // arrive or gathered to resolve the promise at once. A failed find ends
+  // with a regular error reply.
+  if (msg.chunk) {
+    var call = g_async_calls[msg.asyncCallId];
+    if (call.onchunk) {
+      if (msg.data.length) call.onchunk(msg.data);
+    } else {
+      Array.prototype.push.apply(call.items, msg.data);
+    }
+    if (msg.more) return;
+
+    call.resolve(call.onchunk ? undefined : call.items);
+    delete g_async_calls[msg.asyncCallId];
+    return;
+  }
+
   if (msg.data) {
     if (!msg.data.hasOwnProperty("error") || !msg.data.error) {
       g_async_calls[msg.asyncCallId].resolve(msg.data);
@@ -81,11 +102,13 @@ exports.save = function(contact) {
   return createPromise(msg);
 }
 
-exports.find = function(options) {
+// If given, onchunk is called with each chunk of contacts as soon as it
+// arrives and the promise resolves without value once all are delivered.
+exports.find = function(options, onchunk) {
   var msg = {};
   msg['cmd'] = 'find';
   msg['options'] = options;
-  return createPromise(msg);
+  return createPromise(msg, typeof onchunk === 'function' ? onchunk : null);
 };
 
 exports.remove = function(contactId) {
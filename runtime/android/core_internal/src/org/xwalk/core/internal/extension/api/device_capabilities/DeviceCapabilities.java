@@ -9,6 +9,10 @@ import android.content.Context;
 import android.provider.ContactsContract;
 import android.util.Log;
 
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.CommandHandler;
+import org.xwalk.core.internal.extension.XWalkExtensionMessageDispatcher;
 import org.xwalk.core.internal.extension.XWalkExtensionWithActivityStateListener;
 
 import org.chromium.base.ActivityState;
@@ -19,13 +23,22 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
     public static final String JS_API_PATH = "jsapi/device_capabilities_api.js";
 
     private static final String TAG = "DeviceCapabilities";
-    private static final String NAME = "xwalk.experimental.system";
+    public static final String NAME = "xwalk.experimental.system";
 
     private DeviceCapabilitiesCPU mCPU;
     private DeviceCapabilitiesCodecs mCodecs;
     private DeviceCapabilitiesDisplay mDisplay;
     private DeviceCapabilitiesMemory mMemory;
+    private DeviceCapabilitiesMonitor mMonitor;
     private DeviceCapabilitiesStorage mStorage;
+    // Gathering the CPU, codecs and memory info may block, e.g. measuring the
+    // CPU load takes a second. Those sub-modules keep per-query state, so they
+    // are queried one at a time on the dispatcher rather than on the extension
+    // thread delivering the messages. Display and storage info is cheap and
+    // answered on the extension thread.
+    private final XWalkExtensionMessageDispatcher mDispatcher =
+            new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.SINGLE_THREADED);
+    private final XWalkExtensionCommandRouter mRouter = createRouter();
 
     public DeviceCapabilities(String jsApiContent, Activity activity) {
         super(NAME, jsApiContent, activity);
@@ -36,40 +49,95 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
         mCodecs = new DeviceCapabilitiesCodecs(this);
         mDisplay = new DeviceCapabilitiesDisplay(this, context);
         mMemory = new DeviceCapabilitiesMemory(this, context);
+        mMonitor = new DeviceCapabilitiesMonitor(this, mMemory);
         mStorage = new DeviceCapabilitiesStorage(this, activity);
     }
 
-    private void handleMessage(int instanceID, String message) {
-        try {
-            JSONObject jsonInput = new JSONObject(message);
-            String cmd = jsonInput.getString("cmd");
-
-            if (cmd.equals("addEventListener")) {
-                String eventName = jsonInput.getString("eventName");
-                handleAddEventListener(eventName);
-            } else {
-                String asyncCallId = jsonInput.getString("asyncCallId");
-                handleGetDeviceInfo(instanceID, asyncCallId, cmd);
+    // Answers a get*Info command with the info of one sub-module. Blocking
+    // queries go through the dispatcher.
+    private abstract class InfoCommand implements CommandHandler {
+        private final boolean mBlocking;
+
+        InfoCommand(boolean blocking) {
+            mBlocking = blocking;
+        }
+
+        abstract JSONObject getInfo();
+
+        @Override
+        public void handle(final int instanceID, Arguments args) throws JSONException {
+            final String asyncCallId = args.getString("asyncCallId");
+            if (!mBlocking) {
+                postInfo(instanceID, asyncCallId, getInfo());
+                return;
             }
-        } catch (JSONException e) {
-            printErrorMessage(e);
+
+            mDispatcher.dispatch(instanceID, new Runnable() {
+                @Override
+                public void run() {
+                    postInfo(instanceID, asyncCallId, getInfo());
+                }
+            });
         }
     }
 
-    private void handleGetDeviceInfo(int instanceID, String asyncCallId, String cmd) {
+    private XWalkExtensionCommandRouter createRouter() {
+        XWalkExtensionCommandRouter router = new XWalkExtensionCommandRouter();
+        router.register("addEventListener", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
+                handleAddEventListener(args.getString("eventName"));
+            }
+        });
+        router.register("startMonitor", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) throws JSONException {
+                mMonitor.start(instanceID, args.getInt("interval"));
+            }
+        });
+        router.register("stopMonitor", new CommandHandler() {
+            @Override
+            public void handle(int instanceID, Arguments args) {
+                mMonitor.stop(instanceID);
+            }
+        });
+        router.register("getCPUInfo", new InfoCommand(true) {
+            @Override
+            JSONObject getInfo() {
+                return mCPU.getInfo();
+            }
+        });
+        router.register("getCodecsInfo", new InfoCommand(true) {
+            @Override
+            JSONObject getInfo() {
+                return mCodecs.getInfo();
+            }
+        });
+        router.register("getDisplayInfo", new InfoCommand(false) {
+            @Override
+            JSONObject getInfo() {
+                return mDisplay.getInfo();
+            }
+        });
+        router.register("getMemoryInfo", new InfoCommand(true) {
+            @Override
+            JSONObject getInfo() {
+                return mMemory.getInfo();
+            }
+        });
+        router.register("getStorageInfo", new InfoCommand(false) {
+            @Override
+            JSONObject getInfo() {
+                return mStorage.getInfo();
+            }
+        });
+        return router;
+    }
+
+    private void postInfo(int instanceID, String asyncCallId, JSONObject info) {
         try {
             JSONObject jsonOutput = new JSONObject();
-            if (cmd.equals("getCPUInfo")) {
-                jsonOutput.put("data", mCPU.getInfo());
-            } else if (cmd.equals("getCodecsInfo")) {
-                jsonOutput.put("data", mCodecs.getInfo());
-            } else if (cmd.equals("getDisplayInfo")) {
-                jsonOutput.put("data", mDisplay.getInfo());
-            } else if (cmd.equals("getMemoryInfo")) {
-                jsonOutput.put("data", mMemory.getInfo());
-            } else if (cmd.equals("getStorageInfo")) {
-                jsonOutput.put("data", mStorage.getInfo());
-            }
+            jsonOutput.put("data", info);
             jsonOutput.put("asyncCallId", asyncCallId);
             this.postMessage(instanceID, jsonOutput.toString());
         } catch (JSONException e) {
@@ -102,7 +170,7 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
     @Override
     public void onMessage(int instanceID, String message) {
         if (!message.isEmpty()) {
-            handleMessage(instanceID, message);
+            mRouter.route(instanceID, message);
         }
     }
 
@@ -118,6 +186,7 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
                 mStorage.onPause();
                 break;
             case ActivityState.DESTROYED:
+                mMonitor.onDestroy();
                 mDisplay.onDestroy();
                 mStorage.onDestroy();
                 break;
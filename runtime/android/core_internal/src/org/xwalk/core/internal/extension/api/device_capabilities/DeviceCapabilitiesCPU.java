@@ -45,49 +45,84 @@ class DeviceCapabilitiesCPU {
         return out;
     }
 
+    /**
+     * Measures the CPU load between consecutive calls without blocking, for
+     * periodic sampling. The first call returns 0. Not thread safe.
+     */
+    static class LoadSampler {
+        private final long[] mStat = new long[2];
+        private long mTotal = 0;
+        private long mUsed = 0;
+
+        double sample() {
+            if (!readStat(mStat)) return 0.0;
+
+            long total = mStat[0] - mTotal;
+            long used = mStat[1] - mUsed;
+            boolean first = mTotal == 0;
+            mTotal = mStat[0];
+            mUsed = mStat[1];
+            if (first || total <= 0) return 0.0;
+            return (double) used / total;
+        }
+    }
+
     /**
      * The algorithm here can be found at:
      * http://stackoverflow.com/questions/3017162/how-to-get-total-cpu-usage-in-linux-c
      */
     private boolean getCPULoad() {
+        long[] stat1 = new long[2];
+        long[] stat2 = new long[2];
+        if (!readStat(stat1)) {
+            mCPULoad = 0.0;
+            return false;
+        }
         try {
-            RandomAccessFile file = new RandomAccessFile(SYSTEM_INFO_STAT_FILE, "r");
-            String line = file.readLine();
+            Thread.sleep(1000);
+        } catch (Exception e) {
+            mCPULoad = 0.0;
+            return false;
+        }
+        if (!readStat(stat2)) {
+            mCPULoad = 0.0;
+            return false;
+        }
 
-            String[] arrs = line.split("\\s+");
-            long total1 = 0;
-            for (int i = 1; i < arrs.length; ++i) {
-                total1 += Long.parseLong(arrs[i]);
-            }
-            // arrs[4] is the time spent in idle tasks.
-            long used1 = total1 - Long.parseLong(arrs[4]);
-            try {
-                Thread.sleep(1000);
-            } catch (Exception e) {
-                mCPULoad = 0.0;
-                return false;
-            }
+        if (stat2[0] == stat1[0]) {
+            mCPULoad = 0.0;
+        } else {
+            mCPULoad = (double) (stat2[1] - stat1[1]) / (stat2[0] - stat1[0]);
+        }
+        return true;
+    }
 
-            file.seek(0);
-            line = file.readLine();
-            file.close();
+    // Reads the total and the non-idle CPU time from the first line of
+    // /proc/stat into stat[0] and stat[1].
+    private static boolean readStat(long[] stat) {
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(SYSTEM_INFO_STAT_FILE, "r");
+            String line = file.readLine();
 
-            arrs = line.split("\\s+");
-            long total2 = 0;
+            String[] arrs = line.split("\\s+");
+            long total = 0;
             for (int i = 1; i < arrs.length; ++i) {
-                total2 += Long.parseLong(arrs[i]);
+                total += Long.parseLong(arrs[i]);
             }
+            stat[0] = total;
             // arrs[4] is the time spent in idle tasks.
-            long used2 = total2 - Long.parseLong(arrs[4]);
-            if (total2 == total1) {
-                mCPULoad = 0.0;
-            } else {
-                mCPULoad = (double) (used2 - used1) / (total2 - total1);
-            }
+            stat[1] = total - Long.parseLong(arrs[4]);
+            return true;
         } catch (IOException e) {
-            mCPULoad = 0.0;
+            Log.e(TAG, e.toString());
             return false;
+        } finally {
+            try {
+                if (file != null) file.close();
+            } catch (IOException e) {
+                Log.e(TAG, e.toString());
+            }
         }
-        return true;
     }
 }
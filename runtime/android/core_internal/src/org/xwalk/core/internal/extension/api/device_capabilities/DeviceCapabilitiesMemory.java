@@ -46,6 +46,16 @@ class DeviceCapabilitiesMemory {
         return out;
     }
 
+    /**
+     * Return the available memory in bytes. The given MemoryInfo is reused,
+     * so that periodic sampling doesn't allocate it each time.
+     */
+    long getAvailableCapacity(MemoryInfo info) {
+        ActivityManager activityManager = (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
+        activityManager.getMemoryInfo(info);
+        return info.availMem;
+    }
+
     private void readMemoryInfo() {
         MemoryInfo mem_info = new MemoryInfo();
         ActivityManager activityManager = (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
@@ -0,0 +1,116 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension.api.device_capabilities;
+
+import android.app.ActivityManager.MemoryInfo;
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the CPU load and the available memory periodically and streams the
+ * samples to JavaScript, instead of answering one message per query.
+ *
+ * Each instance gets its own stream of 24 bytes records: the timestamp in
+ * milliseconds, the CPU load and the available memory in bytes, as native
+ * doubles. Sampling runs on a single background thread.
+ */
+class DeviceCapabilitiesMonitor {
+    private static final String TAG = "DeviceCapabilitiesMonitor";
+    static final int RECORD_SIZE = 24;
+    // About a second of samples at the highest rate.
+    private static final int CAPACITY = 64;
+    private static final int MIN_INTERVAL_MS = 16;
+
+    private class Monitor implements Runnable {
+        final int mStreamID;
+        final DeviceCapabilitiesCPU.LoadSampler mLoadSampler =
+                new DeviceCapabilitiesCPU.LoadSampler();
+        final MemoryInfo mMemoryInfo = new MemoryInfo();
+        ScheduledFuture<?> mFuture;
+        // Guarded by this, the stream memory goes away once it is closed.
+        boolean mClosed;
+
+        Monitor(int streamID) {
+            mStreamID = streamID;
+        }
+
+        @Override
+        public void run() {
+            double load = mLoadSampler.sample();
+            long availCapacity = mMemory.getAvailableCapacity(mMemoryInfo);
+            synchronized (this) {
+                if (mClosed) return;
+                ByteBuffer record = mDeviceCapabilities.beginStreamRecord(mStreamID);
+                if (record == null) return;
+                record.putDouble(0, System.currentTimeMillis());
+                record.putDouble(8, load);
+                record.putDouble(16, availCapacity);
+                mDeviceCapabilities.commitStreamRecord(mStreamID);
+            }
+        }
+    }
+
+    private final DeviceCapabilities mDeviceCapabilities;
+    private final DeviceCapabilitiesMemory mMemory;
+    private final SparseArray<Monitor> mMonitors = new SparseArray<Monitor>();
+    private ScheduledExecutorService mExecutor;
+
+    DeviceCapabilitiesMonitor(DeviceCapabilities instance, DeviceCapabilitiesMemory memory) {
+        mDeviceCapabilities = instance;
+        mMemory = memory;
+    }
+
+    /**
+     * Start streaming samples to the given instance, replacing its previous
+     * stream if any. Called on the extension thread.
+     */
+    synchronized void start(int instanceID, int intervalMs) {
+        stop(instanceID);
+
+        int streamID = mDeviceCapabilities.openStream(instanceID, RECORD_SIZE, CAPACITY);
+        if (streamID < 0) {
+            Log.e(TAG, "Failed to open the monitor stream of instance " + instanceID);
+            return;
+        }
+
+        if (mExecutor == null) mExecutor = Executors.newSingleThreadScheduledExecutor();
+        Monitor monitor = new Monitor(streamID);
+        monitor.mFuture = mExecutor.scheduleAtFixedRate(monitor, 0,
+                Math.max(intervalMs, MIN_INTERVAL_MS), TimeUnit.MILLISECONDS);
+        mMonitors.put(instanceID, monitor);
+    }
+
+    /**
+     * Stop streaming samples to the given instance. Called on the extension
+     * thread.
+     */
+    synchronized void stop(int instanceID) {
+        Monitor monitor = mMonitors.get(instanceID);
+        if (monitor == null) return;
+        mMonitors.remove(instanceID);
+
+        monitor.mFuture.cancel(false);
+        synchronized (monitor) {
+            monitor.mClosed = true;
+        }
+        mDeviceCapabilities.closeStream(monitor.mStreamID);
+
+        if (mMonitors.size() == 0) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+    }
+
+    // Called on the UI thread when the activity goes away.
+    synchronized void onDestroy() {
+        while (mMonitors.size() > 0) stop(mMonitors.keyAt(0));
+    }
+}
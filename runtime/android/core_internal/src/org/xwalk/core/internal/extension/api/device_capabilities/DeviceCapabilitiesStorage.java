@@ -249,7 +249,10 @@ class DeviceCapabilitiesStorage {
             out.put("eventName", "storageattach");
             out.put("data", unit.convertToJSON());
 
-            mDeviceCapabilities.broadcastMessage(out.toString());
+            // Media broadcasts come in bursts, only the last state of each
+            // storage unit is delivered.
+            mDeviceCapabilities.broadcastCoalescedMessage(
+                    getStorageTopic(unit), out.toString());
         } catch (JSONException e) {
             mDeviceCapabilities.printErrorMessage(e);
         }
@@ -269,7 +272,8 @@ class DeviceCapabilitiesStorage {
             out.put("eventName", "storagedetach");
             out.put("data", unit.convertToJSON());
 
-            mDeviceCapabilities.broadcastMessage(out.toString());
+            mDeviceCapabilities.broadcastCoalescedMessage(
+                    getStorageTopic(unit), out.toString());
             mStorageList.remove(unit.getId());
             --mStorageCount;
         } catch (JSONException e) {
@@ -277,6 +281,14 @@ class DeviceCapabilitiesStorage {
         }
     }
 
+    // The attach and detach events of a storage unit share their topic, so
+    // that only its last state is delivered: an attach followed by a detach
+    // within the coalescing interval (50ms) only delivers the detach, and
+    // conversely. Separate topics could deliver them out of order.
+    private static String getStorageTopic(StorageUnit unit) {
+        return "storage:" + unit.getId();
+    }
+
     public void onResume() {
         // Fistly, check the lasted external storage is valid.
         // If not, remove it and send "ondetached" event.
@@ -60,6 +60,89 @@ exports.getStorageInfo = function() {
   return createPromise(msg);
 };
 
+// Samples streamed by startMonitor(), see DeviceCapabilitiesMonitor.java for
+// the record layout.
+var MONITOR_RECORD_DOUBLES = 3;
+var g_monitor = null;
+
+exports.startMonitor = function(callback, interval) {
+  if (typeof callback !== 'function') {
+    console.log("Invalid parameters of callback!");
+    return;
+  }
+
+  g_monitor = {
+    'callback': callback,
+    'streamId': -1,
+    'header': null,
+    'records': null,
+    'readCount': 0
+  };
+  var msg = {
+    'cmd': 'startMonitor',
+    'interval': interval || 1000
+  };
+  extension.postMessage(JSON.stringify(msg));
+};
+
+exports.stopMonitor = function() {
+  g_monitor = null;
+  var msg = {
+    'cmd': 'stopMonitor'
+  };
+  extension.postMessage(JSON.stringify(msg));
+};
+
+function _readMonitorSamples(writeCount) {
+  var header = g_monitor.header;
+  var records = g_monitor.records;
+  var capacity = header[2];
+  var first = g_monitor.readCount;
+  if (writeCount - first > capacity)
+    first = writeCount - capacity;
+
+  var samples = [];
+  for (var n = first; n < writeCount; ++n) {
+    var i = (n & (capacity - 1)) * MONITOR_RECORD_DOUBLES;
+    samples.push({
+      'count': n,
+      'timestamp': records[i],
+      'load': records[i + 1],
+      'availCapacity': records[i + 2]
+    });
+  }
+  g_monitor.readCount = writeCount;
+
+  // Drop the samples whose slot was reused while they were being copied.
+  var oldest = header[0] - capacity;
+  for (var j = 0; j < samples.length; ++j) {
+    if (samples[j].count > oldest) {
+      var sample = samples[j];
+      delete sample.count;
+      g_monitor.callback(_createConstClone(sample));
+    }
+  }
+}
+
+extension.setStreamListener(function(type, streamId, arg) {
+  if (!g_monitor)
+    return;
+
+  if (type == 'open') {
+    g_monitor.streamId = streamId;
+    g_monitor.header = new Uint32Array(arg, 0, 4);
+    g_monitor.records = new Float64Array(arg, 16);
+    g_monitor.readCount = 0;
+  } else if (streamId != g_monitor.streamId) {
+    return;
+  } else if (type == 'data') {
+    _readMonitorSamples(arg);
+  } else if (type == 'close') {
+    g_monitor.header = null;
+    g_monitor.records = null;
+  }
+});
+
 function _addConstProperty(obj, propertyKey, propertyValue) {
   Object.defineProperty(obj, propertyKey, {
     configurable: false,
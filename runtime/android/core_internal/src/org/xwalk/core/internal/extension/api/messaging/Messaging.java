@@ -13,90 +13,118 @@ import android.database.Cursor;
 import android.net.Uri; 
 
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.chromium.base.ActivityState;
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.xwalk.core.internal.extension.api.messaging.MessagingManager;
 import org.xwalk.core.internal.extension.api.messaging.MessagingSmsManager;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.CommandHandler;
+import org.xwalk.core.internal.extension.XWalkExtensionMessageDispatcher;
 import org.xwalk.core.internal.extension.XWalkExtensionWithActivityStateListener;
 
-interface Command {
-    void runCommand(int instanceID, JSONObject jsonMsg);
-}
-
 public class Messaging extends XWalkExtensionWithActivityStateListener {
     public static final String JS_API_PATH = "jsapi/messaging_api.js";
 
-    private static final String NAME = "xwalk.experimental.messaging";
+    public static final String NAME = "xwalk.experimental.messaging";
+
+    private static final String CMD_SMS_SERVICE_ID = "msg_smsServiceId";
 
-    private static HashMap<String, Command> sMethodMap = new HashMap<String, Command>();
+    private final XWalkExtensionMessageDispatcher mDispatcher =
+            new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+    private final XWalkExtensionCommandRouter mRouter = new XWalkExtensionCommandRouter();
 
     private MessagingSmsManager mSmsManager;
     private MessagingManager mMessagingManager;
 
-    private void initMethodMap() {
-        sMethodMap.put("msg_smsSend", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mSmsManager.onSmsSend(instanceID, jsonMsg); 
+    private interface Command {
+        void runCommand(int instanceID, Arguments args);
+    }
+
+    // The SMS commands share MessagingSmsManager state and run on the thread
+    // delivering the message, i.e. the extension thread.
+    private class SmsCommand implements CommandHandler {
+        private final Command mCommand;
+
+        SmsCommand(Command command) {
+            mCommand = command;
+        }
+
+        @Override
+        public void handle(int instanceID, Arguments args) {
+            mCommand.runCommand(instanceID, args);
+        }
+    }
+
+    // The commands served by MessagingManager only query or update the content
+    // providers without keeping state, they run on the dispatcher rather than
+    // blocking the extension thread.
+    private class MessageCommand implements CommandHandler {
+        private final Command mCommand;
+
+        MessageCommand(Command command) {
+            mCommand = command;
+        }
+
+        @Override
+        public void handle(final int instanceID, final Arguments args) {
+            mDispatcher.dispatch(instanceID, new Runnable() {
+                @Override
+                public void run() {
+                    mCommand.runCommand(instanceID, args);
+                }
+            });
+        }
+    }
+
+    private void initRouter() {
+        mRouter.register("msg_smsSend", new SmsCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mSmsManager.onSmsSend(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_smsClear", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mSmsManager.onSmsClear(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_smsClear", new SmsCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mSmsManager.onSmsClear(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_smsSegmentInfo", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mSmsManager.onSmsSegmentInfo(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_smsSegmentInfo", new SmsCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mSmsManager.onSmsSegmentInfo(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_findMessages", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgFindMessages(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_findMessages", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgFindMessages(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_getMessage", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgGetMessage(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_getMessage", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgGetMessage(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_deleteMessage", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgDeleteMessage(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_deleteMessage", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgDeleteMessage(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_deleteConversation", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgDeleteConversation(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_deleteConversation", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgDeleteConversation(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_markMessageRead", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgMarkMessageRead(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_markMessageRead", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgMarkMessageRead(instanceID, args);
             };
-        });
-        sMethodMap.put("msg_markConversationRead", new Command() {
-            public void runCommand(int instanceID, JSONObject jsonMsg) {
-                mMessagingManager.onMsgMarkConversationRead(instanceID, jsonMsg);
+        }));
+        mRouter.register("msg_markConversationRead", new MessageCommand(new Command() {
+            public void runCommand(int instanceID, Arguments args) {
+                mMessagingManager.onMsgMarkConversationRead(instanceID, args);
             };
-        });
-    }
-
-    private String getCommandString(String message) {
-        if (message.isEmpty()) {
-            return "";
-        }
-
-        try {
-            return new JSONObject(message).getString("cmd");
-        } catch(Exception e) {
-            e.printStackTrace();
-            return "";
-        }
+        }));
     }
 
     public Messaging(String jsApiContent, Activity activity) {
@@ -105,26 +133,22 @@ public class Messaging extends XWalkExtensionWithActivityStateListener {
         mMessagingManager = new MessagingManager(activity, this);
         mSmsManager.registerIntentFilters();
 
-        initMethodMap();
+        initRouter();
+        // The service ids never change, answer the exact sync message sent by
+        // messaging_api.js without calling onSyncMessage().
+        setCachedSyncReply("{\"cmd\":\"" + CMD_SMS_SERVICE_ID + "\"}",
+                mSmsManager.getServiceIds());
     }
 
     @Override
     public void onMessage(int instanceID, String message) {
-        Command command = sMethodMap.get(getCommandString(message));
-
-        if (null != command) {
-            try {
-                command.runCommand(instanceID, new JSONObject(message));
-            } catch(Exception e) {
-                e.printStackTrace();
-                return;
-            }
-        }
+        mRouter.route(instanceID, message);
     }
 
     @Override
     public String onSyncMessage(int instanceID, String message) {
-        if (getCommandString(message).equals("msg_smsServiceId")) {
+        Arguments args = mRouter.parse(message);
+        if (args != null && CMD_SMS_SERVICE_ID.equals(args.getCommand())) {
             return mSmsManager.getServiceIds();
         }
         return "";
@@ -27,6 +27,9 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import org.xwalk.core.internal.extension.XWalkExtensionChunkedReply;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
+
 import org.xwalk.core.internal.extension.api.messaging.Messaging;
 import org.xwalk.core.internal.extension.api.messaging.MessagingHelpers;
 import org.xwalk.core.internal.extension.api.messaging.MessagingSmsConstMaps;
@@ -37,33 +40,75 @@ public class MessagingManager {
     private final Activity mMainActivity;
     private final Messaging mMessagingHandler;
 
+    // Query results are sent as several replies of the same call, all but the
+    // last one flagged with "more", so that large SMS stores don't end up in
+    // a single huge message. A failed query ends with an error reply.
+    private class QueryReply extends XWalkExtensionChunkedReply {
+        private final int mInstanceID;
+        private final String mAsyncCallId;
+        private final String mCmd;
+
+        QueryReply(int instanceID, String asyncCallId, String cmd) {
+            mInstanceID = instanceID;
+            mAsyncCallId = asyncCallId;
+            mCmd = cmd;
+        }
+
+        @Override
+        protected void send(JSONArray results, boolean last) throws JSONException {
+            JSONObject jsonMsgRet = new JSONObject();
+            jsonMsgRet.put("asyncCallId", mAsyncCallId);
+            jsonMsgRet.put("cmd", mCmd + "_ret");
+            if (!last) jsonMsgRet.put("more", true);
+            JSONObject jsData = new JSONObject();
+            jsonMsgRet.put("data", jsData);
+            jsData.put("error", false);
+            JSONObject jsBody = new JSONObject();
+            jsData.put("body", jsBody);
+            jsBody.put("results", results);
+            mMessagingHandler.postMessage(mInstanceID, jsonMsgRet.toString());
+        }
+
+        @Override
+        protected void sendError(String error) throws JSONException {
+            JSONObject jsonMsgRet = new JSONObject();
+            jsonMsgRet.put("asyncCallId", mAsyncCallId);
+            jsonMsgRet.put("cmd", mCmd + "_ret");
+            JSONObject jsData = new JSONObject();
+            jsonMsgRet.put("data", jsData);
+            jsData.put("error", true);
+            jsData.put("body", error);
+            mMessagingHandler.postMessage(mInstanceID, jsonMsgRet.toString());
+        }
+    }
+
     MessagingManager(Activity activity, Messaging messaging) {
         mMainActivity = activity;
         mMessagingHandler = messaging;
     }
 
-    public void onMsgFindMessages(int instanceID, JSONObject jsonMsg) {
-        queryMessage(instanceID, jsonMsg);
+    public void onMsgFindMessages(int instanceID, Arguments args) {
+        queryMessage(instanceID, args);
     }
 
-    public void onMsgGetMessage(int instanceID, JSONObject jsonMsg) {
-        queryMessage(instanceID, jsonMsg);
+    public void onMsgGetMessage(int instanceID, Arguments args) {
+        queryMessage(instanceID, args);
     }
 
-    public void onMsgDeleteMessage(int instanceID, JSONObject jsonMsg) {
-        operation(instanceID, jsonMsg);
+    public void onMsgDeleteMessage(int instanceID, Arguments args) {
+        operation(instanceID, args);
     }
 
-    public void onMsgDeleteConversation(int instanceID, JSONObject jsonMsg) {
-        operation(instanceID, jsonMsg);
+    public void onMsgDeleteConversation(int instanceID, Arguments args) {
+        operation(instanceID, args);
     }
 
-    public void onMsgMarkMessageRead(int instanceID, JSONObject jsonMsg) {
-        operation(instanceID, jsonMsg);
+    public void onMsgMarkMessageRead(int instanceID, Arguments args) {
+        operation(instanceID, args);
     }
 
-    public void onMsgMarkConversationRead(int instanceID, JSONObject jsonMsg) {
-        operation(instanceID, jsonMsg);
+    public void onMsgMarkConversationRead(int instanceID, Arguments args) {
+        operation(instanceID, args);
     }
 
     private Uri getUri(String type) {
@@ -74,14 +119,14 @@ public class MessagingManager {
         }
     }
 
-    private void queryMessage(int instanceID, JSONObject jsonMsg) {
+    private void queryMessage(int instanceID, Arguments args) {
         String asyncCallId = null, msgType = null, cmd = null, messageID = null;
         JSONObject filter = null, filterOption = null;
         
         try {
-            asyncCallId = jsonMsg.getString("asyncCallId");
-            cmd = jsonMsg.getString("cmd");
-            JSONObject eventBody = jsonMsg.getJSONObject("data");
+            asyncCallId = args.getString("asyncCallId");
+            cmd = args.getString("cmd");
+            JSONObject eventBody = args.getJSONObject("data");
             if (eventBody.has("messageID")) {
                 messageID = eventBody.getString("messageID");
             }
@@ -124,24 +169,7 @@ public class MessagingManager {
 
         Cursor cursor = cr.query(contentUri, null, sqlString, sqlArgs, sqlOption);
 
-        JSONObject jsonMsgRet = null;
-        JSONArray results = null;
-        try {
-            jsonMsgRet = new JSONObject();
-            results = new JSONArray(); 
-            jsonMsgRet.put("asyncCallId", asyncCallId);
-            jsonMsgRet.put("cmd", cmd + "_ret");
-            JSONObject jsData = new JSONObject();
-            jsonMsgRet.put("data", jsData);
-            jsData.put("error", false);
-            JSONObject jsBody = new JSONObject();
-            jsData.put("body", jsBody);
-            jsBody.put("results", results);
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return;
-        }
-        
+        QueryReply reply = new QueryReply(instanceID, asyncCallId, cmd);
         try {
             if (msgType.equals("mms")) {
                 // TODO:(shawn) Pending on Android MMS related api get public. 
@@ -152,31 +180,33 @@ public class MessagingManager {
                 while (cursor.moveToNext()) {
                     JSONObject jsonSmsObj = MessagingHelpers.SmsMessageCursor2Json(cursor);
                     if (null != jsonSmsObj) {
-                        results.put(jsonSmsObj);
+                        reply.add(jsonSmsObj);
                     }
                 }
             }
+            reply.finish();
+        } catch (JSONException e) {
+            e.printStackTrace();
         } finally {
             cursor.close();
+            reply.abort("Failed to query messages");
         }
-        
-        mMessagingHandler.postMessage(instanceID, jsonMsgRet.toString());
     }
 
-    private void operation(int instanceID, JSONObject jsonMsg) {
+    private void operation(int instanceID, Arguments args) {
         JSONObject eventBody = null;
         String asyncCallId = null, msgType = null, id = null, cmd = null;
         boolean isRead = false;
 
         try {
-            asyncCallId = jsonMsg.getString("asyncCallId");
-            eventBody = jsonMsg.getJSONObject("data");
+            asyncCallId = args.getString("asyncCallId");
+            eventBody = args.getJSONObject("data");
             if (eventBody.has("messageID")) {
                 id = eventBody.getString("messageID");
             } else {
                 id = eventBody.getString("conversationID");
             }
-            cmd = jsonMsg.getString("cmd");
+            cmd = args.getString("cmd");
             if (eventBody.has("value")) {
                 isRead = eventBody.getBoolean("value");
             }
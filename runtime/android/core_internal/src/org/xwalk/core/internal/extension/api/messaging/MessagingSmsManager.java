@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
 import org.xwalk.core.internal.extension.api.messaging.Messaging;
 
 public class MessagingSmsManager {
@@ -61,7 +62,7 @@ public class MessagingSmsManager {
         return (TelephonyManager.SIM_STATE_READY == tm.getSimState());
     }
 
-    public void onSmsSend(int instanceID, JSONObject jsonMsg) {
+    public void onSmsSend(int instanceID, Arguments args) {
         if (!checkService(DEFAULT_SERVICE_ID)) {
             Log.e(TAG, "No Sim Card");
         }
@@ -73,8 +74,8 @@ public class MessagingSmsManager {
         String phone = null;
         String smsMessage = null;
         try {
-            asyncCallId = jsonMsg.getString("asyncCallId");
-            eventBody = jsonMsg.getJSONObject("data");
+            asyncCallId = args.getString("asyncCallId");
+            eventBody = args.getJSONObject("data");
             phone = eventBody.getString("phone");
             smsMessage = eventBody.getString("message");
         } catch (JSONException e) {
@@ -109,7 +110,7 @@ public class MessagingSmsManager {
         }
     }
 
-    public void onSmsClear(int instanceID, JSONObject jsonMsg) {
+    public void onSmsClear(int instanceID, Arguments args) {
         Activity activity = mActivity.get();
         if (activity == null) return;
 
@@ -117,9 +118,9 @@ public class MessagingSmsManager {
         JSONObject eventBody = null;
         String serviceID = null;
         try {
-            asyncCallId = jsonMsg.getString("asyncCallId");
-            cmd = jsonMsg.getString("cmd");
-            eventBody = jsonMsg.getJSONObject("data");
+            asyncCallId = args.getString("asyncCallId");
+            cmd = args.getString("cmd");
+            eventBody = args.getJSONObject("data");
             serviceID = eventBody.getString("serviceID");
         } catch (JSONException e) {
             e.printStackTrace();
@@ -148,13 +149,13 @@ public class MessagingSmsManager {
         mMessagingHandler.postMessage(instanceID, jsonMsgRet.toString());
     }
 
-    public void onSmsSegmentInfo(int instanceID, JSONObject jsonMsg) {
+    public void onSmsSegmentInfo(int instanceID, Arguments args) {
         String asyncCallId = null;
         JSONObject eventBody = null;
         String text = null;
         try {
-            asyncCallId = jsonMsg.getString("asyncCallId");
-            eventBody = jsonMsg.getJSONObject("data");
+            asyncCallId = args.getString("asyncCallId");
+            eventBody = args.getJSONObject("data");
             text = eventBody.getString("text");
 
             if (null == text) {
@@ -321,7 +322,9 @@ public class MessagingSmsManager {
                     JSONObject jsEvent = new JSONObject();
                     jsData.put("event", jsEvent);
                     jsEvent.put("serviceID", DEFAULT_SERVICE_ID);
-                    mMessaging.broadcastMessage(jsonMsg.toString());
+                    // Only the latest availability of the service matters.
+                    mMessaging.broadcastCoalescedMessage(
+                            "service:" + DEFAULT_SERVICE_ID, jsonMsg.toString());
                 } catch (JSONException e) {
                     e.printStackTrace();
                     return;
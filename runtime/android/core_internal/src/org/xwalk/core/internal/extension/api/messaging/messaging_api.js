@@ -11,14 +11,16 @@ var g_listeners = [];
 // callback functions.
 var g_next_async_call_id = 6;
 
-function AsyncCall(resolve, reject) {
+function AsyncCall(resolve, reject, onchunk) {
   this.resolve = resolve;
   this.reject = reject;
+  this.onchunk = onchunk;
+  this.results = [];
 }
 
-function createPromise(msg) {
+function createPromise(msg, onchunk) {
   var promise = new Promise(function(resolve, reject) {
-    g_async_calls[g_next_async_call_id] = new AsyncCall(resolve, reject);
+    g_async_calls[g_next_async_call_id] = new AsyncCall(resolve, reject, onchunk);
   });
   msg.asyncCallId = g_next_async_call_id;
   extension.postMessage(JSON.stringify(msg));
@@ -223,18 +225,27 @@ MessagingCursor.prototype.previous = function() {
 }
 
 function handleFindMessages(msgObj) {
-  if (msgObj.data.error) {
-    if (_isFunction(g_promises[msgObj.asyncCallId].reject)) {
-      g_promises[msgObj.asyncCallId].reject(msgObj.data.body);
+  // Results come in chunks, all but the last one flagged with "more". They
+  // are either handed to the chunk callback as they arrive or gathered for
+  // the cursor. Only the last chunk or an error settles the promise.
+  var call = g_async_calls[msgObj.asyncCallId];
+  if (!msgObj.data.error) {
+    var results = msgObj.data.body.results;
+    if (call.onchunk) {
+      if (results.length) call.onchunk(results);
+    } else {
+      Array.prototype.push.apply(call.results, results);
     }
+    if (msgObj.more) return;
+  }
+
+  if (msgObj.data.error) {
+    call.reject(msgObj.data.body);
   } else {
-    if (_isFunction(g_promises[msgObj.asyncCallId].resolve)) {
-      var cursor = new MessagingCursor(msgObj.data.body.results);
-      g_promises[msgObj.asyncCallId].resolve(cursor);
-    }
+    call.resolve(call.onchunk ? undefined : new MessagingCursor(call.results));
   }
 
-  delete g_promises[msgObj.asyncCallId];
+  delete g_async_calls[msgObj.asyncCallId];
 }
 
 function handlePromise(msgObj) {
@@ -284,7 +295,9 @@ extension.setMessageListener(function(json) {
   }
 });
 
-exports.findMessages = function(filter, options) {
+// If given, onchunk is called with each chunk of messages as soon as it
+// arrives and the promise resolves without a cursor once all are delivered.
+exports.findMessages = function(filter, options, onchunk) {
   var _msg = {
     cmd: "msg_findMessages",
     data: {
@@ -292,7 +305,7 @@ exports.findMessages = function(filter, options) {
       options: options
     }
   }
-  return postMessage(_msg);
+  return createPromise(_msg, _isFunction(onchunk) ? onchunk : null);
 }
 
 exports.findConversations = function(groupBy, filter, options) {
@@ -0,0 +1,58 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#include "xwalk/runtime/browser/android/intercept_request_filter.h"
+
+#include "base/strings/string_util.h"
+#include "url/gurl.h"
+
+namespace xwalk {
+
+InterceptRequestFilter::InterceptRequestFilter()
+    : intercept_enabled_(true),
+      notify_enabled_(true),
+      delivered_count_(0),
+      skipped_count_(0) {
+}
+
+InterceptRequestFilter::~InterceptRequestFilter() {
+}
+
+void InterceptRequestFilter::SetPatterns(
+    const std::vector<std::string>& patterns) {
+  base::AutoLock lock(lock_);
+  patterns_ = patterns;
+}
+
+void InterceptRequestFilter::SetListeners(bool intercept, bool notify) {
+  base::AutoLock lock(lock_);
+  intercept_enabled_ = intercept;
+  notify_enabled_ = notify;
+}
+
+InterceptRequestFilter::Delivery InterceptRequestFilter::Filter(
+    const GURL& url) {
+  base::AutoLock lock(lock_);
+  bool intercept = false;
+  if (intercept_enabled_) {
+    intercept = patterns_.empty();
+    for (size_t i = 0; !intercept && i < patterns_.size(); ++i)
+      intercept = MatchPattern(url.spec(), patterns_[i]);
+  }
+
+  if (intercept) {
+    ++delivered_count_;
+    return INTERCEPT;
+  }
+  ++skipped_count_;
+  return notify_enabled_ ? NOTIFY : SKIP;
+}
+
+void InterceptRequestFilter::GetCounts(int64* delivered, int64* skipped) {
+  base::AutoLock lock(lock_);
+  *delivered = delivered_count_;
+  *skipped = skipped_count_;
+}
+
+}  // namespace xwalk
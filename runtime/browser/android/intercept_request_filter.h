@@ -0,0 +1,74 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#ifndef XWALK_RUNTIME_BROWSER_ANDROID_INTERCEPT_REQUEST_FILTER_H_
+#define XWALK_RUNTIME_BROWSER_ANDROID_INTERCEPT_REQUEST_FILTER_H_
+
+#include <string>
+#include <vector>
+
+#include "base/basictypes.h"
+#include "base/memory/ref_counted.h"
+#include "base/synchronization/lock.h"
+
+class GURL;
+
+namespace xwalk {
+
+// The URL patterns an embedder wants shouldInterceptLoadRequest for. Other
+// requests are answered on the IO thread without calling into Java.
+//
+// Patterns are matched against the whole URL, '*' matches any sequence of
+// characters and '?' any single character, e.g. "https://api.example.com/*"
+// or "*.json". Without patterns, which is the default, every request is
+// delivered.
+//
+// The patterns only gate shouldInterceptLoadRequest, the load notifications
+// posted from the same upcall, onLoadStarted and onLoadResource, are still
+// sent for every request. Neither is sent for callbacks the embedder doesn't
+// listen to, no request goes to Java if it listens to none.
+//
+// Rules are set on the UI thread and matched on the IO thread.
+class InterceptRequestFilter
+    : public base::RefCountedThreadSafe<InterceptRequestFilter> {
+ public:
+  enum Delivery {
+    // Not delivered to Java.
+    SKIP,
+    // Delivered for the load notifications only.
+    NOTIFY,
+    // Delivered to shouldInterceptLoadRequest and the load notifications.
+    INTERCEPT,
+  };
+
+  InterceptRequestFilter();
+
+  void SetPatterns(const std::vector<std::string>& patterns);
+  // Sets whether the embedder listens to shouldInterceptLoadRequest and to
+  // the load notifications.
+  void SetListeners(bool intercept, bool notify);
+
+  // Returns how the request for |url| should be delivered to Java, and
+  // counts it as delivered to or skipped from shouldInterceptLoadRequest.
+  Delivery Filter(const GURL& url);
+
+  void GetCounts(int64* delivered, int64* skipped);
+
+ private:
+  friend class base::RefCountedThreadSafe<InterceptRequestFilter>;
+  ~InterceptRequestFilter();
+
+  base::Lock lock_;
+  std::vector<std::string> patterns_;
+  bool intercept_enabled_;
+  bool notify_enabled_;
+  int64 delivered_count_;
+  int64 skipped_count_;
+
+  DISALLOW_COPY_AND_ASSIGN(InterceptRequestFilter);
+};
+
+}  // namespace xwalk
+
+#endif  // XWALK_RUNTIME_BROWSER_ANDROID_INTERCEPT_REQUEST_FILTER_H_
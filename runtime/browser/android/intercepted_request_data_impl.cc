@@ -34,10 +34,15 @@ class StreamReaderJobDelegateImpl
 
     virtual scoped_ptr<InputStream> OpenInputStream(
         JNIEnv* env,
-        const GURL& url) OVERRIDE {
+        const GURL& url,
+        bool accept_gzip) OVERRIDE {
       return intercepted_request_data_impl_->GetInputStream(env).Pass();
     }
 
+    virtual bool IsGzipEncoded() OVERRIDE {
+      return false;
+    }
+
     virtual void OnInputStreamOpenFailed(net::URLRequest* request,
                                          bool* restart) OVERRIDE {
       *restart = false;
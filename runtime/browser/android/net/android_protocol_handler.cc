@@ -4,11 +4,14 @@
 
 #include "xwalk/runtime/browser/android/net/android_protocol_handler.h"
 
+#include <unistd.h>
+
 #include <string>
 
 #include "base/android/jni_android.h"
 #include "base/android/jni_string.h"
 #include "base/android/jni_weak_ref.h"
+#include "base/posix/eintr_wrapper.h"
 #include "base/strings/string_util.h"
 #include "content/public/common/url_constants.h"
 #include "jni/AndroidProtocolHandler_jni.h"
@@ -22,6 +25,7 @@
 #include "net/url_request/url_request_interceptor.h"
 #include "url/gurl.h"
 #include "xwalk/runtime/browser/android/net/android_stream_reader_url_request_job.h"
+#include "xwalk/runtime/browser/android/net/asset_file_input_stream.h"
 #include "xwalk/runtime/browser/android/net/input_stream_impl.h"
 #include "xwalk/runtime/browser/android/net/url_constants.h"
 #include "xwalk/runtime/browser/runtime_context.h"
@@ -32,6 +36,7 @@ using base::android::ClearException;
 using base::android::ConvertUTF8ToJavaString;
 using base::android::ScopedJavaGlobalRef;
 using base::android::ScopedJavaLocalRef;
+using xwalk::AssetFileInputStream;
 using xwalk::InputStream;
 using xwalk::InputStreamImpl;
 
@@ -66,7 +71,10 @@ class AndroidStreamReaderURLRequestJobDelegateImpl
 
   virtual scoped_ptr<InputStream> OpenInputStream(
       JNIEnv* env,
-      const GURL& url) OVERRIDE;
+      const GURL& url,
+      bool accept_gzip) OVERRIDE;
+
+  virtual bool IsGzipEncoded() OVERRIDE;
 
   virtual void OnInputStreamOpenFailed(net::URLRequest* request,
                                        bool* restart) OVERRIDE;
@@ -85,6 +93,23 @@ class AndroidStreamReaderURLRequestJobDelegateImpl
                               std::string* name) OVERRIDE;
 
   virtual ~AndroidStreamReaderURLRequestJobDelegateImpl();
+
+ private:
+  // Opens |url| as an AssetFileInputStream if possible, as a Java
+  // InputStream otherwise.
+  scoped_ptr<InputStream> OpenUrl(JNIEnv* env, jstring url);
+
+  // Opens |url| as an AssetFileInputStream if it is an uncompressed asset.
+  scoped_ptr<InputStream> OpenAssetFileInputStream(JNIEnv* env,
+                                                   jstring url);
+
+  // Whether the stream was opened by OpenAssetFileInputStream, there is no
+  // Java InputStream for it then.
+  bool is_asset_file_;
+
+  // Whether the stream was opened from the gzip compressed variant of the
+  // asset.
+  bool is_gzip_encoded_;
 };
 
 class AndroidRequestInterceptorBase : public net::URLRequestInterceptor {
@@ -141,7 +166,9 @@ static ScopedJavaLocalRef<jobject> GetResourceContext(JNIEnv* env) {
 // AndroidStreamReaderURLRequestJobDelegateImpl -------------------------------
 
 AndroidStreamReaderURLRequestJobDelegateImpl::
-    AndroidStreamReaderURLRequestJobDelegateImpl() {}
+    AndroidStreamReaderURLRequestJobDelegateImpl()
+    : is_asset_file_(false),
+      is_gzip_encoded_(false) {}
 
 AndroidStreamReaderURLRequestJobDelegateImpl::
 ~AndroidStreamReaderURLRequestJobDelegateImpl() {
@@ -149,18 +176,53 @@ AndroidStreamReaderURLRequestJobDelegateImpl::
 
 scoped_ptr<InputStream>
 AndroidStreamReaderURLRequestJobDelegateImpl::OpenInputStream(
-    JNIEnv* env, const GURL& url) {
+    JNIEnv* env, const GURL& url, bool accept_gzip) {
   DCHECK(url.is_valid());
   DCHECK(env);
 
-  // Open the input stream.
   ScopedJavaLocalRef<jstring> jurl =
       ConvertUTF8ToJavaString(env, url.spec());
+
+  // Prefer the gzip compressed variant of the asset, if it was packaged.
+  if (accept_gzip) {
+    ScopedJavaLocalRef<jstring> gzip_url =
+        xwalk::Java_AndroidProtocolHandler_getGzipVariantUrl(
+            env,
+            GetResourceContext(env).obj(),
+            jurl.obj());
+    if (!ClearException(env) && !gzip_url.is_null()) {
+      scoped_ptr<InputStream> gzip_stream = OpenUrl(env, gzip_url.obj());
+      if (gzip_stream) {
+        is_gzip_encoded_ = true;
+        return gzip_stream.Pass();
+      }
+    }
+  }
+
+  return OpenUrl(env, jurl.obj());
+}
+
+bool AndroidStreamReaderURLRequestJobDelegateImpl::IsGzipEncoded() {
+  return is_gzip_encoded_;
+}
+
+scoped_ptr<InputStream>
+AndroidStreamReaderURLRequestJobDelegateImpl::OpenUrl(
+    JNIEnv* env, jstring url) {
+  // Read uncompressed assets from the APK directly.
+  scoped_ptr<InputStream> asset_file_stream =
+      OpenAssetFileInputStream(env, url);
+  if (asset_file_stream) {
+    is_asset_file_ = true;
+    return asset_file_stream.Pass();
+  }
+
+  // Open the input stream.
   ScopedJavaLocalRef<jobject> stream =
       xwalk::Java_AndroidProtocolHandler_open(
           env,
           GetResourceContext(env).obj(),
-          jurl.obj());
+          url);
 
   // Check and clear pending exceptions.
   if (ClearException(env) || stream.is_null()) {
@@ -170,6 +232,36 @@ AndroidStreamReaderURLRequestJobDelegateImpl::OpenInputStream(
   return make_scoped_ptr<InputStream>(new InputStreamImpl(stream));
 }
 
+scoped_ptr<InputStream>
+AndroidStreamReaderURLRequestJobDelegateImpl::OpenAssetFileInputStream(
+    JNIEnv* env, jstring url) {
+  ScopedJavaLocalRef<jobject> asset_fd =
+      xwalk::Java_AndroidProtocolHandler_openAssetFd(
+          env,
+          GetResourceContext(env).obj(),
+          url);
+  // Not an asset or a compressed one, which can only be read as a stream.
+  if (ClearException(env) || asset_fd.is_null())
+    return scoped_ptr<InputStream>();
+
+  int64_t offset = xwalk::Java_AndroidProtocolHandler_getAssetFdStartOffset(
+      env, asset_fd.obj());
+  int64_t length = xwalk::Java_AndroidProtocolHandler_getAssetFdLength(
+      env, asset_fd.obj());
+  // Closes |asset_fd|, the stream owns the detached file descriptor.
+  int fd = xwalk::Java_AndroidProtocolHandler_detachAssetFd(
+      env, asset_fd.obj());
+  if (ClearException(env) || fd < 0)
+    return scoped_ptr<InputStream>();
+  if (offset < 0 || length < 0) {
+    IGNORE_EINTR(close(fd));
+    return scoped_ptr<InputStream>();
+  }
+
+  return make_scoped_ptr<InputStream>(
+      new AssetFileInputStream(fd, offset, length));
+}
+
 void AndroidStreamReaderURLRequestJobDelegateImpl::OnInputStreamOpenFailed(
     net::URLRequest* request,
     bool* restart) {
@@ -191,13 +283,16 @@ bool AndroidStreamReaderURLRequestJobDelegateImpl::GetMimeType(
   // fail, as the mime type cannot be determined for all supported schemes.
   ScopedJavaLocalRef<jstring> url =
       ConvertUTF8ToJavaString(env, request->url().spec());
-  const InputStreamImpl* stream_impl =
-      InputStreamImpl::FromInputStream(stream);
+  // Asset files are typed by their name, without sniffing the content.
+  // Neither is gzip compressed content.
+  jobject jstream = NULL;
+  if (!is_asset_file_ && !is_gzip_encoded_)
+    jstream = InputStreamImpl::FromInputStream(stream)->jobj();
   ScopedJavaLocalRef<jstring> returned_type =
       xwalk::Java_AndroidProtocolHandler_getMimeType(
           env,
           GetResourceContext(env).obj(),
-          stream_impl->jobj(), url.obj());
+          jstream, url.obj());
   if (ClearException(env) || returned_type.is_null())
     return false;
 
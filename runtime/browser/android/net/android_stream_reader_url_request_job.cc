@@ -11,11 +11,13 @@
 #include "base/android/jni_string.h"
 #include "base/bind.h"
 #include "base/bind_helpers.h"
+#include "base/format_macros.h"
 #include "base/lazy_instance.h"
 #include "base/message_loop/message_loop.h"
 #include "base/message_loop/message_loop_proxy.h"
 #include "base/strings/string_number_conversions.h"
 #include "base/strings/string_util.h"
+#include "base/strings/stringprintf.h"
 #include "base/task_runner.h"
 #include "base/threading/sequenced_worker_pool.h"
 #include "base/threading/thread.h"
@@ -24,6 +26,7 @@
 #include "net/base/mime_util.h"
 #include "net/base/net_errors.h"
 #include "net/base/net_util.h"
+#include "net/filter/filter.h"
 #include "net/http/http_response_headers.h"
 #include "net/http/http_response_info.h"
 #include "net/http/http_util.h"
@@ -42,15 +45,20 @@ using xwalk::InputStreamReader;
 namespace {
 
 const int kHTTPOk = 200;
+const int kHTTPPartialContent = 206;
 const int kHTTPBadRequest = 400;
 const int kHTTPForbidden = 403;
 const int kHTTPNotFound = 404;
+const int kHTTPRequestedRangeNotSatisfiable = 416;
 const int kHTTPNotImplemented = 501;
 
 const char kHTTPOkText[] = "OK";
+const char kHTTPPartialContentText[] = "Partial Content";
 const char kHTTPBadRequestText[] = "Bad Request";
 const char kHTTPForbiddenText[] = "Forbidden";
 const char kHTTPNotFoundText[] = "Not Found";
+const char kHTTPRequestedRangeNotSatisfiableText[] =
+    "Requested Range Not Satisfiable";
 const char kHTTPNotImplementedText[] = "Not Implemented";
 
 }  // namespace
@@ -83,6 +91,15 @@ class InputStreamReaderWrapper
     return input_stream_reader_->ReadRawData(buffer, buffer_size);
   }
 
+  // Only valid once Seek has completed.
+  const net::HttpByteRange& byte_range() const {
+    return input_stream_reader_->byte_range();
+  }
+
+  int64_t stream_size() const {
+    return input_stream_reader_->stream_size();
+  }
+
  private:
   friend class base::RefCountedThreadSafe<InputStreamReaderWrapper>;
   ~InputStreamReaderWrapper() {}
@@ -101,6 +118,7 @@ AndroidStreamReaderURLRequestJob::AndroidStreamReaderURLRequestJob(
     : URLRequestJob(request, network_delegate),
       delegate_(delegate.Pass()),
       content_security_policy_(content_security_policy),
+      gzip_encoded_(false),
       weak_factory_(this) {
   DCHECK(delegate_);
 }
@@ -119,12 +137,14 @@ void OpenInputStreamOnWorkerThread(
     scoped_refptr<base::MessageLoopProxy> job_thread_proxy,
     scoped_ptr<AndroidStreamReaderURLRequestJob::Delegate> delegate,
     const GURL& url,
+    bool accept_gzip,
     OnInputStreamOpenedCallback callback) {
 
   JNIEnv* env = AttachCurrentThread();
   DCHECK(env);
 
-  scoped_ptr<InputStream> input_stream = delegate->OpenInputStream(env, url);
+  scoped_ptr<InputStream> input_stream =
+      delegate->OpenInputStream(env, url, accept_gzip);
   job_thread_proxy->PostTask(FROM_HERE,
                              base::Bind(callback,
                                         base::Passed(delegate.Pass()),
@@ -183,6 +203,9 @@ void AndroidStreamReaderURLRequestJob::Start() {
           // open attempt is completed.
           base::Passed(&delegate_),
           request()->url(),
+          // Byte ranges are of the decoded content, a compressed stream
+          // can't be seeked to them.
+          !byte_range_.IsValid(),
           base::Bind(&AndroidStreamReaderURLRequestJob::OnInputStreamOpened,
                      weak_factory_.GetWeakPtr())));
 }
@@ -218,6 +241,8 @@ void AndroidStreamReaderURLRequestJob::OnInputStreamOpened(
     return;
   }
 
+  gzip_encoded_ = delegate_->IsGzipEncoded();
+
   scoped_ptr<InputStreamReader> input_stream_reader(
       CreateStreamReader(input_stream.get()));
   DCHECK(input_stream_reader);
@@ -242,7 +267,17 @@ void AndroidStreamReaderURLRequestJob::OnReaderSeekCompleted(int result) {
   SetStatus(net::URLRequestStatus());
   if (result >= 0) {
     set_expected_content_size(result);
-    HeadersComplete(kHTTPOk, kHTTPOkText);
+    // Answer a range request with the range only if the stream length is
+    // known, the reader drops the range and reads it all otherwise.
+    if (byte_range_.IsValid() &&
+        input_stream_reader_wrapper_->byte_range().IsValid()) {
+      HeadersComplete(kHTTPPartialContent, kHTTPPartialContentText);
+    } else {
+      HeadersComplete(kHTTPOk, kHTTPOkText);
+    }
+  } else if (result == net::ERR_REQUEST_RANGE_NOT_SATISFIABLE) {
+    HeadersComplete(kHTTPRequestedRangeNotSatisfiable,
+                    kHTTPRequestedRangeNotSatisfiableText);
   } else {
     NotifyDone(net::URLRequestStatus(net::URLRequestStatus::FAILED, result));
   }
@@ -277,10 +312,12 @@ bool AndroidStreamReaderURLRequestJob::ReadRawData(net::IOBuffer* dest,
                                                    int dest_size,
                                                    int* bytes_read) {
   DCHECK(thread_checker_.CalledOnValidThread());
-  if (!input_stream_reader_wrapper_.get()) {
+  if (!input_stream_reader_wrapper_.get() ||
+      GetResponseCode() == kHTTPRequestedRangeNotSatisfiable) {
     // This will happen if opening the InputStream fails in which case the
     // error is communicated by setting the HTTP response status header rather
-    // than failing the request during the header fetch phase.
+    // than failing the request during the header fetch phase. An
+    // unsatisfiable range has no content to read either.
     *bytes_read = 0;
     return true;
   }
@@ -344,7 +381,28 @@ void AndroidStreamReaderURLRequestJob::HeadersComplete(
   status.append("\0\0", 2);
   net::HttpResponseHeaders* headers = new net::HttpResponseHeaders(status);
 
-  if (status_code == kHTTPOk) {
+  if (status_code == kHTTPPartialContent) {
+    const net::HttpByteRange& range =
+        input_stream_reader_wrapper_->byte_range();
+    headers->AddHeader(base::StringPrintf(
+        "Content-Range: bytes %" PRId64 "-%" PRId64 "/%" PRId64,
+        range.first_byte_position(), range.last_byte_position(),
+        input_stream_reader_wrapper_->stream_size()));
+  } else if (status_code == kHTTPRequestedRangeNotSatisfiable &&
+             input_stream_reader_wrapper_.get() &&
+             input_stream_reader_wrapper_->stream_size() >= 0) {
+    headers->AddHeader(base::StringPrintf(
+        "Content-Range: bytes */%" PRId64,
+        input_stream_reader_wrapper_->stream_size()));
+  }
+
+  if (status_code == kHTTPOk || status_code == kHTTPPartialContent) {
+    // Ranges are only answered for streams of known length. A gzip encoded
+    // stream isn't seekable to ranges of the decoded content.
+    if (!gzip_encoded_ && input_stream_reader_wrapper_.get() &&
+        input_stream_reader_wrapper_->stream_size() >= 0)
+      headers->AddHeader("Accept-Ranges: bytes");
+
     if (expected_content_size() != -1) {
       std::string content_length_header(
           net::HttpRequestHeaders::kContentLength);
@@ -362,6 +420,11 @@ void AndroidStreamReaderURLRequestJob::HeadersComplete(
       headers->AddHeader(content_type_header);
     }
 
+    // The variant doesn't depend on the Accept-Encoding of the request, the
+    // job decodes it itself, so there is no Vary.
+    if (gzip_encoded_)
+      headers->AddHeader("Content-Encoding: gzip");
+
     if (!content_security_policy_.empty()) {
       std::string content_security_policy("Content-Security-Policy: ");
       content_security_policy.append(content_security_policy_);
@@ -387,6 +450,10 @@ void AndroidStreamReaderURLRequestJob::GetResponseInfo(
     *info = *response_info_;
 }
 
+net::Filter* AndroidStreamReaderURLRequestJob::SetupFilter() const {
+  return gzip_encoded_ ? net::Filter::GZipFactory() : NULL;
+}
+
 void AndroidStreamReaderURLRequestJob::SetExtraRequestHeaders(
     const net::HttpRequestHeaders& headers) {
   std::string range_header;
@@ -26,6 +26,7 @@ class TaskRunner;
 }
 
 namespace net {
+class Filter;
 class HttpResponseInfo;
 class URLRequest;
 }
@@ -42,9 +43,16 @@ class AndroidStreamReaderURLRequestJob : public net::URLRequestJob {
   class Delegate {
    public:
     // This method is called from a worker thread, not from the IO thread.
+    // If |accept_gzip| is true the returned stream may hold the content
+    // compressed with gzip, see IsGzipEncoded.
     virtual scoped_ptr<xwalk::InputStream> OpenInputStream(
         JNIEnv* env,
-        const GURL& url) = 0;
+        const GURL& url,
+        bool accept_gzip) = 0;
+
+    // Whether the stream returned by OpenInputStream holds the content
+    // compressed with gzip, which the job then decodes.
+    virtual bool IsGzipEncoded() = 0;
 
     // This method is called on the Job's thread if the result of calling
     // OpenInputStream was null.
@@ -91,6 +99,7 @@ class AndroidStreamReaderURLRequestJob : public net::URLRequestJob {
   virtual bool GetCharset(std::string* charset) OVERRIDE;
   virtual int GetResponseCode() const OVERRIDE;
   virtual void GetResponseInfo(net::HttpResponseInfo* info) OVERRIDE;
+  virtual net::Filter* SetupFilter() const OVERRIDE;
 
  protected:
   virtual ~AndroidStreamReaderURLRequestJob();
@@ -117,6 +126,7 @@ class AndroidStreamReaderURLRequestJob : public net::URLRequestJob {
   scoped_ptr<net::HttpResponseInfo> response_info_;
   scoped_ptr<Delegate> delegate_;
   std::string content_security_policy_;
+  bool gzip_encoded_;
   scoped_refptr<InputStreamReaderWrapper> input_stream_reader_wrapper_;
   base::WeakPtrFactory<AndroidStreamReaderURLRequestJob> weak_factory_;
   base::ThreadChecker thread_checker_;
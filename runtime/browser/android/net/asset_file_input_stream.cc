@@ -0,0 +1,74 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#include "xwalk/runtime/browser/android/net/asset_file_input_stream.h"
+
+#include <unistd.h>
+
+#include <algorithm>
+#include <limits>
+
+#include "base/logging.h"
+#include "base/posix/eintr_wrapper.h"
+#include "net/base/io_buffer.h"
+
+namespace xwalk {
+
+AssetFileInputStream::AssetFileInputStream(int fd,
+                                           int64_t offset,
+                                           int64_t length)
+    : fd_(fd),
+      offset_(offset),
+      length_(length),
+      position_(0) {
+  DCHECK_GE(fd, 0);
+  DCHECK_GE(offset, 0);
+  DCHECK_GE(length, 0);
+}
+
+AssetFileInputStream::~AssetFileInputStream() {
+}
+
+bool AssetFileInputStream::BytesAvailable(int* bytes_available) const {
+  *bytes_available = static_cast<int>(std::min<int64_t>(
+      length_ - position_, std::numeric_limits<int>::max()));
+  return true;
+}
+
+bool AssetFileInputStream::GetLength(int64_t* length) const {
+  *length = length_;
+  return true;
+}
+
+bool AssetFileInputStream::Skip(int64_t n, int64_t* bytes_skipped) {
+  if (n < 0)
+    return false;
+  *bytes_skipped = std::min(n, length_ - position_);
+  position_ += *bytes_skipped;
+  return true;
+}
+
+bool AssetFileInputStream::Read(net::IOBuffer* dest,
+                                int length,
+                                int* bytes_read) {
+  *bytes_read = 0;
+  const int64_t read_size = std::min<int64_t>(length, length_ - position_);
+  // We've reached the end of the asset.
+  if (read_size <= 0)
+    return true;
+
+  ssize_t result = HANDLE_EINTR(pread(fd_.get(), dest->data(), read_size,
+                                      offset_ + position_));
+  // The asset can't end before its length, the APK was probably replaced.
+  if (result <= 0) {
+    DPLOG(ERROR) << "Unable to read asset";
+    return false;
+  }
+
+  position_ += result;
+  *bytes_read = static_cast<int>(result);
+  return true;
+}
+
+}  // namespace xwalk
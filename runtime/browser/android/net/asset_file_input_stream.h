@@ -0,0 +1,45 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#ifndef XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
+#define XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
+
+#include "base/compiler_specific.h"
+#include "base/files/scoped_file.h"
+#include "xwalk/runtime/browser/android/net/input_stream.h"
+
+namespace net {
+class IOBuffer;
+}
+
+namespace xwalk {
+
+// InputStream of an asset stored uncompressed in the APK, read directly from
+// the APK file with the range of the asset in it. Unlike InputStreamImpl, the
+// data doesn't go through Java, nor through a transfer buffer.
+class AssetFileInputStream : public InputStream {
+ public:
+  // |fd| is a file descriptor of the APK, owned by the stream. The asset is
+  // |length| bytes at |offset|.
+  AssetFileInputStream(int fd, int64_t offset, int64_t length);
+  virtual ~AssetFileInputStream();
+
+  // InputStream implementation.
+  virtual bool BytesAvailable(int* bytes_available) const OVERRIDE;
+  virtual bool GetLength(int64_t* length) const OVERRIDE;
+  virtual bool Skip(int64_t n, int64_t* bytes_skipped) OVERRIDE;
+  virtual bool Read(net::IOBuffer* dest, int length, int* bytes_read) OVERRIDE;
+
+ private:
+  base::ScopedFD fd_;
+  const int64_t offset_;
+  const int64_t length_;
+  int64_t position_;
+
+  DISALLOW_COPY_AND_ASSIGN(AssetFileInputStream);
+};
+
+}  // namespace xwalk
+
+#endif  // XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
@@ -28,6 +28,10 @@ class InputStream {
   // thrown.
   virtual bool BytesAvailable(int* bytes_available) const = 0;
 
+  // Sets |length| to the total length of the stream when it is known, which
+  // BytesAvailable doesn't tell. Returns false if it isn't known.
+  virtual bool GetLength(int64_t* length) const = 0;
+
   // Skips over and discards |n| bytes of data from this input stream. Sets
   // |bytes_skipped| to the number of of bytes skipped.
   // Returns true if completed successfully or false if an exception was
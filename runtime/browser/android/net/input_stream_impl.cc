@@ -64,6 +64,12 @@ bool InputStreamImpl::BytesAvailable(int* bytes_available) const {
   return true;
 }
 
+bool InputStreamImpl::GetLength(int64_t* length) const {
+  // A Java InputStream doesn't tell its length, available() only counts the
+  // bytes readable without blocking.
+  return false;
+}
+
 bool InputStreamImpl::Skip(int64_t n, int64_t* bytes_skipped) {
   JNIEnv* env = AttachCurrentThread();
   int bytes = Java_InputStream_skip(env, jobject_.obj(), n);
@@ -33,6 +33,7 @@ class InputStreamImpl : public InputStream {
 
   // InputStream implementation.
   virtual bool BytesAvailable(int* bytes_available) const OVERRIDE;
+  virtual bool GetLength(int64_t* length) const OVERRIDE;
   virtual bool Skip(int64_t n, int64_t* bytes_skipped) OVERRIDE;
   virtual bool Read(net::IOBuffer* dest, int length, int* bytes_read) OVERRIDE;
 
@@ -4,6 +4,9 @@
 
 #include "xwalk/runtime/browser/android/net/input_stream_reader.h"
 
+#include <algorithm>
+#include <limits>
+
 #include "base/message_loop/message_loop.h"
 #include "content/public/browser/browser_thread.h"
 #include "net/base/net_errors.h"
@@ -15,7 +18,8 @@ using content::BrowserThread;
 namespace xwalk {
 
 InputStreamReader::InputStreamReader(xwalk::InputStream* stream)
-    : stream_(stream) {
+    : stream_(stream),
+      stream_size_(-1) {
   DCHECK(stream);
 }
 
@@ -29,6 +33,7 @@ int InputStreamReader::Seek(const net::HttpByteRange& byte_range) {
   int error_code = VerifyRequestedRange(&verified_byte_range, &content_size);
   if (error_code != net::OK)
     return error_code;
+  byte_range_ = verified_byte_range;
 
   error_code = SkipToRequestedRange(verified_byte_range);
   if (error_code != net::OK)
@@ -54,22 +59,35 @@ int InputStreamReader::ReadRawData(net::IOBuffer* dest, int dest_size) {
 int InputStreamReader::VerifyRequestedRange(net::HttpByteRange* byte_range,
                                             int* content_size) {
   DCHECK(content_size);
+  int64_t length = 0;
+  if (stream_->GetLength(&length)) {
+    stream_size_ = length;
+    if (!byte_range->IsValid()) {
+      *content_size = static_cast<int>(
+          std::min<int64_t>(length, std::numeric_limits<int>::max()));
+      return net::OK;
+    }
+
+    // Check that the requested range was valid.
+    if (!byte_range->ComputeBounds(length))
+      return net::ERR_REQUEST_RANGE_NOT_SATISFIABLE;
+
+    *content_size = static_cast<int>(byte_range->last_byte_position() -
+                                     byte_range->first_byte_position() + 1);
+    DCHECK_GE(*content_size, 0);
+    return net::OK;
+  }
+
+  // Without a known length the range can't be checked, the whole stream is
+  // read instead. BytesAvailable is only a hint of the content size then.
+  *byte_range = net::HttpByteRange();
+  stream_size_ = -1;
   int32_t size = 0;
   if (!stream_->BytesAvailable(&size))
     return net::ERR_FAILED;
 
-  if (size <= 0)
-    return net::OK;
-
-  // Check that the requested range was valid.
-  if (!byte_range->ComputeBounds(size))
-    return net::ERR_REQUEST_RANGE_NOT_SATISFIABLE;
-
-  size = byte_range->last_byte_position() -
-         byte_range->first_byte_position() + 1;
-  DCHECK_GE(size, 0);
-  *content_size = size;
-
+  if (size > 0)
+    *content_size = size;
   return net::OK;
 }
 
@@ -6,9 +6,9 @@
 #define XWALK_RUNTIME_BROWSER_ANDROID_NET_INPUT_STREAM_READER_H_
 
 #include "base/memory/ref_counted.h"
+#include "net/http/http_byte_range.h"
 
 namespace net {
-class HttpByteRange;
 class IOBuffer;
 }
 
@@ -41,8 +41,17 @@ class InputStreamReader {
   // will indicate the expected size of the content.
   virtual int ReadRawData(net::IOBuffer* buffer, int buffer_size);
 
+  // The range passed to the last Seek with its bounds computed. Invalid if
+  // no range was given or if the stream length is unknown, the whole stream
+  // is read then.
+  const net::HttpByteRange& byte_range() const { return byte_range_; }
+
+  // The length of the whole stream as known by the last Seek, -1 if unknown.
+  int64_t stream_size() const { return stream_size_; }
+
  private:
-  // Verify the requested range against the stream size.
+  // Verify the requested range against the stream length, or drop it if the
+  // length isn't known.
   // net::OK is returned on success, the error code otherwise.
   int VerifyRequestedRange(net::HttpByteRange* byte_range,
                            int* content_size);
@@ -52,6 +61,8 @@ class InputStreamReader {
   int SkipToRequestedRange(const net::HttpByteRange& byte_range);
 
   xwalk::InputStream* stream_;
+  net::HttpByteRange byte_range_;
+  int64_t stream_size_;
 
   DISALLOW_COPY_AND_ASSIGN(InputStreamReader);
 };
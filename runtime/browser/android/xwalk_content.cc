@@ -28,6 +28,7 @@
 #include "components/navigation_interception/intercept_navigation_delegate.h"
 #include "xwalk/application/common/application_manifest_constants.h"
 #include "xwalk/application/common/manifest.h"
+#include "xwalk/runtime/browser/android/intercept_request_filter.h"
 #include "xwalk/runtime/browser/android/net_disk_cache_remover.h"
 #include "xwalk/runtime/browser/android/state_serializer.h"
 #include "xwalk/runtime/browser/android/xwalk_contents_client_bridge.h"
@@ -176,8 +177,10 @@ content::WebContents* XWalkContent::CreateWebContents(
 
   XWalkContentsClientBridgeBase::Associate(web_contents,
       contents_client_bridge_.get());
+  intercept_request_filter_ = new InterceptRequestFilter();
   XWalkContentsIoThreadClientImpl::Associate(web_contents,
-      ScopedJavaLocalRef<jobject>(env, io_thread_client));
+      ScopedJavaLocalRef<jobject>(env, io_thread_client),
+      intercept_request_filter_.get());
   int render_process_id = web_contents->GetRenderProcessHost()->GetID();
   int render_frame_id = web_contents->GetRoutingID();
   RuntimeResourceDispatcherHostDelegateAndroid::OnIoThreadClientReady(
@@ -385,6 +388,33 @@ base::android::ScopedJavaLocalRef<jbyteArray> XWalkContent::GetState(
   }
 }
 
+void XWalkContent::SetInterceptLoadRequestPatterns(JNIEnv* env,
+                                                   jobject obj,
+                                                   jobjectArray patterns) {
+  DCHECK(BrowserThread::CurrentlyOn(BrowserThread::UI));
+  std::vector<std::string> pattern_list;
+  if (patterns) {
+    base::android::AppendJavaStringArrayToStringVector(
+        env, patterns, &pattern_list);
+  }
+  intercept_request_filter_->SetPatterns(pattern_list);
+}
+
+void XWalkContent::SetInterceptLoadRequestListeners(JNIEnv* env,
+                                                    jobject obj,
+                                                    jboolean intercept,
+                                                    jboolean notify) {
+  DCHECK(BrowserThread::CurrentlyOn(BrowserThread::UI));
+  intercept_request_filter_->SetListeners(intercept, notify);
+}
+
+ScopedJavaLocalRef<jlongArray> XWalkContent::GetInterceptLoadRequestCounts(
+    JNIEnv* env, jobject obj) {
+  int64 counts[2];
+  intercept_request_filter_->GetCounts(&counts[0], &counts[1]);
+  return base::android::ToJavaLongArray(env, counts, arraysize(counts));
+}
+
 jboolean XWalkContent::SetState(JNIEnv* env, jobject obj, jbyteArray state) {
   std::vector<uint8> state_vector;
   base::android::JavaByteArrayToByteVector(env, state, &state_vector);
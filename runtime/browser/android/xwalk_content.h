@@ -11,6 +11,7 @@
 
 #include "base/android/jni_weak_ref.h"
 #include "base/android/scoped_java_ref.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
 #include "xwalk/runtime/browser/android/renderer_host/xwalk_render_view_host_ext.h"
 
@@ -23,6 +24,7 @@ class WebContents;
 
 namespace xwalk {
 
+class InterceptRequestFilter;
 class XWalkWebContentsDelegate;
 class XWalkContentsClientBridge;
 
@@ -45,6 +47,15 @@ class XWalkContent {
   base::android::ScopedJavaLocalRef<jbyteArray> GetState(JNIEnv* env,
                                                          jobject obj);
   jboolean SetState(JNIEnv* env, jobject obj, jbyteArray state);
+  void SetInterceptLoadRequestPatterns(JNIEnv* env,
+                                       jobject obj,
+                                       jobjectArray patterns);
+  void SetInterceptLoadRequestListeners(JNIEnv* env,
+                                        jobject obj,
+                                        jboolean intercept,
+                                        jboolean notify);
+  base::android::ScopedJavaLocalRef<jlongArray> GetInterceptLoadRequestCounts(
+      JNIEnv* env, jobject obj);
 
   XWalkRenderViewHostExt* render_view_host_ext() {
     return render_view_host_ext_.get();
@@ -83,6 +94,7 @@ class XWalkContent {
   scoped_ptr<XWalkRenderViewHostExt> render_view_host_ext_;
   scoped_ptr<XWalkContentsClientBridge> contents_client_bridge_;
   scoped_ptr<content::WebContents> web_contents_;
+  scoped_refptr<InterceptRequestFilter> intercept_request_filter_;
 
   // GURL is supplied by the content layer as requesting frame.
   // Callback is supplied by the content layer, and is invoked with the result
@@ -24,6 +24,7 @@
 #include "jni/XWalkContentsIoThreadClient_jni.h"
 #include "net/url_request/url_request.h"
 #include "url/gurl.h"
+#include "xwalk/runtime/browser/android/intercept_request_filter.h"
 #include "xwalk/runtime/browser/android/intercepted_request_data_impl.h"
 
 using base::android::AttachCurrentThread;
@@ -44,6 +45,7 @@ namespace {
 struct IoThreadClientData {
   bool pending_association;
   JavaObjectWeakGlobalRef io_thread_client;
+  scoped_refptr<InterceptRequestFilter> filter;
 
   IoThreadClientData();
 };
@@ -108,7 +110,7 @@ void RfhToIoThreadClientMap::Erase(pair<int, int> rfh_id) {
 class ClientMapEntryUpdater : public content::WebContentsObserver {
  public:
   ClientMapEntryUpdater(JNIEnv* env, WebContents* web_contents,
-                        jobject jdelegate);
+                        jobject jdelegate, InterceptRequestFilter* filter);
 
   virtual void RenderFrameCreated(RenderFrameHost* render_frame_host) OVERRIDE;
   virtual void RenderFrameDeleted(RenderFrameHost* render_frame_host) OVERRIDE;
@@ -116,13 +118,16 @@ class ClientMapEntryUpdater : public content::WebContentsObserver {
 
  private:
   JavaObjectWeakGlobalRef jdelegate_;
+  scoped_refptr<InterceptRequestFilter> filter_;
 };
 
 ClientMapEntryUpdater::ClientMapEntryUpdater(JNIEnv* env,
                                              WebContents* web_contents,
-                                             jobject jdelegate)
+                                             jobject jdelegate,
+                                             InterceptRequestFilter* filter)
     : content::WebContentsObserver(web_contents),
-      jdelegate_(env, jdelegate) {
+      jdelegate_(env, jdelegate),
+      filter_(filter) {
   DCHECK(web_contents);
   DCHECK(jdelegate);
 
@@ -134,6 +139,7 @@ void ClientMapEntryUpdater::RenderFrameCreated(RenderFrameHost* rfh) {
   IoThreadClientData client_data;
   client_data.io_thread_client = jdelegate_;
   client_data.pending_association = false;
+  client_data.filter = filter_;
   RfhToIoThreadClientMap::GetInstance()->Set(
       GetRenderFrameHostIdPair(rfh), client_data);
 }
@@ -166,7 +172,8 @@ XWalkContentsIoThreadClient::FromID(int render_process_id,
   DCHECK(!client_data.pending_association || java_delegate.is_null());
   return scoped_ptr<XWalkContentsIoThreadClient>(
       new XWalkContentsIoThreadClientImpl(
-          client_data.pending_association, java_delegate));
+          client_data.pending_association, java_delegate,
+          client_data.filter.get()));
 }
 
 // static
@@ -198,17 +205,20 @@ void XWalkContentsIoThreadClientImpl::RegisterPendingContents(
 // static
 void XWalkContentsIoThreadClientImpl::Associate(
     WebContents* web_contents,
-    const JavaRef<jobject>& jclient) {
+    const JavaRef<jobject>& jclient,
+    InterceptRequestFilter* filter) {
   JNIEnv* env = AttachCurrentThread();
   // The ClientMapEntryUpdater lifespan is tied to the WebContents.
-  new ClientMapEntryUpdater(env, web_contents, jclient.obj());
+  new ClientMapEntryUpdater(env, web_contents, jclient.obj(), filter);
 }
 
 XWalkContentsIoThreadClientImpl::XWalkContentsIoThreadClientImpl(
     bool pending_association,
-    const JavaRef<jobject>& obj)
+    const JavaRef<jobject>& obj,
+    InterceptRequestFilter* filter)
   : pending_association_(pending_association),
-    java_object_(obj) {
+    java_object_(obj),
+    filter_(filter) {
 }
 
 XWalkContentsIoThreadClientImpl::~XWalkContentsIoThreadClientImpl() {
@@ -238,6 +248,12 @@ XWalkContentsIoThreadClientImpl::ShouldInterceptRequest(
   DCHECK(BrowserThread::CurrentlyOn(BrowserThread::IO));
   if (java_object_.is_null())
     return scoped_ptr<InterceptedRequestData>();
+  // Most embedders intercept a few URLs, don't go through Java for others
+  // unless the load notifications are listened to.
+  InterceptRequestFilter::Delivery delivery = filter_.get() ?
+      filter_->Filter(location) : InterceptRequestFilter::INTERCEPT;
+  if (delivery == InterceptRequestFilter::SKIP)
+    return scoped_ptr<InterceptedRequestData>();
   const content::ResourceRequestInfo* info =
       content::ResourceRequestInfo::ForRequest(request);
   bool is_main_frame = info &&
@@ -248,7 +264,8 @@ XWalkContentsIoThreadClientImpl::ShouldInterceptRequest(
       ConvertUTF8ToJavaString(env, location.spec());
   ScopedJavaLocalRef<jobject> ret =
       Java_XWalkContentsIoThreadClient_shouldInterceptRequest(
-          env, java_object_.obj(), jstring_url.obj(), is_main_frame);
+          env, java_object_.obj(), jstring_url.obj(), is_main_frame,
+          delivery == InterceptRequestFilter::INTERCEPT);
   if (ret.is_null())
     return scoped_ptr<InterceptedRequestData>();
   return scoped_ptr<InterceptedRequestData>(
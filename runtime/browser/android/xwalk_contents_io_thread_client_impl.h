@@ -12,6 +12,7 @@
 #include "base/android/scoped_java_ref.h"
 #include "base/basictypes.h"
 #include "base/compiler_specific.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
 
 class GURL;
@@ -26,6 +27,7 @@ class URLRequest;
 
 namespace xwalk {
 
+class InterceptRequestFilter;
 class InterceptedRequestData;
 
 class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
@@ -35,15 +37,19 @@ class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
 
   // Associates the |jclient| instance (which must implement the
   // XWalkContentsIoThreadClient Java interface) with the |web_contents|.
+  // Only the requests passing |filter| are delivered to
+  // |jclient|.shouldInterceptRequest.
   // This should be called at most once per |web_contents|.
   static void Associate(content::WebContents* web_contents,
-                        const base::android::JavaRef<jobject>& jclient);
+                        const base::android::JavaRef<jobject>& jclient,
+                        InterceptRequestFilter* filter);
 
   // Either |pending_associate| is true or |jclient| holds a non-null
-  // Java object.
+  // Java object. |filter| may be NULL.
   XWalkContentsIoThreadClientImpl(
       bool pending_associate,
-      const base::android::JavaRef<jobject>& jclient);
+      const base::android::JavaRef<jobject>& jclient,
+      InterceptRequestFilter* filter);
   virtual ~XWalkContentsIoThreadClientImpl() OVERRIDE;
 
   // Implementation of XWalkContentsIoThreadClient.
@@ -67,6 +73,7 @@ class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
  private:
   bool pending_association_;
   base::android::ScopedJavaGlobalRef<jobject> java_object_;
+  scoped_refptr<InterceptRequestFilter> filter_;
 
   DISALLOW_COPY_AND_ASSIGN(XWalkContentsIoThreadClientImpl);
 };
@@ -0,0 +1,77 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+
+import org.xwalk.core.ReflectionHelper;
+import org.xwalk.core.XWalkNavigationHistory;
+import org.xwalk.core.XWalkView;
+import org.xwalk.core.direct.XWalkViewBridgeCalls;
+
+/**
+ * Test suite for the direct wrapper to bridge calls, used when the library is
+ * embedded in the application as in this test.
+ */
+public class DirectBridgeCallsTest extends XWalkViewTestBase {
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private Object invokeSuper(Object bridge, String name) {
+        return ReflectionHelper.invokeMethod(
+                ReflectionHelper.loadMethod(bridge.getClass(), name), bridge);
+    }
+
+    @SmallTest
+    @Feature({"DirectBridgeCalls"})
+    public void testWrapperCallsBridgeDirectly() throws Throwable {
+        final XWalkView view = getXWalkView();
+        boolean direct = runTestOnUiThreadAndGetResult(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                Object bridge = ReflectionHelper.getBridgeOrWrapper(view);
+                assertTrue(bridge instanceof XWalkViewBridgeCalls);
+
+                Field field = XWalkView.class.getDeclaredField("bridgeCalls");
+                field.setAccessible(true);
+                return field.get(view) == bridge;
+            }
+        });
+        assertTrue(direct);
+    }
+
+    @SmallTest
+    @Feature({"DirectBridgeCalls"})
+    public void testDirectCallsMatchReflection() throws Throwable {
+        loadUrlSync("file:///android_asset/www/index.html");
+
+        final XWalkView view = getXWalkView();
+        runTestOnUiThreadAndGetResult(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                Object bridge = ReflectionHelper.getBridgeOrWrapper(view);
+
+                // Object, primitive and internal class returns.
+                assertEquals(invokeSuper(bridge, "getTitleSuper"), view.getTitle());
+                assertEquals(invokeSuper(bridge, "hasEnteredFullscreenSuper"),
+                        view.hasEnteredFullscreen());
+                XWalkNavigationHistory history = view.getNavigationHistory();
+                XWalkNavigationHistory reflected = (XWalkNavigationHistory)
+                        ReflectionHelper.getBridgeOrWrapper(
+                                invokeSuper(bridge, "getNavigationHistorySuper"));
+                assertEquals(reflected.size(), history.size());
+                assertEquals(1, history.size());
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.chromium.base.test.util.Feature;
+
+import org.xwalk.core.XWalkResourceClient;
+import org.xwalk.core.XWalkUIClient;
+import org.xwalk.core.XWalkView;
+
+/**
+ * Test suite for the callbacks overridden by the clients, which are still
+ * delivered through the reflection layer while the others are skipped.
+ */
+public class OverriddenCallbacksTest extends XWalkViewTestBase {
+    private static final String URL = "file:///android_asset/www/index.html";
+
+    @SmallTest
+    @Feature({"OverriddenCallbacks"})
+    public void testOnLoadStartedOverriddenDirectly() throws Throwable {
+        final TestHelperBridge.OnLoadStartedHelper helper =
+                mTestHelperBridge.getOnLoadStartedHelper();
+        setResourceClient(new XWalkResourceClient(getXWalkView()) {
+            @Override
+            public void onLoadStarted(XWalkView view, String url) {
+                helper.notifyCalled(url);
+            }
+        });
+        int count = helper.getCallCount();
+
+        loadUrlSync(URL);
+        helper.waitForCallback(count);
+        assertEquals(URL, helper.getUrl());
+    }
+
+    @SmallTest
+    @Feature({"OverriddenCallbacks"})
+    public void testOnLoadStartedOverriddenBySuperclass() throws Throwable {
+        final TestHelperBridge.OnLoadStartedHelper helper =
+                mTestHelperBridge.getOnLoadStartedHelper();
+        // The override is found up the wrapper class hierarchy.
+        setResourceClient(new TestXWalkResourceClient() {});
+        int count = helper.getCallCount();
+
+        loadUrlSync(URL);
+        helper.waitForCallback(count);
+        assertEquals(URL, helper.getUrl());
+    }
+
+    @SmallTest
+    @Feature({"OverriddenCallbacks"})
+    public void testOnScaleChangedOverriddenDirectly() throws Throwable {
+        final TestHelperBridge.OnScaleChangedHelper helper =
+                mTestHelperBridge.getOnScaleChangedHelper();
+        setUIClient(new XWalkUIClient(getXWalkView()) {
+            @Override
+            public void onScaleChanged(XWalkView view, float oldScale, float newScale) {
+                helper.notifyCalled(newScale);
+            }
+        });
+        int count = helper.getCallCount();
+
+        loadDataAsync(null, getFileContent("scale_changed.html"), "text/html", false);
+        helper.waitForCallback(count);
+        assertTrue(Float.compare(helper.getScale(), 0.0f) > 0);
+    }
+
+    @SmallTest
+    @Feature({"OverriddenCallbacks"})
+    public void testOnScaleChangedOverriddenBySuperclass() throws Throwable {
+        final TestHelperBridge.OnScaleChangedHelper helper =
+                mTestHelperBridge.getOnScaleChangedHelper();
+        setUIClient(new TestXWalkUIClient() {});
+        int count = helper.getCallCount();
+
+        loadDataAsync(null, getFileContent("scale_changed.html"), "text/html", false);
+        helper.waitForCallback(count);
+        assertTrue(Float.compare(helper.getScale(), 0.0f) > 0);
+    }
+}
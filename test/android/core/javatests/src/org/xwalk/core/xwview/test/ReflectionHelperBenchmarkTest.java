@@ -0,0 +1,70 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+
+import org.xwalk.core.ReflectionHelper;
+import org.xwalk.core.XWalkView;
+
+/**
+ * Measures the overhead of wrapper to bridge calls, with the lookup done on
+ * each call as before the dispatch cache and with the cached dispatch.
+ */
+public class ReflectionHelperBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "ReflectionHelperBenchmarkTest";
+    private static final int ITERATIONS = 10000;
+    private static final String METHOD = "getAPIVersionSuper";
+
+    @MediumTest
+    @Feature({"ReflectionHelper"})
+    public void testCallOverhead() throws Throwable {
+        final XWalkView view = getXWalkView();
+        long[] times = runTestOnUiThreadAndGetResult(new Callable<long[]>() {
+            @Override
+            public long[] call() throws Exception {
+                Object bridge = ReflectionHelper.getBridgeOrWrapper(view);
+                Class<?> clazz = bridge.getClass();
+                assertSame(ReflectionHelper.loadMethod(clazz, METHOD),
+                        ReflectionHelper.loadMethod(clazz, METHOD));
+
+                // The first round only warms up both paths.
+                long uncachedNs = 0;
+                long cachedNs = 0;
+                for (int round = 0; round < 2; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        Method method = clazz.getMethod(METHOD);
+                        method.invoke(bridge);
+                    }
+                    uncachedNs = (System.nanoTime() - start) / ITERATIONS;
+
+                    start = System.nanoTime();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        ReflectionHelper.invokeMethod(
+                                ReflectionHelper.loadMethod(clazz, METHOD), bridge);
+                    }
+                    cachedNs = (System.nanoTime() - start) / ITERATIONS;
+                }
+
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) view.getAPIVersion();
+                long wrapperNs = (System.nanoTime() - start) / ITERATIONS;
+
+                return new long[] { uncachedNs, cachedNs, wrapperNs };
+            }
+        });
+        Log.i(TAG, "uncached lookup and invoke " + times[0] + "ns, cached " + times[1] +
+                "ns, XWalkView.getAPIVersion() " + times[2] + "ns");
+        assertTrue("The cached dispatch is slower than the lookup on each call",
+                times[1] <= times[0]);
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.content.Context;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.chromium.base.test.util.Feature;
+
+import org.xwalk.core.ReflectionHelper;
+
+/**
+ * Test suite for the warm-up of the reflection layer and the barrier before
+ * its first use.
+ */
+public class ReflectionWarmUpTest extends XWalkViewTestBase {
+    private static Field getField(String name) throws Exception {
+        Field field = ReflectionHelper.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    @SmallTest
+    @Feature({"ReflectionWarmUp"})
+    public void testWarmUpClassesGenerated() throws Throwable {
+        String[] names = (String[]) getField("WARM_UP_CLASSES").get(null);
+        List<String> classes = Arrays.asList(names);
+        assertTrue(classes.contains("org.xwalk.core.XWalkView"));
+        assertTrue(classes.contains("org.xwalk.core.internal.XWalkNavigationHistoryBridge"));
+        ClassLoader loader = ReflectionHelper.class.getClassLoader();
+        for (String name : names) {
+            Class.forName(name, true, loader);
+        }
+    }
+
+    @SmallTest
+    @Feature({"ReflectionWarmUp"})
+    public void testLoadClassWaitsForWarmUp() throws Throwable {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                }
+                done.set(true);
+            }
+        });
+        Field warmUpThread = getField("sWarmUpThread");
+        warmUpThread.set(null, thread);
+        thread.start();
+
+        assertNotNull(ReflectionHelper.loadClass("org.xwalk.core.XWalkView"));
+        assertTrue(done.get());
+        assertNull(warmUpThread.get(null));
+    }
+
+    @SmallTest
+    @Feature({"ReflectionWarmUp"})
+    public void testWarmUpInitializes() throws Throwable {
+        Field loader = getField("sBridgeOrWrapperLoader");
+        Field warmUpThread = getField("sWarmUpThread");
+        Method warmUp = ReflectionHelper.class.getDeclaredMethod("warmUp", Context.class);
+        warmUp.setAccessible(true);
+
+        Object savedLoader = loader.get(null);
+        try {
+            // Forget the initialization done by the XWalkView of the test.
+            loader.set(null, null);
+            warmUp.invoke(null, getActivity().getApplicationContext());
+            Thread thread = (Thread) warmUpThread.get(null);
+            assertNotNull(thread);
+
+            // The warm-up thread alone initializes the class loaders.
+            thread.join();
+            assertNotNull(loader.get(null));
+            assertNotNull(ReflectionHelper.loadClass("org.xwalk.core.XWalkView"));
+            assertNull(warmUpThread.get(null));
+        } finally {
+            if (loader.get(null) == null) loader.set(null, savedLoader);
+        }
+    }
+}
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 
 import org.chromium.base.test.util.DisabledTest;
@@ -23,7 +24,9 @@ import org.chromium.content.browser.test.util.CallbackHelper;
 import org.chromium.content.browser.test.util.TestCallbackHelperContainer.OnReceivedErrorHelper;
 import org.chromium.net.test.util.TestWebServer;
 
+import org.xwalk.core.ReflectionHelper;
 import org.xwalk.core.XWalkView;
+import org.xwalk.core.internal.XWalkViewInternal;
 import org.xwalk.core.xwview.test.TestContentProvider;
 import org.xwalk.core.xwview.test.util.CommonResources;
 
@@ -65,6 +68,17 @@ public class ShouldInterceptLoadRequestTest extends XWalkViewTestBase {
                 mimeType, encoding, new ByteArrayInputStream(input.getBytes(encoding)));
     }
 
+    private long[] getInterceptLoadRequestCounts() throws Exception {
+        return runTestOnUiThreadAndGetResult(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                XWalkViewInternal view = (XWalkViewInternal)
+                        ReflectionHelper.getBridgeOrWrapper(getXWalkView());
+                return view.getInterceptLoadRequestCounts();
+            }
+        });
+    }
+
     private TestWebServer mWebServer;
     private TestXWalkResourceClient1 mTestXWalkResourceClient;
     private TestHelperBridge.ShouldInterceptLoadRequestHelper mShouldInterceptLoadRequestHelper;
@@ -316,6 +330,92 @@ public class ShouldInterceptLoadRequestTest extends XWalkViewTestBase {
                 CommonResources.FAVICON_FILENAME));
     }
 
+    @SmallTest
+    @Feature({"ShouldInterceptLoadRequest"})
+    public void testOnlyCalledForMatchingPatterns() throws Throwable {
+        final String imagePath = "/" + CommonResources.FAVICON_FILENAME;
+        final String imageUrl = mWebServer.setResponseBase64(imagePath,
+                CommonResources.FAVICON_DATA_BASE64, CommonResources.getImagePngHeaders(true));
+        final String pageWithImage =
+            addPageToTestServer(mWebServer, "/page_with_image.html",
+                    CommonResources.getOnImageLoadedHtml(CommonResources.FAVICON_FILENAME));
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getXWalkView().setInterceptLoadRequestPatterns(new String[] {"*.png"});
+            }
+        });
+
+        long[] counts = getInterceptLoadRequestCounts();
+        int callCount = mShouldInterceptLoadRequestHelper.getCallCount();
+        int onLoadStartedCallCount = mOnLoadStartedHelper.getCallCount();
+        mShouldInterceptLoadRequestHelper.setUrlToWaitFor(null);
+        loadUrlSync(pageWithImage);
+        mShouldInterceptLoadRequestHelper.waitForCallback(callCount, 1);
+
+        // Only the image is intercepted, the page is skipped.
+        List<String> urls = mShouldInterceptLoadRequestHelper.getUrls();
+        assertEquals(1, urls.size() - callCount);
+        assertEquals(imageUrl, urls.get(urls.size() - 1));
+        long[] newCounts = getInterceptLoadRequestCounts();
+        assertEquals(1, newCounts[0] - counts[0]);
+        assertTrue(newCounts[1] - counts[1] >= 1);
+
+        // onLoadStarted() is still called for both.
+        mOnLoadStartedHelper.waitForCallback(onLoadStartedCallCount, 2);
+    }
+
+    @SmallTest
+    @Feature({"ShouldInterceptLoadRequest"})
+    public void testOnLoadsStartedCalledWhenCoalesced() throws Throwable {
+        final String[] imageNames = {"image1.png", "image2.png", "image3.png"};
+        final List<String> expectedUrls = new ArrayList<String>();
+        String html = "<html><body>";
+        for (String name : imageNames) {
+            expectedUrls.add(mWebServer.setResponseBase64("/" + name,
+                    CommonResources.FAVICON_DATA_BASE64, CommonResources.getImagePngHeaders(true)));
+            html += "<img src=\"" + name + "\">";
+        }
+        html += "</body></html>";
+        final String pageWithImages =
+            addPageToTestServer(mWebServer, "/page_with_images.html", html);
+        expectedUrls.add(0, pageWithImages);
+
+        final List<String> startedUrls = new ArrayList<String>();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getXWalkView().setResourceClient(new TestXWalkResourceClient1() {
+                    @Override
+                    public void onLoadsStarted(XWalkView view, String[] urls) {
+                        for (String url : urls) startedUrls.add(url);
+                    }
+                });
+                getXWalkView().setCoalesceResourceLoadNotifications(true);
+            }
+        });
+
+        int onLoadStartedCallCount = mOnLoadStartedHelper.getCallCount();
+        loadUrlSync(pageWithImages);
+        assertTrue(pollOnUiThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return startedUrls.size() >= expectedUrls.size();
+            }
+        }));
+
+        // Every URL comes through onLoadsStarted() in request order, the per
+        // URL onLoadStarted() isn't called on top of it.
+        List<String> urls = runTestOnUiThreadAndGetResult(new Callable<List<String>>() {
+            @Override
+            public List<String> call() {
+                return new ArrayList<String>(startedUrls);
+            }
+        });
+        assertEquals(expectedUrls, urls);
+        assertEquals(onLoadStartedCallCount, mOnLoadStartedHelper.getCallCount());
+    }
+
     @SmallTest
     @Feature({"ShouldInterceptLoadRequest"})
     public void testOnReceivedErrorCallback() throws Throwable {
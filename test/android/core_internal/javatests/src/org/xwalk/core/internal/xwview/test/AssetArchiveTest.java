@@ -0,0 +1,183 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Test suite for the web application archive, written here in the layout of
+ * app/tools/android/asset_archive.py.
+ */
+public class AssetArchiveTest extends XWalkViewInternalTestBase {
+    private static final String ARCHIVE_CLASS = "org.xwalk.core.internal.AndroidAssetArchive";
+    private static final String ARCHIVE_FILE = "www.archive";
+    private static final String STAGED_ARCHIVE_FILE = "www.archive.new";
+
+    // Sorted by their UTF-8 bytes, as asset_archive.py does. Some names are
+    // prefixes of others.
+    private static final String[] NAMES = {
+        "www/a",
+        "www/a.js",
+        "www/ab",
+        "www/index.html",
+        "www/été.txt",
+        "www/日本.txt",
+    };
+
+    private File mFilesDir;
+    private Context mContext;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mFilesDir = new File(getActivity().getCacheDir(), "asset-archive-test");
+        deleteFiles();
+        assertTrue(mFilesDir.mkdirs());
+        // The archive of the application is looked up in this directory.
+        mContext = new ContextWrapper(getActivity()) {
+            @Override
+            public File getFilesDir() {
+                return mFilesDir;
+            }
+        };
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        deleteFiles();
+        super.tearDown();
+    }
+
+    private void deleteFiles() {
+        File[] files = mFilesDir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        mFilesDir.delete();
+    }
+
+    private static String content(String name) {
+        return "Content of " + name;
+    }
+
+    private static byte[] createArchive(String[] names) throws IOException {
+        byte[][] encodedNames = new byte[names.length][];
+        byte[][] data = new byte[names.length][];
+        int namesSize = 0;
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = names[i].getBytes("UTF-8");
+            data[i] = content(names[i]).getBytes("UTF-8");
+            namesSize += encodedNames[i].length;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("XWAR");
+        out.writeInt(1);
+        out.writeInt(names.length);
+        int nameOffset = 12 + names.length * 16;
+        int dataOffset = nameOffset + namesSize;
+        for (int i = 0; i < names.length; i++) {
+            out.writeInt(nameOffset);
+            out.writeInt(encodedNames[i].length);
+            out.writeInt(dataOffset);
+            out.writeInt(data[i].length);
+            nameOffset += encodedNames[i].length;
+            dataOffset += data[i].length;
+        }
+        for (byte[] name : encodedNames) out.write(name);
+        for (byte[] content : data) out.write(content);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private void writeFile(String name, byte[] content) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(mFilesDir, name));
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    // Load the archive as a new process would, bypassing the shared instance.
+    private Object loadArchive() throws Exception {
+        Method load = Class.forName(ARCHIVE_CLASS).getDeclaredMethod("load", Context.class);
+        load.setAccessible(true);
+        return load.invoke(null, mContext);
+    }
+
+    private static String read(Object archive, String name) throws Exception {
+        Method open = archive.getClass().getDeclaredMethod("open", String.class);
+        open.setAccessible(true);
+        InputStream stream = (InputStream) open.invoke(archive, name);
+        if (stream == null) return null;
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64];
+        int read;
+        while ((read = stream.read(buffer)) != -1) content.write(buffer, 0, read);
+        stream.close();
+        return new String(content.toByteArray(), "UTF-8");
+    }
+
+    @SmallTest
+    @Feature({"AssetArchive"})
+    public void testLookup() throws Throwable {
+        writeFile(ARCHIVE_FILE, createArchive(NAMES));
+        Object archive = loadArchive();
+        assertNotNull(archive);
+
+        for (String name : NAMES) assertEquals(name, content(name), read(archive, name));
+
+        // Absent names, including prefixes and extensions of present ones.
+        for (String name : Arrays.asList("www/", "www/a.", "www/abc", "www/index.htm",
+                "www/été", "www/日.txt", "www/z", "", "index.html")) {
+            assertNull(name, read(archive, name));
+        }
+    }
+
+    @SmallTest
+    @Feature({"AssetArchive"})
+    public void testTruncatedStagedIgnored() throws Throwable {
+        writeFile(ARCHIVE_FILE, createArchive(new String[] {"www/index.html"}));
+        byte[] staged = createArchive(NAMES);
+        writeFile(STAGED_ARCHIVE_FILE, Arrays.copyOf(staged, staged.length - 5));
+
+        Object archive = loadArchive();
+        assertNotNull(archive);
+        // Still the previous archive, the staged one is left for the next
+        // start.
+        assertNull(read(archive, "www/a"));
+        assertEquals(content("www/index.html"), read(archive, "www/index.html"));
+        assertTrue(new File(mFilesDir, STAGED_ARCHIVE_FILE).isFile());
+    }
+
+    @SmallTest
+    @Feature({"AssetArchive"})
+    public void testValidStagedInstalled() throws Throwable {
+        writeFile(ARCHIVE_FILE, createArchive(new String[] {"www/index.html"}));
+        byte[] staged = createArchive(NAMES);
+        writeFile(STAGED_ARCHIVE_FILE, staged);
+
+        Object archive = loadArchive();
+        assertNotNull(archive);
+        assertEquals(content("www/a"), read(archive, "www/a"));
+        assertFalse(new File(mFilesDir, STAGED_ARCHIVE_FILE).exists());
+        assertEquals(staged.length, new File(mFilesDir, ARCHIVE_FILE).length());
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.content.ComponentCallbacks2;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Test suite for the in-memory cache of the Android assets.
+ */
+public class AssetCacheTest extends XWalkViewInternalTestBase {
+    // Compressed in the APK, so read through the cache.
+    private static final String URL = "file:///android_asset/www/index.html";
+
+    private int[] getAssetCacheCounts() throws Exception {
+        return runTestOnUiThreadAndGetResult(new Callable<int[]>() {
+            @Override
+            public int[] call() {
+                return getXWalkView().getAssetCacheCounts();
+            }
+        });
+    }
+
+    private void trimMemory() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getActivity().getApplication().onTrimMemory(
+                        ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        // Start from an empty cache, it is shared with the previous tests.
+        trimMemory();
+    }
+
+    @SmallTest
+    @Feature({"AssetCache"})
+    public void testHitAfterMiss() throws Throwable {
+        int[] counts = getAssetCacheCounts();
+
+        loadUrlSync(URL);
+        int[] newCounts = getAssetCacheCounts();
+        assertEquals(counts[0], newCounts[0]);
+        assertEquals(counts[1] + 1, newCounts[1]);
+
+        // Keyed by asset path, the query doesn't matter.
+        loadUrlSync(URL + "?reload");
+        counts = newCounts;
+        newCounts = getAssetCacheCounts();
+        assertEquals(counts[0] + 1, newCounts[0]);
+        assertEquals(counts[1], newCounts[1]);
+    }
+
+    @SmallTest
+    @Feature({"AssetCache"})
+    public void testTrimMemoryClears() throws Throwable {
+        loadUrlSync(URL);
+        int[] counts = getAssetCacheCounts();
+
+        trimMemory();
+        loadUrlSync(URL + "?reload");
+        int[] newCounts = getAssetCacheCounts();
+        assertEquals(counts[0], newCounts[0]);
+        assertEquals(counts[1] + 1, newCounts[1]);
+    }
+}
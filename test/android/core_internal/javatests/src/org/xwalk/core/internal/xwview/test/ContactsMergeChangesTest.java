@@ -0,0 +1,115 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Checks how the pending contact change events are merged while they are
+ * coalesced, see ContactEventListener.mergeChanges().
+ */
+public class ContactsMergeChangesTest extends TestCase {
+    private static final String LISTENER_CLASS =
+            "org.xwalk.core.internal.extension.api.contacts.ContactEventListener";
+
+    private static String mergeChanges(String pending, String latest) throws Exception {
+        // Package private, and loaded by another class loader than the tests.
+        Method method = Class.forName(LISTENER_CLASS).getDeclaredMethod(
+                "mergeChanges", String.class, String.class);
+        method.setAccessible(true);
+        return (String) method.invoke(null, pending, latest);
+    }
+
+    private static String change(String[] added, String[] removed, String[] modified)
+            throws Exception {
+        JSONObject data = new JSONObject();
+        if (added != null) data.put("added", new JSONArray(added));
+        if (removed != null) data.put("removed", new JSONArray(removed));
+        if (modified != null) data.put("modified", new JSONArray(modified));
+        JSONObject message = new JSONObject();
+        message.put("reply", "contactschange");
+        message.put("data", data);
+        return message.toString();
+    }
+
+    private static HashSet<String> getIDs(JSONObject data, String name) throws Exception {
+        HashSet<String> ids = new HashSet<String>();
+        JSONArray array = data.optJSONArray(name);
+        if (array == null) return ids;
+        for (int i = 0; i < array.length(); i++) ids.add(array.getString(i));
+        return ids;
+    }
+
+    private static void assertIDs(JSONObject data, String name, String... expected)
+            throws Exception {
+        HashSet<String> ids = new HashSet<String>();
+        for (String id : expected) ids.add(id);
+        assertEquals(name, ids, getIDs(data, name));
+        // Empty lists are left out.
+        if (expected.length == 0) assertFalse(name, data.has(name));
+    }
+
+    @SmallTest
+    @Feature({"ContactsMergeChanges"})
+    public void testUnion() throws Throwable {
+        JSONObject merged = new JSONObject(mergeChanges(
+                change(new String[] {"1"}, new String[] {"2"}, new String[] {"3"}),
+                change(new String[] {"4"}, new String[] {"5"}, new String[] {"6"})));
+        assertEquals("contactschange", merged.getString("reply"));
+        JSONObject data = merged.getJSONObject("data");
+        assertIDs(data, "added", "1", "4");
+        assertIDs(data, "removed", "2", "5");
+        assertIDs(data, "modified", "3", "6");
+    }
+
+    @SmallTest
+    @Feature({"ContactsMergeChanges"})
+    public void testAddedThenRemoved() throws Throwable {
+        JSONObject data = new JSONObject(mergeChanges(
+                change(new String[] {"1"}, null, null),
+                change(null, new String[] {"1"}, null))).getJSONObject("data");
+        assertIDs(data, "added");
+        assertIDs(data, "removed", "1");
+        assertIDs(data, "modified");
+    }
+
+    @SmallTest
+    @Feature({"ContactsMergeChanges"})
+    public void testRemovedThenAdded() throws Throwable {
+        JSONObject data = new JSONObject(mergeChanges(
+                change(null, new String[] {"1"}, null),
+                change(new String[] {"1"}, null, null))).getJSONObject("data");
+        assertIDs(data, "added", "1");
+        assertIDs(data, "removed");
+        assertIDs(data, "modified");
+    }
+
+    @SmallTest
+    @Feature({"ContactsMergeChanges"})
+    public void testModifiedThenRemoved() throws Throwable {
+        JSONObject data = new JSONObject(mergeChanges(
+                change(null, null, new String[] {"1", "2"}),
+                change(null, new String[] {"1"}, null))).getJSONObject("data");
+        assertIDs(data, "removed", "1");
+        assertIDs(data, "modified", "2");
+    }
+
+    @SmallTest
+    @Feature({"ContactsMergeChanges"})
+    public void testMalformedKeepsLatest() throws Throwable {
+        String latest = change(new String[] {"1"}, null, null);
+        assertEquals(latest, mergeChanges("not json", latest));
+        assertEquals("{}", mergeChanges(latest, "{}"));
+    }
+}
@@ -0,0 +1,143 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.xwalk.core.internal.extension.XWalkExtensionChunkedReply;
+
+/**
+ * Checks how XWalkExtensionChunkedReply splits a result into chunks and ends
+ * it, with a finished result or with an error.
+ */
+public class ExtensionChunkedReplyTest extends TestCase {
+    private static final int CHUNK_SIZE = 3;
+
+    // Records the replies as "<items>" for the chunks followed by more,
+    // "last:<items>" for the last chunk and "error:<error>" for an error.
+    private static class RecordingReply extends XWalkExtensionChunkedReply {
+        final List<String> mReplies = new ArrayList<String>();
+        boolean mFailSend;
+
+        RecordingReply() {
+            super(CHUNK_SIZE);
+        }
+
+        @Override
+        protected void send(JSONArray items, boolean last) throws JSONException {
+            if (mFailSend) throw new JSONException("Failed to build the reply");
+            mReplies.add((last ? "last:" : "") + items.toString());
+        }
+
+        @Override
+        protected void sendError(String error) {
+            mReplies.add("error:" + error);
+        }
+    }
+
+    private static void addItems(XWalkExtensionChunkedReply reply, int count)
+            throws JSONException {
+        for (int i = 0; i < count; i++) reply.add(i);
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testChunks() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        addItems(reply, 7);
+        reply.finish();
+
+        assertEquals(3, reply.mReplies.size());
+        assertEquals("[0,1,2]", reply.mReplies.get(0));
+        assertEquals("[3,4,5]", reply.mReplies.get(1));
+        assertEquals("last:[6]", reply.mReplies.get(2));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testFullLastChunk() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        addItems(reply, 6);
+        reply.finish();
+
+        // The last chunk is sent by finish() even when the items filled the
+        // previous one exactly.
+        assertEquals(3, reply.mReplies.size());
+        assertEquals("last:[]", reply.mReplies.get(2));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testEmptyResult() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        reply.finish();
+
+        assertEquals(1, reply.mReplies.size());
+        assertEquals("last:[]", reply.mReplies.get(0));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testAbortAfterFinish() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        addItems(reply, 2);
+        try {
+            reply.finish();
+        } finally {
+            reply.abort("Failed");
+        }
+
+        assertEquals(1, reply.mReplies.size());
+        assertEquals("last:[0,1]", reply.mReplies.get(0));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testAbortMidStream() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        addItems(reply, 4);
+        reply.abort("Failed");
+
+        // The chunk sent before stays delivered, the error ends the result
+        // and nothing can be added after it.
+        assertEquals(2, reply.mReplies.size());
+        assertEquals("[0,1,2]", reply.mReplies.get(0));
+        assertEquals("error:Failed", reply.mReplies.get(1));
+
+        reply.finish();
+        assertEquals(2, reply.mReplies.size());
+        try {
+            reply.add(4);
+            fail("Items can't be added to an aborted reply");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @SmallTest
+    @Feature({"ExtensionChunkedReply"})
+    public void testAbortWhenLastChunkFails() throws Throwable {
+        RecordingReply reply = new RecordingReply();
+        addItems(reply, 4);
+        reply.mFailSend = true;
+        try {
+            reply.finish();
+            fail("finish() should throw when the last chunk can't be built");
+        } catch (JSONException e) {
+        } finally {
+            reply.abort("Failed");
+        }
+
+        assertEquals(2, reply.mReplies.size());
+        assertEquals("error:Failed", reply.mReplies.get(1));
+    }
+}
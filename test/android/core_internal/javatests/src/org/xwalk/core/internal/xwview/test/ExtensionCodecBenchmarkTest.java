@@ -0,0 +1,119 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.xwalk.core.internal.extension.api.contacts.Contacts;
+import org.xwalk.extensions.common.XWalkExtensionCodec;
+
+/**
+ * Compares the cost and the payload size of the extension message codecs on
+ * a Contacts.find result.
+ */
+public class ExtensionCodecBenchmarkTest extends TestCase {
+    private static final String TAG = "ExtensionCodecBenchmarkTest";
+    private static final int CONTACT_COUNT = 200;
+    private static final int ITERATIONS = 20;
+
+    private static JSONArray createTypedValues(String type, String value) throws Exception {
+        JSONObject entry = new JSONObject();
+        entry.put("preferred", "false");
+        entry.put("types", new JSONArray().put(type));
+        entry.put("value", value);
+        return new JSONArray().put(entry);
+    }
+
+    // Shaped like the results built by ContactFinder, fields in the same
+    // order.
+    private static JSONObject createFindResult() throws Exception {
+        JSONArray contacts = new JSONArray();
+        for (int i = 0; i < CONTACT_COUNT; i++) {
+            JSONObject name = new JSONObject();
+            name.put("displayName", "Contact \u00dcn\u00efcode " + i);
+            name.put("givenNames", new JSONArray().put("Given" + i));
+            name.put("familyNames", new JSONArray().put("Family" + i));
+
+            JSONObject contact = new JSONObject();
+            contact.put("id", 1000L + i);
+            contact.put("name", name);
+            contact.put("lastUpdated", "2014-06-01T12:00:00Z");
+            contact.put("emails", createTypedValues("work", "contact" + i + "@example.com"));
+            if (i % 2 == 0) {
+                contact.put("addresses", createTypedValues("home", i + " Main Street"));
+            }
+            contact.put("phoneNumbers", createTypedValues("mobile", "+1 555 01" + i));
+            if (i % 2 == 0) contact.put("notes", new JSONArray().put("Note " + i));
+            contact.put("gender", i % 3 == 0 ? "female" : "male");
+            contacts.put(contact);
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("asyncCallId", "7");
+        result.put("data", contacts);
+        return result;
+    }
+
+    private void benchmark(String name, XWalkExtensionCodec codec, JSONObject value)
+            throws Exception {
+        XWalkExtensionCodec.Message message = codec.encode("find", value);
+        Object decoded = codec.decode(message);
+        // Android's JSONObject keeps the field order, so equal trees print
+        // the same.
+        assertEquals(value.toString(), decoded.toString());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) message = codec.encode("find", value);
+        long encodeUs = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) codec.decode(message);
+        long decodeUs = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        Log.i(TAG, name + ": " + message.getSize() + (message.isBinary() ? " bytes" : " chars") +
+                ", encode " + encodeUs + "us, decode " + decodeUs + "us");
+    }
+
+    @MediumTest
+    @Feature({"ExtensionCodec"})
+    public void testContactsFindResult() throws Throwable {
+        JSONObject result = createFindResult();
+        XWalkExtensionCodec schemaCodec =
+                XWalkExtensionCodec.withSchema(Contacts.FIND_RESULT_SCHEMA);
+
+        benchmark("json", XWalkExtensionCodec.JSON, result);
+        benchmark("binary", XWalkExtensionCodec.BINARY, result);
+        benchmark("schema", schemaCodec, result);
+
+        assertTrue(schemaCodec.encode("find", result).getSize() <
+                XWalkExtensionCodec.BINARY.encode("find", result).getSize());
+    }
+
+    @MediumTest
+    @Feature({"ExtensionCodec"})
+    public void testUnknownAndMissingFields() throws Throwable {
+        XWalkExtensionCodec codec = XWalkExtensionCodec.withSchema(
+                "{\"a\": \"\", \"b\": [{\"c\": \"\"}]}");
+        JSONObject value = new JSONObject(
+                "{\"b\": [{\"c\": -1.5, \"d\": null}], \"e\": true, \"f\": 4294967296}");
+        assertEquals(value.toString(), codec.decode(codec.encode("t", value)).toString());
+    }
+
+    @MediumTest
+    @Feature({"ExtensionCodec"})
+    public void testArrayWhereSchemaExpectsObject() throws Throwable {
+        XWalkExtensionCodec codec = XWalkExtensionCodec.withSchema(
+                "{\"a\": {\"x\": \"\"}, \"b\": [{\"y\": \"\"}]}");
+        JSONObject value = new JSONObject(
+                "{\"a\": [1, \"two\", {\"x\": 3}], \"b\": [[4], {\"y\": 5}]}");
+        assertEquals(value.toString(), codec.decode(codec.encode("t", value)).toString());
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.Arguments;
+import org.xwalk.core.internal.extension.XWalkExtensionCommandRouter.CommandHandler;
+
+/**
+ * Checks how XWalkExtensionCommandRouter parses the messages and routes them
+ * to the command handlers.
+ */
+public class ExtensionCommandRouterTest extends TestCase {
+    private XWalkExtensionCommandRouter mRouter;
+    private List<String> mHandled;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mHandled = new ArrayList<String>();
+        mRouter = new XWalkExtensionCommandRouter()
+                .register("find", new CommandHandler() {
+                    @Override
+                    public void handle(int instanceID, Arguments args) throws JSONException {
+                        mHandled.add(instanceID + ":find:" + args.getInt("asyncCallId"));
+                    }
+                })
+                .register("fail", new CommandHandler() {
+                    @Override
+                    public void handle(int instanceID, Arguments args) throws JSONException {
+                        args.getString("missing");
+                        mHandled.add("not reached");
+                    }
+                });
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testRoute() throws Throwable {
+        assertTrue(mRouter.route(3, "{\"cmd\": \"find\", \"asyncCallId\": 7}"));
+        assertEquals(1, mHandled.size());
+        assertEquals("3:find:7", mHandled.get(0));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testUnknownCommand() throws Throwable {
+        assertFalse(mRouter.route(1, "{\"cmd\": \"remove\"}"));
+        assertFalse(mRouter.route(1, "{\"asyncCallId\": 1}"));
+        assertFalse(mRouter.route(1, "{\"cmd\": 5}"));
+        assertFalse(mRouter.hasHandler("remove"));
+        assertFalse(mRouter.hasHandler(null));
+        assertTrue(mHandled.isEmpty());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testFailingHandler() throws Throwable {
+        // Routed, the missing argument is only logged.
+        assertTrue(mRouter.route(1, "{\"cmd\": \"fail\"}"));
+        assertTrue(mHandled.isEmpty());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testMalformedMessages() throws Throwable {
+        assertNull(mRouter.parse(null));
+        assertNull(mRouter.parse(""));
+        assertNull(mRouter.parse("[\"cmd\"]"));
+        assertNull(mRouter.parse("{\"cmd\": \"find\""));
+        assertNull(mRouter.parse("{\"cmd\" \"find\"}"));
+        assertNull(mRouter.parse("{\"cmd\": \"find\", \"options\": {\"a\": [1, 2}"));
+        assertNull(mRouter.parse("{\"cmd\": \"find\"} trailing"));
+        assertFalse(mRouter.route(1, "not json"));
+        assertTrue(mHandled.isEmpty());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testNumbers() throws Throwable {
+        Arguments args = mRouter.parse(
+                "{\"int\": 42, \"long\": 4294967296, \"double\": 1.5, \"text\": \"12\"}");
+        assertEquals(42, args.getInt("int"));
+        assertEquals("42", args.getString("int"));
+        // Numbers are kept in the narrowest type, as org.json does.
+        JSONObject object = args.toJSONObject();
+        assertEquals(Integer.class, object.get("int").getClass());
+        assertEquals(Long.class, object.get("long").getClass());
+        assertEquals(4294967296L, object.getLong("long"));
+        assertEquals(Double.class, object.get("double").getClass());
+        assertEquals(1.5, object.getDouble("double"), 0);
+        // Too wide for an int, truncated as Number.intValue() does.
+        assertEquals((int) 4294967296L, args.getInt("long"));
+        assertEquals(1, args.getInt("double"));
+        assertEquals(12, args.getInt("text"));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testNull() throws Throwable {
+        Arguments args = mRouter.parse("{\"cmd\": \"find\", \"options\": null}");
+        assertTrue(args.has("options"));
+        assertEquals("null", args.optString("options"));
+        assertNull(args.optJSONObject("options"));
+        assertTrue(args.toJSONObject().isNull("options"));
+        try {
+            args.getJSONObject("options");
+            fail();
+        } catch (JSONException e) {
+        }
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testNestedValues() throws Throwable {
+        String options = "{\"filter\": {\"name\": \"a}\\\"b\"}, \"fields\": [\"id\", \"name\"]}";
+        Arguments args = mRouter.parse(
+                "{\"cmd\": \"find\", \"options\": " + options + ", \"ids\": [1, [2, 3]]}");
+        assertEquals("find", args.getCommand());
+
+        // Passed on as the JSON text received.
+        assertEquals(options, args.getString("options"));
+        assertEquals(options, args.optString("options"));
+
+        JSONObject object = args.getJSONObject("options");
+        assertEquals("a}\"b", object.getJSONObject("filter").getString("name"));
+        assertEquals(2, object.getJSONArray("fields").length());
+        assertSame(object, args.getJSONObject("options"));
+        assertSame(object, args.optJSONObject("options"));
+
+        assertEquals(2, args.getJSONArray("ids").length());
+        assertEquals(3, args.getJSONArray("ids").getJSONArray(1).getInt(1));
+        assertNull(args.optJSONObject("ids"));
+        try {
+            args.getJSONObject("ids");
+            fail();
+        } catch (JSONException e) {
+        }
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testMalformedNestedValue() throws Throwable {
+        // The content of a nested value is only checked once asked for.
+        Arguments args = mRouter.parse("{\"cmd\": \"find\", \"options\": {\"a\" 1}}");
+        assertNotNull(args);
+        assertEquals("{\"a\" 1}", args.getString("options"));
+        assertNull(args.optJSONObject("options"));
+        try {
+            args.getJSONObject("options");
+            fail();
+        } catch (JSONException e) {
+        }
+    }
+
+    @SmallTest
+    @Feature({"ExtensionCommandRouter"})
+    public void testToJSONObject() throws Throwable {
+        Arguments args = mRouter.parse(
+                "{\"cmd\": \"find\", \"asyncCallId\": 3, \"flag\": true," +
+                " \"options\": {\"limit\": 10}, \"ids\": [1, 2]}");
+        JSONObject object = args.toJSONObject();
+        assertEquals("find", object.getString("cmd"));
+        assertEquals(3, object.getInt("asyncCallId"));
+        assertTrue(object.getBoolean("flag"));
+        assertEquals(10, object.getJSONObject("options").getInt("limit"));
+        assertEquals(2, object.getJSONArray("ids").length());
+        assertSame(object, args.toJSONObject());
+        // The nested values are shared with the arguments.
+        assertSame(object.getJSONObject("options"), args.getJSONObject("options"));
+    }
+}
@@ -4,9 +4,15 @@
 
 package org.xwalk.core.internal.xwview.test;
 
+import java.nio.ByteBuffer;
+
 import org.xwalk.core.internal.extensions.XWalkExtensionAndroid;
 
 public class ExtensionEchoInternal extends XWalkExtensionAndroid {
+    private final static String STREAM_PREFIX = "stream:";
+    private final static String COALESCE_PREFIX = "coalesce:";
+    private final static int STREAM_RECORD_SIZE = 8;
+    private final static int STREAM_CAPACITY = 1024;
 
     public ExtensionEchoInternal() {
         super("echo",
@@ -20,6 +26,18 @@ public class ExtensionEchoInternal extends XWalkExtensionAndroid {
               + "  echoListener = callback;"
               + "  extension.postMessage(msg);"
               + "};"
+              + "exports.echoBinary = function(buffer, callback) {"
+              + "  echoListener = callback;"
+              + "  extension.postMessage(buffer);"
+              + "};"
+              + "exports.echoStream = function(count, listener) {"
+              + "  extension.setStreamListener(listener);"
+              + "  extension.postMessage('" + STREAM_PREFIX + "' + count);"
+              + "};"
+              + "exports.echoCoalesced = function(count, callback) {"
+              + "  echoListener = callback;"
+              + "  extension.postMessage('" + COALESCE_PREFIX + "' + count);"
+              + "};"
               + "exports.echoSync = function(msg) {"
               + "  return extension.internal.sendSyncMessage(msg);"
               + "};"
@@ -27,9 +45,50 @@ public class ExtensionEchoInternal extends XWalkExtensionAndroid {
     }
 
     public void onMessage(int instanceID, String message) {
+        if (message.startsWith(STREAM_PREFIX)) {
+            streamRecords(instanceID, Integer.parseInt(message.substring(STREAM_PREFIX.length())));
+            return;
+        }
+        if (message.startsWith(COALESCE_PREFIX)) {
+            int count = Integer.parseInt(message.substring(COALESCE_PREFIX.length()));
+            for (int i = 0; i < count; i++) {
+                broadcastCoalescedMessage("coalesced", "coalesced:" + i);
+            }
+            return;
+        }
         postMessage(instanceID, "From java:" + message);
     }
 
+    // Writes count records as fast as possible from a background thread, each
+    // record holding its number and three times that number.
+    private void streamRecords(final int instanceID, final int count) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int streamID = openStream(instanceID, STREAM_RECORD_SIZE, STREAM_CAPACITY);
+                if (streamID < 0) return;
+                for (int i = 0; i < count; i++) {
+                    ByteBuffer record = beginStreamRecord(streamID);
+                    record.putInt(0, i);
+                    record.putInt(4, i * 3);
+                    commitStreamRecord(streamID);
+                }
+                closeStream(streamID);
+            }
+        }).start();
+    }
+
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        // The incoming buffer is only valid during this call, copy it into a
+        // direct buffer and send every byte back incremented by one.
+        ByteBuffer reply = ByteBuffer.allocateDirect(message.remaining());
+        while (message.hasRemaining()) {
+            reply.put((byte) (message.get() + 1));
+        }
+        reply.flip();
+        postBinaryMessage(instanceID, reply);
+    }
+
     public String onSyncMessage(int instanceID, String message) {
         return "From java sync:" + message;
     }
@@ -6,6 +6,7 @@ package org.xwalk.core.internal.xwview.test;
 
 import android.test.suitebuilder.annotation.SmallTest;
 import org.chromium.base.test.util.Feature;
+import org.json.JSONObject;
 import org.xwalk.core.internal.xwview.test.ExtensionEchoInternal;
 
 /**
@@ -37,6 +38,113 @@ public class ExtensionEchoInternalTest extends XWalkViewInternalTestBase {
         assertEquals(PASS_STRING, getTitleOnUiThread());
     }
 
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testSyncWithDeadline() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+        // The reply is sent from the worker thread path, well within the deadline.
+        echo.setSyncMessageTimeout(5000);
+
+        loadAssetFile("echoSync.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testSyncDeadlineMissed() throws Throwable {
+        // The handler outlives the deadline, the page only passes if it gets
+        // the timeout reply.
+        ExtensionEchoInternal echo = new ExtensionEchoInternal() {
+            @Override
+            public String onSyncMessage(int instanceID, String message) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                }
+                return "Late";
+            }
+
+            @Override
+            public String onSyncMessageTimeout(int instanceID, String message) {
+                return super.onSyncMessage(instanceID, message);
+            }
+        };
+        echo.setSyncMessageTimeout(100);
+
+        loadAssetFile("echoSync.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+
+        JSONObject metrics = new JSONObject(echo.getMessagingMetrics());
+        assertEquals(1, metrics.getLong("syncTimeouts"));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testAsyncBatched() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+        echo.enableMessageBatching(0, 0);
+
+        loadAssetFileAndWaitForTitle("echo.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testMessagingMetrics() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+
+        loadAssetFileAndWaitForTitle("echo.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+
+        JSONObject metrics = new JSONObject(echo.getMessagingMetrics());
+        assertEquals("echo", metrics.getString("name"));
+        // echo.html doesn't use a "cmd" field, all its messages have the
+        // empty command.
+        JSONObject received = metrics.getJSONObject("received").getJSONObject("");
+        assertTrue(received.getLong("count") > 0);
+        assertEquals(received.getLong("count"),
+                metrics.getJSONObject("posted").getLong("count"));
+        assertEquals(0, metrics.getInt("queueDepth"));
+
+        echo.resetMessagingMetrics();
+        metrics = new JSONObject(echo.getMessagingMetrics());
+        assertEquals(0, metrics.getJSONObject("posted").getLong("count"));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testCoalescedBroadcast() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+        // Longer than the default so that all the broadcasts surely fall in
+        // one interval.
+        echo.setCoalescingInterval(200);
+
+        // The page only passes if it gets exactly one message, the latest.
+        loadAssetFileAndWaitForTitle("echoCoalesced.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+
+        JSONObject metrics = new JSONObject(echo.getMessagingMetrics());
+        assertEquals(1, metrics.getJSONObject("broadcasted").getLong("count"));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testBinary() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+
+        loadAssetFileAndWaitForTitle("echoBinary.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEchoInternal"})
+    public void testStreamThroughput() throws Throwable {
+        ExtensionEchoInternal echo = new ExtensionEchoInternal();
+
+        loadAssetFileAndWaitForTitle("echoStream.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
     @SmallTest
     @Feature({"ExtensionEchoInternal"})
     public void testMultiFrames() throws Throwable {
@@ -0,0 +1,206 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.SparseArray;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.chromium.base.test.util.Feature;
+import org.xwalk.core.internal.extension.XWalkExtensionMessageDispatcher;
+
+/**
+ * Checks the ordering and the concurrency XWalkExtensionMessageDispatcher
+ * guarantees for the tasks of the extension instances.
+ */
+public class ExtensionMessageDispatcherTest extends TestCase {
+    private static final int INSTANCES = 4;
+    private static final int TASKS_PER_INSTANCE = 50;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Override
+    protected void tearDown() throws Exception {
+        XWalkExtensionMessageDispatcher.setPoolSize(
+                Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+        super.tearDown();
+    }
+
+    // Records the order the tasks of each instance ran in.
+    private static class OrderRecorder {
+        private final List<List<Integer>> mRuns = new ArrayList<List<Integer>>();
+        final CountDownLatch mDone;
+
+        OrderRecorder(int instances, int tasks) {
+            for (int i = 0; i < instances; i++) mRuns.add(new ArrayList<Integer>());
+            mDone = new CountDownLatch(instances * tasks);
+        }
+
+        Runnable task(final int instanceID, final int index) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (mRuns) {
+                        mRuns.get(instanceID).add(index);
+                    }
+                    mDone.countDown();
+                }
+            };
+        }
+
+        void assertInOrder(int tasks) throws InterruptedException {
+            assertTrue(mDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            synchronized (mRuns) {
+                for (List<Integer> run : mRuns) {
+                    assertEquals(tasks, run.size());
+                    for (int i = 0; i < tasks; i++) assertEquals(i, (int) run.get(i));
+                }
+            }
+        }
+    }
+
+    private static void dispatchInterleaved(XWalkExtensionMessageDispatcher dispatcher,
+            OrderRecorder recorder) {
+        for (int i = 0; i < TASKS_PER_INSTANCE; i++) {
+            for (int instanceID = 0; instanceID < INSTANCES; instanceID++) {
+                dispatcher.dispatch(instanceID, recorder.task(instanceID, i));
+            }
+        }
+    }
+
+    private static int getInstanceQueueCount(XWalkExtensionMessageDispatcher dispatcher)
+            throws Exception {
+        Field field = XWalkExtensionMessageDispatcher.class.getDeclaredField("mInstanceQueues");
+        field.setAccessible(true);
+        SparseArray<?> queues = (SparseArray<?>) field.get(dispatcher);
+        synchronized (queues) {
+            return queues.size();
+        }
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testThreadSafeKeepsInstanceOrder() throws Throwable {
+        XWalkExtensionMessageDispatcher dispatcher =
+                new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+        OrderRecorder recorder = new OrderRecorder(INSTANCES, TASKS_PER_INSTANCE);
+        dispatchInterleaved(dispatcher, recorder);
+        recorder.assertInOrder(TASKS_PER_INSTANCE);
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testSingleThreadedKeepsInstanceOrder() throws Throwable {
+        XWalkExtensionMessageDispatcher dispatcher = new XWalkExtensionMessageDispatcher(
+                XWalkExtensionMessageDispatcher.SINGLE_THREADED);
+        OrderRecorder recorder = new OrderRecorder(INSTANCES, TASKS_PER_INSTANCE);
+        dispatchInterleaved(dispatcher, recorder);
+        recorder.assertInOrder(TASKS_PER_INSTANCE);
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testSingleThreadedRunsOneTaskAtATime() throws Throwable {
+        XWalkExtensionMessageDispatcher.setPoolSize(4);
+        XWalkExtensionMessageDispatcher dispatcher = new XWalkExtensionMessageDispatcher(
+                XWalkExtensionMessageDispatcher.SINGLE_THREADED);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(INSTANCES * 10);
+        for (int i = 0; i < 10; i++) {
+            for (int instanceID = 0; instanceID < INSTANCES; instanceID++) {
+                dispatcher.dispatch(instanceID, new Runnable() {
+                    @Override
+                    public void run() {
+                        int now = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            if (now > maxRunning.get()) maxRunning.set(now);
+                        }
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                        }
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testThrowingTaskDoesNotStallQueue() throws Throwable {
+        XWalkExtensionMessageDispatcher dispatcher =
+                new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+        final CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch(1, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Failing handler");
+            }
+        });
+        dispatcher.dispatch(1, new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testDispatchWhileQueueDrains() throws Throwable {
+        // A task dispatched while the queue of its instance is being dropped
+        // still runs, the instance gets a new queue.
+        XWalkExtensionMessageDispatcher dispatcher =
+                new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+        final int rounds = 500;
+        OrderRecorder recorder = new OrderRecorder(1, rounds);
+        for (int i = 0; i < rounds; i++) {
+            dispatcher.dispatch(0, recorder.task(0, i));
+            if (i % 3 == 0) Thread.yield();
+        }
+        recorder.assertInOrder(rounds);
+
+        // The drained queues are dropped.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (getInstanceQueueCount(dispatcher) != 0 &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, getInstanceQueueCount(dispatcher));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionMessageDispatcher"})
+    public void testSetPoolSizeWhileDispatching() throws Throwable {
+        final XWalkExtensionMessageDispatcher dispatcher =
+                new XWalkExtensionMessageDispatcher(XWalkExtensionMessageDispatcher.THREAD_SAFE);
+        final OrderRecorder recorder = new OrderRecorder(INSTANCES, TASKS_PER_INSTANCE);
+        Thread resizer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    XWalkExtensionMessageDispatcher.setPoolSize(1 + i % 6);
+                }
+            }
+        });
+        resizer.start();
+        dispatchInterleaved(dispatcher, recorder);
+        resizer.join();
+        recorder.assertInOrder(TASKS_PER_INSTANCE);
+    }
+}
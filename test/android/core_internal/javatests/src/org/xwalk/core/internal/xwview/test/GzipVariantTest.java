@@ -0,0 +1,66 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Test suite for the gzip compressed variants of the Android assets, packaged
+ * next to them as make_apk --precompress does.
+ */
+public class GzipVariantTest extends XWalkViewInternalTestBase {
+    // Has a www/gzip_variant.txt.gz variant in the asset index.
+    private static final String ASSET = "gzip_variant.txt";
+    private static final int ASSET_SIZE = 3640;
+    private static final String ASSET_START = "Crosswalk serves the gzip";
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        getXWalkSettingsOnUiThreadByContent(getXWalkView()).setAllowFileAccessFromFileURLs(true);
+        loadUrlSync("file:///android_asset/www/index.html");
+    }
+
+    // Returns "<status>|<Content-Encoding>|<Vary>|<Accept-Ranges>|<Content-Type>|
+    // <body length>|<body start>".
+    private String fetch(String range) throws Exception {
+        String code =
+                "(function() {" +
+                "  var xhr = new XMLHttpRequest();" +
+                "  xhr.open('GET', '" + ASSET + "', false);" +
+                (range == null ? "" : "  xhr.setRequestHeader('Range', '" + range + "');") +
+                "  xhr.send();" +
+                "  return xhr.status + '|' + xhr.getResponseHeader('Content-Encoding') + '|' +" +
+                "      xhr.getResponseHeader('Vary') + '|' +" +
+                "      xhr.getResponseHeader('Accept-Ranges') + '|' +" +
+                "      xhr.getResponseHeader('Content-Type') + '|' +" +
+                "      xhr.responseText.length + '|' +" +
+                "      xhr.responseText.substring(0, " + ASSET_START.length() + ");" +
+                "})()";
+        String result = executeJavaScriptAndWaitForResult(code);
+        // The result comes back as a JSON string.
+        return result.substring(1, result.length() - 1);
+    }
+
+    @SmallTest
+    @Feature({"GzipVariant"})
+    public void testVariantDecoded() throws Throwable {
+        // The body is the decoded variant, and isn't advertised as seekable.
+        assertEquals("200|gzip|null|null|text/plain|" + ASSET_SIZE + "|" + ASSET_START,
+                fetch(null));
+    }
+
+    @SmallTest
+    @Feature({"GzipVariant"})
+    public void testRangeGetsIdentity() throws Throwable {
+        // Ranges are of the decoded content, the identity file is read
+        // instead of the variant. It is compressed in the APK, so its length
+        // is unknown and the range is dropped for the whole file.
+        assertEquals("200|null|null|null|text/plain|" + ASSET_SIZE + "|" + ASSET_START,
+                fetch("bytes=0-9"));
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Test suite for the Range requests answered from the Android assets.
+ */
+public class RangeRequestTest extends XWalkViewInternalTestBase {
+    // Stored uncompressed in the APK, so its length is known.
+    private static final String IMAGE = "sampapp-icon-helloworld.png";
+    private static final int IMAGE_SIZE = 3599;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        getXWalkSettingsOnUiThreadByContent(getXWalkView()).setAllowFileAccessFromFileURLs(true);
+        loadUrlSync("file:///android_asset/www/index.html");
+    }
+
+    // Returns "<status>|<Content-Range>|<Accept-Ranges>|<body length>".
+    private String fetch(String range) throws Exception {
+        String code =
+                "(function() {" +
+                "  var xhr = new XMLHttpRequest();" +
+                "  xhr.open('GET', '" + IMAGE + "', false);" +
+                "  xhr.overrideMimeType('text/plain; charset=x-user-defined');" +
+                (range == null ? "" : "  xhr.setRequestHeader('Range', '" + range + "');") +
+                "  xhr.send();" +
+                "  return xhr.status + '|' + xhr.getResponseHeader('Content-Range') + '|' +" +
+                "      xhr.getResponseHeader('Accept-Ranges') + '|' + xhr.responseText.length;" +
+                "})()";
+        String result = executeJavaScriptAndWaitForResult(code);
+        // The result comes back as a JSON string.
+        return result.substring(1, result.length() - 1);
+    }
+
+    @SmallTest
+    @Feature({"RangeRequest"})
+    public void testNoRange() throws Throwable {
+        assertEquals("200|null|bytes|" + IMAGE_SIZE, fetch(null));
+    }
+
+    @SmallTest
+    @Feature({"RangeRequest"})
+    public void testRange() throws Throwable {
+        assertEquals("206|bytes 0-9/" + IMAGE_SIZE + "|bytes|10", fetch("bytes=0-9"));
+    }
+
+    @SmallTest
+    @Feature({"RangeRequest"})
+    public void testSuffixRange() throws Throwable {
+        assertEquals("206|bytes " + (IMAGE_SIZE - 10) + "-" + (IMAGE_SIZE - 1) + "/" +
+                IMAGE_SIZE + "|bytes|10", fetch("bytes=-10"));
+    }
+
+    @SmallTest
+    @Feature({"RangeRequest"})
+    public void testUnsatisfiableRange() throws Throwable {
+        String result = fetch("bytes=5000-5010");
+        assertTrue(result, result.startsWith("416|bytes */" + IMAGE_SIZE + "|"));
+        assertTrue(result, result.endsWith("|0"));
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+import org.xwalk.core.internal.XWalkResourceClientInternal;
+
+/**
+ * Test suite for skipping the callbacks the clients don't override.
+ */
+public class SkipUnusedCallbacksTest extends XWalkViewInternalTestBase {
+    private static final String URL = "file:///android_asset/www/index.html";
+
+    private long[] getInterceptLoadRequestCounts() throws Exception {
+        return runTestOnUiThreadAndGetResult(new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return getXWalkView().getInterceptLoadRequestCounts();
+            }
+        });
+    }
+
+    @SmallTest
+    @Feature({"SkipUnusedCallbacks"})
+    public void testRequestsNotDeliveredWithoutListener() throws Throwable {
+        setResourceClient(new XWalkResourceClientInternal(getXWalkView()));
+        long[] counts = getInterceptLoadRequestCounts();
+
+        loadUrlSync(URL);
+
+        long[] newCounts = getInterceptLoadRequestCounts();
+        assertEquals(counts[0], newCounts[0]);
+        assertTrue(newCounts[1] > counts[1]);
+    }
+
+    @SmallTest
+    @Feature({"SkipUnusedCallbacks"})
+    public void testRequestsDeliveredWithListener() throws Throwable {
+        long[] counts = getInterceptLoadRequestCounts();
+
+        loadUrlSync(URL);
+
+        long[] newCounts = getInterceptLoadRequestCounts();
+        assertTrue(newCounts[0] > counts[0]);
+    }
+}
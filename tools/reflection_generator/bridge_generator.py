@@ -23,8 +23,8 @@ class BridgeGenerator(CodeGenerator):
 ${PACKAGE_SECTION}
 
 ${IMPORT_SECTION}
-public class ${CLASS_NAME} extends ${PARENT_CLASS} {
-    private final static String WRAPPER_CLASS = "org.xwalk.core.Object";
+public class ${CLASS_NAME} extends ${PARENT_CLASS}${IMPLEMENTS} {
+    private final static String WRAPPER_CLASS = "${WRAPPER_CLASS}";
     private Object wrapper;
 
     public Object getWrapper() {
@@ -49,10 +49,16 @@ ${STATIC_INITIALIZER}
     bridge_methods = self.GenerateBridgeMethods()
     reflection_init = self.GenerateReflectionInitString()
     static_initializer = self.GenerateStaticInitializerString()
+    implements = ''
+    if self._java_data.HasDirectInterface():
+      implements = '\n        implements %s' % \
+          self._java_data.GetFullDirectInterfaceName()
     value = {'PACKAGE_SECTION': package_name,
              'IMPORT_SECTION': imports_string,
              'CLASS_NAME': bridge_class_name,
+             'WRAPPER_CLASS': self._java_data.GetFullWrapperName(),
              'PARENT_CLASS': internal_class_name,
+             'IMPLEMENTS': implements,
              'ENUMS_SECTION': bridge_enums,
              'METHODS_SECTION': bridge_methods,
              'REFLECTION_INIT_SECTION': reflection_init,
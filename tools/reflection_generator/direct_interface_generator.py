@@ -0,0 +1,49 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2014 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+from string import Template
+
+from code_generator import CodeGenerator
+
+class DirectInterfaceGenerator(CodeGenerator):
+  """Generator class that generates the interface implemented by a bridge so
+     that its wrapper calls it without reflection."""
+  def __init__(self, java_data, class_loader):
+    super(DirectInterfaceGenerator, self).__init__(java_data, class_loader)
+
+  def RunTask(self):
+    self._generated_class_name = self._java_data.direct_interface_name
+    self._generated_code = self.GenerateInterface()
+
+  def GenerateInterface(self):
+    interface_template = Template("""\
+package org.xwalk.core.direct;
+
+${IMPORT_SECTION}
+/**
+ * Super calls of ${BRIDGE_NAME}, for ${WRAPPER_NAME} to call them directly.
+ *
+ * This interface is built on its own and linked with both layers. When the
+ * library is embedded in the application, the bridge implements the very same
+ * interface and the wrapper skips reflection. A bridge loaded from the shared
+ * library implements its own copy of it, the wrapper keeps using reflection
+ * then.
+ */
+public interface ${INTERFACE_NAME} {
+${METHOD_SECTION}}
+""")
+    value = {'IMPORT_SECTION': self.GenerateImportRules(),
+             'BRIDGE_NAME': self._java_data.bridge_name,
+             'WRAPPER_NAME': self._java_data.wrapper_name,
+             'INTERFACE_NAME': self._generated_class_name,
+             'METHOD_SECTION': self.GenerateMethods()}
+    return interface_template.substitute(value)
+
+  def GenerateMethods(self):
+    methods_string = ''
+    for method in self._java_data.methods:
+      methods_string += method.GenerateMethodsStringForDirectInterface()
+    return methods_string
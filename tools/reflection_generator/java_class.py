@@ -370,6 +370,19 @@ class InternalJavaFileData(object):
     return self._class_annotations.get(
         InternalJavaFileData.ANNOTATION_CREATE_INTERNALLY, False)
 
+  def HasDirectInterface(self):
+    """Whether wrappers of this class can call their bridge directly."""
+    return self._class_type != 'interface' and \
+        not self._class_annotations.get(
+            InternalJavaFileData.ANNOTATION_NO_INSTANCE, False)
+
+  @property
+  def direct_interface_name(self):
+    return '%sCalls' % self._bridge_name
+
+  def GetFullDirectInterfaceName(self):
+    return 'org.xwalk.core.direct.%s' % self.direct_interface_name
+
   def UseAsInstanceInBridgeCall(self, var):
     return '%s.getWrapper()' % self.UseAsReturnInBridgeSuperCall(var)
 
@@ -14,6 +14,16 @@ def ConvertClassExpressionToClassType(class_name):
   return '%s.class' % class_name.split()[-1].split('<')[0]
 
 
+def PassAsReflectionArg(class_name, param_name):
+  """ Cast an array to Object when passing it to the varargs of
+      ReflectionHelper, otherwise a single array is taken as all the args.
+      "String[] names" => (Object) names
+  """
+  if class_name.endswith('[]'):
+    return '(Object) %s' % param_name
+  return param_name
+
+
 def ConvertPrimitiveTypeToObject(class_name):
   primitive_map = {
       'byte': 'Byte',
@@ -39,6 +49,9 @@ class ParamStringType(object):
   WRAPPER_DECLARE = 8
   WRAPPER_DECLARE_FOR_BRIDGE = 9
   WRAPPER_PASS_TO_BRIDGE = 10
+  DIRECT_DECLARE = 11
+  DIRECT_PASS_TO_BRIDGE = 12
+  WRAPPER_PASS_TO_DIRECT = 13
 
 
 class MethodStringType(object):
@@ -51,6 +64,8 @@ class MethodStringType(object):
   WRAPPER_STATIC = 7
   WRAPPER_BRIDGE = 8
   WRAPPER_INTERFACE = 9
+  DIRECT_INTERFACE = 10
+  BRIDGE_DIRECT = 11
 
 
 class Method(object):
@@ -83,6 +98,10 @@ class Method(object):
     self._wrapper_params_declare = ''
     self._wrapper_params_declare_for_bridge = ''
     self._wrapper_params_pass_to_bridge = ''
+    self._wrapper_params_pass_to_direct = ''
+    self._direct_params_declare = ''
+    self._direct_params_pass_to_bridge = ''
+    self._direct_method_name = ''
     self._strings_prepared = False
     self.ParseMethodParams(params)
     self.ParseMethodAnnotation(annotation)
@@ -208,6 +227,13 @@ class Method(object):
     self._wrapper_params_pass_to_bridge = ', '.join(
         self.GetFormattedParamArray(
             ParamStringType.WRAPPER_PASS_TO_BRIDGE, insert_empty=True))
+    self._wrapper_params_pass_to_direct = ', '.join(
+        self.GetFormattedParamArray(ParamStringType.WRAPPER_PASS_TO_DIRECT))
+    self._direct_params_declare = ', '.join(
+        self.GetFormattedParamArray(ParamStringType.DIRECT_DECLARE))
+    self._direct_params_pass_to_bridge = ', '.join(
+        self.GetFormattedParamArray(ParamStringType.DIRECT_PASS_TO_BRIDGE))
+    self._direct_method_name = self.GenerateDirectMethodName()
 
     self._strings_prepared = True
 
@@ -284,7 +310,7 @@ class Method(object):
         if param_type in enums:
           return 'Convert%s(%s)' % (param_type, param_name)
         else:
-          return param_name
+          return PassAsReflectionArg(param_type, param_name)
     elif param_string_type == ParamStringType.INTERNAL_PASS_TO_BRIDGE:
       # the way bridge accepts param from internal
       #   XWalkViewInternal view => (XWalkViewBridge) view
@@ -344,17 +370,53 @@ class Method(object):
         # the method itself. Using enum across class is not supported.
         return 'Convert%s(%s)' % (param_type.replace('Internal', ''),
                                   param_name)
+      else:
+        return PassAsReflectionArg(param_type, param_name)
+    elif param_string_type == ParamStringType.WRAPPER_PASS_TO_DIRECT:
+      # the way wrapper passes param to the direct interface, as to bridge
+      # but without the Object cast of arrays.
+      #   String[] names => names
+      if param_type.endswith('[]'):
+        return param_name
+      return self.FormatSingleParam(param_type, param_name,
+                                    ParamStringType.WRAPPER_PASS_TO_BRIDGE)
+    elif param_string_type == ParamStringType.DIRECT_DECLARE:
+      # the way the direct interface declares the param, types only known by
+      # the bridge side are erased as the interface lives in wrapper layer.
+      #   XWalkViewInternal view => Object view
+      #   DirectionInternal direction => Object direction
+      #   String name => String name
+      if is_internal_class or param_type in self._class_java_data.enums:
+        return 'Object %s' % param_name
+      else:
+        return '%s %s' % (param_type, param_name)
+    elif param_string_type == ParamStringType.DIRECT_PASS_TO_BRIDGE:
+      # the way bridge passes the param of the direct interface to super call
+      #   XWalkViewInternal view => (XWalkViewBridge) view
+      #   DirectionInternal direction => (DirectionInternal) direction
+      if is_internal_class:
+        return '(%s) %s' % (java_data.UseAsTypeInBridgeAndBridgeSuperCall(),
+                            param_name)
+      elif param_type in self._class_java_data.enums:
+        return '(%s) %s' % (param_type, param_name)
       else:
         return param_name
     else:
       pass
 
+  def GenerateDirectMethodName(self):
+    # Overloads may only differ by params erased to Object in the direct
+    # interface, so the direct calls are named after all the param types like
+    # the Method fields are.
+    #   load(String url, String content) => loadStringStringDirect
+    return '%sDirect' % self._method_declare_name[:-len('Method')]
+
   def GenerateMethodDeclareName(self):
     name = self.method_name
     for param_name in self.params:
-      # Remove modifier and generic type.
+      # Remove modifier and generic type, String[] => StringArray.
       name += ConvertClassExpressionToClassType(
-          self.params[param_name]).replace('.class', '')
+          self.params[param_name]).replace('.class', '').replace('[]', 'Array')
     if self._is_constructor:
       return '%sConstructor' % name
     else:
@@ -508,6 +570,35 @@ class Method(object):
 
     return template.substitute(value)
 
+  def GetDirectReturnType(self):
+    if self.IsInternalClass(self._method_return) or \
+        self._method_return in self._class_java_data.enums:
+      return 'Object'
+    return self._method_return
+
+  def GenerateBridgeDirectMethod(self):
+    if self._is_abstract:
+      return ''
+    template = Template(
+        '    public ${RETURN_TYPE} ${DIRECT_NAME}(${PARAMS}) {\n' +
+        '        ${RETURN}${NAME}Super(${PARAMS_PASSING});\n' +
+        '    }\n\n')
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'DIRECT_NAME': self._direct_method_name,
+             'NAME': self.method_name,
+             'PARAMS': self._direct_params_declare,
+             'RETURN': '' if self._method_return == 'void' else 'return ',
+             'PARAMS_PASSING': self._direct_params_pass_to_bridge}
+    return template.substitute(value)
+
+  def GenerateDirectInterfaceMethod(self):
+    template = Template(
+        '    ${RETURN_TYPE} ${DIRECT_NAME}(${PARAMS});\n')
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'DIRECT_NAME': self._direct_method_name,
+             'PARAMS': self._direct_params_declare}
+    return template.substitute(value)
+
   def GenerateWrapperConstructor(self):
     # TODO(wang16): Currently, only support pre/post wrapper lines for
     # Constructors.
@@ -575,15 +666,36 @@ class Method(object):
       template = Template(
           '${DOC}\n' +
           '    public ${RETURN_TYPE} ${NAME}(${PARAMS}) {\n' +
+          '        if (bridgeCalls != null) {\n' +
+          '            return (${RETURN_TYPE})ReflectionHelper.' +
+          'getBridgeOrWrapper(\n' +
+          '                bridgeCalls.${DIRECT_NAME}(' +
+          '${DIRECT_PARAMS_PASSING}));\n' +
+          '        }\n' +
           '        return (${RETURN_TYPE})ReflectionHelper.' +
           'getBridgeOrWrapper(\n' +
           '            ReflectionHelper.invokeMethod(' +
           '${METHOD_DECLARE_NAME}, bridge${PARAMS_PASSING}));\n' +
           '    }\n\n')
+    elif no_return_value:
+      template = Template(
+          '${DOC}\n' +
+          '    public ${RETURN_TYPE} ${NAME}(${PARAMS}) {\n' +
+          '        if (bridgeCalls != null) {\n' +
+          '            bridgeCalls.${DIRECT_NAME}(${DIRECT_PARAMS_PASSING});\n' +
+          '            return;\n' +
+          '        }\n' +
+          '        ReflectionHelper.invokeMethod(' +
+          '${METHOD_DECLARE_NAME}, bridge${PARAMS_PASSING});\n' +
+          '    }\n\n')
     else:
       template = Template(
           '${DOC}\n' +
           '    public ${RETURN_TYPE} ${NAME}(${PARAMS}) {\n' +
+          '        if (bridgeCalls != null) {\n' +
+          '            ${DIRECT_RETURN}bridgeCalls.${DIRECT_NAME}(' +
+          '${DIRECT_PARAMS_PASSING});\n' +
+          '        }\n' +
           '        ${RETURN}ReflectionHelper.invokeMethod(' +
           '${METHOD_DECLARE_NAME}, bridge${PARAMS_PASSING});\n' +
           '    }\n\n')
@@ -595,13 +707,22 @@ class Method(object):
       return_state = ''
     else:
       return_state = 'return (%s)' % ConvertPrimitiveTypeToObject(return_type)
+    # The direct call returns the very type of the wrapper method, no need to
+    # box primitives, only enums are erased to Object.
+    if self._method_return in self._class_java_data.enums:
+      direct_return_state = 'return (%s) ' % return_type
+    else:
+      direct_return_state = 'return '
     value = {'RETURN_TYPE': return_type,
              'RETURN': return_state,
+             'DIRECT_RETURN': direct_return_state,
+             'DIRECT_NAME': self._direct_method_name,
              'DOC': self.GenerateDoc(self.method_doc),
              'NAME': self.method_name,
              'PARAMS': self._wrapper_params_declare,
              'METHOD_DECLARE_NAME': self._method_declare_name,
-             'PARAMS_PASSING': self._wrapper_params_pass_to_bridge}
+             'PARAMS_PASSING': self._wrapper_params_pass_to_bridge,
+             'DIRECT_PARAMS_PASSING': self._wrapper_params_pass_to_direct}
     return template.substitute(value)
 
   def GenerateWrapperInterface(self):
@@ -629,11 +750,12 @@ class Method(object):
     elif self._is_static:
       return self.GenerateBridgeStaticMethod()
     else:
-      return '%s%s%s%s' % (
+      return '%s%s%s%s%s' % (
           '    private Method %s;\n' % self._method_declare_name,
           self.GenerateBridgeOverrideMethod(),
           self.GenerateBridgeWrapperMethod(),
-          self.GenerateBridgeSuperMethod())
+          self.GenerateBridgeSuperMethod(),
+          self.GenerateBridgeDirectMethod())
 
   def GenerateMethodsStringForWrapper(self):
     self.PrepareStrings()
@@ -651,3 +773,9 @@ class Method(object):
   def GenerateMethodsStringForInterface(self):
     self.PrepareStrings()
     return self.GenerateWrapperInterface()
+
+  def GenerateMethodsStringForDirectInterface(self):
+    self.PrepareStrings()
+    if self._is_constructor or self._is_static or self._is_abstract:
+      return ''
+    return self.GenerateDirectInterfaceMethod()
@@ -10,6 +10,7 @@ import shutil
 import sys
 
 from bridge_generator import BridgeGenerator
+from direct_interface_generator import DirectInterfaceGenerator
 from interface_generator import InterfaceGenerator
 from java_class import JavaClassLoader
 from wrapper_generator import WrapperGenerator
@@ -30,6 +31,10 @@ CLASSES_TO_BE_PROCESS = [
 
 WRAPPER_PACKAGE = 'org.xwalk.core'
 BRIDGE_PACKAGE = 'org.xwalk.core.internal'
+DIRECT_PACKAGE = 'org.xwalk.core.direct'
+
+# The line of ReflectionHelper replaced by the classes to warm up.
+WARM_UP_CLASSES_MARKER = '// Filled in by reflection_generator.py.'
 
 
 def FormatPackagePath(folder, package):
@@ -48,8 +53,22 @@ def PerformSerialize(output_path, generator, package):
   print '%s has been generated!' % (file_name)
 
 
+def GetConstructorRegisteringClass(java_data):
+  """ Return the full name of the generated class whose static initializer
+      registers the constructors of java_data with ReflectionHelper, None if
+      there is none. """
+  if java_data.class_type == 'interface':
+    return None
+  if java_data.HasCreateInternallyAnnotation():
+    return java_data.GetFullBridgeName()
+  for method in java_data.methods:
+    if method.is_constructor:
+      return java_data.GetFullWrapperName()
+  return None
+
+
 def GenerateBindingForJavaClass(
-    java_data, bridge_output, wrap_output, class_loader):
+    java_data, bridge_output, wrap_output, direct_output, class_loader):
   if java_data.class_type == 'interface':
     interface_generator = InterfaceGenerator(java_data, class_loader)
     interface_generator.RunTask()
@@ -64,21 +83,35 @@ def GenerateBindingForJavaClass(
     wrapper_generator = WrapperGenerator(java_data, class_loader)
     wrapper_generator.RunTask()
     PerformSerialize(wrap_output, wrapper_generator, WRAPPER_PACKAGE)
-
-
-def GenerateBindingForJavaDirectory(input_dir, bridge_output, wrap_output):
+    # Generate the interface for wrapper to call bridge directly. It's built
+    # on its own so that both sides can depend on it without each other.
+    if java_data.HasDirectInterface():
+      direct_generator = DirectInterfaceGenerator(java_data, class_loader)
+      direct_generator.RunTask()
+      PerformSerialize(direct_output, direct_generator, DIRECT_PACKAGE)
+
+
+def GenerateBindingForJavaDirectory(
+    input_dir, bridge_output, wrap_output, direct_output):
+  """ Return the classes registering constructors, see
+      GetConstructorRegisteringClass(). """
   java_class_loader = JavaClassLoader(input_dir, CLASSES_TO_BE_PROCESS)
-  for input_file in os.listdir(input_dir):
+  registering_classes = []
+  for input_file in sorted(os.listdir(input_dir)):
     input_class_name = input_file.replace('.java', '')
     if java_class_loader.IsInternalClass(input_class_name):
       # Load all java classes in first.
       java_data = java_class_loader.LoadJavaClass(input_class_name)
       print 'Generate bridge and wrapper code for %s' % input_class_name
-      GenerateBindingForJavaClass(
-          java_data, bridge_output, wrap_output, java_class_loader)
+      GenerateBindingForJavaClass(java_data, bridge_output, wrap_output,
+          direct_output, java_class_loader)
+      registering_class = GetConstructorRegisteringClass(java_data)
+      if registering_class:
+        registering_classes.append(registering_class)
+  return registering_classes
 
 
-def CopyReflectionHelperJava(helper_class, wrap_output):
+def CopyReflectionHelperJava(helper_class, wrap_output, warm_up_classes):
   if helper_class is None:
     return
   f = open(helper_class, 'r')
@@ -93,6 +126,10 @@ def CopyReflectionHelperJava(helper_class, wrap_output):
     else:
       if 'Wrapper Only' in line:
         pass
+      elif line.strip() == WARM_UP_CLASSES_MARKER:
+        indent = line[:len(line) - len(line.lstrip())]
+        for name in warm_up_classes:
+          fo.write('%s"%s",\n' % (indent, name))
       else:
         fo.write(line + '\n')
   fo.close()
@@ -121,6 +158,9 @@ This script can generate bridge and wrap source files for given directory.
   option_parser.add_option('--wrap_output',
                            help=('Output directory where the wrap code'
                                 'is placed.'))
+  option_parser.add_option('--direct_output',
+                           help=('Output directory where the interfaces '
+                                 'for direct calls are placed.'))
   option_parser.add_option('--helper_class',
                            help=('the path of ReflectionHelper java source, '
                                 'will copy it to output folder'))
@@ -133,12 +173,16 @@ This script can generate bridge and wrap source files for given directory.
     shutil.rmtree(options.bridge_output)
   if os.path.isdir(options.wrap_output):
     shutil.rmtree(options.wrap_output)
+  if not options.direct_output:
+    options.direct_output = options.wrap_output
+  elif os.path.isdir(options.direct_output):
+    shutil.rmtree(options.direct_output)
 
   if options.input_dir:
-    GenerateBindingForJavaDirectory(options.input_dir,
-        options.bridge_output, options.wrap_output)
+    warm_up_classes = GenerateBindingForJavaDirectory(options.input_dir,
+        options.bridge_output, options.wrap_output, options.direct_output)
     CopyReflectionHelperJava(options.helper_class,
-        options.wrap_output)
+        options.wrap_output, warm_up_classes)
 
   if options.stamp:
     Touch(options.stamp)
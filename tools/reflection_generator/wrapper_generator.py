@@ -36,7 +36,7 @@ ${ENUM_SECTION}
 
     private final static String BRIDGE_CLASS = "${BRIDGE_CLASS_FULL_NAME}";
     private Object bridge;
-
+${BRIDGE_CALLS_FIELD}
     Object getBridge() {
         return bridge;
     }
@@ -61,6 +61,10 @@ ${STATIC_INITIALIZER}
     methods = self.GenerateMethods()
     reflections = self.GenerateReflectionInitString()
     static_initializer = self.GenerateStaticInitializerString()
+    bridge_calls_field = ''
+    if self._java_data.HasDirectInterface():
+      bridge_calls_field = '    private %s bridgeCalls;\n' % \
+          self._java_data.GetFullDirectInterfaceName()
     if self._java_data.class_annotations.has_key(
         InternalJavaFileData.ANNOTATION_NO_INSTANCE):
       create_internally_constructor = ''
@@ -76,6 +80,7 @@ ${STATIC_INITIALIZER}
              'FIELD_SECTION': fields,
              'ENUM_SECTION': enums,
              'BRIDGE_CLASS_FULL_NAME': bridge_full_class_name,
+             'BRIDGE_CALLS_FIELD': bridge_calls_field,
              'CREATE_INTERNALLY_CONSTRUCORS': create_internally_constructor,
              'METHODS_SECTION': methods,
              'REFLECTION_SECTION': reflections,
@@ -186,6 +191,18 @@ null, type.toString());
                 'METHOD': enum.EnumMethodValueOfName()}
       ref_methods_string += ref_enum_template.substitute(value)
 
+    if self._java_data.HasDirectInterface():
+      # Only true when the bridge is loaded by the class loader of the wrapper,
+      # that is when the library is embedded in the application.
+      ref_direct_template = Template("""\
+        if (bridge instanceof ${INTERFACE}) {
+            bridgeCalls = (${INTERFACE}) bridge;
+            return;
+        }
+""")
+      value = {'INTERFACE': self._java_data.GetFullDirectInterfaceName()}
+      ref_methods_string += ref_direct_template.substitute(value)
+
     ref_method_template = Template("""\
         ${METHOD_DECLARE_NAME} = ReflectionHelper.loadMethod(\
 clazz, \"${METHOD}Super\"${PARAMS});
@@ -84,6 +84,8 @@
         'runtime/app/xwalk_main_delegate.h',
         'runtime/browser/android/cookie_manager.cc',
         'runtime/browser/android/cookie_manager.h',
+        'runtime/browser/android/intercept_request_filter.cc',
+        'runtime/browser/android/intercept_request_filter.h',
         'runtime/browser/android/intercepted_request_data.h',
         'runtime/browser/android/intercepted_request_data_impl.cc',
         'runtime/browser/android/intercepted_request_data_impl.h',
@@ -91,6 +93,8 @@
         'runtime/browser/android/net/android_protocol_handler.h',
         'runtime/browser/android/net/android_stream_reader_url_request_job.cc',
         'runtime/browser/android/net/android_stream_reader_url_request_job.h',
+        'runtime/browser/android/net/asset_file_input_stream.cc',
+        'runtime/browser/android/net/asset_file_input_stream.h',
         'runtime/browser/android/net/input_stream.h',
         'runtime/browser/android/net/input_stream_impl.cc',
         'runtime/browser/android/net/input_stream_impl.h',